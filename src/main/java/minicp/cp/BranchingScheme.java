@@ -16,6 +16,7 @@
 package minicp.cp;
 
 import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
 import minicp.engine.core.Solver;
 import minicp.search.LimitedDiscrepancyBranching;
 import minicp.search.Sequencer;
@@ -23,6 +24,7 @@ import minicp.util.Procedure;
 import minicp.util.exception.InconsistencyException;
 import minicp.util.exception.NotImplementedException;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
@@ -139,6 +141,82 @@ public final class BranchingScheme {
         };
     }
 
+    /**
+     * Insertion strategy for sequence variables over the same nodes.
+     * It selects the node that is not yet a member of any sequence
+     * with the fewest insertions over all the sequences.
+     * Then it creates one branch per insertion,
+     * from the cheapest to the most expensive one,
+     * the cost of inserting {@code i} between {@code p} and {@code s} being
+     * {@code dist[p][i] + dist[i][s] - dist[p][s]}.
+     * A last branch excludes the node from all the sequences
+     * if it is required in none of them.
+     *
+     * @param dist the distance matrix between the nodes, begin and end included
+     * @param seqs the sequences on which the strategy is applied
+     * @return an insertion branching strategy
+     * @see Factory#makeDfs(Solver, Supplier)
+     */
+    public static Supplier<Procedure[]> insertion(int[][] dist, SequenceVar... seqs) {
+        Solver cp = seqs[0].getSolver();
+        int n = seqs[0].nNode();
+        int[] insertions = new int[n + 1];
+        return () -> {
+            int node = -1;
+            int best = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                int count = 0;
+                for (SequenceVar seq : seqs) {
+                    if (seq.isMember(i)) {
+                        count = 0;
+                        break;
+                    }
+                    count += seq.nInsertions(i);
+                }
+                if (count > 0 && count < best) {
+                    node = i;
+                    best = count;
+                }
+            }
+            if (node < 0)
+                return EMPTY;
+            int i = node;
+            boolean required = false;
+            Procedure[] branches = new Procedure[best + 1];
+            int[] costs = new int[best];
+            int nBranches = 0;
+            for (SequenceVar seq : seqs) {
+                required |= seq.isRequired(i);
+                int nIns = seq.fillInsertions(i, insertions);
+                for (int k = 0; k < nIns; k++) {
+                    int p = insertions[k];
+                    int s = seq.nextMember(p);
+                    int cost = dist[p][i] + dist[i][s] - dist[p][s];
+                    // insertion sort by increasing cost
+                    int j = nBranches++;
+                    while (j > 0 && costs[j - 1] > cost) {
+                        costs[j] = costs[j - 1];
+                        branches[j] = branches[j - 1];
+                        j--;
+                    }
+                    costs[j] = cost;
+                    branches[j] = () -> {
+                        seq.insert(i, p);
+                        cp.fixPoint();
+                    };
+                }
+            }
+            if (required)
+                return Arrays.copyOf(branches, nBranches);
+            branches[nBranches] = () -> {
+                for (SequenceVar seq : seqs)
+                    seq.exclude(i);
+                cp.fixPoint();
+            };
+            return branches;
+        };
+    }
+
     /**
      * Sequential Search combinator that linearly
      * considers a list of branching generator.
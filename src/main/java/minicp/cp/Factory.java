@@ -25,6 +25,7 @@ import minicp.util.exception.InconsistencyException;
 import minicp.util.Procedure;
 import minicp.util.exception.IntOverFlowException;
 
+import java.security.InvalidParameterException;
 import java.util.Arrays;
 import java.util.Set;
 import java.util.function.Function;
@@ -121,6 +122,60 @@ public final class Factory {
         return new BoolVarImpl(cp);
     }
 
+    /**
+     * Creates a present interval variable with a fixed length.
+     *
+     * @param cp the solver in which the variable is created
+     * @param startMin the minimum start time
+     * @param endMax the maximum end time {@code endMax >= startMin + length}
+     * @param length the length of the interval, non negative
+     * @return an interval of the given length inside {@code [startMin, endMax]}
+     */
+    public static IntervalVar makeIntervalVar(Solver cp, int startMin, int endMax, int length) {
+        return new IntervalVarImpl(cp, startMin, endMax, length, length, false);
+    }
+
+    /**
+     * Creates an interval variable with a fixed length, possibly optional.
+     *
+     * @param cp the solver in which the variable is created
+     * @param startMin the minimum start time
+     * @param endMax the maximum end time {@code endMax >= startMin + length}
+     * @param length the length of the interval, non negative
+     * @param optional true if the interval may be absent
+     * @return an interval of the given length inside {@code [startMin, endMax]}
+     */
+    public static IntervalVar makeIntervalVar(Solver cp, int startMin, int endMax, int length, boolean optional) {
+        return new IntervalVarImpl(cp, startMin, endMax, length, length, optional);
+    }
+
+    /**
+     * Creates an interval variable with a variable length, possibly optional.
+     *
+     * @param cp the solver in which the variable is created
+     * @param startMin the minimum start time
+     * @param endMax the maximum end time {@code endMax >= startMin + lengthMin}
+     * @param lengthMin the minimum length of the interval, non negative
+     * @param lengthMax the maximum length of the interval
+     * @param optional true if the interval may be absent
+     * @return an interval inside {@code [startMin, endMax]}
+     */
+    public static IntervalVar makeIntervalVar(Solver cp, int startMin, int endMax, int lengthMin, int lengthMax, boolean optional) {
+        return new IntervalVarImpl(cp, startMin, endMax, lengthMin, lengthMax, optional);
+    }
+
+    /**
+     * Creates a sequence variable with all the nodes possible.
+     *
+     * @param cp the solver in which the variable is created
+     * @param nNode the number of nodes, begin and end excluded
+     * @return a sequence over the nodes {@code 0..nNode-1}
+     *         from the begin node {@code nNode} to the end node {@code nNode+1}
+     */
+    public static SequenceVar makeSequenceVar(Solver cp, int nNode) {
+        return new SequenceVarImpl(cp, nNode);
+    }
+
     /**
      * Creates an array of variables with specified domain size.
      *
@@ -401,6 +456,27 @@ public final class Factory {
         return new NotEqual(x, y, c);
     }
 
+    /**
+     * Returns the indicators of the values of a variable,
+     * linked to it by a single {@link Indicators} constraint
+     * instead of one {@link IsEqual} constraint per value.
+     *
+     * @param x the variable, with non negative values
+     * @return an array {@code b} of {@code x.max()+1} boolean variables
+     *         such that {@code b[j]} is true if and only if x takes the value j
+     * @see Indicators
+     */
+    public static BoolVar[] indicators(IntVar x) {
+        if (x.min() < 0)
+            throw new InvalidParameterException("the values must be non negative");
+        Solver cp = x.getSolver();
+        BoolVar[] b = new BoolVar[x.max() + 1];
+        for (int j = 0; j < b.length; j++)
+            b[j] = makeBoolVar(cp);
+        cp.post(new Indicators(x, b));
+        return b;
+    }
+
     /**
      * Returns a boolean variable representing
      * whether one variable is equal to the given constant.
@@ -486,6 +562,47 @@ public final class Factory {
         return isLargerOrEqual(x, c + 1);
     }
 
+    /**
+     * Returns a constraint imposing that at least
+     * one of the boolean variables is true.
+     *
+     * @param x a non empty array of boolean variables
+     * @return a constraint so that {@code x[0] or ... or x[n-1]}
+     * @see Or
+     */
+    public static Constraint or(BoolVar... x) {
+        return new Or(x);
+    }
+
+    /**
+     * Returns a boolean variable representing
+     * whether at least one of the boolean variables is true.
+     * This relation is enforced by the {@link IsOr} constraint
+     * posted by calling this method.
+     *
+     * @param x a non empty array of boolean variables
+     * @return a boolean variable that is true if and only if
+     *         at least one variable in x is true
+     */
+    public static BoolVar isOr(BoolVar... x) {
+        BoolVar b = makeBoolVar(x[0].getSolver());
+        b.getSolver().post(new IsOr(b, x));
+        return b;
+    }
+
+    /**
+     * Returns a constraint imposing that
+     * a first boolean variable implies a second one.
+     *
+     * @param b1 left-hand side of the implication
+     * @param b2 right-hand side of the implication
+     * @return a constraint so that {@code !b1 or b2}
+     * @see Or
+     */
+    public static Constraint implies(BoolVar b1, BoolVar b2) {
+        return new Or(new BoolVar[]{not(b1), b2});
+    }
+
     /**
      * Returns a constraint imposing that the
      * a first variable is less or equal to a second one.
@@ -528,6 +645,30 @@ public final class Factory {
         return z;
     }
 
+    /**
+     * Returns a variable representing
+     * the value in an array of variables at the position
+     * specified by the given index variable
+     * This relation is enforced by the {@link Element1DVar} constraint
+     * posted by calling this method.
+     *
+     * @param array the array of variables
+     * @param y the variable
+     * @return a variable equal to {@code array[y]}
+     */
+    public static IntVar element(IntVar[] array, IntVar y) {
+        Solver cp = y.getSolver();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (IntVar t : array) {
+            min = Math.min(min, t.min());
+            max = Math.max(max, t.max());
+        }
+        IntVar z = makeIntVar(cp, min, max);
+        cp.post(new Element1DVar(array, y, z));
+        return z;
+    }
+
     /**
      * Returns a variable representing
      * the value in a matrix at the position
@@ -614,6 +755,49 @@ public final class Factory {
         return new Sum(x, y);
     }
 
+    /**
+     * Returns a variable representing
+     * the scalar product of a given set of variables.
+     * This relation is enforced by the {@link ScalarProduct} constraint
+     * posted by calling this method.
+     *
+     * @param a the coefficients
+     * @param x the variables, of the same size as a
+     * @return a variable equal to {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1]}
+     */
+    public static IntVar scalarProduct(int[] a, IntVar[] x) {
+        long sumMin = 0;
+        long sumMax = 0;
+        for (int i = 0; i < x.length; i++) {
+            sumMin += Math.min((long) a[i] * x[i].min(), (long) a[i] * x[i].max());
+            sumMax += Math.max((long) a[i] * x[i].min(), (long) a[i] * x[i].max());
+        }
+        if (sumMin < (long) Integer.MIN_VALUE || sumMax > (long) Integer.MAX_VALUE) {
+            throw new IntOverFlowException("domains are too large for scalar product constraint and would exceed Integer bounds");
+        }
+        Solver cp = x[0].getSolver();
+        IntVar s = makeIntVar(cp, (int) sumMin, (int) sumMax);
+        int[] coefs = Arrays.copyOf(a, a.length + 1);
+        coefs[a.length] = -1;
+        IntVar[] vars = Arrays.copyOf(x, x.length + 1);
+        vars[x.length] = s;
+        cp.post(new ScalarProduct(coefs, vars, ScalarProduct.Relation.EQ, 0));
+        return s;
+    }
+
+    /**
+     * Returns a scalar product constraint.
+     *
+     * @param a the coefficients
+     * @param x the variables, of the same size as a
+     * @param rel the relation
+     * @param c a constant
+     * @return a constraint so that {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] rel c}
+     */
+    public static Constraint scalarProduct(int[] a, IntVar[] x, ScalarProduct.Relation rel, int c) {
+        return new ScalarProduct(a, x, rel, c);
+    }
+
     /**
      * Returns a binary decomposition of the allDifferent constraint.
      *
@@ -634,4 +818,351 @@ public final class Factory {
     public static Constraint allDifferentDC(IntVar[] x) {
         return new AllDifferentDC(x);
     }
+
+    /**
+     * Returns an allDifferent constraint that enforces
+     * bounds consistency.
+     * It is stronger than the binary decomposition
+     * and cheaper than the domain consistent one,
+     * suited for variables with large ranges of values.
+     *
+     * @param x an array of variables
+     * @return a constraint so that {@code x[i] != x[j] for all i < j}
+     */
+    public static Constraint allDifferentBC(IntVar[] x) {
+        return new AllDifferentBC(x);
+    }
+
+    /**
+     * Returns a global cardinality constraint
+     * with a counting filter.
+     *
+     * @param x an array of variables
+     * @param minValue the smallest value with cardinality bounds
+     * @param low {@code low[k]} is the minimum number of variables equal to {@code minValue + k}
+     * @param up {@code up[k]} is the maximum number of variables equal to {@code minValue + k}
+     * @return a constraint so that {@code low[k] <= #{i | x[i] == minValue + k} <= up[k]}
+     */
+    public static Constraint globalCardinality(IntVar[] x, int minValue, int[] low, int[] up) {
+        return new GlobalCardinality(x, minValue, low, up);
+    }
+
+    /**
+     * Returns a global cardinality constraint
+     * that enforces domain consistency.
+     *
+     * @param x an array of variables
+     * @param minValue the smallest value with cardinality bounds
+     * @param low {@code low[k]} is the minimum number of variables equal to {@code minValue + k}
+     * @param up {@code up[k]} is the maximum number of variables equal to {@code minValue + k}
+     * @return a constraint so that {@code low[k] <= #{i | x[i] == minValue + k} <= up[k]}
+     */
+    public static Constraint globalCardinalityDC(IntVar[] x, int minValue, int[] low, int[] up) {
+        return new GlobalCardinality(x, minValue, low, up, true);
+    }
+
+    /**
+     * Returns a Hamiltonian circuit constraint with a successor model.
+     *
+     * @param succ the successor of each node
+     * @return a constraint so that following the successors from
+     *         any node visits all the nodes once before coming back to it
+     */
+    public static Constraint circuit(IntVar[] succ) {
+        return new Circuit(succ);
+    }
+
+    /**
+     * Returns a Hamiltonian circuit constraint with a successor model
+     * and a total distance bounded by the Held-Karp relaxation.
+     *
+     * @param succ the successor of each node
+     * @param dist the non negative distance matrix
+     * @param cost the total distance of the circuit
+     * @return a constraint so that {@code succ} is a circuit and
+     *         {@code cost} is the sum of {@code dist[i][succ[i]]}
+     * @see WeightedCircuit
+     */
+    public static Constraint weightedCircuit(IntVar[] succ, int[][] dist, IntVar cost) {
+        return new WeightedCircuit(succ, dist, cost);
+    }
+
+    /**
+     * Returns a vehicle routing constraint with a successor model,
+     * the nodes {@code 0..nVehicle-1} being copies of the depot.
+     *
+     * @param succ the successor of each node
+     * @param nVehicle the number of vehicles
+     * @return a constraint so that {@code succ} is a circuit,
+     *         each vehicle route going from a depot copy to the next one
+     * @see VehicleRouting
+     */
+    public static Constraint vehicleRouting(IntVar[] succ, int nVehicle) {
+        return new VehicleRouting(succ, nVehicle);
+    }
+
+    /**
+     * Returns a capacitated vehicle routing constraint with a successor model,
+     * the nodes {@code 0..nVehicle-1} being copies of the depot.
+     *
+     * @param succ the successor of each node
+     * @param nVehicle the number of vehicles
+     * @param demand the non negative demand of each node
+     * @param capacity the capacity of each vehicle
+     * @return a constraint so that {@code succ} is a circuit,
+     *         each vehicle route going from a depot copy to the next one
+     *         and the demand of the cities of each route being at most the capacity
+     * @see VehicleRouting
+     */
+    public static Constraint vehicleRouting(IntVar[] succ, int nVehicle, int[] demand, int capacity) {
+        return new VehicleRouting(succ, nVehicle, demand, capacity);
+    }
+
+    /**
+     * Returns a capacitated vehicle routing constraint with a successor model
+     * and the load of the vehicle after each node,
+     * the nodes {@code 0..nVehicle-1} being copies of the depot.
+     *
+     * @param succ the successor of each node
+     * @param nVehicle the number of vehicles
+     * @param demand the non negative demand of each node
+     * @param capacity the capacity of each vehicle
+     * @param load the load of the vehicle after each node
+     * @return a constraint so that {@code succ} is a circuit,
+     *         each vehicle route going from a depot copy to the next one,
+     *         {@code load} being 0 at the depot copies,
+     *         {@code load[succ[i]] = load[i] + demand[succ[i]]} for the cities
+     *         and at most the capacity
+     * @see VehicleRouting
+     */
+    public static Constraint vehicleRouting(IntVar[] succ, int nVehicle, int[] demand, int capacity, IntVar[] load) {
+        return new VehicleRouting(succ, nVehicle, demand, capacity, load);
+    }
+
+    /**
+     * Returns a cumulative constraint with a time-table filtering.
+     *
+     * @param start the start time of each activity
+     * @param duration the duration of each activity (non negative)
+     * @param demand the demand of each activity (non negative)
+     * @param capa the capacity of the resource
+     * @return a constraint so that at any time-point, the sum of the demands
+     *         of the activities overlapping it does not exceed {@code capa}
+     */
+    public static Constraint cumulative(IntVar[] start, int[] duration, int[] demand, int capa) {
+        return new Cumulative(start, duration, demand, capa);
+    }
+
+    /**
+     * Returns a cumulative constraint with the given filtering strength.
+     *
+     * @param start the start time of each activity
+     * @param duration the duration of each activity (non negative)
+     * @param demand the demand of each activity (non negative)
+     * @param capa the capacity of the resource
+     * @param strength {@link Cumulative.Strength#TIME_TABLE} or the stronger
+     *                 and more expensive {@link Cumulative.Strength#EDGE_FINDING}
+     * @return a constraint so that at any time-point, the sum of the demands
+     *         of the activities overlapping it does not exceed {@code capa}
+     */
+    public static Constraint cumulative(IntVar[] start, int[] duration, int[] demand, int capa, Cumulative.Strength strength) {
+        return new Cumulative(start, duration, demand, capa, strength);
+    }
+
+    /**
+     * Returns a cumulative constraint on interval variables
+     * with a time-table filtering, ignoring the absent intervals.
+     *
+     * @param intervals the interval variables
+     * @param demand the demand of each interval (non negative)
+     * @param capa the capacity of the resource
+     * @return a constraint so that at any time-point, the sum of the demands
+     *         of the present intervals overlapping it does not exceed {@code capa}
+     */
+    public static Constraint cumulative(IntervalVar[] intervals, int[] demand, int capa) {
+        return new CumulativeInterval(intervals, demand, capa);
+    }
+
+    /**
+     * Returns a disjunctive constraint on interval variables,
+     * ignoring the absent intervals.
+     *
+     * @param intervals the interval variables
+     * @return a constraint so that no two present intervals overlap
+     */
+    public static Constraint disjunctive(IntervalVar[] intervals) {
+        return new DisjunctiveInterval(intervals);
+    }
+
+    /**
+     * Returns a precedence constraint between two interval variables.
+     *
+     * @param a the first interval
+     * @param b the second interval
+     * @return a constraint so that {@code a} ends before {@code b} starts
+     *         if both are present
+     */
+    public static Constraint endBeforeStart(IntervalVar a, IntervalVar b) {
+        return new EndBeforeStart(a, b);
+    }
+
+    /**
+     * Returns a transition times constraint on a sequence.
+     *
+     * @param seq the sequence
+     * @param time the time of each node, begin and end included
+     * @param dist the distance matrix between the nodes, begin and end included
+     * @return a constraint so that a member {@code j} following a member {@code i}
+     *         is visited at {@code time[j] >= time[i] + dist[i][j]}
+     * @see TransitionTimes
+     */
+    public static Constraint transitionTimes(SequenceVar seq, IntVar[] time, int[][] dist) {
+        return new TransitionTimes(seq, time, dist);
+    }
+
+    /**
+     * Returns a transition times constraint on a sequence
+     * whose members are visited as soon as possible once it is fixed.
+     *
+     * @param seq the sequence
+     * @param time the time of each node, begin and end included
+     * @param dist the distance matrix between the nodes, begin and end included
+     * @param earliest the time of each node, begin and end included,
+     *                 until which a member may wait after being reached
+     * @return a constraint so that a member {@code j} following a member {@code i}
+     *         is visited at {@code time[j] >= time[i] + dist[i][j]},
+     *         with an equality once the sequence is fixed if {@code time[j] > earliest[j]}
+     * @see TransitionTimes
+     */
+    public static Constraint transitionTimes(SequenceVar seq, IntVar[] time, int[][] dist, int[] earliest) {
+        return new TransitionTimes(seq, time, dist, earliest);
+    }
+
+    /**
+     * Returns a constraint on the length of a sequence.
+     *
+     * @param seq the sequence
+     * @param dist the distance matrix between the nodes, begin and end included
+     * @param length the length of the sequence
+     * @return a constraint so that {@code length} is the sum of the distances
+     *         between the consecutive members of the sequence
+     */
+    public static Constraint distance(SequenceVar seq, int[][] dist, IntVar length) {
+        return new Distance(seq, dist, length);
+    }
+
+    /**
+     * Returns a precedence constraint on a sequence.
+     *
+     * @param seq the sequence
+     * @param order the nodes, in the order they must appear
+     * @return a constraint so that the nodes of {@code order}
+     *         that are members appear in this order
+     */
+    public static Constraint precedence(SequenceVar seq, int... order) {
+        return new Precedence(seq, order);
+    }
+
+    /**
+     * Returns a capacity constraint along a sequence.
+     *
+     * @param seq the sequence
+     * @param starts the start node of each activity
+     * @param ends the end node of each activity, following its start
+     * @param load the non negative load of each activity
+     * @param capacity the capacity
+     * @return a constraint so that the sum of the loads of the activities
+     *         between their start and end never exceeds {@code capacity}
+     * @see SequenceCumulative
+     */
+    public static Constraint cumulative(SequenceVar seq, int[] starts, int[] ends, int[] load, int capacity) {
+        return new SequenceCumulative(seq, starts, ends, load, capacity);
+    }
+
+    /**
+     * Returns a constraint assigning the nodes to sequences over the same nodes.
+     *
+     * @param seqs the sequences
+     * @param x the sequence of each node
+     * @return a constraint so that each node {@code i} is a member of {@code seqs[x[i]]}
+     *         once the sequences are fixed, and is excluded from the other ones
+     */
+    public static Constraint assignment(SequenceVar[] seqs, IntVar[] x) {
+        return new SequenceAssignment(seqs, x);
+    }
+
+    /**
+     * Returns a bin-packing constraint.
+     *
+     * @param x the bin of each item
+     * @param w the non negative weight of each item
+     * @param l the load of each bin
+     * @return a constraint so that each item {@code i} is placed in the bin {@code x[i]}
+     *         and {@code l[j]} is the sum of the weights of the items placed in bin {@code j}
+     * @see BinPacking
+     */
+    public static Constraint binPacking(IntVar[] x, int[] w, IntVar[] l) {
+        return new BinPacking(x, w, l);
+    }
+
+    /**
+     * Returns a table constraint, either a {@link TableCT}
+     * or a {@link MDD4R} on the table compiled into an MDD,
+     * depending on which one is estimated to use the least memory.
+     * The bit-sets of {@link TableCT} have one bit per tuple
+     * for each value of each variable, while the MDD is much smaller
+     * if the tuples share a lot of prefixes and suffixes.
+     * The table is sorted to be compiled, the compilation
+     * stopping as soon as the MDD is known to be the largest.
+     *
+     * @param x the variables
+     * @param table the possible tuples for x,
+     *              the second dimension must be of the same size as the array x
+     * @return a constraint so that {@code x} is a row of the table
+     */
+    public static Constraint table(IntVar[] x, int[][] table) {
+        if (table.length == 0)
+            return new TableCT(x, table);
+        long nValues = 0;
+        for (IntVar xi : x)
+            nValues += xi.max() - xi.min() + 1;
+        long ctBytes = 8L * ((table.length + 63) / 64) * nValues;
+        // an MDD with more nodes and edges than this bound uses more memory
+        long maxSize = Math.max(0, (ctBytes - 24L * nValues) / 28);
+        MDD mdd = MDD.fromTable(table, maxSize);
+        if (mdd == null)
+            return new TableCT(x, table);
+        // edges: static arrays, index by value and sparse set, nodes and values: reversible counters
+        long mddBytes = 28L * mdd.numberOfEdges() + 48L * mdd.numberOfNodes() + 24L * nValues;
+        if (mddBytes < ctBytes)
+            return new MDD4R(x, mdd);
+        return new TableCT(x, table);
+    }
+
+    /**
+     * Returns an MDD constraint.
+     * A table too large to fit in memory can be compiled
+     * tuple by tuple with a {@link MDD.Builder}.
+     *
+     * @param x the variables
+     * @param mdd the MDD of the possible tuples for x, of arity {@code x.length}
+     * @return a constraint so that {@code x} is a path of the MDD
+     */
+    public static Constraint mdd(IntVar[] x, MDD mdd) {
+        return new MDD4R(x, mdd);
+    }
+
+    /**
+     * Returns a negative table constraint.
+     * It avoids enumerating the complement of the forbidden tuples
+     * in a positive table.
+     *
+     * @param x the variables
+     * @param table the forbidden tuples for x,
+     *              the second dimension must be of the same size as the array x
+     * @return a constraint so that {@code x} is not a row of the table
+     */
+    public static Constraint negativeTable(IntVar[] x, int[][] table) {
+        return new NegTableCT(x, table);
+    }
 }
@@ -0,0 +1,240 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Bounds Consistent AllDifferent Constraint
+ *
+ * Algorithm described in
+ * "A fast and simple algorithm for bounds consistency of the alldifferent constraint"
+ * A. López-Ortiz, C.-G. Quimper, J. Tromp, P. van Beek, IJCAI-03
+ * <p>
+ * The Hall intervals are detected by a union-find (with path compression)
+ * over the sorted bounds of the variables in {@code O(n log n)}.
+ * All the arrays are allocated once, the orders of the variables by
+ * lower and upper bounds being kept from one propagation to the next one
+ * so that sorting them again is cheap.
+ */
+public class AllDifferentBC extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final int n;
+
+    private final int[] lb;
+    private final int[] ub; // inclusive upper bounds
+    private final int[] minRank; // rank of lb[i] in bounds
+    private final int[] maxRank; // rank of ub[i]+1 in bounds
+    private final int[] minSorted; // variables sorted by increasing lb
+    private final int[] maxSorted; // variables sorted by increasing ub
+    private final int[] sortBuffer;
+
+    private final long[] bounds; // distinct values of the lb and ub+1, with sentinels, in long not to overflow
+    private int nBounds;
+    private final int[] t; // tree links
+    private final long[] d; // differences between critical capacities
+    private final int[] h; // Hall interval links
+
+    /**
+     * Creates an allDifferent constraint achieving bounds consistency.
+     *
+     * @param x the variables that must take different values
+     */
+    public AllDifferentBC(IntVar... x) {
+        super(x[0].getSolver());
+        this.x = x;
+        this.n = x.length;
+        lb = new int[n];
+        ub = new int[n];
+        minRank = new int[n];
+        maxRank = new int[n];
+        minSorted = new int[n];
+        maxSorted = new int[n];
+        sortBuffer = new int[n];
+        for (int i = 0; i < n; i++) {
+            minSorted[i] = i;
+            maxSorted[i] = i;
+        }
+        bounds = new long[2 * n + 2];
+        t = new int[2 * n + 2];
+        d = new long[2 * n + 2];
+        h = new int[2 * n + 2];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x)
+            var.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        for (int i = 0; i < n; i++) {
+            lb[i] = x[i].min();
+            ub[i] = x[i].max();
+        }
+        sortBounds();
+        filterLower();
+        filterUpper();
+    }
+
+    /**
+     * Sorts the variables by bounds and computes the ranks
+     * of their bounds in the sorted array of distinct bounds
+     */
+    private void sortBounds() {
+        sort(minSorted, lb, 0, n);
+        sort(maxSorted, ub, 0, n);
+        long min = lb[minSorted[0]];
+        long max = ub[maxSorted[0]] + 1L;
+        long last = min - 2;
+        int nb = 0;
+        bounds[0] = last;
+        int i = 0;
+        int j = 0;
+        while (true) {
+            if (i < n && min <= max) {
+                if (min != last)
+                    bounds[++nb] = last = min;
+                minRank[minSorted[i]] = nb;
+                if (++i < n)
+                    min = lb[minSorted[i]];
+            } else {
+                if (max != last)
+                    bounds[++nb] = last = max;
+                maxRank[maxSorted[j]] = nb;
+                if (++j == n)
+                    break;
+                max = ub[maxSorted[j]] + 1L;
+            }
+        }
+        nBounds = nb;
+        bounds[nb + 1] = bounds[nb] + 2;
+    }
+
+    private void filterLower() {
+        for (int i = 1; i <= nBounds + 1; i++) {
+            t[i] = h[i] = i - 1;
+            d[i] = bounds[i] - bounds[i - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            int v = maxSorted[i];
+            int x0 = minRank[v];
+            int y = maxRank[v];
+            int z = pathMax(t, x0 + 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z + 1;
+                z = pathMax(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, x0 + 1, z, z);
+            if (d[z] < bounds[z] - bounds[y])
+                throw INCONSISTENCY;
+            if (h[x0] > x0) {
+                // [bounds[x0], bounds[w]) is a Hall interval
+                int w = pathMax(h, h[x0]);
+                x[v].removeBelow((int) bounds[w]); // at most ub[v], the failures being detected above
+                pathSet(h, x0, w, w);
+            }
+            if (d[z] == bounds[z] - bounds[y]) {
+                pathSet(h, h[y], j - 1, y);
+                h[y] = j - 1;
+            }
+        }
+    }
+
+    private void filterUpper() {
+        for (int i = 0; i <= nBounds; i++) {
+            t[i] = h[i] = i + 1;
+            d[i] = bounds[i + 1] - bounds[i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int v = minSorted[i];
+            int x0 = maxRank[v];
+            int y = minRank[v];
+            int z = pathMin(t, x0 - 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z - 1;
+                z = pathMin(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, x0 - 1, z, z);
+            if (d[z] < bounds[y] - bounds[z])
+                throw INCONSISTENCY;
+            if (h[x0] < x0) {
+                // [bounds[w], bounds[x0]) is a Hall interval
+                int w = pathMin(h, h[x0]);
+                x[v].removeAbove((int) (bounds[w] - 1)); // at least lb[v]
+                pathSet(h, x0, w, w);
+            }
+            if (d[z] == bounds[y] - bounds[z]) {
+                pathSet(h, h[y], j + 1, y);
+                h[y] = j + 1;
+            }
+        }
+    }
+
+    private static void pathSet(int[] t, int start, int end, int to) {
+        int l = start;
+        int k;
+        while ((k = l) != end) {
+            l = t[k];
+            t[k] = to;
+        }
+    }
+
+    private static int pathMin(int[] t, int i) {
+        while (t[i] < i)
+            i = t[i];
+        return i;
+    }
+
+    private static int pathMax(int[] t, int i) {
+        while (t[i] > i)
+            i = t[i];
+        return i;
+    }
+
+    /**
+     * Stable merge sort of order[from..to) by increasing key,
+     * linear if the order is already sorted
+     */
+    private void sort(int[] order, int[] key, int from, int to) {
+        if (to - from < 2)
+            return;
+        int mid = (from + to) >>> 1;
+        sort(order, key, from, mid);
+        sort(order, key, mid, to);
+        if (key[order[mid - 1]] <= key[order[mid]])
+            return;
+        System.arraycopy(order, from, sortBuffer, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && key[sortBuffer[i]] <= key[sortBuffer[j]]))
+                order[k] = sortBuffer[i++];
+            else
+                order[k] = sortBuffer[j++];
+        }
+    }
+}
@@ -19,17 +19,23 @@ import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
 import minicp.util.GraphUtil;
 import minicp.util.GraphUtil.Graph;
-import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
 /**
  * Arc Consistent AllDifferent Constraint
  *
  * Algorithm described in
  * "A filtering algorithm for constraints of difference in CSPs" J-C. Régin, AAAI-94
+ * <p>
+ * The maximum matching is repaired incrementally by {@link MaximumMatching}
+ * when matched values are removed.
+ * The residual graph is stored in flat adjacency arrays and the
+ * strongly connected components are computed with an iterative Tarjan's algorithm,
+ * both reusing the same buffers at each propagation.
  */
 public class AllDifferentDC extends AbstractConstraint {
 
@@ -38,12 +44,21 @@ public class AllDifferentDC extends AbstractConstraint {
     private final MaximumMatching maximumMatching;
 
     private final int nVar;
-    private int nVal;
-
-    // residual graph
-    private ArrayList<Integer>[] in;
-    private ArrayList<Integer>[] out;
-    private int nNodes;
+    private final int nVal;
+    private final int minVal;
+
+    // residual graph: the variables, the values and the sink
+    // the successors of node u are adj[adjStart[u]..adjStart[u+1]-1]
+    private final int nNodes;
+    private final int sink;
+    private final int[] adjStart;
+    private final int[] adj;
+    private final int[] scc;
+    private final GraphUtil.Tarjan tarjan;
+
+    /**
+     * View of the residual graph computed at the last propagation
+     */
     protected Graph g = new Graph() {
         @Override
         public int n() {
@@ -52,27 +67,55 @@ public class AllDifferentDC extends AbstractConstraint {
 
         @Override
         public Iterable<Integer> in(int idx) {
-            return in[idx];
+            ArrayList<Integer> in = new ArrayList<>();
+            for (int u = 0; u < nNodes; u++)
+                for (int e = adjStart[u]; e < adjStart[u + 1]; e++)
+                    if (adj[e] == idx)
+                        in.add(u);
+            return in;
         }
 
         @Override
         public Iterable<Integer> out(int idx) {
-            return out[idx];
+            ArrayList<Integer> out = new ArrayList<>();
+            for (int e = adjStart[idx]; e < adjStart[idx + 1]; e++)
+                out.add(adj[e]);
+            return out;
         }
     };
 
-    private int[] match;
-    private boolean[] matched;
-
-    private int minVal;
-    private int maxVal;
+    private final int[] match;
+    private final int[] valMatch; // variable matched to each value, -1 if none
+    private final int[] dom;
 
     public AllDifferentDC(IntVar... x) {
         super(x[0].getSolver());
         this.x = x;
-        maximumMatching = new MaximumMatching(x);
-        match = new int[x.length];
         this.nVar = x.length;
+        maximumMatching = new MaximumMatching(x);
+        match = new int[nVar];
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        int nEdges = 0;
+        int maxSize = 0;
+        for (int i = 0; i < nVar; i++) {
+            min = Math.min(min, x[i].min());
+            max = Math.max(max, x[i].max());
+            nEdges += x[i].size();
+            maxSize = Math.max(maxSize, x[i].size());
+        }
+        minVal = min;
+        nVal = max - min + 1;
+        nNodes = nVar + nVal + 1;
+        sink = nNodes - 1;
+        valMatch = new int[nVal];
+        dom = new int[maxSize];
+        adjStart = new int[nNodes + 1];
+        // domains edges + one edge per value + the edges of the sink
+        adj = new int[nEdges + nVal + nVar];
+        scc = new int[nNodes];
+        tarjan = new GraphUtil.Tarjan(nNodes);
     }
 
     @Override
@@ -80,153 +123,49 @@ public class AllDifferentDC extends AbstractConstraint {
         for (int i = 0; i < nVar; i++) {
             x[i].propagateOnDomainChange(this);
         }
-        updateRange();
-
-        matched = new boolean[nVal];
-        nNodes = nVar + nVal + 1;
-        in = new ArrayList[nNodes];
-        out = new ArrayList[nNodes];
-        for (int i = 0; i < nNodes; i++) {
-            in[i] = new ArrayList<>();
-            out[i] = new ArrayList<>();
-        }
         propagate();
     }
 
-    private void updateRange() {
-        minVal = Integer.MAX_VALUE;
-        maxVal = Integer.MIN_VALUE;
+    private void updateGraph() {
+        Arrays.fill(valMatch, -1);
+        for (int i = 0; i < nVar; i++)
+            valMatch[match[i] - minVal] = i;
+        int e = 0;
+        // variable -> its unmatched values
         for (int i = 0; i < nVar; i++) {
-            minVal = Math.min(minVal, x[i].min());
-            maxVal = Math.max(maxVal, x[i].max());
+            adjStart[i] = e;
+            int size = x[i].fillArray(dom);
+            for (int k = 0; k < size; k++) {
+                if (dom[k] != match[i])
+                    adj[e++] = nVar + dom[k] - minVal;
+            }
         }
-        nVal = maxVal - minVal + 1;
-    }
-
-
-    private void updateGraph() {
-        nNodes = nVar + nVal + 1;
-        int sink = nNodes - 1;
-        for (int j = 0; j < nNodes; j++) {
-            in[j].clear();
-            out[j].clear();
+        // matched value -> its variable, unmatched value -> sink
+        for (int v = 0; v < nVal; v++) {
+            adjStart[nVar + v] = e;
+            adj[e++] = valMatch[v] >= 0 ? valMatch[v] : sink;
         }
-
-        // debug------------------------
-	//boolean DBG = true;
-	boolean DBG = false;
-	if (DBG) {
-	  System.out.printf("nVar:%d, nNodes:%d, minVal:%d, maxVal:%d\n", nVar, nNodes, minVal, maxVal);
-	  System.out.printf("match:");
-	  for (int i = 0; i < nVar; i++) {
-	    System.out.printf(" [%d]:%d;", i, match[i]);
-	  }
-	  System.out.printf("\n");
-	}
-
-        // continue the implementation for representing the residual graph
-        for (int i = 0; i < nVar; i++) {
-	  if (match[i] != MaximumMatching.NONE){
-            int valNodeIdx = nVar + match[i] - minVal;
-	    in[i].add(valNodeIdx);
-	    out[valNodeIdx].add(i);
-
-	    matched[match[i]-minVal] = true;
-
-	    out[sink].add(valNodeIdx);
-	    in[valNodeIdx].add(sink);
-
-	  }
-	}
-        for (int i = nVar; i < nNodes-1; i++) {
-	  if (!matched[i-nVar]) {
-	    in[sink].add(i);
-	    out[i].add(sink);
-	  }
-	}
-
-        for (int i = 0; i < nVar; i++) {
-	  for (int v = x[i].min(); v <= x[i].max(); v++) { // TODO-SK: replace with fillarray
-	    if (x[i].contains(v)) {
-	      if (match[i] != v) {
-		in[nVar + v - minVal].add(i);
-		out[i].add(nVar + v - minVal);
-	      } 
-	    }
-	  }
-	}
-
-	// debug
-	/*
-        for (int i = nVar; i < nNodes-1; i++) {
-	  System.out.printf("in[%d](val=%d):  ", i, minVal+i-nVar);
-	  for (Integer varIdx: in[i])  {
-	    System.out.printf(" %d", varIdx);
-	  }
-	  System.out.printf("\n");
-	}
-	*/
-
-
-	
+        // sink -> matched values
+        adjStart[sink] = e;
+        for (int i = 0; i < nVar; i++)
+            adj[e++] = nVar + match[i] - minVal;
+        adjStart[nNodes] = e;
     }
 
-
     @Override
     public void propagate() {
-        // TODO Implement the filtering
-        // hint: use maximumMatching.compute(match) to update the maximum matching
-        //       use updateRange() to update the range of values
-        //       use updateGraph() to update the residual graph
-        //       use  GraphUtil.stronglyConnectedComponents to compute SCC's
-        maximumMatching.compute(match);
-        updateRange();
+        // repairs the matching only if a matched value was removed
+        if (maximumMatching.compute(match) < nVar)
+            throw INCONSISTENCY;
         updateGraph();
-	int[] sccIdx;
-	sccIdx = GraphUtil.stronglyConnectedComponents(g);
-
-        // debug------------------------
-	//boolean DBG = true;
-	boolean DBG = false;
-	if (DBG) {
-	  System.out.printf("nNodes:%d\n", nNodes);
-
-	  System.out.printf("matched:", nNodes);
-	  for (int i = 0; i < nVal; i++) {
-	    System.out.printf(" [%d]:%s;", i+minVal, matched[i]);
-	  }
-	  System.out.printf("\n");
-
-	  System.out.printf("sccIdx:", nNodes);
-	  for (int i = 0; i < nNodes; i++) {
-	    System.out.printf(" [%d]:%d;", i, sccIdx[i]);
-	  }
-	  System.out.printf("\n");
-
-	}
-
-        // Remove the non-matching edges that are between SCCs
-	for (int i = nVar; i < nNodes-1; i++) {
-	  //System.out.printf("Processing value node %d(%d) \n", i, i-nVar+minVal);
-	  for (Integer varIdx: in[i])  {
-	    if (varIdx == nNodes-1)
-	      continue;
-	    //System.out.printf("  Processing edge from %d to %d(%d) \n", varIdx, i, i-nVar+minVal);
-	    if (sccIdx[varIdx] != sccIdx[i]) {
-	      //System.out.printf("   Removing value %d from x[%d] domain \n", i-nVar+minVal, i);
-	      x[varIdx].remove(i-nVar+minVal);
-	      //System.out.printf("   Removing edge \n");
-	      //in[i].remove(varIdx);
-	      //System.out.printf("    out[%d]", varIdx);
-	      //for (Integer valIdx: out[varIdx])  
-		//System.out.printf(" %d", valIdx);
-	      //System.out.printf("\n");
-	      //System.out.printf("Removing %d from out[%d]\n", i, varIdx);
-	      //out[varIdx].remove(Integer.valueOf(i));
-	      //System.out.printf("Removing one\n");
-	    }
-	  }
-	}
-	
+        tarjan.compute(nNodes, adjStart, adj, scc);
+        // remove the values whose edge is not in a strongly connected component
+        for (int i = 0; i < nVar; i++) {
+            for (int e = adjStart[i]; e < adjStart[i + 1]; e++) {
+                int valNode = adj[e];
+                if (scc[i] != scc[valNode])
+                    x[i].remove(valNode - nVar + minVal);
+            }
+        }
     }
 }
@@ -50,6 +50,7 @@ public class AllDifferentFWC extends AbstractConstraint {
       for (int i = 0; i < x.length; i++) {
         x[i].propagateOnFix(this);
       }
+      propagate();
     }
 
     @Override
@@ -0,0 +1,323 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Bin-Packing Constraint
+ * <p>
+ * Item {@code i} of weight {@code w[i]} is placed in the bin {@code x[i]}
+ * and {@code l[j]} is the sum of the weights of the items placed in bin {@code j}.
+ * <p>
+ * Algorithm described in
+ * "A constraint for bin packing" P. Shaw, CP-04.
+ * The required load of a bin is the weight of the items fixed to it
+ * and its possible load adds the weight of its candidate items,
+ * that are not fixed but can be placed in it.
+ * Besides bounding the loads by them and by the total weight,
+ * a knapsack reasoning detects with {@link #noSum} that no subset
+ * of the candidates can fill a bin up to its load bounds,
+ * to tighten those bounds, to remove a candidate from a bin
+ * or to fix a candidate to a bin.
+ * Finally, the lower bound {@link #lowerBoundL2} of Martello and Toth
+ * on the number of bins needed by the items that are not fixed,
+ * the free space of the bins being reduced to the same capacity,
+ * must not exceed the number of bins.
+ */
+public class BinPacking extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final int[] w;
+    private final IntVar[] l;
+    private final int nItems;
+    private final int nBins;
+    private final int totalWeight;
+
+    private final int[] byWeight; // items sorted by decreasing weight
+    private final int[] required; // weight of the items fixed to each bin
+    private final int[] possible; // required weight plus the weight of the candidates
+    private final int[] candidates; // candidates of a bin by decreasing weight
+    private final int[] candidateWeights;
+    private final int[] weights; // buffer for the knapsack reasoning and the lower bound
+    private final int[] bounds = new int[2];
+    private final int[] dom;
+
+    /**
+     * Creates a bin-packing constraint.
+     *
+     * @param x the bin of each item, in {@code 0..l.length-1}
+     * @param w the non negative weight of each item
+     * @param l the load of each bin
+     */
+    public BinPacking(IntVar[] x, int[] w, IntVar[] l) {
+        super(x[0].getSolver());
+        if (x.length != w.length)
+            throw new InvalidParameterException("one weight per item");
+        for (int wi : w) {
+            if (wi < 0)
+                throw new InvalidParameterException("the weights must be non negative");
+        }
+        this.x = x;
+        this.w = w;
+        this.l = l;
+        this.nItems = x.length;
+        this.nBins = l.length;
+        totalWeight = Arrays.stream(w).sum();
+        byWeight = IntStream.range(0, nItems).boxed()
+                .sorted((i, j) -> Integer.compare(w[j], w[i]))
+                .mapToInt(i -> i).toArray();
+        required = new int[nBins];
+        possible = new int[nBins];
+        candidates = new int[nItems];
+        candidateWeights = new int[nItems];
+        weights = new int[nItems + nBins];
+        dom = new int[Arrays.stream(x).mapToInt(IntVar::size).max().orElse(0)];
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < nItems; i++) {
+            x[i].removeBelow(0);
+            x[i].removeAbove(nBins - 1);
+            x[i].propagateOnDomainChange(this);
+        }
+        for (IntVar load : l)
+            load.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        Arrays.fill(required, 0);
+        Arrays.fill(possible, 0);
+        for (int i = 0; i < nItems; i++) {
+            if (x[i].isFixed()) {
+                required[x[i].min()] += w[i];
+                possible[x[i].min()] += w[i];
+            } else {
+                int size = x[i].fillArray(dom);
+                for (int k = 0; k < size; k++)
+                    possible[dom[k]] += w[i];
+            }
+        }
+        // the loads are between the required and possible ones and sum up to the total weight
+        int sumMin = 0;
+        int sumMax = 0;
+        for (int j = 0; j < nBins; j++) {
+            l[j].removeBelow(required[j]);
+            l[j].removeAbove(possible[j]);
+            sumMin += l[j].min();
+            sumMax += l[j].max();
+        }
+        for (int j = 0; j < nBins; j++) {
+            int min = l[j].min();
+            int max = l[j].max();
+            l[j].removeAbove(totalWeight - (sumMin - min));
+            l[j].removeBelow(totalWeight - (sumMax - max));
+        }
+        for (int j = 0; j < nBins; j++)
+            filterBin(j);
+        if (lowerBound() > nBins)
+            throw INCONSISTENCY;
+    }
+
+    /**
+     * Applies the knapsack reasoning on a bin
+     */
+    private void filterBin(int j) {
+        // the domains may have changed when filtering the previous bins
+        int req = 0;
+        int pos = 0;
+        int nCandidates = 0;
+        for (int i : byWeight) {
+            if (x[i].isFixed()) {
+                if (x[i].min() == j)
+                    req += w[i];
+            } else if (x[i].contains(j) && w[i] > 0) {
+                pos += w[i];
+                candidates[nCandidates] = i;
+                candidateWeights[nCandidates++] = w[i];
+            }
+        }
+        pos += req;
+        // no subset of the candidates fills the bin within its bounds
+        if (noSum(candidateWeights, nCandidates, l[j].min() - req, l[j].max() - req, bounds))
+            throw INCONSISTENCY;
+        if (noSum(candidateWeights, nCandidates, l[j].min() - req, l[j].min() - req, bounds))
+            l[j].removeBelow(req + bounds[1]);
+        if (noSum(candidateWeights, nCandidates, l[j].max() - req, l[j].max() - req, bounds))
+            l[j].removeAbove(req + bounds[0]);
+        for (int k = 0; k < nCandidates; k++) {
+            int i = candidates[k];
+            if (req + w[i] > l[j].max()) {
+                x[i].remove(j);
+                continue;
+            }
+            if (pos - w[i] < l[j].min()) {
+                x[i].fix(j);
+                continue;
+            }
+            // the other candidates
+            System.arraycopy(candidateWeights, 0, weights, 0, k);
+            System.arraycopy(candidateWeights, k + 1, weights, k, nCandidates - k - 1);
+            if (noSum(weights, nCandidates - 1, l[j].min() - req - w[i], l[j].max() - req - w[i], bounds))
+                x[i].remove(j);
+            else if (noSum(weights, nCandidates - 1, l[j].min() - req, l[j].max() - req, bounds))
+                x[i].fix(j);
+        }
+    }
+
+    /**
+     * Returns the lower bound L2 on the number of bins for the items that are not fixed.
+     * Each bin is reduced to the largest maximum load,
+     * its required load and its unusable capacity becoming a fixed item.
+     */
+    private int lowerBound() {
+        int capacity = 0;
+        for (IntVar load : l)
+            capacity = Math.max(capacity, load.max());
+        Arrays.fill(required, 0);
+        int n = 0;
+        for (int i = 0; i < nItems; i++) {
+            if (x[i].isFixed())
+                required[x[i].min()] += w[i];
+            else if (w[i] > 0)
+                weights[n++] = w[i];
+        }
+        for (int j = 0; j < nBins; j++) {
+            int used = required[j] + capacity - l[j].max();
+            if (used > 0)
+                weights[n++] = used;
+        }
+        Arrays.sort(weights, 0, n);
+        // decreasing weights
+        for (int a = 0, b = n - 1; a < b; a++, b--) {
+            int tmp = weights[a];
+            weights[a] = weights[b];
+            weights[b] = tmp;
+        }
+        return lowerBoundL2(weights, n, capacity);
+    }
+
+    /**
+     * Detects that no subset of the weights sums up to a value in {@code [alpha, beta]}.
+     * The detection is not complete but runs in {@code O(n)}.
+     * <p>
+     * Algorithm described in
+     * "A constraint for bin packing" P. Shaw, CP-04.
+     *
+     * @param weights the positive weights sorted by decreasing value
+     * @param n the number of weights considered, the first ones of the array
+     * @param alpha the lower bound of the sums
+     * @param beta the upper bound of the sums
+     * @param bounds if no sum is detected, receives the largest achievable sum below {@code alpha}
+     *               at index 0 and the smallest one above {@code beta} at index 1
+     * @return true if it is detected that no subset sums up to a value in {@code [alpha, beta]}
+     */
+    public static boolean noSum(int[] weights, int n, int alpha, int beta, int[] bounds) {
+        int total = 0;
+        for (int k = 0; k < n; k++)
+            total += weights[k];
+        if (alpha <= 0 || beta >= total)
+            return false;
+        int sumA = 0; // sum of the k largest weights
+        int sumC = 0; // sum of the kp smallest weights
+        int k = 0;
+        int kp = 0;
+        while (sumC + weights[n - 1 - kp] < alpha) {
+            sumC += weights[n - 1 - kp];
+            kp++;
+        }
+        int sumB = weights[n - 1 - kp]; // sum of the kp + 1 smallest weights
+        while (sumA < alpha && sumB <= beta) {
+            sumA += weights[k++];
+            if (sumA < alpha) {
+                kp--;
+                sumB += weights[n - 1 - kp];
+                sumC -= weights[n - 1 - kp];
+                while (sumA + sumC >= alpha) {
+                    kp--;
+                    sumC -= weights[n - 1 - kp];
+                    sumB += weights[n - 1 - kp] - weights[n - 2 - kp - k];
+                }
+            }
+        }
+        bounds[0] = sumA + sumC;
+        bounds[1] = sumB;
+        return sumA < alpha;
+    }
+
+    /**
+     * Returns the lower bound L2 on the number of bins needed to pack the weights.
+     * <p>
+     * Bound described in
+     * "Lower bounds and reduction procedures for the bin packing problem"
+     * S. Martello, P. Toth, Discrete Applied Mathematics, 1990.
+     * For a threshold {@code K <= capacity/2}, the weights larger than {@code capacity-K}
+     * and the ones larger than {@code capacity/2} each need their own bin,
+     * the weights in {@code [K, capacity/2]} filling the space left in the bins of the second ones
+     * before needing bins of their own.
+     *
+     * @param weights the weights sorted by decreasing value
+     * @param n the number of weights considered, the first ones of the array
+     * @param capacity the capacity of the bins
+     * @return a lower bound on the number of bins, {@code Integer.MAX_VALUE} if a weight exceeds the capacity
+     */
+    public static int lowerBoundL2(int[] weights, int n, int capacity) {
+        if (n == 0)
+            return 0;
+        if (weights[0] > capacity)
+            return Integer.MAX_VALUE;
+        int bound = 0;
+        int prevK = -1;
+        // the thresholds are 0 and the weights in [1, capacity/2], by increasing value
+        for (int t = n; t >= 0; t--) {
+            int K = t == n ? 0 : weights[t];
+            if (2 * K > capacity)
+                break;
+            if (K == prevK)
+                continue;
+            prevK = K;
+            int n1 = 0;
+            int n2 = 0;
+            int sum2 = 0;
+            int sum3 = 0;
+            for (int k = 0; k < n; k++) {
+                int wk = weights[k];
+                if (wk > capacity - K)
+                    n1++;
+                else if (2 * wk > capacity) {
+                    n2++;
+                    sum2 += wk;
+                } else if (wk >= K)
+                    sum3 += wk;
+            }
+            int free = n2 * capacity - sum2;
+            int extra = Math.max(0, (sum3 - free + capacity - 1) / capacity);
+            bound = Math.max(bound, n1 + n2 + extra);
+        }
+        return bound;
+    }
+}
@@ -19,15 +19,20 @@ package minicp.engine.constraints;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
 import minicp.state.StateInt;
-import minicp.util.exception.NotImplementedException;
-import static minicp.cp.Factory.allDifferent;
 
 /**
  * Hamiltonian Circuit Constraint with a successor model
+ * <p>
+ * The subtours are eliminated by maintaining the chains of fixed successors:
+ * {@code orig[i]} and {@code dest[i]} are the first and last nodes of the
+ * chain containing {@code i} (only up to date at the extremities of the chains)
+ * and {@code lengthToDest[i]} is the number of edges from {@code i} to the
+ * end of its chain.
+ * Closing a chain of length smaller than {@code n-1} is forbidden.
  */
 public class Circuit extends AbstractConstraint {
 
-    private final IntVar[] x;
+    protected final IntVar[] x;
     protected final StateInt[] dest;
     protected final StateInt[] orig;
     protected final StateInt[] lengthToDest;
@@ -55,15 +60,40 @@ public class Circuit extends AbstractConstraint {
 
     @Override
     public void post() {
-        getSolver().post(allDifferent(x));
-        // TODO
-        // Hint: use x[i].whenFixed(...) to call the fix
-         throw new NotImplementedException("Circuit");
+        // same filtering as the binary decomposition with a single constraint instead of n^2/2
+        getSolver().post(new AllDifferentFWC(x));
+        if (x.length == 1) {
+            x[0].fix(0);
+            return;
+        }
+        for (int i = 0; i < x.length; i++) {
+            x[i].removeBelow(0);
+            x[i].removeAbove(x.length - 1);
+            x[i].remove(i);
+        }
+        for (int i = 0; i < x.length; i++) {
+            final int fi = i;
+            if (x[i].isFixed())
+                fix(i);
+            else
+                x[i].whenFixed(() -> fix(fi));
+        }
     }
 
-
-    private void fix(int i) {
-        // TODO
-         throw new NotImplementedException("Circuit");
+    /**
+     * Merges the chain ending at {@code i} with the one starting at its successor
+     * and forbids the closure of the resulting chain if it does not visit all the nodes
+     */
+    protected void fix(int i) {
+        int j = x[i].min();
+        int origi = orig[i].value();
+        int destj = dest[j].value();
+        // orig[i] *-> i -> j *-> dest[j]
+        dest[origi].setValue(destj);
+        orig[destj].setValue(origi);
+        int length = lengthToDest[origi].value() + lengthToDest[j].value() + 1;
+        lengthToDest[origi].setValue(length);
+        if (length < x.length - 1)
+            x[destj].remove(origi);
     }
 }
@@ -0,0 +1,236 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.Solver;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Database of clauses over boolean variables
+ * {@code (p1 or ... or pk or !n1 or ... or !nl)},
+ * propagated with the two watched literals technique.
+ * <p>
+ * The clauses are stored in flat int arrays:
+ * the literal {@code 2*i} is the variable {@code i} and
+ * the literal {@code 2*i+1} its negation.
+ * The two first literals of each clause are watched.
+ * Whenever a variable is fixed, only the clauses watching
+ * its literal that became false are visited.
+ * The watches are not restored on backtrack:
+ * backtracking never falsifies a literal, so the watches remain valid.
+ * <p>
+ * Clauses can be added before posting the constraint,
+ * or afterwards at the root node.
+ */
+public class Clauses extends AbstractConstraint {
+
+    private final IdentityHashMap<BoolVar, Integer> index = new IdentityHashMap<>();
+    private BoolVar[] vars = new BoolVar[8];
+    private int nVars = 0;
+
+    private int[] lits = new int[32]; // literals of the clauses, one after the other
+    private int nLits = 0;
+    private int[] start = new int[9]; // clause c is lits[start[c]..start[c+1])
+    private int nClauses = 0;
+
+    private int[][] watches = new int[16][]; // clauses watching a literal
+    private int[] nWatches = new int[16];
+
+    private boolean posted = false;
+
+    /**
+     * Creates an empty database of clauses.
+     *
+     * @param cp the solver
+     */
+    public Clauses(Solver cp) {
+        super(cp);
+    }
+
+    /**
+     * Adds the clause {@code pos[0] or ... or !neg[0] or ...}.
+     *
+     * @param pos the variables that appear positively in the clause
+     * @param neg the variables that appear negatively in the clause
+     * @return this database
+     */
+    public Clauses addClause(BoolVar[] pos, BoolVar[] neg) {
+        int size = pos.length + neg.length;
+        if (size == 0)
+            throw new IllegalArgumentException("empty clause");
+        if (nLits + size > lits.length)
+            lits = Arrays.copyOf(lits, Math.max(2 * lits.length, nLits + size));
+        if (nClauses + 2 > start.length)
+            start = Arrays.copyOf(start, 2 * start.length);
+        for (BoolVar b : pos)
+            lits[nLits++] = 2 * varIndex(b);
+        for (BoolVar b : neg)
+            lits[nLits++] = 2 * varIndex(b) + 1;
+        start[++nClauses] = nLits;
+        if (posted)
+            initClause(nClauses - 1);
+        return this;
+    }
+
+    /**
+     * Adds the clause {@code b1 implies b2} that is {@code !b1 or b2}.
+     *
+     * @param b1 left-hand side of the implication
+     * @param b2 right-hand side of the implication
+     * @return this database
+     */
+    public Clauses addImplication(BoolVar b1, BoolVar b2) {
+        return addClause(new BoolVar[]{b2}, new BoolVar[]{b1});
+    }
+
+    /**
+     * Returns the number of clauses in the database.
+     *
+     * @return the number of clauses
+     */
+    public int size() {
+        return nClauses;
+    }
+
+    @Override
+    public void post() {
+        posted = true;
+        for (int i = 0; i < nVars; i++)
+            listen(i);
+        for (int c = 0; c < nClauses; c++)
+            initClause(c);
+    }
+
+    private int varIndex(BoolVar b) {
+        Integer i = index.get(b);
+        if (i == null) {
+            i = nVars;
+            index.put(b, i);
+            if (nVars == vars.length) {
+                vars = Arrays.copyOf(vars, 2 * nVars);
+                watches = Arrays.copyOf(watches, 4 * nVars);
+                nWatches = Arrays.copyOf(nWatches, 4 * nVars);
+            }
+            vars[nVars++] = b;
+            if (posted)
+                listen(i);
+        }
+        return i;
+    }
+
+    private void listen(int i) {
+        BoolVar b = vars[i];
+        // the literal of i that becomes false when b is fixed
+        b.whenFixed(() -> falsified(b.isTrue() ? 2 * i + 1 : 2 * i));
+    }
+
+    private boolean isFalse(int lit) {
+        BoolVar b = vars[lit >> 1];
+        return (lit & 1) == 0 ? b.isFalse() : b.isTrue();
+    }
+
+    private boolean isTrue(int lit) {
+        BoolVar b = vars[lit >> 1];
+        return (lit & 1) == 0 ? b.isTrue() : b.isFalse();
+    }
+
+    private void fixTrue(int lit) {
+        vars[lit >> 1].fix((lit & 1) == 0);
+    }
+
+    private void watch(int lit, int c) {
+        if (watches[lit] == null)
+            watches[lit] = new int[4];
+        else if (nWatches[lit] == watches[lit].length)
+            watches[lit] = Arrays.copyOf(watches[lit], 2 * nWatches[lit]);
+        watches[lit][nWatches[lit]++] = c;
+    }
+
+    /**
+     * Moves two non false literals (if any) in front of the clause,
+     * watches them and propagates the clause if it is unit.
+     */
+    private void initClause(int c) {
+        int s = start[c];
+        int e = start[c + 1];
+        int w = s;
+        for (int k = s; k < e && w < s + 2; k++) {
+            if (!isFalse(lits[k])) {
+                int tmp = lits[w];
+                lits[w] = lits[k];
+                lits[k] = tmp;
+                w++;
+            }
+        }
+        if (w == s)
+            throw INCONSISTENCY;
+        if (e - s == 1) {
+            watch(lits[s], c);
+            fixTrue(lits[s]);
+            return;
+        }
+        watch(lits[s], c);
+        watch(lits[s + 1], c);
+        if (w == s + 1 && !isTrue(lits[s]))
+            fixTrue(lits[s]);
+    }
+
+    /**
+     * Visits the clauses watching a literal that became false.
+     */
+    private void falsified(int lit) {
+        int[] ws = watches[lit];
+        int i = 0;
+        while (i < nWatches[lit]) {
+            int c = ws[i];
+            int s = start[c];
+            int e = start[c + 1];
+            if (e - s == 1)
+                throw INCONSISTENCY;
+            // the falsified literal is put in second position
+            if (lits[s] == lit) {
+                lits[s] = lits[s + 1];
+                lits[s + 1] = lit;
+            }
+            if (isTrue(lits[s])) {
+                i++;
+                continue;
+            }
+            int k = s + 2;
+            while (k < e && isFalse(lits[k]))
+                k++;
+            if (k < e) {
+                // watch a new literal and stop watching the falsified one
+                lits[s + 1] = lits[k];
+                lits[k] = lit;
+                watch(lits[s + 1], c);
+                ws[i] = ws[--nWatches[lit]];
+            } else {
+                // no other support: the other watched literal must be true
+                if (isFalse(lits[s]))
+                    throw INCONSISTENCY;
+                fixTrue(lits[s]);
+                i++;
+            }
+        }
+    }
+}
@@ -17,29 +17,76 @@
 package minicp.engine.constraints;
 
 import minicp.cp.Factory;
-import minicp.engine.constraints.Profile.Rectangle;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.InconsistencyException;
-
-import java.util.ArrayList;
 
 import static minicp.cp.Factory.minus;
 import static minicp.cp.Factory.plus;
-import minicp.util.exception.NotImplementedException;
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
 /**
  * Cumulative constraint with time-table filtering
+ * <p>
+ * The profile of the mandatory parts is rebuilt at each propagation
+ * by a sweep in {@code O(n log n)} reusing the same primitive arrays.
+ * The start of each activity is then pushed past the conflicting
+ * rectangles of the profile, jumping directly to the end of each of them.
+ * The filtering of the end times is done by the same constraint
+ * on the mirrored activities.
+ * <p>
+ * With the {@link Strength#EDGE_FINDING} strength, the time-table is
+ * followed by the edge-finding algorithm described in
+ * "Edge Finding Filtering Algorithm for Discrete Cumulative Resources in O(kn log n)",
+ * Petr Vilim, CP 2009.
+ * The overloads and the detections are done with the energy envelopes
+ * of a {@link ThetaTree} in {@code O(n log n)}, the adjustments being
+ * computed for each distinct demand on the task intervals in {@code O(n^2)}.
  */
 public class Cumulative extends AbstractConstraint {
 
+    /**
+     * Filtering strength of the cumulative constraint
+     */
+    public enum Strength {
+        /**
+         * Time-table filtering on the profile of the mandatory parts
+         */
+        TIME_TABLE,
+        /**
+         * Time-table filtering followed by the energetic edge-finding
+         */
+        EDGE_FINDING
+    }
+
     private final IntVar[] start;
     private final int[] duration;
     private final IntVar[] end;
     private final int[] demand;
     private final int capa;
+    private final Strength strength;
     private final boolean postMirror;
 
+    private final Profile profile;
+    // mandatory parts [lst, ect) of the activities, recomputed at each propagation
+    private final int[] lst;
+    private final int[] ect;
+    private final boolean[] hasMandatoryPart;
+    private final int[] partStart;
+    private final int[] partEnd;
+    private final int[] partHeight;
+
+    // edge-finding, on the activities with a positive energy only
+    private final int nEnergetic;
+    private final int[] byEst; // activities sorted by increasing est, giving their position in the theta-tree
+    private final int[] byLct; // activities sorted by increasing lct
+    private final int[] est;
+    private final int[] lct;
+    private final long[] energy;
+    private final int[] estRank;
+    private final int[] lctRank;
+    private final int[] prec; // rank in byLct of the last activity of the set detected before, -1 if none
+    private final long[] update; // adjustment for each rank in byLct, for a given demand
+    private final ThetaTree thetaTree;
 
     /**
      * Creates a cumulative constraint with a time-table filtering.
@@ -52,17 +99,64 @@ public class Cumulative extends AbstractConstraint {
      * @param capa the capacity of the constraint
      */
     public Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa) {
-        this(start, duration, requirement, capa, true);
+        this(start, duration, requirement, capa, Strength.TIME_TABLE);
     }
 
-    private Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa, boolean postMirror) {
+    /**
+     * Creates a cumulative constraint with the given filtering strength.
+     * At any time-point t, the sum of the demands
+     * of the activities overlapping t do not overlap the capacity.
+     *
+     * @param start the start time of each activity
+     * @param duration the duration of each activity (non negative)
+     * @param requirement the requirement of each activity, non negative
+     * @param capa the capacity of the constraint
+     * @param strength the filtering strength
+     */
+    public Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa, Strength strength) {
+        this(start, duration, requirement, capa, strength, true);
+    }
+
+    private Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa, Strength strength, boolean postMirror) {
         super(start[0].getSolver());
         this.start = start;
         this.duration = duration;
         this.end = Factory.makeIntVarArray(start.length, i -> plus(start[i], duration[i]));
         this.demand = requirement;
         this.capa = capa;
+        this.strength = strength;
         this.postMirror = postMirror;
+        int n = start.length;
+        profile = new Profile(n);
+        lst = new int[n];
+        ect = new int[n];
+        hasMandatoryPart = new boolean[n];
+        partStart = new int[n];
+        partEnd = new int[n];
+        partHeight = new int[n];
+
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (duration[i] > 0 && requirement[i] > 0)
+                m++;
+        }
+        nEnergetic = m;
+        byEst = new int[m];
+        byLct = new int[m];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (duration[i] > 0 && requirement[i] > 0) {
+                byEst[k] = i;
+                byLct[k++] = i;
+            }
+        }
+        est = new int[n];
+        lct = new int[n];
+        energy = new long[n];
+        estRank = new int[n];
+        lctRank = new int[n];
+        prec = new int[n];
+        update = new long[m];
+        thetaTree = strength == Strength.EDGE_FINDING ? new ThetaTree(m) : null;
     }
 
 
@@ -74,7 +168,7 @@ public class Cumulative extends AbstractConstraint {
 
         if (postMirror) {
             IntVar[] startMirror = Factory.makeIntVarArray(start.length, i -> minus(end[i]));
-            getSolver().post(new Cumulative(startMirror, duration, demand, capa, false), false);
+            getSolver().post(new Cumulative(startMirror, duration, demand, capa, strength, false), false);
         }
 
         propagate();
@@ -83,35 +177,163 @@ public class Cumulative extends AbstractConstraint {
     @Override
     public void propagate() {
         Profile profile = buildProfile();
-        // TODO 2: check that the profile is not exceeding the capa otherwise throw an INCONSISTENCY
-        for (int i = 0; i < profile.size(); i++) {
-             throw new NotImplementedException("Cumulative");
+        for (int k = 0; k < profile.size(); k++) {
+            if (profile.height(k) > capa)
+                throw INCONSISTENCY;
         }
 
         for (int i = 0; i < start.length; i++) {
-            if (!start[i].isFixed()) {
-                // j is the index of the profile rectangle overlapping t
-                int j = profile.rectangleIndex(start[i].min());
-                // TODO 3: postpone i to a later point in time
-                // hint:
-                // Check that at every point in the interval
-                // [start[i].getMin() ... start[i].getMin()+duration[i]-1]
-                // there is enough remaining capacity.
-                // You may also have to check the following profile rectangle(s).
-                // Note that the activity you are currently postponing
-                // may have contributed to the profile.
-                 throw new NotImplementedException();
+            if (!start[i].isFixed() && duration[i] > 0 && demand[i] > 0) {
+                int t = earliestStart(i, profile);
+                start[i].removeBelow(t);
+            }
+        }
+
+        if (strength == Strength.EDGE_FINDING && nEnergetic > 0)
+            edgeFinding();
+    }
+
+    /**
+     * Detects the overloads and adjusts the earliest start times
+     * with the edge-finding rule: if the envelope of {@code Omega} with
+     * {@code i} exceeds {@code C * lct(Omega)}, {@code i} ends after all
+     * the activities of {@code Omega}.
+     */
+    private void edgeFinding() {
+        for (int k = 0; k < nEnergetic; k++) {
+            int i = byEst[k];
+            est[i] = start[i].min();
+            lct[i] = start[i].max() + duration[i];
+            energy[i] = (long) demand[i] * duration[i];
+        }
+        sort(byEst, est);
+        sort(byLct, lct);
+        for (int k = 0; k < nEnergetic; k++) {
+            estRank[byEst[k]] = k;
+            lctRank[byLct[k]] = k;
+        }
+
+        // detection: the activities are moved to lambda by decreasing lct
+        thetaTree.reset();
+        for (int k = 0; k < nEnergetic; k++) {
+            int i = byEst[k];
+            thetaTree.insertEnergy(k, (long) capa * est[i] + energy[i], energy[i]);
+            prec[i] = -1;
+        }
+        boolean detected = false;
+        for (int k = nEnergetic - 1; k >= 0; k--) {
+            int j = byLct[k];
+            long capaLct = (long) capa * lct[j];
+            if (thetaTree.getEnvelope() > capaLct)
+                throw INCONSISTENCY;
+            while (thetaTree.getEnvelopeLambda() > capaLct) {
+                // the responsible gray activity ends after all the activities of theta
+                int i = byEst[thetaTree.getResponsibleGray()];
+                prec[i] = k;
+                detected = true;
+                thetaTree.remove(estRank[i]);
+            }
+            thetaTree.insertGray(estRank[j], (long) capa * est[j] + energy[j], energy[j]);
+        }
+        if (!detected)
+            return;
+
+        // adjustment: one pass over the task intervals for each distinct demand
+        for (int a = 0; a < nEnergetic; a++) {
+            int i = byLct[a];
+            if (prec[i] < 0)
+                continue;
+            int c = demand[i];
+            boolean done = false;
+            for (int b = 0; b < a && !done; b++)
+                done = prec[byLct[b]] >= 0 && demand[byLct[b]] == c;
+            if (done)
+                continue;
+            computeUpdates(c);
+            for (int b = a; b < nEnergetic; b++) {
+                int l = byLct[b];
+                if (prec[l] >= 0 && demand[l] == c && update[prec[l]] > start[l].min())
+                    start[l].removeBelow((int) Math.min(Integer.MAX_VALUE, update[prec[l]]));
+            }
+        }
+    }
+
+    /**
+     * Computes in {@code update[k]} the largest bound
+     * {@code est(Omega) + ceil(rest(Omega, c) / c)} over the task intervals
+     * {@code Omega} made of the activities of lct rank at most {@code k},
+     * with {@code rest(Omega, c) = e(Omega) - (C - c) * (lct(Omega) - est(Omega))}
+     */
+    private void computeUpdates(int c) {
+        long best = Long.MIN_VALUE;
+        for (int k = 0; k < nEnergetic; k++) {
+            long lctOmega = lct[byLct[k]];
+            long e = 0;
+            for (int r = nEnergetic - 1; r >= 0; r--) {
+                int l = byEst[r];
+                if (lctRank[l] > k)
+                    continue;
+                e += energy[l];
+                long rest = e - (long) (capa - c) * (lctOmega - est[l]);
+                if (rest > 0)
+                    best = Math.max(best, est[l] + (rest + c - 1) / c);
             }
+            update[k] = best;
         }
     }
 
+    /**
+     * Insertion sort of the order by increasing key,
+     * linear if the order is almost sorted since the last propagation
+     */
+    private void sort(int[] order, int[] key) {
+        for (int k = 1; k < order.length; k++) {
+            int i = order[k];
+            int j = k - 1;
+            while (j >= 0 && key[order[j]] > key[i]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = i;
+        }
+    }
+
+    /**
+     * Returns the earliest time t from the current minimum start of i such that
+     * the activity i fits in the profile on [t, t+duration[i])
+     */
+    private int earliestStart(int i, Profile profile) {
+        int t = start[i].min();
+        int k = profile.rectangleIndex(t);
+        while (k < profile.size() && profile.start(k) < t + duration[i]) {
+            int h = profile.height(k);
+            // the rectangles inside the mandatory part of i contain its demand
+            if (hasMandatoryPart[i] && profile.start(k) >= lst[i] && profile.end(k) <= ect[i])
+                h -= demand[i];
+            if (h + demand[i] > capa) {
+                t = profile.end(k); // jump past the conflicting rectangle
+                if (t > start[i].max())
+                    return t;
+            }
+            k++;
+        }
+        return t;
+    }
+
     public Profile buildProfile() {
-        ArrayList<Rectangle> mandatoryParts = new ArrayList<Rectangle>();
+        int nParts = 0;
         for (int i = 0; i < start.length; i++) {
-            // TODO 1: add mandatory part of activity i if any
-             throw new NotImplementedException("Cumulative");
+            lst[i] = start[i].max();
+            ect[i] = start[i].min() + duration[i];
+            hasMandatoryPart[i] = lst[i] < ect[i] && demand[i] > 0;
+            if (hasMandatoryPart[i]) {
+                partStart[nParts] = lst[i];
+                partEnd[nParts] = ect[i];
+                partHeight[nParts++] = demand[i];
+            }
         }
-        return new Profile(mandatoryParts.toArray(new Profile.Rectangle[0]));
+        profile.build(nParts, partStart, partEnd, partHeight);
+        return profile;
     }
 
 }
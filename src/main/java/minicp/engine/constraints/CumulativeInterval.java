@@ -0,0 +1,160 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntervalVar;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Cumulative constraint with time-table filtering on optional interval variables
+ * <p>
+ * The absent intervals are ignored and only the present ones
+ * contribute their mandatory part {@code [startMax, endMin)} to the profile.
+ * Each interval that is not absent, optional or not, is then pushed
+ * past the conflicting rectangles of the profile as in {@link Cumulative},
+ * in both directions. An optional interval that no longer fits
+ * in the profile is made absent.
+ */
+public class CumulativeInterval extends AbstractConstraint {
+
+    private final IntervalVar[] intervals;
+    private final int[] demand;
+    private final int capa;
+
+    private final Profile profile;
+    private final int[] partStart;
+    private final int[] partEnd;
+    private final int[] partHeight;
+    // mandatory part [lst, ect) of the present intervals when the profile is built
+    private final int[] lst;
+    private final int[] ect;
+    private final boolean[] hasMandatoryPart;
+
+    /**
+     * Creates a cumulative constraint on interval variables.
+     * At any time-point t, the sum of the demands
+     * of the present intervals overlapping t does not exceed the capacity.
+     *
+     * @param intervals the interval variables
+     * @param demand the demand of each interval, non negative
+     * @param capa the capacity of the constraint
+     */
+    public CumulativeInterval(IntervalVar[] intervals, int[] demand, int capa) {
+        super(intervals[0].getSolver());
+        this.intervals = intervals;
+        this.demand = demand;
+        this.capa = capa;
+        int n = intervals.length;
+        profile = new Profile(n);
+        partStart = new int[n];
+        partEnd = new int[n];
+        partHeight = new int[n];
+        lst = new int[n];
+        ect = new int[n];
+        hasMandatoryPart = new boolean[n];
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < intervals.length; i++) {
+            if (demand[i] > capa)
+                intervals[i].setLengthMax(0); // absent if it cannot be empty
+            intervals[i].propagateOnChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int nParts = 0;
+        for (int i = 0; i < intervals.length; i++) {
+            IntervalVar interval = intervals[i];
+            lst[i] = interval.startMax();
+            ect[i] = interval.endMin();
+            hasMandatoryPart[i] = interval.isPresent() && demand[i] > 0 && lst[i] < ect[i];
+            if (hasMandatoryPart[i]) {
+                partStart[nParts] = lst[i];
+                partEnd[nParts] = ect[i];
+                partHeight[nParts++] = demand[i];
+            }
+        }
+        profile.build(nParts, partStart, partEnd, partHeight);
+        for (int k = 0; k < profile.size(); k++) {
+            if (profile.height(k) > capa)
+                throw INCONSISTENCY;
+        }
+
+        for (int i = 0; i < intervals.length; i++) {
+            IntervalVar interval = intervals[i];
+            if (!interval.isAbsent() && !interval.isFixed() && interval.lengthMin() > 0 && demand[i] > 0) {
+                interval.setStartMin(earliestStart(i));
+                interval.setEndMax(latestEnd(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the height of the rectangle k of the profile
+     * without the contribution of the interval i
+     */
+    private int heightWithout(int k, int i) {
+        int h = profile.height(k);
+        // the rectangles inside the mandatory part of i contain its demand
+        if (hasMandatoryPart[i] && profile.start(k) >= lst[i] && profile.end(k) <= ect[i])
+            h -= demand[i];
+        return h;
+    }
+
+    /**
+     * Returns the earliest time t from the current minimum start of i such that
+     * the interval i fits in the profile on [t, t+lengthMin)
+     */
+    private int earliestStart(int i) {
+        IntervalVar interval = intervals[i];
+        int t = interval.startMin();
+        int k = profile.rectangleIndex(t);
+        while (k < profile.size() && profile.start(k) < t + interval.lengthMin()) {
+            if (heightWithout(k, i) + demand[i] > capa) {
+                t = profile.end(k); // jump past the conflicting rectangle
+                if (t > interval.startMax())
+                    return t;
+            }
+            k++;
+        }
+        return t;
+    }
+
+    /**
+     * Returns the latest time t from the current maximum end of i such that
+     * the interval i fits in the profile on [t-lengthMin, t)
+     */
+    private int latestEnd(int i) {
+        IntervalVar interval = intervals[i];
+        int t = interval.endMax();
+        int k = profile.rectangleIndex(t - 1);
+        while (k >= 0 && profile.end(k) > t - interval.lengthMin()) {
+            if (heightWithout(k, i) + demand[i] > capa) {
+                t = profile.start(k); // jump before the conflicting rectangle
+                if (t < interval.endMin())
+                    return t;
+            }
+            k--;
+        }
+        return t;
+    }
+}
@@ -18,32 +18,46 @@ package minicp.engine.constraints;
 
 import minicp.cp.Factory;
 import minicp.engine.core.AbstractConstraint;
-import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
-
-import java.util.Arrays;
-import java.util.Comparator;
 
 import static minicp.cp.Factory.*;
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
 /**
  * Disjunctive Scheduling Constraint:
  * Any two pairs of activities cannot overlap in time.
+ * <p>
+ * The filtering algorithms are described in
+ * "O(n log n) filtering algorithms for unary resource constraint", Petr Vilim, CPAIOR 2004
+ * and in Global Constraints in Scheduling, 2008 Petr Vilim, PhD thesis.
+ * The overload checking, the detectable precedences, the not-last
+ * and the edge-finding (with the gray activities of the {@link ThetaTree})
+ * all run in {@code O(n log n)}.
+ * The activities are sorted in primitive index arrays kept from one
+ * propagation to the next one, so that sorting them again is cheap.
+ * The filtering of the end times is done by the same constraint
+ * on the mirrored activities.
  */
 public class Disjunctive extends AbstractConstraint {
 
     private final IntVar[] start;
     private final int[] duration;
     private final IntVar[] end;
+    private final boolean postMirror;
+    private final int n;
 
-    
-    private final Integer[] permLct;
-    private final Integer[] permEst;
+    private final int[] permEst;
+    private final int[] permLct;
+    private final int[] permEct;
+    private final int[] permLst;
+    private final int[] sortBuffer;
     private final int[] rankEst;
-    private final int[] startMin;
-    private final int[] endMax;
+    private final int[] est;
+    private final int[] ect;
+    private final int[] lst;
+    private final int[] lct;
+    private final int[] newBound;
+    private final boolean[] inserted;
 
     private final ThetaTree thetaTree;
 
@@ -65,77 +79,82 @@ public class Disjunctive extends AbstractConstraint {
         this.start = start;
         this.duration = duration;
         this.end = Factory.makeIntVarArray(start.length, i -> plus(start[i], duration[i]));
+        this.postMirror = postMirror;
+        this.n = start.length;
 
-        startMin = new int[start.length];
-        endMax = new int[start.length];
-        permEst = new Integer[start.length];
-        permLct = new Integer[start.length];
-        rankEst = new int[start.length];
-        for (int i = 0; i < start.length; i++) {
+        permEst = new int[n];
+        permLct = new int[n];
+        permEct = new int[n];
+        permLst = new int[n];
+        sortBuffer = new int[n];
+        rankEst = new int[n];
+        est = new int[n];
+        ect = new int[n];
+        lst = new int[n];
+        lct = new int[n];
+        newBound = new int[n];
+        inserted = new boolean[n];
+        for (int i = 0; i < n; i++) {
             permEst[i] = i;
             permLct[i] = i;
+            permEct[i] = i;
+            permLst[i] = i;
         }
-        thetaTree = new ThetaTree(start.length);
-        
+        thetaTree = new ThetaTree(n);
     }
 
 
     @Override
     public void post() {
+        for (IntVar s : start)
+            s.propagateOnBoundChange(this);
 
-        int[] demands = new int[start.length];
-        for (int i = 0; i < start.length; i++) {
-            demands[i] = 1;
+        if (postMirror) {
+            IntVar[] startMirror = Factory.makeIntVarArray(n, i -> minus(end[i]));
+            getSolver().post(new Disjunctive(startMirror, duration, false), false);
         }
-        getSolver().post(new Cumulative(start, duration, demands, 1), false);
-
-
-        // TODO 1: replace by posting binary decomposition (DisjunctiveBinary) using IsLessOrEqualVar
-        // TODO 2: add the mirror filtering as done in the Cumulative Constraint
-         throw new NotImplementedException("Disjunctive");
 
+        propagate();
     }
 
     @Override
     public void propagate() {
-        // HINT: for the TODO 3-6 you'll need the ThetaTree data-structure
-
-        // TODO 3: read and understand the OverLoadCheck algorithm implementation
-
-        // TODO 4: add the Detectable Precedences algorithm
-
-        // TODO 5: add the Not-Last algorithm
-
-        // TODO 6 (optional): implement the Lambda-Theta tree and implement the Edge-Finding
-
         boolean changed = true;
         while (changed) {
             overLoadChecker();
             changed = detectablePrecedence();
             // Java has short-circuit evaluation: notLast will only be called if changed is false.
             changed = changed || notLast();
+            changed = changed || edgeFinding();
         }
 
     }
 
+    /**
+     * Reads the bounds of the activities and sorts them by increasing est
+     */
     private void update() {
-        Arrays.sort(permEst, Comparator.comparingInt(i -> start[i].min()));
-        for (int i = 0; i < start.length; i++) {
+        for (int i = 0; i < n; i++) {
+            est[i] = start[i].min();
+            lst[i] = start[i].max();
+            ect[i] = est[i] + duration[i];
+            lct[i] = lst[i] + duration[i];
+        }
+        sort(permEst, est, 0, n);
+        for (int i = 0; i < n; i++) {
             rankEst[permEst[i]] = i;
-            startMin[i] = start[i].min();
-            endMax[i] = end[i].max();
         }
     }
 
     public void overLoadChecker() {
         update();
-        Arrays.sort(permLct, Comparator.comparingInt(i -> end[i].max()));
+        sort(permLct, lct, 0, n);
         thetaTree.reset();
-        for (int i = 0; i < start.length; i++) {
+        for (int i = 0; i < n; i++) {
             int activity = permLct[i];
-            thetaTree.insert(rankEst[activity], end[activity].min(), duration[activity]);
-            if (thetaTree.getECT() > end[activity].max()) {
-                throw new InconsistencyException();
+            thetaTree.insert(rankEst[activity], ect[activity], duration[activity]);
+            if (thetaTree.getECT() > lct[activity]) {
+                throw INCONSISTENCY;
             }
         }
     }
@@ -144,13 +163,131 @@ public class Disjunctive extends AbstractConstraint {
      * @return true if one domain was changed by the detectable precedence algo
      */
     public boolean detectablePrecedence() {
-         throw new NotImplementedException("Disjunctive");
+        update();
+        sort(permEct, ect, 0, n);
+        sort(permLst, lst, 0, n);
+        thetaTree.reset();
+        int j = 0;
+        for (int k = 0; k < n; k++) {
+            int i = permEct[k];
+            // insert the activities j such that j << i is detectable
+            while (j < n && ect[i] > lst[permLst[j]]) {
+                int a = permLst[j++];
+                thetaTree.insert(rankEst[a], ect[a], duration[a]);
+            }
+            newBound[i] = Math.max(est[i], ectWithout(i, lst[i] < ect[i]));
+        }
+        boolean changed = false;
+        for (int i = 0; i < n; i++) {
+            if (newBound[i] > est[i]) {
+                start[i].removeBelow(newBound[i]);
+                changed = true;
+            }
+        }
+        return changed;
     }
 
     /**
      * @return true if one domain was changed by the not-last algo
      */
     public boolean notLast() {
-         throw new NotImplementedException("Disjunctive");
+        update();
+        sort(permLct, lct, 0, n);
+        sort(permLst, lst, 0, n);
+        thetaTree.reset();
+        for (int i = 0; i < n; i++)
+            inserted[i] = false;
+        int j = 0;
+        for (int k = 0; k < n; k++) {
+            int i = permLct[k];
+            newBound[i] = lct[i];
+            while (j < n && lct[i] > lst[permLst[j]]) {
+                int a = permLst[j++];
+                thetaTree.insert(rankEst[a], ect[a], duration[a]);
+                inserted[a] = true;
+            }
+            if (ectWithout(i, inserted[i]) > lst[i]) {
+                // i cannot be the last activity: it ends before the latest start of theta
+                newBound[i] = Math.min(newBound[i], lst[permLst[j - 1]]);
+            }
+        }
+        boolean changed = false;
+        for (int i = 0; i < n; i++) {
+            if (newBound[i] < lct[i]) {
+                start[i].removeAbove(newBound[i] - duration[i]);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return true if one domain was changed by the edge-finding algo
+     */
+    public boolean edgeFinding() {
+        update();
+        sort(permLct, lct, 0, n);
+        thetaTree.reset();
+        for (int i = 0; i < n; i++) {
+            thetaTree.insert(rankEst[i], ect[i], duration[i]);
+            newBound[i] = est[i];
+        }
+        // the activities are moved to lambda by decreasing lct
+        for (int k = n - 1; k > 0; k--) {
+            int j = permLct[k];
+            if (thetaTree.getECT() > lct[j])
+                throw INCONSISTENCY;
+            thetaTree.insertGray(rankEst[j], ect[j], duration[j]);
+            int lctTheta = lct[permLct[k - 1]];
+            while (thetaTree.getECTLambda() > lctTheta) {
+                // the responsible gray activity must be scheduled after all the activities of theta
+                int i = permEst[thetaTree.getResponsibleGray()];
+                newBound[i] = Math.max(newBound[i], thetaTree.getECT());
+                thetaTree.remove(rankEst[i]);
+            }
+        }
+        boolean changed = false;
+        for (int i = 0; i < n; i++) {
+            if (newBound[i] > est[i]) {
+                start[i].removeBelow(newBound[i]);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the earliest completion time of the activities in the theta-tree except i
+     */
+    private int ectWithout(int i, boolean isInserted) {
+        if (!isInserted)
+            return thetaTree.getECT();
+        thetaTree.remove(rankEst[i]);
+        int ectTheta = thetaTree.getECT();
+        thetaTree.insert(rankEst[i], ect[i], duration[i]);
+        return ectTheta;
+    }
+
+    /**
+     * Stable merge sort of order[from..to) by increasing key,
+     * linear if the order is already sorted
+     */
+    private void sort(int[] order, int[] key, int from, int to) {
+        if (to - from < 2)
+            return;
+        int mid = (from + to) >>> 1;
+        sort(order, key, from, mid);
+        sort(order, key, mid, to);
+        if (key[order[mid - 1]] <= key[order[mid]])
+            return;
+        System.arraycopy(order, from, sortBuffer, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && key[sortBuffer[i]] <= key[sortBuffer[j]]))
+                order[k] = sortBuffer[i++];
+            else
+                order[k] = sortBuffer[j++];
+        }
     }
 }
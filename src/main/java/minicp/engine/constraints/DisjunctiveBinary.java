@@ -19,7 +19,6 @@ package minicp.engine.constraints;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.NotImplementedException;
 
 import static minicp.cp.Factory.*;
 
@@ -54,9 +53,9 @@ public class DisjunctiveBinary extends AbstractConstraint implements Comparable<
 
     @Override
     public void post() {
-        // TODO : post binary decomposition using IsLessOrEqualVar (reified constraints)
         // one of the two activities must precede the other one
-         throw new NotImplementedException("DisjunctiveBinary");
+        getSolver().post(new IsLessOrEqualVar(before, end1, start2));
+        getSolver().post(new IsLessOrEqualVar(after, end2, start1));
     }
 
     /**
@@ -0,0 +1,305 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntervalVar;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Disjunctive Scheduling Constraint on optional interval variables:
+ * any two present intervals cannot overlap in time.
+ * <p>
+ * The absent intervals are ignored. The algorithms of {@link Disjunctive}
+ * are applied to the present intervals, with the minimum lengths as durations,
+ * and their bounds are used to filter the optional ones as well.
+ * An optional interval is made absent if adding it to the present ones
+ * overloads the resource, detected with the gray activities of
+ * the {@link ThetaTree} as described in
+ * "Global Constraints in Scheduling", Petr Vilim, PhD thesis, 2008.
+ * The end times are filtered by the same algorithms
+ * on the mirrored bounds rather than on mirrored variables.
+ */
+public class DisjunctiveInterval extends AbstractConstraint {
+
+    private final IntervalVar[] intervals;
+    private final int n;
+
+    // bounds in the current direction, mirrored for the end times
+    private final int[] est;
+    private final int[] ect;
+    private final int[] lst;
+    private final int[] lct;
+    private final int[] len;
+    private final int[] newBound;
+
+    private final int[] permEst;
+    private final int[] permEct;
+    private final int[] permLst;
+    private final int[] permLct;
+    private final int[] rankEst;
+    private final int[] sortBuffer;
+    private final ThetaTree thetaTree;
+
+    /**
+     * Creates a disjunctive constraint on interval variables that enforces
+     * that any two present intervals do not overlap.
+     *
+     * @param intervals the interval variables
+     */
+    public DisjunctiveInterval(IntervalVar[] intervals) {
+        super(intervals[0].getSolver());
+        this.intervals = intervals;
+        this.n = intervals.length;
+        est = new int[n];
+        ect = new int[n];
+        lst = new int[n];
+        lct = new int[n];
+        len = new int[n];
+        newBound = new int[n];
+        permEst = new int[n];
+        permEct = new int[n];
+        permLst = new int[n];
+        permLct = new int[n];
+        rankEst = new int[n];
+        sortBuffer = new int[n];
+        for (int i = 0; i < n; i++) {
+            permEst[i] = i;
+            permEct[i] = i;
+            permLst[i] = i;
+            permLct[i] = i;
+        }
+        thetaTree = new ThetaTree(n);
+    }
+
+    @Override
+    public void post() {
+        for (IntervalVar interval : intervals)
+            interval.propagateOnChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        // the constraint is scheduled again if it modifies a bound
+        filter(false);
+        filter(true);
+    }
+
+    private void filter(boolean mirror) {
+        read(mirror);
+        overloadChecker();
+        detectablePrecedence(mirror);
+        read(mirror);
+        notLast(mirror);
+        read(mirror);
+        edgeFinding(mirror);
+    }
+
+    /**
+     * Reads the bounds of the intervals, mirrored if the end times are filtered,
+     * and sorts them by increasing est
+     */
+    private void read(boolean mirror) {
+        for (int i = 0; i < n; i++) {
+            IntervalVar interval = intervals[i];
+            if (mirror) {
+                est[i] = -interval.endMax();
+                ect[i] = -interval.startMax();
+                lst[i] = -interval.endMin();
+                lct[i] = -interval.startMin();
+            } else {
+                est[i] = interval.startMin();
+                ect[i] = interval.endMin();
+                lst[i] = interval.startMax();
+                lct[i] = interval.endMax();
+            }
+            len[i] = interval.lengthMin();
+        }
+        sort(permEst, est, 0, n);
+        for (int i = 0; i < n; i++)
+            rankEst[permEst[i]] = i;
+    }
+
+    private void updateEst(int i, int v, boolean mirror) {
+        if (mirror)
+            intervals[i].setEndMax(-v);
+        else
+            intervals[i].setStartMin(v);
+    }
+
+    private void updateLct(int i, int v, boolean mirror) {
+        if (mirror)
+            intervals[i].setStartMin(-v);
+        else
+            intervals[i].setEndMax(v);
+    }
+
+    /**
+     * Fails if the present intervals overload the resource,
+     * and makes absent the optional intervals that would overload it
+     */
+    private void overloadChecker() {
+        sort(permLct, lct, 0, n);
+        thetaTree.reset();
+        for (int k = 0; k < n; k++) {
+            int j = permLct[k];
+            IntervalVar interval = intervals[j];
+            if (interval.isAbsent())
+                continue;
+            if (interval.isPresent())
+                thetaTree.insert(rankEst[j], ect[j], len[j]);
+            else
+                thetaTree.insertGray(rankEst[j], ect[j], len[j]);
+            if (thetaTree.getECT() > lct[j])
+                throw INCONSISTENCY;
+            while (thetaTree.getECTLambda() > lct[j]) {
+                int o = permEst[thetaTree.getResponsibleGray()];
+                intervals[o].setAbsent();
+                thetaTree.remove(rankEst[o]);
+            }
+        }
+    }
+
+    private void detectablePrecedence(boolean mirror) {
+        sort(permEct, ect, 0, n);
+        sort(permLst, lst, 0, n);
+        thetaTree.reset();
+        int j = 0;
+        for (int k = 0; k < n; k++) {
+            int i = permEct[k];
+            if (intervals[i].isAbsent())
+                continue;
+            // insert the present intervals a such that a << i is detectable
+            while (j < n && ect[i] > lst[permLst[j]]) {
+                int a = permLst[j++];
+                if (intervals[a].isPresent())
+                    thetaTree.insert(rankEst[a], ect[a], len[a]);
+            }
+            boolean inserted = intervals[i].isPresent() && lst[i] < ect[i];
+            newBound[i] = Math.max(est[i], ectWithout(i, inserted));
+        }
+        for (int i = 0; i < n; i++) {
+            if (!intervals[i].isAbsent() && newBound[i] > est[i])
+                updateEst(i, newBound[i], mirror);
+        }
+    }
+
+    private void notLast(boolean mirror) {
+        sort(permLct, lct, 0, n);
+        sort(permLst, lst, 0, n);
+        thetaTree.reset();
+        int j = 0;
+        int lastLst = Integer.MIN_VALUE; // largest lst of the inserted intervals
+        for (int k = 0; k < n; k++) {
+            int i = permLct[k];
+            newBound[i] = lct[i];
+            if (intervals[i].isAbsent())
+                continue;
+            while (j < n && lct[i] > lst[permLst[j]]) {
+                int a = permLst[j++];
+                if (intervals[a].isPresent()) {
+                    thetaTree.insert(rankEst[a], ect[a], len[a]);
+                    lastLst = lst[a];
+                }
+            }
+            boolean inserted = intervals[i].isPresent() && lst[i] < lct[i];
+            if (ectWithout(i, inserted) > lst[i]) {
+                // i cannot be the last one: it ends before the latest start of theta
+                newBound[i] = Math.min(newBound[i], lastLst);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (!intervals[i].isAbsent() && newBound[i] < lct[i])
+                updateLct(i, newBound[i], mirror);
+        }
+    }
+
+    private void edgeFinding(boolean mirror) {
+        sort(permLct, lct, 0, n);
+        thetaTree.reset();
+        int last = -1; // rank in permLct of the present interval with the largest lct
+        for (int k = 0; k < n; k++) {
+            int i = permLct[k];
+            newBound[i] = est[i];
+            if (intervals[i].isPresent()) {
+                thetaTree.insert(rankEst[i], ect[i], len[i]);
+                last = k;
+            }
+        }
+        // the present intervals are moved to lambda by decreasing lct
+        for (int k = last; k > 0; k--) {
+            int j = permLct[k];
+            if (!intervals[j].isPresent())
+                continue;
+            if (thetaTree.getECT() > lct[j])
+                throw INCONSISTENCY;
+            thetaTree.insertGray(rankEst[j], ect[j], len[j]);
+            int prev = k - 1;
+            while (prev >= 0 && !intervals[permLct[prev]].isPresent())
+                prev--;
+            if (prev < 0)
+                break;
+            int lctTheta = lct[permLct[prev]];
+            while (thetaTree.getECTLambda() > lctTheta) {
+                // the responsible gray interval must be scheduled after all the intervals of theta
+                int i = permEst[thetaTree.getResponsibleGray()];
+                newBound[i] = Math.max(newBound[i], thetaTree.getECT());
+                thetaTree.remove(rankEst[i]);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (intervals[i].isPresent() && newBound[i] > est[i])
+                updateEst(i, newBound[i], mirror);
+        }
+    }
+
+    /**
+     * Returns the earliest completion time of the intervals in the theta-tree except i
+     */
+    private int ectWithout(int i, boolean isInserted) {
+        if (!isInserted)
+            return thetaTree.getECT();
+        thetaTree.remove(rankEst[i]);
+        int ectTheta = thetaTree.getECT();
+        thetaTree.insert(rankEst[i], ect[i], len[i]);
+        return ectTheta;
+    }
+
+    /**
+     * Stable merge sort of order[from..to) by increasing key,
+     * linear if the order is already sorted
+     */
+    private void sort(int[] order, int[] key, int from, int to) {
+        if (to - from < 2)
+            return;
+        int mid = (from + to) >>> 1;
+        sort(order, key, from, mid);
+        sort(order, key, mid, to);
+        if (key[order[mid - 1]] <= key[order[mid]])
+            return;
+        System.arraycopy(order, from, sortBuffer, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && key[sortBuffer[i]] <= key[sortBuffer[j]]))
+                order[k] = sortBuffer[i++];
+            else
+                order[k] = sortBuffer[j++];
+        }
+    }
+}
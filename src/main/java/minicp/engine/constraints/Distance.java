@@ -0,0 +1,116 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.util.GraphUtil;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Length of a sequence:
+ * the sum of the distances between its consecutive members.
+ * <p>
+ * The length is at least the one of the members plus the largest,
+ * over the required nodes, of their cheapest insertion cost.
+ * An insertion whose cost exceeds the maximum length is removed.
+ * As nodes can still be inserted between two members,
+ * those bounds use the shortest paths between the nodes,
+ * that satisfy the triangle inequality even if the distances do not,
+ * so that inserting a node never decreases them.
+ */
+public class Distance extends AbstractConstraint {
+
+    private final SequenceVar seq;
+    private final int[][] dist;
+    private final int[][] shortest;
+    private final IntVar length;
+    private final int[] order;
+    private final int[] nodes;
+    private final int[] insertions;
+
+    /**
+     * Creates a distance constraint.
+     *
+     * @param seq the sequence
+     * @param dist the distance matrix between the nodes, begin and end included
+     * @param length the length of the sequence
+     */
+    public Distance(SequenceVar seq, int[][] dist, IntVar length) {
+        super(seq.getSolver());
+        int n = seq.nNode();
+        if (dist.length != n + 2)
+            throw new InvalidParameterException("one row of distances per node, begin and end included");
+        this.seq = seq;
+        this.dist = dist;
+        this.shortest = GraphUtil.shortestPaths(dist);
+        this.length = length;
+        order = new int[n + 2];
+        nodes = new int[n];
+        insertions = new int[n + 1];
+    }
+
+    @Override
+    public void post() {
+        seq.propagateOnDomainChange(this);
+        length.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int size = seq.fillOrder(order);
+        int[][] d = seq.isFixed() ? dist : shortest;
+        int current = 0;
+        for (int k = 1; k < size; k++)
+            current += d[order[k - 1]][order[k]];
+        if (seq.isFixed()) {
+            length.fix(current);
+            return;
+        }
+        length.removeBelow(current);
+        int maxCost = length.max() - current;
+        int bound = 0;
+        int nNodes = seq.fillRequired(nodes);
+        for (int k = 0; k < nNodes; k++)
+            bound = Math.max(bound, filterInsertions(nodes[k], maxCost));
+        nNodes = seq.fillPossible(nodes);
+        for (int k = 0; k < nNodes; k++)
+            filterInsertions(nodes[k], maxCost);
+        length.removeBelow(current + bound);
+    }
+
+    /**
+     * Removes the insertions of the node costing more than maxCost
+     * and returns the cost of its cheapest remaining insertion
+     */
+    private int filterInsertions(int node, int maxCost) {
+        int minCost = Integer.MAX_VALUE;
+        int nIns = seq.fillInsertions(node, insertions);
+        for (int k = 0; k < nIns; k++) {
+            int pred = insertions[k];
+            int succ = seq.nextMember(pred);
+            int cost = shortest[pred][node] + shortest[node][succ] - shortest[pred][succ];
+            if (cost > maxCost)
+                seq.removeInsertion(node, pred);
+            else
+                minCost = Math.min(minCost, cost);
+        }
+        return minCost;
+    }
+}
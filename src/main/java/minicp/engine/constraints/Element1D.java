@@ -16,14 +16,10 @@
 
 package minicp.engine.constraints;
 
-import minicp.cp.Factory;
 import minicp.engine.core.AbstractConstraint;
-import minicp.engine.core.Constraint;
 import minicp.engine.core.IntVar;
 import minicp.state.StateInt;
 import minicp.state.StateManager;
-import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.Arrays;
 import java.util.Comparator;
@@ -31,6 +27,13 @@ import java.util.Comparator;
 /**
  *
  * Element Constraint modeling {@code array[y] = z}
+ * <p>
+ * Domain consistent filtering with reversible support counters:
+ * the number of indices of y giving each value of z is decremented
+ * for the values removed from y since the last propagation
+ * and a value of z is removed when its counter drops to 0.
+ * The indices of y giving a value removed from z are found
+ * in the permutation sorting the array.
  *
  */
 public class Element1D extends AbstractConstraint {
@@ -38,9 +41,15 @@ public class Element1D extends AbstractConstraint {
     private final int[] t;
 
 
-    private final Integer[] sortedPerm;
-    private final StateInt low;
-    private final StateInt up;
+    private final int[] sortedPerm; // indices sorted by increasing value of t
+    private final int[] values; // distinct values of t, sorted
+    private final int[] valueStart; // the indices of values[k] are sortedPerm[valueStart[k]..valueStart[k+1]-1]
+    private final int[] valueOf; // valueOf[i] is the position of t[i] in values
+    private final StateInt[] nSupports; // number of indices of y giving each value
+
+    private final StateInt lastSizeY;
+    private final StateInt lastSizeZ;
+    private final int[] delta;
 
     private final IntVar y;
     private final IntVar z;
@@ -57,15 +66,34 @@ public class Element1D extends AbstractConstraint {
         super(y.getSolver());
         this.t = array;
 
-        sortedPerm = new Integer[t.length];
+        Integer[] perm = new Integer[t.length];
         for (int i = 0; i < t.length; i++) {
-            sortedPerm[i] = i;
+            perm[i] = i;
+        }
+        Arrays.sort(perm, Comparator.comparingInt(i -> t[i]));
+        sortedPerm = new int[t.length];
+        valueOf = new int[t.length];
+        int[] start = new int[t.length + 1];
+        int nValues = 0;
+        for (int k = 0; k < t.length; k++) {
+            sortedPerm[k] = perm[k];
+            if (k == 0 || t[perm[k]] != t[perm[k - 1]])
+                start[nValues++] = k;
+            valueOf[perm[k]] = nValues - 1;
         }
-        Arrays.sort(sortedPerm,Comparator.comparingInt(i -> t[i]));
+        start[nValues] = t.length;
+        valueStart = Arrays.copyOf(start, nValues + 1);
+        values = new int[nValues];
+        for (int k = 0; k < nValues; k++)
+            values[k] = t[sortedPerm[valueStart[k]]];
 
         StateManager sm = getSolver().getStateManager();
-        low = sm.makeStateInt(0);
-        up = sm.makeStateInt(t.length - 1);
+        nSupports = new StateInt[nValues];
+        for (int k = 0; k < nValues; k++)
+            nSupports[k] = sm.makeStateInt(valueStart[k + 1] - valueStart[k]);
+        lastSizeY = sm.makeStateInt(-1);
+        lastSizeZ = sm.makeStateInt(-1);
+        delta = new int[Math.max(t.length, nValues)];
 
         this.y = y;
         this.z = z;
@@ -73,39 +101,62 @@ public class Element1D extends AbstractConstraint {
 
     @Override
     public void post() {
-      y.removeBelow(0);
-      y.removeAbove(t.length - 1);
-      y.propagateOnDomainChange(this);
-      z.propagateOnBoundChange(this);
-      propagate();
+        y.removeBelow(0);
+        y.removeAbove(t.length - 1);
+        z.removeBelow(values[0]);
+        z.removeAbove(values[values.length - 1]);
+        // the values of z not in t and the indices of y giving a value not in z
+        int[] dom = new int[z.size()];
+        int size = z.fillArray(dom);
+        for (int k = 0; k < size; k++) {
+            if (Arrays.binarySearch(values, dom[k]) < 0)
+                z.remove(dom[k]);
+        }
+        for (int i = 0; i < t.length; i++) {
+            if (!z.contains(t[i]))
+                y.remove(i);
+        }
+        for (int k = 0; k < values.length; k++) {
+            int n = 0;
+            for (int j = valueStart[k]; j < valueStart[k + 1]; j++) {
+                if (y.contains(sortedPerm[j]))
+                    n++;
+            }
+            nSupports[k].setValue(n);
+            if (n == 0)
+                z.remove(values[k]);
+        }
+        lastSizeY.setValue(y.size());
+        lastSizeZ.setValue(z.size());
+        y.propagateOnDomainChange(this);
+        z.propagateOnDomainChange(this);
     }
 
 
     @Override
     public void propagate() {
-
-      for (int i = y.min(); i <= y.max(); i++)
-        if (y.contains(i) && ((t[i] < z.min()) || (t[i] > z.max())))
-          y.remove(i);
-
-
-      Integer [] zSup = new Integer[z.max() - z.min() + 1];
-      Integer zOff = z.min();
-      for (int v = z.min(); v <= z.max(); v++)
-        zSup[v-zOff] = 0;
-
-      for (int i = y.min(); i <= y.max(); i++)
-        if (y.contains(i)) 
-	  zSup[t[i]-zOff] += 1;
-	  
-      // update z.min
-      if (zSup[z.min()-zOff] == 0)
-	z.remove(z.min());
-
-      // update z.max
-      if (zSup[z.max()-zOff] == 0)
-	z.remove(z.max());
-
-
+        // indices removed from y
+        if (y.size() != lastSizeY.value()) {
+            int nDelta = y.fillDeltaArray(lastSizeY.value(), delta);
+            for (int d = 0; d < nDelta; d++) {
+                int k = valueOf[delta[d]];
+                if (nSupports[k].decrement() == 0)
+                    z.remove(values[k]);
+            }
+        }
+        // the indices removed below are processed by the next propagation
+        lastSizeY.setValue(y.size());
+        // values removed from z
+        if (z.size() != lastSizeZ.value()) {
+            int nDelta = z.fillDeltaArray(lastSizeZ.value(), delta);
+            for (int d = 0; d < nDelta; d++) {
+                int k = Arrays.binarySearch(values, delta[d]);
+                if (nSupports[k].value() > 0) {
+                    for (int j = valueStart[k]; j < valueStart[k + 1]; j++)
+                        y.remove(sortedPerm[j]);
+                }
+            }
+        }
+        lastSizeZ.setValue(z.size());
     }
 }
@@ -17,36 +17,134 @@ package minicp.engine.constraints;
 
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.NotImplementedException;
 
+/**
+ *
+ * Element Constraint modeling {@code array[y] = z}
+ * where the array is an array of variables
+ * <p>
+ * Domain consistent filtering of y and z with residual supports:
+ * the last value of {@code array[i]} found in z is remembered for each index i
+ * and the last index of y whose variable contains v is remembered
+ * for each value v of z, so that most support checks are in O(1).
+ * Once y is fixed, the constraint is replaced by an {@link Equal}
+ * between z and {@code array[y]} and is not awaken anymore by the array.
+ *
+ */
 public class Element1DVar extends AbstractConstraint {
 
     private final IntVar[] array;
     private final IntVar y;
     private final IntVar z;
 
-    
+    private int[] yResidue; // a common value of array[i] and z
+    private int[] zResidue; // an index i of y with v in array[i]
+    private int zOfs;
+    private int[] yDom;
+    private int[] zDom;
+    private int[] buffer;
 
     public Element1DVar(IntVar[] array, IntVar y, IntVar z) {
         super(y.getSolver());
         this.array = array;
         this.y = y;
         this.z = z;
-
-        
     }
 
     @Override
     public void post() {
-         throw new NotImplementedException();
+        y.removeBelow(0);
+        y.removeAbove(array.length - 1);
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        int maxSize = 0;
+        yDom = new int[y.size()];
+        int nY = y.fillArray(yDom);
+        for (int k = 0; k < nY; k++) {
+            IntVar t = array[yDom[k]];
+            min = Math.min(min, t.min());
+            max = Math.max(max, t.max());
+            maxSize = Math.max(maxSize, t.size());
+        }
+        z.removeBelow(min);
+        z.removeAbove(max);
+        if (y.isFixed()) {
+            postEqual();
+            return;
+        }
+        zOfs = z.min();
+        zDom = new int[z.size()];
+        buffer = new int[Math.max(maxSize, z.size())];
+        yResidue = new int[array.length];
+        for (int i = 0; i < array.length; i++)
+            yResidue[i] = array[i].min();
+        zResidue = new int[z.max() - z.min() + 1];
+        for (int k = 0; k < nY; k++)
+            array[yDom[k]].propagateOnDomainChange(this);
+        y.propagateOnDomainChange(this);
+        z.propagateOnDomainChange(this);
+        propagate();
     }
 
     @Override
     public void propagate() {
-         throw new NotImplementedException();
+        if (!y.isFixed()) {
+            int nY = y.fillArray(yDom);
+            for (int k = 0; k < nY; k++) {
+                if (!hasSupport(yDom[k]))
+                    y.remove(yDom[k]);
+            }
+        }
+        if (y.isFixed()) {
+            postEqual();
+            return;
+        }
+        int nY = y.fillArray(yDom);
+        int nZ = z.fillArray(zDom);
+        for (int k = 0; k < nZ; k++) {
+            if (!hasSupport(zDom[k], nY))
+                z.remove(zDom[k]);
+        }
+    }
 
+    private void postEqual() {
+        setActive(false);
+        getSolver().post(new Equal(z, array[y.min()]), false);
     }
 
-    
+    /**
+     * Returns true if array[i] and z have a common value
+     */
+    private boolean hasSupport(int i) {
+        IntVar t = array[i];
+        if (t.contains(yResidue[i]) && z.contains(yResidue[i]))
+            return true;
+        // iterates over the smallest domain
+        IntVar from = t.size() <= z.size() ? t : z;
+        IntVar other = from == t ? z : t;
+        int n = from.fillArray(buffer);
+        for (int k = 0; k < n; k++) {
+            if (other.contains(buffer[k])) {
+                yResidue[i] = buffer[k];
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Returns true if v is in the domain of array[i] for some i in yDom[0..nY-1]
+     */
+    private boolean hasSupport(int v, int nY) {
+        int r = zResidue[v - zOfs];
+        if (y.contains(r) && array[r].contains(v))
+            return true;
+        for (int k = 0; k < nY; k++) {
+            if (array[yDom[k]].contains(v)) {
+                zResidue[v - zOfs] = yDom[k];
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -19,16 +19,22 @@ import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
 import minicp.state.StateInt;
 import minicp.state.StateManager;
-import minicp.util.exception.InconsistencyException;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.stream.IntStream;
 
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
 
 /**
  *
  * Element Constraint modeling {@code matrix[x][y] = z}
+ * <p>
+ * The entries of the matrix sorted by value are stored in parallel arrays,
+ * shared by the constraints built on the same matrix as long as
+ * its content does not change.
  *
  */
 public class Element2D extends AbstractConstraint {
@@ -41,20 +47,57 @@ public class Element2D extends AbstractConstraint {
 
     private final StateInt low;
     private final StateInt up;
-    private final ArrayList<Triple> xyz;
+    // the entries of the matrix sorted by increasing value
+    private final int[] xs, ys, zs;
+
+    // sorted entries shared by the constraints on a same matrix, the matrix being compared by identity
+    private static final Map<int[][], SortedEntries> sortedEntries = new WeakHashMap<>();
 
-    private static final class Triple implements Comparable<Triple> {
-        private final int x, y, z;
+    private static final class SortedEntries {
+        private final int[][] matrix; // copy of the matrix when its entries were sorted
+        private final int[][] entries;
 
-        private Triple(int x, int y, int z) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
+        private SortedEntries(int[][] matrix, int[][] entries) {
+            this.matrix = matrix;
+            this.entries = entries;
         }
+    }
 
-        @Override
-        public int compareTo(Triple t) {
-            return z - t.z;
+    /**
+     * Returns the entries of the matrix sorted by increasing value
+     * as three arrays of rows, columns and values,
+     * sorted again if the matrix was modified since the previous call
+     */
+    private static int[][] sortedEntries(int[][] mat) {
+        synchronized (sortedEntries) {
+            SortedEntries cached = sortedEntries.get(mat);
+            if (cached != null && Arrays.deepEquals(cached.matrix, mat))
+                return cached.entries;
+            int size = 0;
+            for (int[] row : mat)
+                size += row.length;
+            int[][] copy = new int[mat.length][];
+            int[] rows = new int[size];
+            int[] cols = new int[size];
+            long[] keys = new long[size]; // value in the high bits, position in the low bits
+            for (int i = 0, k = 0; i < mat.length; i++) {
+                copy[i] = mat[i].clone();
+                for (int j = 0; j < mat[i].length; j++, k++) {
+                    rows[k] = i;
+                    cols[k] = j;
+                    keys[k] = ((long) mat[i][j] << 32) | k;
+                }
+            }
+            Arrays.sort(keys);
+            int[][] entries = new int[3][size];
+            for (int k = 0; k < size; k++) {
+                int pos = (int) keys[k];
+                entries[0][k] = rows[pos];
+                entries[1][k] = cols[pos];
+                entries[2][k] = (int) (keys[k] >> 32);
+            }
+            sortedEntries.put(mat, new SortedEntries(copy, entries));
+            return entries;
         }
     }
 
@@ -74,14 +117,13 @@ public class Element2D extends AbstractConstraint {
         this.z = z;
         n = matrix.length;
         this.m = matrix[0].length;
-        this.xyz = new ArrayList<Triple>();
-        for (int i = 0; i < matrix.length; i++)
-            for (int j = 0; j < matrix[i].length; j++)
-                xyz.add(new Triple(i, j, matrix[i][j]));
-        Collections.sort(xyz);
+        int[][] entries = sortedEntries(mat);
+        xs = entries[0];
+        ys = entries[1];
+        zs = entries[2];
         StateManager sm = getSolver().getStateManager();
         low = sm.makeStateInt(0);
-        up = sm.makeStateInt(xyz.size() - 1);
+        up = sm.makeStateInt(zs.length - 1);
         nColsSup = IntStream.range(0, n).mapToObj(i -> sm.makeStateInt(this.m)).toArray(StateInt[]::new);
         nRowsSup = IntStream.range(0, this.m).mapToObj(i -> sm.makeStateInt(n)).toArray(StateInt[]::new);
     }
@@ -99,10 +141,10 @@ public class Element2D extends AbstractConstraint {
     }
 
     private void updateSupports(int lostPos) {
-        if (nColsSup[xyz.get(lostPos).x].decrement() == 0)
-            x.remove(xyz.get(lostPos).x);
-        if (nRowsSup[xyz.get(lostPos).y].decrement() == 0)
-            y.remove(xyz.get(lostPos).y);
+        if (nColsSup[xs[lostPos]].decrement() == 0)
+            x.remove(xs[lostPos]);
+        if (nRowsSup[ys[lostPos]].decrement() == 0)
+            y.remove(ys[lostPos]);
     }
 
     @Override
@@ -110,16 +152,16 @@ public class Element2D extends AbstractConstraint {
         int l = low.value(), u = up.value();
         int zMin = z.min(), zMax = z.max();
 
-        while (xyz.get(l).z < zMin || !x.contains(xyz.get(l).x) || !y.contains(xyz.get(l).y)) {
+        while (zs[l] < zMin || !x.contains(xs[l]) || !y.contains(ys[l])) {
             updateSupports(l++);
-            if (l > u) throw new InconsistencyException();
+            if (l > u) throw INCONSISTENCY;
         }
-        while (xyz.get(u).z > zMax || !x.contains(xyz.get(u).x) || !y.contains(xyz.get(u).y)) {
+        while (zs[u] > zMax || !x.contains(xs[u]) || !y.contains(ys[u])) {
             updateSupports(u--);
-            if (l > u) throw new InconsistencyException();
+            if (l > u) throw INCONSISTENCY;
         }
-        z.removeBelow(xyz.get(l).z);
-        z.removeAbove(xyz.get(u).z);
+        z.removeBelow(zs[l]);
+        z.removeAbove(zs[u]);
         low.setValue(l);
         up.setValue(u);
     }
@@ -0,0 +1,62 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntervalVar;
+
+/**
+ * Precedence constraint between two interval variables:
+ * if both intervals are present, {@code a} ends before {@code b} starts.
+ */
+public class EndBeforeStart extends AbstractConstraint {
+
+    private final IntervalVar a;
+    private final IntervalVar b;
+
+    /**
+     * Creates a precedence between two interval variables.
+     *
+     * @param a the interval that must end first
+     * @param b the interval that must start after the end of {@code a},
+     *          if both are present
+     */
+    public EndBeforeStart(IntervalVar a, IntervalVar b) {
+        super(a.getSolver());
+        this.a = a;
+        this.b = b;
+    }
+
+    @Override
+    public void post() {
+        a.propagateOnChange(this);
+        b.propagateOnChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        if (a.isAbsent() || b.isAbsent()) {
+            setActive(false);
+            return;
+        }
+        // the bounds of an optional interval are the ones it takes if present
+        if (a.isPresent())
+            b.setStartMin(a.endMin());
+        if (b.isPresent())
+            a.setEndMax(b.startMax());
+    }
+}
@@ -5,7 +5,7 @@ import minicp.engine.core.IntVar;
 import minicp.util.exception.NotImplementedException;
 
 public class Equal extends AbstractConstraint {
-    private final IntVar x, y;
+    final IntVar x, y;
 
 
     /**
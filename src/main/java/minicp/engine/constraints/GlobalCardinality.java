@@ -0,0 +1,237 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.GraphUtil;
+
+import java.util.Arrays;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Global Cardinality Constraint
+ * <p>
+ * The value {@code minValue + k} must be taken by at least {@code low[k]}
+ * and at most {@code up[k]} variables, the other values being unconstrained.
+ * <p>
+ * The counting filter compares for each value the number of variables
+ * fixed to it and the number of variables that can take it
+ * with its bounds in {@code O(sum of the domain sizes)}.
+ * <p>
+ * The domain consistent filter is described in
+ * "Generalized arc consistency for global cardinality constraint" J-C. Régin, AAAI-96.
+ * A feasible flow is maintained by {@link MaximumMatching} with capacities
+ * and lower bounds, and an edge {@code x[i] = v} can be removed iff
+ * {@code x[i]} and {@code v} are in different strongly connected components
+ * of the residual graph, stored in flat adjacency arrays as in {@link AllDifferentDC}.
+ */
+public class GlobalCardinality extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final boolean domainConsistent;
+
+    private final int nVar;
+    private final int nVal;
+    private final int minVal;
+    private final int[] low;
+    private final int[] up;
+
+    private final int[] nFixed; // number of variables fixed to each value
+    private final int[] nPossible; // number of variables that can take each value
+    private final int[] dom;
+
+    private MaximumMatching maximumMatching;
+    private int[] match;
+    private int[] flow; // number of variables matched to each value
+
+    // residual graph: the variables, the values and the sink
+    // the successors of node u are adj[adjStart[u]..adjStart[u+1]-1]
+    private int nNodes;
+    private int sink;
+    private int[] adjStart;
+    private int[] adj;
+    private int[] scc;
+    private GraphUtil.Tarjan tarjan;
+
+    /**
+     * Creates a global cardinality constraint with the counting filter.
+     *
+     * @param x the variables
+     * @param minValue the smallest value with cardinality bounds
+     * @param low {@code low[k]} is the minimum number of variables equal to {@code minValue + k}
+     * @param up {@code up[k]} is the maximum number of variables equal to {@code minValue + k}
+     */
+    public GlobalCardinality(IntVar[] x, int minValue, int[] low, int[] up) {
+        this(x, minValue, low, up, false);
+    }
+
+    /**
+     * Creates a global cardinality constraint.
+     *
+     * @param x the variables
+     * @param minValue the smallest value with cardinality bounds
+     * @param low {@code low[k]} is the minimum number of variables equal to {@code minValue + k}
+     * @param up {@code up[k]} is the maximum number of variables equal to {@code minValue + k}
+     * @param domainConsistent true to achieve domain consistency
+     *                         with the flow based filter in addition to the counting filter
+     */
+    public GlobalCardinality(IntVar[] x, int minValue, int[] low, int[] up, boolean domainConsistent) {
+        super(x[0].getSolver());
+        if (low.length != up.length)
+            throw new IllegalArgumentException("low and up must have the same length");
+        for (int k = 0; k < low.length; k++) {
+            if (low[k] < 0 || low[k] > up[k])
+                throw new IllegalArgumentException("the bounds of value " + (minValue + k) + " are not valid");
+        }
+        this.x = x;
+        this.nVar = x.length;
+        this.domainConsistent = domainConsistent;
+
+        int min = low.length > 0 ? minValue : Integer.MAX_VALUE;
+        int max = low.length > 0 ? minValue + low.length - 1 : Integer.MIN_VALUE;
+        int nEdges = 0;
+        int maxSize = 0;
+        for (int i = 0; i < nVar; i++) {
+            min = Math.min(min, x[i].min());
+            max = Math.max(max, x[i].max());
+            nEdges += x[i].size();
+            maxSize = Math.max(maxSize, x[i].size());
+        }
+        minVal = min;
+        nVal = max - min + 1;
+        this.low = new int[nVal];
+        this.up = new int[nVal];
+        Arrays.fill(this.up, nVar);
+        for (int k = 0; k < low.length; k++) {
+            this.low[minValue + k - minVal] = low[k];
+            this.up[minValue + k - minVal] = Math.min(up[k], nVar);
+        }
+        nFixed = new int[nVal];
+        nPossible = new int[nVal];
+        dom = new int[maxSize];
+
+        if (domainConsistent) {
+            maximumMatching = new MaximumMatching(x, minValue, low, up);
+            match = new int[nVar];
+            flow = new int[nVal];
+            nNodes = nVar + nVal + 1;
+            sink = nNodes - 1;
+            adjStart = new int[nNodes + 1];
+            // domains edges + one edge per variable from its value + the edges to and from the sink
+            adj = new int[nEdges + nVar + 2 * nVal];
+            scc = new int[nNodes];
+            tarjan = new GraphUtil.Tarjan(nNodes);
+        }
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x)
+            var.propagateOnDomainChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        countingFilter();
+        if (domainConsistent)
+            flowFilter();
+    }
+
+    private void countingFilter() {
+        Arrays.fill(nFixed, 0);
+        Arrays.fill(nPossible, 0);
+        for (int i = 0; i < nVar; i++) {
+            int size = x[i].fillArray(dom);
+            for (int k = 0; k < size; k++)
+                nPossible[dom[k] - minVal]++;
+            if (size == 1)
+                nFixed[dom[0] - minVal]++;
+        }
+        for (int v = 0; v < nVal; v++) {
+            if (nFixed[v] > up[v] || nPossible[v] < low[v])
+                throw INCONSISTENCY;
+        }
+        // the counts are not updated below, the changes are handled by the next propagation
+        for (int i = 0; i < nVar; i++) {
+            if (x[i].isFixed())
+                continue;
+            int size = x[i].fillArray(dom);
+            for (int k = 0; k < size; k++) {
+                int v = dom[k] - minVal;
+                if (nFixed[v] == up[v]) {
+                    // the value is taken by enough variables
+                    x[i].remove(dom[k]);
+                } else if (nPossible[v] == low[v]) {
+                    // all the variables that can take the value must take it
+                    x[i].fix(dom[k]);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void flowFilter() {
+        // repairs the flow only if a matched value was removed
+        if (maximumMatching.compute(match) < nVar || !maximumMatching.satisfyLowerBounds(match))
+            throw INCONSISTENCY;
+        updateGraph();
+        tarjan.compute(nNodes, adjStart, adj, scc);
+        // remove the values whose edge is not in a strongly connected component
+        for (int i = 0; i < nVar; i++) {
+            for (int e = adjStart[i]; e < adjStart[i + 1]; e++) {
+                int valNode = adj[e];
+                if (scc[i] != scc[valNode])
+                    x[i].remove(valNode - nVar + minVal);
+            }
+        }
+    }
+
+    private void updateGraph() {
+        Arrays.fill(flow, 0);
+        for (int i = 0; i < nVar; i++)
+            flow[match[i] - minVal]++;
+        int e = 0;
+        // variable -> its unmatched values
+        for (int i = 0; i < nVar; i++) {
+            adjStart[i] = e;
+            int size = x[i].fillArray(dom);
+            for (int k = 0; k < size; k++) {
+                if (dom[k] != match[i])
+                    adj[e++] = nVar + dom[k] - minVal;
+            }
+        }
+        // value -> its matched variables, then the sink if the flow can increase
+        for (int v = 0; v < nVal; v++) {
+            adjStart[nVar + v] = e;
+            e += flow[v];
+            if (flow[v] < up[v])
+                adj[e++] = sink;
+            flow[v] = adjStart[nVar + v]; // insertion position of the matched variables
+        }
+        for (int i = 0; i < nVar; i++)
+            adj[flow[match[i] - minVal]++] = i;
+        // sink -> the values whose flow can decrease
+        adjStart[sink] = e;
+        for (int v = 0; v < nVal; v++) {
+            if (maximumMatching.count(v + minVal) > low[v])
+                adj[e++] = nVar + v;
+        }
+        adjStart[nNodes] = e;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+
+/**
+ * Channeling constraint between a variable and the indicators of its values:
+ * {@code b[j] <=> x == j} for each {@code j} in {@code 0..b.length-1}.
+ * <p>
+ * It replaces {@code b.length} {@link IsEqual} constraints
+ * that are all woken up by each domain change of {@code x}.
+ * The values removed from {@code x} since the last propagation
+ * are obtained with {@link IntVar#fillDeltaArray(int, int[])}
+ * and set their indicator to false in {@code O(removed)}.
+ * A fixed indicator fixes {@code x} or removes its value in constant time.
+ * @see minicp.cp.Factory#indicators(IntVar)
+ */
+public class Indicators extends AbstractConstraint {
+
+    private final IntVar x;
+    private final BoolVar[] b;
+    private final StateInt lastSize;
+    private final int[] delta;
+
+    /**
+     * Creates a channeling constraint between a variable and its indicators.
+     *
+     * @param x the variable, whose values outside {@code 0..b.length-1} are removed
+     * @param b the indicators, {@code b[j]} is true if and only if x takes the value j
+     */
+    public Indicators(IntVar x, BoolVar[] b) {
+        super(x.getSolver());
+        this.x = x;
+        this.b = b;
+        lastSize = getSolver().getStateManager().makeStateInt(x.size());
+        delta = new int[x.size()];
+    }
+
+    @Override
+    public void post() {
+        x.removeBelow(0);
+        x.removeAbove(b.length - 1);
+        for (int j = 0; j < b.length; j++) {
+            if (b[j].isTrue())
+                x.fix(j);
+            else if (b[j].isFalse())
+                x.remove(j);
+        }
+        for (int j = 0; j < b.length; j++) {
+            if (!x.contains(j))
+                b[j].fix(false);
+        }
+        if (x.isFixed())
+            b[x.min()].fix(true);
+        lastSize.setValue(x.size());
+        x.propagateOnDomainChange(this);
+        for (int j = 0; j < b.length; j++) {
+            final int v = j;
+            b[j].whenFixed(() -> {
+                if (b[v].isTrue())
+                    x.fix(v);
+                else
+                    x.remove(v);
+            });
+        }
+    }
+
+    @Override
+    public void propagate() {
+        int nDelta = x.fillDeltaArray(lastSize.value(), delta);
+        lastSize.setValue(x.size());
+        for (int k = 0; k < nDelta; k++)
+            b[delta[k]].fix(false);
+        if (x.isFixed())
+            b[x.min()].fix(true);
+    }
+}
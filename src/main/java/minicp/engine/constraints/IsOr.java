@@ -18,7 +18,7 @@ package minicp.engine.constraints;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.BoolVar;
 import minicp.state.StateInt;
-import minicp.util.exception.NotImplementedException;
+
 /**
  * Reified logical or constraint
  */
@@ -61,11 +61,39 @@ public class IsOr extends AbstractConstraint { // b <=> x1 or x2 or ... xn
         for (BoolVar xi : x) {
             xi.propagateOnFix(this);
         }
+        propagate();
     }
 
     @Override
     public void propagate() {
-        // TODO Implement the constraint as efficiently as possible and make sure you pass all the tests
-         throw new NotImplementedException();
+        if (b.isTrue()) {
+            setActive(false);
+            getSolver().post(or, false);
+        } else if (b.isFalse()) {
+            for (BoolVar xi : x)
+                xi.fix(false);
+            setActive(false);
+        } else {
+            int nFree = nFreeVars.value();
+            for (int i = nFree - 1; i >= 0; i--) {
+                int idx = freeVarIndex[i];
+                if (x[idx].isFixed()) {
+                    if (x[idx].isTrue()) {
+                        b.fix(true);
+                        setActive(false);
+                        return;
+                    }
+                    // the fixed variables are moved after the free ones
+                    freeVarIndex[i] = freeVarIndex[nFree - 1];
+                    freeVarIndex[nFree - 1] = idx;
+                    nFree--;
+                }
+            }
+            if (nFree == 0) {
+                b.fix(false);
+                setActive(false);
+            }
+            nFreeVars.setValue(nFree);
+        }
     }
 }
@@ -0,0 +1,380 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Reduced layered Multi-valued Decision Diagram
+ * representing a set of tuples of the same arity.
+ * <p>
+ * The nodes of layer {@code k} are in {@code [layerStart(k), layerStart(k+1))},
+ * layer 0 containing the root only and the last layer the sink only.
+ * Each tuple is a path from the root to the sink,
+ * the edge leaving layer {@code k} being labeled by the k-th value of the tuple.
+ * <p>
+ * The diagram is reduced: two nodes of a layer never have the same outgoing edges.
+ * It is built incrementally from lexicographically sorted tuples
+ * (Daciuk et al., <i>Incremental Construction of Minimal Acyclic Finite-State Automata</i>, 2000),
+ * so that only the diagram and the current tuple are kept in memory,
+ * and tables with a lot of shared prefixes and suffixes are compressed a lot.
+ *
+ * @see MDD4R
+ */
+public final class MDD {
+
+    private final int arity;
+    private final int[] layerStart; // nodes of layer k are in [layerStart[k], layerStart[k+1])
+    private final int[] edgeSrc;
+    private final int[] edgeDst;
+    private final int[] edgeVal;
+    private final int[] layerEdgeStart; // edges leaving layer k are in [layerEdgeStart[k], layerEdgeStart[k+1])
+    private final int[] outStart; // out edges of node u are in [outStart[u], outStart[u+1])
+    private final int[] inStart; // in edges of node u are inEdges[inStart[u]..inStart[u+1])
+    private final int[] inEdges;
+
+    private MDD(int arity, int[] layerStart, int[] edgeSrc, int[] edgeDst, int[] edgeVal) {
+        this.arity = arity;
+        this.layerStart = layerStart;
+        this.edgeSrc = edgeSrc;
+        this.edgeDst = edgeDst;
+        this.edgeVal = edgeVal;
+        int nNodes = layerStart[arity + 1];
+        int nEdges = edgeSrc.length;
+        // the edges are sorted by source node
+        outStart = new int[nNodes + 1];
+        inStart = new int[nNodes + 1];
+        for (int e = 0; e < nEdges; e++) {
+            outStart[edgeSrc[e] + 1]++;
+            inStart[edgeDst[e] + 1]++;
+        }
+        for (int u = 0; u < nNodes; u++) {
+            outStart[u + 1] += outStart[u];
+            inStart[u + 1] += inStart[u];
+        }
+        inEdges = new int[nEdges];
+        int[] pos = Arrays.copyOf(inStart, nNodes);
+        for (int e = 0; e < nEdges; e++)
+            inEdges[pos[edgeDst[e]]++] = e;
+        layerEdgeStart = new int[arity + 1];
+        for (int k = 0; k <= arity; k++)
+            layerEdgeStart[k] = outStart[layerStart[k]];
+    }
+
+    /**
+     * Compiles a table into a reduced MDD.
+     *
+     * @param table the tuples, all of the same arity.
+     *              Duplicated tuples are ignored.
+     * @return the reduced MDD representing the tuples of the table
+     */
+    public static MDD fromTable(int[][] table) {
+        return fromTable(table, Long.MAX_VALUE);
+    }
+
+    /**
+     * Compiles a table into a reduced MDD, giving up as soon as
+     * the nodes already merged make it larger than a maximum size.
+     *
+     * @param table the tuples, all of the same arity.
+     *              Duplicated tuples are ignored.
+     * @param maxSize the maximum size of the MDD, its number of nodes plus its number of edges
+     * @return the reduced MDD representing the tuples of the table,
+     *         null if its size exceeds maxSize
+     */
+    public static MDD fromTable(int[][] table, long maxSize) {
+        if (table.length == 0)
+            throw new IllegalArgumentException("the arity of an empty table is unknown");
+        int[][] sorted = table.clone();
+        Arrays.sort(sorted, MDD::compare);
+        Builder builder = new Builder(table[0].length);
+        for (int[] tuple : sorted) {
+            builder.addTuple(tuple);
+            if (builder.registeredSize() > maxSize)
+                return null;
+        }
+        MDD mdd = builder.build();
+        return mdd.numberOfNodes() + mdd.numberOfEdges() > maxSize ? null : mdd;
+    }
+
+    private static int compare(int[] t1, int[] t2) {
+        for (int i = 0; i < t1.length; i++) {
+            if (t1[i] != t2[i])
+                return Integer.compare(t1[i], t2[i]);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of variables of the tuples.
+     *
+     * @return the number of layers of edges
+     */
+    public int arity() {
+        return arity;
+    }
+
+    /**
+     * Returns the number of nodes, including the root and the sink.
+     *
+     * @return the number of nodes
+     */
+    public int numberOfNodes() {
+        return layerStart[arity + 1];
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges
+     */
+    public int numberOfEdges() {
+        return edgeSrc.length;
+    }
+
+    /**
+     * Returns the number of tuples represented, that is
+     * the number of paths from the root to the sink.
+     *
+     * @return the number of tuples
+     */
+    public long numberOfTuples() {
+        long[] paths = new long[numberOfNodes()];
+        paths[numberOfNodes() - 1] = 1;
+        for (int e = edgeSrc.length - 1; e >= 0; e--)
+            paths[edgeSrc[e]] += paths[edgeDst[e]];
+        return paths[0];
+    }
+
+    int layerStart(int k) {
+        return layerStart[k];
+    }
+
+    int layerEdgeStart(int k) {
+        return layerEdgeStart[k];
+    }
+
+    int edgeSrc(int e) {
+        return edgeSrc[e];
+    }
+
+    int edgeDst(int e) {
+        return edgeDst[e];
+    }
+
+    int edgeVal(int e) {
+        return edgeVal[e];
+    }
+
+    int outStart(int u) {
+        return outStart[u];
+    }
+
+    int inStart(int u) {
+        return inStart[u];
+    }
+
+    int inEdge(int i) {
+        return inEdges[i];
+    }
+
+    /**
+     * Builds a reduced MDD from tuples added in lexicographic order.
+     * The completed suffixes are merged with the equivalent nodes
+     * already built as soon as a tuple diverges from them.
+     */
+    public static final class Builder {
+
+        private static final class Node {
+            final int depth;
+            int[] vals = new int[2];
+            Node[] kids = new Node[2];
+            int n = 0;
+            int id = -1; // index in the registered nodes, -1 if not registered yet
+
+            Node(int depth) {
+                this.depth = depth;
+            }
+
+            void add(int v, Node kid) {
+                if (n == vals.length) {
+                    vals = Arrays.copyOf(vals, 2 * n);
+                    kids = Arrays.copyOf(kids, 2 * n);
+                }
+                vals[n] = v;
+                kids[n++] = kid;
+            }
+        }
+
+        /**
+         * Signature of a node: its labels and the id of its registered children
+         */
+        private static final class Key {
+            final int[] data;
+            final int hash;
+
+            Key(Node node) {
+                data = new int[2 * node.n];
+                for (int i = 0; i < node.n; i++) {
+                    data[2 * i] = node.vals[i];
+                    data[2 * i + 1] = node.kids[i].id;
+                }
+                hash = Arrays.hashCode(data);
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Key && Arrays.equals(data, ((Key) o).data);
+            }
+        }
+
+        private final int arity;
+        private final HashMap<Key, Node> register = new HashMap<>();
+        private final ArrayList<Node> registered = new ArrayList<>();
+        private long nRegisteredEdges = 0;
+        private final Node[] path; // nodes along the last tuple added
+        private int[] last = null;
+        private boolean built = false;
+
+        /**
+         * Creates a builder of an MDD over tuples of the given arity.
+         *
+         * @param arity the size of the tuples
+         */
+        public Builder(int arity) {
+            if (arity <= 0)
+                throw new IllegalArgumentException("the arity must be positive");
+            this.arity = arity;
+            path = new Node[arity + 1];
+            path[0] = new Node(0);
+            path[arity] = new Node(arity);
+            registerNode(path[arity]);
+        }
+
+        /**
+         * Adds a tuple to the MDD.
+         *
+         * @param tuple a tuple larger or equal in the lexicographic order
+         *              to the tuples previously added.
+         *              An equal tuple is ignored.
+         * @return this builder
+         */
+        public Builder addTuple(int... tuple) {
+            if (built)
+                throw new IllegalStateException("the MDD is already built");
+            if (tuple.length != arity)
+                throw new IllegalArgumentException("the tuple must be of size " + arity);
+            int p = 0;
+            if (last != null) {
+                while (p < arity && tuple[p] == last[p])
+                    p++;
+                if (p == arity)
+                    return this;
+                if (tuple[p] < last[p])
+                    throw new IllegalArgumentException("the tuples must be added in lexicographic order");
+                minimize(p);
+            }
+            for (int d = p; d < arity; d++) {
+                if (d < arity - 1)
+                    path[d + 1] = new Node(d + 1);
+                path[d].add(tuple[d], path[d + 1]);
+            }
+            last = tuple.clone();
+            return this;
+        }
+
+        /**
+         * Builds the MDD with all the tuples added.
+         *
+         * @return the reduced MDD
+         */
+        public MDD build() {
+            built = true;
+            if (last != null)
+                minimize(0);
+            // the root is the only node of its layer
+            path[0].id = registered.size();
+            registered.add(path[0]);
+            // layer by layer numbering of the nodes
+            int[] layerStart = new int[arity + 2];
+            for (Node node : registered)
+                layerStart[node.depth + 1]++;
+            for (int k = 0; k <= arity; k++)
+                layerStart[k + 1] += layerStart[k];
+            int[] pos = Arrays.copyOf(layerStart, arity + 1);
+            int[] number = new int[registered.size()];
+            int nEdges = 0;
+            Node[] nodes = new Node[registered.size()];
+            for (Node node : registered) {
+                number[node.id] = pos[node.depth]++;
+                nodes[number[node.id]] = node;
+                nEdges += node.n;
+            }
+            int[] src = new int[nEdges];
+            int[] dst = new int[nEdges];
+            int[] val = new int[nEdges];
+            int e = 0;
+            for (int u = 0; u < nodes.length; u++) {
+                Node node = nodes[u];
+                for (int i = 0; i < node.n; i++) {
+                    src[e] = u;
+                    dst[e] = number[node.kids[i].id];
+                    val[e++] = node.vals[i];
+                }
+            }
+            return new MDD(arity, layerStart, src, dst, val);
+        }
+
+        /**
+         * Replaces the nodes of the last tuple below depth p
+         * by their equivalent registered nodes.
+         */
+        private void minimize(int p) {
+            for (int d = arity - 1; d > p; d--) {
+                Node node = path[d];
+                Node parent = path[d - 1];
+                parent.kids[parent.n - 1] = registerNode(node);
+            }
+        }
+
+        private Node registerNode(Node node) {
+            Key key = new Key(node);
+            Node equivalent = register.get(key);
+            if (equivalent != null)
+                return equivalent;
+            node.id = registered.size();
+            registered.add(node);
+            nRegisteredEdges += node.n;
+            register.put(key, node);
+            return node;
+        }
+
+        /**
+         * Returns the number of nodes and edges already merged,
+         * a lower bound of the size of the MDD being built.
+         */
+        long registeredSize() {
+            return registered.size() + nRegisteredEdges;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateSparseSet;
+
+/**
+ * MDD constraint achieving domain consistency with reversible
+ * support counters, in the spirit of MDD4R described in
+ * <p><i>Improving GAC-4 for Table and MDD Constraints</i>
+ * Guillaume Perez, Jean-Charles Régin, CP 2014.
+ * <p>
+ * The constraint holds iff the tuple {@code x} is a path of the MDD.
+ * The valid edges are stored in a reversible sparse set.
+ * Each node counts its valid incoming and outgoing edges
+ * and each value of each layer counts its valid edges.
+ * When a value is removed from the domain of {@code x[k]}, its edges are deleted;
+ * the nodes left without incoming or outgoing edge delete in turn all their edges,
+ * and the values left without edge are removed.
+ * Only the values removed since the last propagation are processed.
+ */
+public class MDD4R extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final MDD mdd;
+
+    private final StateSparseSet validEdges;
+    private final StateInt[] nIn; // number of valid incoming edges of each node
+    private final StateInt[] nOut; // number of valid outgoing edges of each node
+    private final int[] layerOfs; // smallest value of each layer
+    private final StateInt[][] nSupports; // number of valid edges of value v in layer k
+    private final int[][] valStart; // edges of value v in layer k are valEdges[k][valStart[k][v]..valStart[k][v+1])
+    private final int[][] valEdges;
+
+    private final StateInt[] lastDomSize;
+    private final int[] delta;
+    private final int[] deadNodes; // stack of the nodes to remove
+    private int nDeadNodes;
+
+    /**
+     * Creates an MDD constraint.
+     * <p> This constraint holds iff
+     * {@code x} is one of the tuples represented by the MDD.
+     *
+     * @param x the variables, one for each layer of the MDD
+     * @param mdd a reduced MDD of arity {@code x.length}
+     * @see MDD#fromTable(int[][])
+     */
+    public MDD4R(IntVar[] x, MDD mdd) {
+        super(x[0].getSolver());
+        if (mdd.arity() != x.length)
+            throw new IllegalArgumentException("the arity of the MDD must be the number of variables");
+        this.x = x;
+        this.mdd = mdd;
+        StateManager sm = getSolver().getStateManager();
+        int nNodes = mdd.numberOfNodes();
+        validEdges = new StateSparseSet(sm, mdd.numberOfEdges(), 0);
+        nIn = new StateInt[nNodes];
+        nOut = new StateInt[nNodes];
+        for (int u = 0; u < nNodes; u++) {
+            nIn[u] = sm.makeStateInt(mdd.inStart(u + 1) - mdd.inStart(u));
+            nOut[u] = sm.makeStateInt(mdd.outStart(u + 1) - mdd.outStart(u));
+        }
+
+        int n = x.length;
+        layerOfs = new int[n];
+        nSupports = new StateInt[n][];
+        valStart = new int[n][];
+        valEdges = new int[n][];
+        lastDomSize = new StateInt[n];
+        int maxSize = 0;
+        for (int k = 0; k < n; k++) {
+            int first = mdd.layerEdgeStart(k);
+            int last = mdd.layerEdgeStart(k + 1);
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int e = first; e < last; e++) {
+                min = Math.min(min, mdd.edgeVal(e));
+                max = Math.max(max, mdd.edgeVal(e));
+            }
+            if (first == last) // empty MDD
+                min = max = 0;
+            layerOfs[k] = min;
+            // edges of layer k grouped by value
+            int[] start = new int[max - min + 2];
+            for (int e = first; e < last; e++)
+                start[mdd.edgeVal(e) - min + 1]++;
+            nSupports[k] = new StateInt[max - min + 1];
+            for (int v = 0; v <= max - min; v++) {
+                nSupports[k][v] = sm.makeStateInt(start[v + 1]);
+                start[v + 1] += start[v];
+            }
+            valStart[k] = start;
+            valEdges[k] = new int[last - first];
+            int[] pos = start.clone();
+            for (int e = first; e < last; e++)
+                valEdges[k][pos[mdd.edgeVal(e) - min]++] = e;
+            lastDomSize[k] = sm.makeStateInt(-1);
+            maxSize = Math.max(maxSize, x[k].size());
+        }
+        delta = new int[maxSize];
+        deadNodes = new int[2 * nNodes];
+    }
+
+    @Override
+    public void post() {
+        for (int k = 0; k < x.length; k++) {
+            // removes the values without edge
+            x[k].removeBelow(layerOfs[k]);
+            x[k].removeAbove(layerOfs[k] + nSupports[k].length - 1);
+            for (int v = 0; v < nSupports[k].length; v++) {
+                if (nSupports[k][v].value() == 0)
+                    x[k].remove(v + layerOfs[k]);
+            }
+            x[k].propagateOnDomainChange(this);
+        }
+        // deletes the edges of the values not in the domains
+        for (int k = 0; k < x.length; k++) {
+            for (int v = 0; v < nSupports[k].length; v++) {
+                if (!x[k].contains(v + layerOfs[k]))
+                    deleteValue(k, v);
+            }
+            lastDomSize[k].setValue(x[k].size());
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        for (int k = 0; k < x.length; k++) {
+            int size = x[k].size();
+            if (size != lastDomSize[k].value()) {
+                int nDelta = x[k].fillDeltaArray(lastDomSize[k].value(), delta);
+                for (int i = 0; i < nDelta; i++) {
+                    int v = delta[i] - layerOfs[k];
+                    if (v >= 0 && v < nSupports[k].length)
+                        deleteValue(k, v);
+                }
+            }
+        }
+        for (int k = 0; k < x.length; k++)
+            lastDomSize[k].setValue(x[k].size());
+    }
+
+    /**
+     * Deletes the valid edges of the value {@code v + layerOfs[k]} of x[k]
+     * and the nodes left without incoming or outgoing edge
+     */
+    private void deleteValue(int k, int v) {
+        nDeadNodes = 0; // the stack may be left non empty by a failure
+        for (int i = valStart[k][v]; i < valStart[k][v + 1] && nSupports[k][v].value() > 0; i++) {
+            int e = valEdges[k][i];
+            if (validEdges.contains(e))
+                deleteEdge(k, e);
+        }
+        while (nDeadNodes > 0)
+            deleteNode(deadNodes[--nDeadNodes]);
+    }
+
+    private void deleteNode(int u) {
+        if (nOut[u].value() > 0) {
+            int k = layerOf(u);
+            for (int e = mdd.outStart(u); e < mdd.outStart(u + 1); e++) {
+                if (validEdges.contains(e))
+                    deleteEdge(k, e);
+            }
+        }
+        if (nIn[u].value() > 0) {
+            int k = layerOf(u) - 1;
+            for (int i = mdd.inStart(u); i < mdd.inStart(u + 1); i++) {
+                int e = mdd.inEdge(i);
+                if (validEdges.contains(e))
+                    deleteEdge(k, e);
+            }
+        }
+    }
+
+    /**
+     * Deletes the valid edge e leaving the layer k
+     */
+    private void deleteEdge(int k, int e) {
+        validEdges.remove(e);
+        int src = mdd.edgeSrc(e);
+        int dst = mdd.edgeDst(e);
+        if (nOut[src].decrement() == 0)
+            deadNodes[nDeadNodes++] = src;
+        if (nIn[dst].decrement() == 0)
+            deadNodes[nDeadNodes++] = dst;
+        int v = mdd.edgeVal(e) - layerOfs[k];
+        if (nSupports[k][v].decrement() == 0)
+            x[k].remove(v + layerOfs[k]);
+    }
+
+    private int layerOf(int u) {
+        int lo = 0;
+        int hi = x.length;
+        // largest layer k such that layerStart(k) <= u
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (mdd.layerStart(mid) <= u)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+}
@@ -20,6 +20,11 @@ import minicp.engine.core.IntVar;
 /**
  * Compute and Maintain a Maximum Matching
  * in the variable-value graph
+ * <p>
+ * Each value can be matched to several variables, up to its capacity
+ * (one by default). Lower bounds on the number of variables matched
+ * to each value can also be given, the matching is then a feasible flow
+ * of the global cardinality constraint (see {@link #satisfyLowerBounds(int[])}).
  */
 public class MaximumMatching {
 
@@ -34,8 +39,15 @@ public class MaximumMatching {
 
     // Number of values
     private int valSize;
-    // For each setValue, the variable idx matched to this setValue, -1 if none of them
+    // For each setValue, the first variable idx matched to this setValue, -1 if none of them
     private int[] valMatch;
+    // the variables matched to a same value are linked
+    private int[] nextVar;
+    private int[] prevVar;
+    // For each setValue, the number of variables matched to it
+    private int[] valCount;
+    private int[] low;
+    private int[] up;
     private int[] valSeen;
 
 
@@ -46,6 +58,24 @@ public class MaximumMatching {
     private IntVar[] x;
 
     public MaximumMatching(IntVar... x) {
+        this(x, 0, new int[0], new int[0], 1);
+    }
+
+    /**
+     * Creates a matching where each value {@code minValue + k}
+     * is matched to at least {@code low[k]} and at most {@code up[k]} variables.
+     * The other values are matched to any number of variables.
+     *
+     * @param x the variables
+     * @param minValue the smallest value with cardinality bounds
+     * @param low the minimum number of variables matched to each value
+     * @param up the maximum number of variables matched to each value
+     */
+    public MaximumMatching(IntVar[] x, int minValue, int[] low, int[] up) {
+        this(x, minValue, low, up, x.length);
+    }
+
+    private MaximumMatching(IntVar[] x, int minValue, int[] low, int[] up, int defaultCapacity) {
         this.x = x;
 
         // find setValue ranges
@@ -56,15 +86,30 @@ public class MaximumMatching {
             min = Math.min(min, x[i].min());
             max = Math.max(max, x[i].max());
         }
+        if (up.length > 0) {
+            min = Math.min(min, minValue);
+            max = Math.max(max, minValue + up.length - 1);
+        }
         valSize = max - min + 1;
         valMatch = new int[valSize];
-        for (int k = 0; k < valSize; k++)
+        valCount = new int[valSize];
+        this.low = new int[valSize];
+        this.up = new int[valSize];
+        for (int k = 0; k < valSize; k++) {
             valMatch[k] = -1;  // unmatched
+            this.up[k] = defaultCapacity;
+        }
+        for (int k = 0; k < up.length; k++) {
+            this.low[k + minValue - min] = low[k];
+            this.up[k + minValue - min] = up[k];
+        }
 
         // initialize
 
         magic = 0;
         match = new int[x.length];
+        nextVar = new int[x.length];
+        prevVar = new int[x.length];
         for (int k = 0; k < x.length; k++) {
             match[k] = NONE; // unmatched
         }
@@ -85,8 +130,7 @@ public class MaximumMatching {
         for (int k = 0; k < x.length; k++) {
             if (match[k] != NONE) {
                 if (!x[k].contains(match[k])) {
-                    valMatch[match[k] - min] = -1;
-                    match[k] = NONE;
+                    unmatch(k);
                     sizeMatching--;
                 }
             }
@@ -98,6 +142,63 @@ public class MaximumMatching {
         return sizeMatching;
     }
 
+    /**
+     * Repairs a matching of all the variables, as computed by {@link #compute(int[])},
+     * so that each value is matched to at least its lower bound number of variables.
+     * The variables are moved along alternating paths
+     * from the values under their lower bound to the values above it.
+     *
+     * @param result array of size >= x. result[i] == value to which x[i] is matched
+     * @return true if all the lower bounds are satisfied
+     */
+    public boolean satisfyLowerBounds(int[] result) {
+        for (int v = 0; v < valSize; v++) {
+            while (valCount[v] < low[v]) {
+                magic++;
+                if (!findAlternatingPathToVal(v + min))
+                    return false;
+            }
+        }
+        for (int k = 0; k < x.length; k++) {
+            result[k] = match[k];
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of variables matched to the value v
+     *
+     * @param v a value
+     * @return the number of variables matched to v
+     */
+    public int count(int v) {
+        return v < min || v > max ? 0 : valCount[v - min];
+    }
+
+    private void match(int i, int v) {
+        if (match[i] != NONE)
+            unmatch(i);
+        match[i] = v;
+        int head = valMatch[v - min];
+        nextVar[i] = head;
+        prevVar[i] = -1;
+        if (head >= 0)
+            prevVar[head] = i;
+        valMatch[v - min] = i;
+        valCount[v - min]++;
+    }
+
+    private void unmatch(int i) {
+        int v = match[i] - min;
+        if (prevVar[i] >= 0)
+            nextVar[prevVar[i]] = nextVar[i];
+        else
+            valMatch[v] = nextVar[i];
+        if (nextVar[i] >= 0)
+            prevVar[nextVar[i]] = prevVar[i];
+        valCount[v]--;
+        match[i] = NONE;
+    }
 
     private void findInitialMatching() { //returns the size of the maximum matching
         sizeMatching = 0;
@@ -105,10 +206,9 @@ public class MaximumMatching {
             int minv = x[k].min();
             int maxv = x[k].max();
             for (int i = minv; i <= maxv; i++)
-                if (valMatch[i - min] < 0) // unmatched
+                if (valCount[i - min] < up[i - min]) // not saturated
                     if (x[k].contains(i)) {
-                        match[k] = i;
-                        valMatch[i - min] = k;
+                        match(k, i);
                         sizeMatching++;
                         break;
                     }
@@ -138,8 +238,7 @@ public class MaximumMatching {
                 if (match[i] != v) {
                     if (x[i].contains(v)) {
                         if (findAlternatingPathFromVal(v)) {
-                            match[i] = v;
-                            valMatch[v - min] = i;
+                            match(i, v);
                             return true;
                         }
                     }
@@ -152,10 +251,34 @@ public class MaximumMatching {
     private boolean findAlternatingPathFromVal(int v) {
         if (valSeen[v - min] != magic) {
             valSeen[v - min] = magic;
-            if (valMatch[v - min] == -1)
-                return true;
-            if (findAlternatingPathFromVar(valMatch[v - min]))
+            if (valCount[v - min] < up[v - min])
                 return true;
+            for (int i = valMatch[v - min]; i >= 0; i = nextVar[i]) {
+                if (findAlternatingPathFromVar(i))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds a variable that can be matched to v,
+     * its previous value remaining above its lower bound
+     * possibly by taking in turn another variable
+     */
+    private boolean findAlternatingPathToVal(int v) {
+        if (valSeen[v - min] != magic) {
+            valSeen[v - min] = magic;
+            for (int i = 0; i < x.length; i++) {
+                int w = match[i];
+                if (w != NONE && w != v && varSeen[i] != magic && x[i].contains(v)) {
+                    varSeen[i] = magic;
+                    if (valCount[w - min] > low[w - min] || findAlternatingPathToVal(w)) {
+                        match(i, v);
+                        return true;
+                    }
+                }
+            }
         }
         return false;
     }
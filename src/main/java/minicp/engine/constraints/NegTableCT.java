@@ -0,0 +1,164 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateSparseBitSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static minicp.cp.Factory.minus;
+
+/**
+ * Negative table constraint with the Compact Table algorithm for negative tables
+ * described in
+ * <p><i>Extending Compact-Table to Negative and Short Tables</i>
+ * Hélène Verhaeghe, Christophe Lecoutre, Pierre Schaus, AAAI 2017.
+ * <p>
+ * The tuples of the table are forbidden.
+ * The forbidden tuples still valid (all their values being in the domains)
+ * are maintained in a reversible sparse bit-set, as in {@link TableCT}.
+ * A value {@code v} of {@code x[i]} has no support iff the number of
+ * valid forbidden tuples with {@code x[i] = v} equals the number
+ * of tuples of the Cartesian product of the other domains.
+ * The tuples are assumed to be free of {@link TableCT#STAR}.
+ */
+public class NegTableCT extends AbstractConstraint {
+
+    private IntVar[] x; //variables
+    //conflicts[i][v] is the set of forbidden tuples with x[i]=v
+    private StateSparseBitSet.SupportBitSet[][] conflicts;
+
+    private StateSparseBitSet validTuples;
+    private StateSparseBitSet.MaskBitSet tmp;
+
+    private StateInt[] lastDomSize; // store the last size of the domain of the variable
+    private int[] dom; // domain iterator
+    private int[] size; // domain sizes before the filtering
+
+    /**
+     * Negative table constraint.
+     * <p>The negative table constraint ensures that
+     * {@code x} is not a row from the given table.
+     * More exactly, for every row <i>i</i>,
+     * {@code x[0]!=table[i][0] or x[1]!=table[i][1] or etc}.
+     *
+     * @param x  the non empty set of variables to constraint
+     * @param table the forbidden tuples for x.
+     *              The second dimension must be of the same size as the array x.
+     */
+    public NegTableCT(IntVar[] x, int[][] table) {
+        super(x[0].getSolver());
+        this.x = new IntVar[x.length];
+        dom = new int[Arrays.stream(x).map(var -> var.size()).max(Integer::compare).get()];
+
+        // the counting requires distinct tuples
+        HashSet<List<Integer>> distinct = new HashSet<>();
+        int[][] forbidden = Arrays.stream(table)
+                .filter(t -> distinct.add(Arrays.stream(t).boxed().collect(Collectors.toList())))
+                .toArray(int[][]::new);
+
+        validTuples = new StateSparseBitSet(getSolver().getStateManager(), forbidden.length);
+        conflicts = new StateSparseBitSet.SupportBitSet[x.length][];
+        lastDomSize = new StateInt[x.length];
+        size = new int[x.length];
+        for (int i = 0; i < x.length; i++) {
+            this.x[i] = minus(x[i], x[i].min()); // map the variables domain to start at 0
+            conflicts[i] = new StateSparseBitSet.SupportBitSet[x[i].max() - x[i].min() + 1];
+            for (int v = 0; v < conflicts[i].length; v++)
+                conflicts[i][v] = validTuples.new SupportBitSet();
+            lastDomSize[i] = getSolver().getStateManager().makeStateInt(-1);
+        }
+        for (int t = 0; t < forbidden.length; t++) {
+            for (int i = 0; i < x.length; i++) {
+                if (x[i].contains(forbidden[t][i]))
+                    conflicts[i][forbidden[t][i] - x[i].min()].set(t);
+            }
+        }
+        tmp = validTuples.new MaskBitSet();
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x) {
+            var.propagateOnDomainChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        // update the valid forbidden tuples with the variables modified since the last propagation
+        for (int i = 0; i < x.length; i++) {
+            int domSize = x[i].size();
+            int lastSize = lastDomSize[i].value();
+            if (domSize != lastSize) {
+                tmp.clear();
+                if (lastSize > 0 && lastSize - domSize < domSize) {
+                    // validTuples &= ~(conflicts[i][removed value 1] | ... )
+                    int nDelta = x[i].fillDeltaArray(lastSize, dom);
+                    for (int v = 0; v < nDelta; v++)
+                        tmp.or(conflicts[i][dom[v]]);
+                    validTuples.andNot(tmp);
+                } else {
+                    // validTuples &= (conflicts[i][x[i].min()] | ... | conflicts[i][x[i].max()] )
+                    int nVal = x[i].fillArray(dom);
+                    for (int v = 0; v < nVal; v++)
+                        tmp.or(conflicts[i][dom[v]]);
+                    validTuples.and(tmp);
+                }
+            }
+        }
+
+        // the values removed below are taken into account at the next propagation
+        for (int i = 0; i < x.length; i++)
+            size[i] = x[i].size();
+        if (!validTuples.isEmpty()) {
+            long nValid = validTuples.cardinality();
+            for (int i = 0; i < x.length; i++) {
+                // a value can only lose all its supports if the product of the other domains is at most nValid
+                long others = productOfOthers(i, nValid);
+                if (others <= nValid) {
+                    int nVal = x[i].fillArray(dom);
+                    for (int v = 0; v < nVal; v++) {
+                        if (validTuples.intersectionSize(conflicts[i][dom[v]]) == others)
+                            x[i].remove(dom[v]);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < x.length; i++)
+            lastDomSize[i].setValue(size[i]); // store the domain size of the valid tuples to compare during next propagation
+    }
+
+    /**
+     * Returns the size of the Cartesian product of the domains except x[i],
+     * or a value larger than bound if it exceeds it
+     */
+    private long productOfOthers(int i, long bound) {
+        long product = 1;
+        for (int j = 0; j < x.length && product <= bound; j++) {
+            if (j != i)
+                product *= size[j];
+        }
+        return product;
+    }
+}
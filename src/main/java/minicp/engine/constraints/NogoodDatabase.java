@@ -0,0 +1,316 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Database of nogoods {@code not(x[0] = v[0] and ... and x[k] = v[k])}
+ * that is the clauses {@code x[0] != v[0] or ... or x[k] != v[k]},
+ * propagated with the two watched literals technique.
+ * <p>
+ * The literals of the nogoods are stored in flat int arrays.
+ * A literal {@code x != v} can only become false when x is fixed,
+ * so each variable has one list of the nogoods watching it
+ * visited by a closure when the variable is fixed.
+ * The watches are not restored on backtrack.
+ * <p>
+ * The number of literals stored is bounded by a budget.
+ * Each time a nogood prunes a value or fails its activity is bumped.
+ * When the budget is exceeded, the least active nogoods are evicted
+ * (the longest first in case of a tie)
+ * until half of the budget is used.
+ * <p>
+ * The nogoods must be added at the root node,
+ * before or after posting the constraint.
+ *
+ * @see minicp.search.NogoodRecorder
+ */
+public class NogoodDatabase extends AbstractConstraint {
+
+    private static final double ACTIVITY_DECAY = 1.05;
+
+    private final int maxLiterals;
+
+    private final IdentityHashMap<IntVar, Integer> index = new IdentityHashMap<>();
+    private IntVar[] vars = new IntVar[8];
+    private int nVars = 0;
+
+    private int[] litVar = new int[32]; // variable index of each literal
+    private int[] litVal = new int[32]; // value of each literal
+    private int nLits = 0;
+    private int[] start = new int[9]; // nogood c is in [start[c], start[c+1])
+    private double[] activity = new double[8];
+    private int nNogoods = 0;
+    private double bump = 1;
+
+    private int[][] watches = new int[8][]; // nogoods watching a variable
+    private int[] nWatches = new int[8];
+
+    private boolean posted = false;
+
+    /**
+     * Creates an empty database of nogoods.
+     *
+     * @param cp the solver
+     * @param maxLiterals the maximum number of literals stored
+     */
+    public NogoodDatabase(Solver cp, int maxLiterals) {
+        super(cp);
+        this.maxLiterals = maxLiterals;
+    }
+
+    /**
+     * Adds the nogood {@code not(x[0] = v[0] and ... and x[k-1] = v[k-1])}.
+     * The nogoods with a single literal directly remove the value
+     * and are not stored.
+     *
+     * @param x the variables of the nogood
+     * @param v the values of the nogood
+     * @param k the number of literals of the nogood
+     */
+    public void addNogood(IntVar[] x, int[] v, int k) {
+        if (k == 0)
+            throw INCONSISTENCY;
+        if (k == 1) {
+            x[0].remove(v[0]);
+            return;
+        }
+        if (nLits + k > litVar.length) {
+            int size = Math.max(2 * litVar.length, nLits + k);
+            litVar = Arrays.copyOf(litVar, size);
+            litVal = Arrays.copyOf(litVal, size);
+        }
+        if (nNogoods == activity.length) {
+            activity = Arrays.copyOf(activity, 2 * nNogoods);
+            start = Arrays.copyOf(start, 2 * nNogoods + 1);
+        }
+        for (int i = 0; i < k; i++) {
+            litVar[nLits] = varIndex(x[i]);
+            litVal[nLits++] = v[i];
+        }
+        activity[nNogoods] = bump;
+        start[++nNogoods] = nLits;
+        if (posted)
+            initNogood(nNogoods - 1);
+        if (nLits > maxLiterals)
+            reduce();
+    }
+
+    /**
+     * Decays the activity of the nogoods in the database.
+     * It is typically called after each restart.
+     */
+    public void decayActivities() {
+        bump *= ACTIVITY_DECAY;
+        if (bump > 1e100) {
+            for (int c = 0; c < nNogoods; c++)
+                activity[c] /= bump;
+            bump = 1;
+        }
+    }
+
+    /**
+     * Returns the number of nogoods stored.
+     *
+     * @return the number of nogoods stored
+     */
+    public int size() {
+        return nNogoods;
+    }
+
+    /**
+     * Returns the number of literals stored.
+     *
+     * @return the total number of literals of the stored nogoods
+     */
+    public int numberOfLiterals() {
+        return nLits;
+    }
+
+    @Override
+    public void post() {
+        posted = true;
+        for (int i = 0; i < nVars; i++)
+            listen(i);
+        for (int c = 0; c < nNogoods; c++)
+            initNogood(c);
+    }
+
+    private int varIndex(IntVar x) {
+        Integer i = index.get(x);
+        if (i == null) {
+            i = nVars;
+            index.put(x, i);
+            if (nVars == vars.length) {
+                vars = Arrays.copyOf(vars, 2 * nVars);
+                watches = Arrays.copyOf(watches, 2 * nVars);
+                nWatches = Arrays.copyOf(nWatches, 2 * nVars);
+            }
+            vars[nVars++] = x;
+            if (posted)
+                listen(i);
+        }
+        return i;
+    }
+
+    private void listen(int i) {
+        vars[i].whenFixed(() -> fixed(i));
+    }
+
+    private boolean isFalse(int lit) {
+        IntVar x = vars[litVar[lit]];
+        return x.isFixed() && x.min() == litVal[lit];
+    }
+
+    private boolean isTrue(int lit) {
+        return !vars[litVar[lit]].contains(litVal[lit]);
+    }
+
+    private void swap(int l1, int l2) {
+        int tmp = litVar[l1];
+        litVar[l1] = litVar[l2];
+        litVar[l2] = tmp;
+        tmp = litVal[l1];
+        litVal[l1] = litVal[l2];
+        litVal[l2] = tmp;
+    }
+
+    private void watch(int i, int c) {
+        if (watches[i] == null)
+            watches[i] = new int[4];
+        else if (nWatches[i] == watches[i].length)
+            watches[i] = Arrays.copyOf(watches[i], 2 * nWatches[i]);
+        watches[i][nWatches[i]++] = c;
+    }
+
+    /**
+     * Moves two non false literals (if any) in front of the nogood,
+     * watches them and propagates the nogood if it is unit.
+     */
+    private void initNogood(int c) {
+        int s = start[c];
+        int e = start[c + 1];
+        int w = s;
+        for (int l = s; l < e && w < s + 2; l++) {
+            if (!isFalse(l))
+                swap(w++, l);
+        }
+        if (w == s)
+            throw INCONSISTENCY;
+        watch(litVar[s], c);
+        watch(litVar[s + 1], c);
+        if (w == s + 1)
+            vars[litVar[s]].remove(litVal[s]);
+    }
+
+    /**
+     * Visits the nogoods watching a variable that has been fixed.
+     */
+    private void fixed(int i) {
+        int val = vars[i].min();
+        int[] ws = watches[i];
+        int k = 0;
+        while (k < nWatches[i]) {
+            int c = ws[k];
+            int s = start[c];
+            int e = start[c + 1];
+            // the falsified literal (if any) is put in second position
+            if (litVar[s] == i)
+                swap(s, s + 1);
+            if (litVal[s + 1] != val || isTrue(s)) {
+                k++;
+                continue;
+            }
+            int l = s + 2;
+            while (l < e && isFalse(l))
+                l++;
+            if (l < e) {
+                // watch a new literal and stop watching the falsified one
+                swap(s + 1, l);
+                watch(litVar[s + 1], c);
+                ws[k] = ws[--nWatches[i]];
+            } else {
+                // every other literal is false: the first one must be true
+                activity[c] += bump;
+                if (isFalse(s))
+                    throw INCONSISTENCY;
+                vars[litVar[s]].remove(litVal[s]);
+                k++;
+            }
+        }
+    }
+
+    /**
+     * Evicts the least active nogoods until half of the budget is used
+     * and rebuilds the flat arrays and the watches.
+     */
+    private void reduce() {
+        Integer[] order = new Integer[nNogoods];
+        for (int c = 0; c < nNogoods; c++)
+            order[c] = c;
+        Arrays.sort(order, (c1, c2) -> {
+            int cmp = Double.compare(activity[c1], activity[c2]);
+            return cmp != 0 ? cmp : Integer.compare(start[c2 + 1] - start[c2], start[c1 + 1] - start[c1]);
+        });
+        boolean[] evicted = new boolean[nNogoods];
+        int lits = nLits;
+        for (int j = 0; j < nNogoods && lits > maxLiterals / 2; j++) {
+            int c = order[j];
+            evicted[c] = true;
+            lits -= start[c + 1] - start[c];
+        }
+
+        int[] newLitVar = new int[litVar.length];
+        int[] newLitVal = new int[litVal.length];
+        int[] newStart = new int[start.length];
+        double[] newActivity = new double[activity.length];
+        int n = 0;
+        int l = 0;
+        for (int c = 0; c < nNogoods; c++) {
+            if (evicted[c])
+                continue;
+            for (int p = start[c]; p < start[c + 1]; p++) {
+                newLitVar[l] = litVar[p];
+                newLitVal[l++] = litVal[p];
+            }
+            newActivity[n] = activity[c];
+            newStart[++n] = l;
+        }
+        litVar = newLitVar;
+        litVal = newLitVal;
+        start = newStart;
+        activity = newActivity;
+        nNogoods = n;
+        nLits = l;
+
+        Arrays.fill(nWatches, 0);
+        if (posted) {
+            // the two first literals remain the watched ones
+            for (int c = 0; c < nNogoods; c++) {
+                watch(litVar[start[c]], c);
+                watch(litVar[start[c] + 1], c);
+            }
+        }
+    }
+}
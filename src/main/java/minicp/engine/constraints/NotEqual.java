@@ -23,8 +23,8 @@ import minicp.util.exception.NotImplementedException;
  * Not Equal constraint between two variables
  */
 public class NotEqual extends AbstractConstraint {
-    private final IntVar x, y;
-    private final int v;
+    final IntVar x, y;
+    final int v;
 
     /**
      * Creates a constraint such
@@ -20,7 +20,6 @@ import minicp.engine.core.BoolVar;
 import minicp.state.StateInt;
 
 import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
-import minicp.util.exception.NotImplementedException;
 
 /**
  * Logical or constraint {@code  x1 or x2 or ... xn}
@@ -49,6 +48,8 @@ public class Or extends AbstractConstraint { // x1 or x2 or ... xn
 
     @Override
     public void post() {
+        x[wL.value()].propagateOnFix(this);
+        x[wR.value()].propagateOnFix(this);
         propagate();
     }
 
@@ -56,7 +57,38 @@ public class Or extends AbstractConstraint { // x1 or x2 or ... xn
     @Override
     public void propagate() {
         // update watched literals
-        // TODO: implement the filtering using watched literal technique and make sure you pass all the tests
-         throw new NotImplementedException("Or");
+        int oldL = wL.value();
+        int oldR = wR.value();
+        int i = oldL;
+        while (i < n && x[i].isFixed()) {
+            if (x[i].isTrue()) {
+                setActive(false);
+                return;
+            }
+            i++;
+        }
+        if (i == n)
+            throw INCONSISTENCY;
+        int j = oldR;
+        while (j > i && x[j].isFixed()) {
+            if (x[j].isTrue()) {
+                setActive(false);
+                return;
+            }
+            j--;
+        }
+        // all the variables after the right watch are false
+        if (j < i)
+            j = i;
+        wL.setValue(i);
+        wR.setValue(j);
+        if (i == j) {
+            x[i].fix(true);
+            setActive(false);
+        } else {
+            // only the two watched variables can wake up the constraint
+            if (i != oldL) x[i].propagateOnFix(this);
+            if (j != oldR) x[j].propagateOnFix(this);
+        }
     }
 }
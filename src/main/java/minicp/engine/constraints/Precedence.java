@@ -0,0 +1,91 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.SequenceVar;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Precedence constraint on a sequence:
+ * the given nodes that are members appear in the given order.
+ * <p>
+ * A node of the order that is not a member can only be inserted
+ * between the closest members preceding and following it in the order.
+ */
+public class Precedence extends AbstractConstraint {
+
+    private final SequenceVar seq;
+    private final int[] order;
+    private final int[] position; // position of each member in the sequence
+    private final int[] members;
+    private final int[] insertions;
+    private final int[] lower; // position of the closest member before each node of the order
+
+    /**
+     * Creates a precedence constraint.
+     *
+     * @param seq the sequence
+     * @param order the nodes, in the order they must appear in the sequence
+     */
+    public Precedence(SequenceVar seq, int... order) {
+        super(seq.getSolver());
+        int n = seq.nNode();
+        this.seq = seq;
+        this.order = order;
+        position = new int[n + 2];
+        members = new int[n + 2];
+        insertions = new int[n + 1];
+        lower = new int[order.length];
+    }
+
+    @Override
+    public void post() {
+        seq.propagateOnInsert(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int size = seq.fillOrder(members);
+        for (int k = 0; k < size; k++)
+            position[members[k]] = k;
+        int last = 0; // begin
+        for (int i = 0; i < order.length; i++) {
+            lower[i] = last;
+            if (seq.isMember(order[i])) {
+                if (position[order[i]] < last)
+                    throw INCONSISTENCY;
+                last = position[order[i]];
+            }
+        }
+        int upper = size - 1; // end
+        for (int i = order.length - 1; i >= 0; i--) {
+            int node = order[i];
+            if (seq.isMember(node)) {
+                upper = position[node];
+            } else {
+                int nIns = seq.fillInsertions(node, insertions);
+                for (int k = 0; k < nIns; k++) {
+                    int pos = position[insertions[k]];
+                    if (pos < lower[i] || pos >= upper)
+                        seq.removeInsertion(node, insertions[k]);
+                }
+            }
+        }
+    }
+}
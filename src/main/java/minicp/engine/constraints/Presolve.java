@@ -0,0 +1,329 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.Constraint;
+import minicp.engine.core.IntVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static minicp.cp.Factory.plus;
+
+/**
+ * Presolve of a set of constraints that are not posted yet.
+ * <p>The presolve rewrites the {@link NotEqual}, {@link Equal} and {@link Sum}
+ * constraints of a model into an equivalent but smaller propagation network:
+ * <ul>
+ *     <li>the constraints posted twice and the duplicate {@link NotEqual} and {@link Equal}
+ *     constraints are removed,</li>
+ *     <li>the variables equated by an {@link Equal} constraint are substituted
+ *     by a single representative in the {@link NotEqual} and {@link Sum} constraints
+ *     (the {@link Equal} constraints are kept to synchronize the substituted variables),</li>
+ *     <li>the constraints already entailed by the current domains are removed,</li>
+ *     <li>the fixed variables are folded into the constant of the {@link Sum} constraints,</li>
+ *     <li>the cliques of pairwise {@link NotEqual} constraints {@code x[i]+o[i] != x[j]+o[j]}
+ *     are merged into one {@link AllDifferentFWC} constraint
+ *     (filtering equivalent to the one of the cliques).</li>
+ * </ul>
+ * The other constraints are left untouched.
+ *
+ * @see minicp.engine.core.Solver#batch(minicp.util.Procedure)
+ */
+public final class Presolve {
+
+    private Presolve() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Tells if a constraint can be rewritten by {@link #presolve(List)}.
+     *
+     * @param c a constraint
+     * @return true if c is a {@link NotEqual}, {@link Equal} or {@link Sum} constraint
+     */
+    public static boolean isReducible(Constraint c) {
+        return c instanceof NotEqual || c instanceof Equal || c instanceof Sum;
+    }
+
+    /**
+     * Computes a presolved set of constraints equivalent to the given ones.
+     * The domains of the variables are only read, the constraints are not posted.
+     *
+     * @param constraints the constraints, not yet posted, to presolve
+     * @return the constraints to post in place of the given ones
+     */
+    public static List<Constraint> presolve(List<Constraint> constraints) {
+        List<Constraint> result = new ArrayList<>();
+        Set<Constraint> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Substitution subst = new Substitution();
+
+        List<Equal> equals = new ArrayList<>();
+        List<NotEqual> notEquals = new ArrayList<>();
+        List<Sum> sums = new ArrayList<>();
+        for (Constraint c : constraints) {
+            if (!seen.add(c))
+                continue; // same constraint posted twice
+            if (c instanceof Equal) {
+                Equal e = (Equal) c;
+                subst.union(e.x, e.y);
+                equals.add(e);
+            } else if (c instanceof NotEqual) {
+                notEquals.add((NotEqual) c);
+            } else if (c instanceof Sum) {
+                sums.add((Sum) c);
+            } else {
+                result.add(c);
+            }
+        }
+
+        // equalities: keep one constraint per pair of variables, not yet entailed
+        Set<List<Integer>> equalKeys = new HashSet<>();
+        for (Equal e : equals) {
+            if (e.x.isFixed() && e.y.isFixed() && e.x.min() == e.y.min())
+                continue;
+            int ix = subst.id(e.x);
+            int iy = subst.id(e.y);
+            if (equalKeys.add(Arrays.asList(Math.min(ix, iy), Math.max(ix, iy))))
+                result.add(e);
+        }
+
+        presolveNotEquals(notEquals, subst, result);
+
+        for (Sum s : sums) {
+            Constraint c = presolveSum(s, subst);
+            if (c != null)
+                result.add(c);
+        }
+
+        return result;
+    }
+
+    private static void presolveNotEquals(List<NotEqual> notEquals, Substitution subst, List<Constraint> result) {
+        // normalized edges x != y + c with id(x) < id(y), without duplicates
+        Set<List<Integer>> keys = new HashSet<>();
+        List<int[]> edges = new ArrayList<>();
+        for (NotEqual ne : notEquals) {
+            IntVar x = subst.find(ne.x);
+            IntVar y = subst.find(ne.y);
+            int c = ne.v;
+            if (x == y) {
+                if (c != 0)
+                    continue; // x != x + c always holds
+                result.add(ne); // will fail when posted
+                continue;
+            }
+            if (isEntailed(x, y, c))
+                continue;
+            int ix = subst.id(x);
+            int iy = subst.id(y);
+            if (ix > iy) {
+                int tmp = ix;
+                ix = iy;
+                iy = tmp;
+                c = -c;
+            }
+            if (keys.add(Arrays.asList(ix, iy, c)))
+                edges.add(new int[]{ix, iy, c});
+        }
+
+        // Assign each edge to the first layer in which its offset is consistent
+        // with the offsets of the component, x + o[x] != y + o[y] with o[y] - o[x] = c.
+        List<WeightedUnionFind> layers = new ArrayList<>();
+        int[] edgeLayer = new int[edges.size()];
+        for (int e = 0; e < edges.size(); e++) {
+            int[] edge = edges.get(e);
+            int l = 0;
+            while (true) {
+                if (l == layers.size())
+                    layers.add(new WeightedUnionFind());
+                if (layers.get(l).union(edge[0], edge[1], edge[2]))
+                    break;
+                l++;
+            }
+            edgeLayer[e] = l;
+        }
+
+        // count the nodes and the edges of each component of each layer
+        Map<List<Integer>, Integer> nEdges = new HashMap<>();
+        Map<List<Integer>, List<Integer>> nodes = new HashMap<>();
+        for (int e = 0; e < edges.size(); e++) {
+            WeightedUnionFind uf = layers.get(edgeLayer[e]);
+            List<Integer> comp = Arrays.asList(edgeLayer[e], uf.find(edges.get(e)[0]));
+            nEdges.merge(comp, 1, Integer::sum);
+            List<Integer> compNodes = nodes.computeIfAbsent(comp, k -> new ArrayList<>());
+            for (int k = 0; k < 2; k++) {
+                int node = edges.get(e)[k];
+                if (!compNodes.contains(node))
+                    compNodes.add(node);
+            }
+        }
+
+        Set<List<Integer>> merged = new HashSet<>();
+        for (Map.Entry<List<Integer>, List<Integer>> entry : nodes.entrySet()) {
+            List<Integer> compNodes = entry.getValue();
+            int m = compNodes.size();
+            if (m >= 3 && nEdges.get(entry.getKey()) == m * (m - 1) / 2) {
+                WeightedUnionFind uf = layers.get(entry.getKey().get(0));
+                IntVar[] terms = new IntVar[m];
+                for (int i = 0; i < m; i++) {
+                    int node = compNodes.get(i);
+                    terms[i] = plus(subst.var(node), uf.potential(node));
+                }
+                result.add(new AllDifferentFWC(terms));
+                merged.add(entry.getKey());
+            }
+        }
+        for (int e = 0; e < edges.size(); e++) {
+            int[] edge = edges.get(e);
+            WeightedUnionFind uf = layers.get(edgeLayer[e]);
+            if (!merged.contains(Arrays.asList(edgeLayer[e], uf.find(edge[0]))))
+                result.add(new NotEqual(subst.var(edge[0]), subst.var(edge[1]), edge[2]));
+        }
+    }
+
+    private static boolean isEntailed(IntVar x, IntVar y, int c) {
+        // the domains of x and y + c are disjoint
+        if ((long) x.max() < (long) y.min() + c || (long) x.min() > (long) y.max() + c)
+            return true;
+        if (x.isFixed())
+            return !y.contains(x.min() - c);
+        if (y.isFixed())
+            return !x.contains(y.min() + c);
+        return false;
+    }
+
+    /**
+     * @return the presolved sum, or null if it is entailed
+     */
+    private static Constraint presolveSum(Sum s, Substitution subst) {
+        boolean changed = false;
+        long fixedSum = 0;
+        List<IntVar> free = new ArrayList<>();
+        for (IntVar xi : s.x) {
+            if (xi.isFixed()) {
+                fixedSum += xi.min();
+                changed = true;
+            } else {
+                IntVar rep = subst.find(xi);
+                changed |= rep != xi;
+                free.add(rep);
+            }
+        }
+        if (!changed)
+            return s;
+        if (free.isEmpty())
+            return fixedSum == 0 ? null : s; // entailed or failing when posted
+        if (fixedSum < Integer.MIN_VALUE || fixedSum > Integer.MAX_VALUE)
+            return s;
+        return new Sum(free.toArray(new IntVar[0]), (int) -fixedSum);
+    }
+
+    /**
+     * Union-find over the variables equated by an {@link Equal} constraint,
+     * variables are compared by identity.
+     */
+    private static class Substitution {
+        private final Map<IntVar, Integer> ids = new IdentityHashMap<>();
+        private final List<IntVar> vars = new ArrayList<>();
+        private final List<Integer> parent = new ArrayList<>();
+
+        int id(IntVar x) {
+            Integer id = ids.get(x);
+            if (id == null) {
+                id = vars.size();
+                ids.put(x, id);
+                vars.add(x);
+                parent.add(id);
+            }
+            return id;
+        }
+
+        IntVar var(int id) {
+            return vars.get(id);
+        }
+
+        private int root(int id) {
+            while (parent.get(id) != id) {
+                parent.set(id, parent.get(parent.get(id)));
+                id = parent.get(id);
+            }
+            return id;
+        }
+
+        IntVar find(IntVar x) {
+            return vars.get(root(id(x)));
+        }
+
+        void union(IntVar x, IntVar y) {
+            int rx = root(id(x));
+            int ry = root(id(y));
+            if (rx != ry)
+                parent.set(Math.max(rx, ry), Math.min(rx, ry));
+        }
+    }
+
+    /**
+     * Union-find where each node has a potential relative to
+     * the root of its component.
+     */
+    private static class WeightedUnionFind {
+        private final Map<Integer, Integer> parent = new HashMap<>();
+        private final Map<Integer, Integer> offset = new HashMap<>(); // potential - potential of parent
+
+        int find(int x) {
+            parent.putIfAbsent(x, x);
+            offset.putIfAbsent(x, 0);
+            int p = parent.get(x);
+            if (p == x)
+                return x;
+            int r = find(p);
+            offset.put(x, offset.get(x) + offset.get(p));
+            parent.put(x, r);
+            return r;
+        }
+
+        int potential(int x) {
+            find(x);
+            return offset.get(x);
+        }
+
+        /**
+         * Adds the relation potential(y) - potential(x) = c.
+         *
+         * @return false if the relation is inconsistent with this layer
+         */
+        boolean union(int x, int y, int c) {
+            int rx = find(x);
+            int ry = find(y);
+            int px = offset.get(x); // relative to rx, x being compressed onto its root
+            int py = offset.get(y); // relative to ry
+            if (rx == ry)
+                return py - px == c;
+            // potential(ry) = potential(x) + c - potential(y) where potentials are relative to rx
+            parent.put(ry, rx);
+            offset.put(ry, px + c - py);
+            return true;
+        }
+    }
+}
@@ -16,31 +16,19 @@
 
 package minicp.engine.constraints;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
  * Representation of a cumulated Profile
  * data structure as a contiguous sequence of {@link Rectangle}
  * built from a set of {@link Rectangle} using a sweep-line algorithm.
+ * <p>
+ * The profile is stored in primitive arrays that can be rebuilt
+ * without allocation (see {@link #build(int, int[], int[], int[])}),
+ * the rectangle overlapping a time being found by binary search.
  */
 public class Profile {
 
-    private static final class Entry implements Comparable<Entry> {
-        private final int key;
-        private final int value;
-
-        private Entry(int key, int value) {
-            this.key = key;
-            this.value = value;
-        }
-
-        @Override
-        public int compareTo(Entry other) {
-            return (key < other.key) ? -1 : ((key == other.key) ? 0 : 1);
-        }
-    }
-
     static class Rectangle {
 
         private final int start;
@@ -78,46 +66,92 @@ public class Profile {
         }
     }
 
-    private final Rectangle[] profileRectangles;
+    // the i-th rectangle of the profile is [starts[i], starts[i+1]) with height heights[i]
+    private int[] starts;
+    private int[] heights;
+    private int size;
+
+    // events of the sweep: time in the high bits and index in eventHeight in the low bits
+    private long[] events;
+    private int[] eventHeight;
 
     /**
-     * Get the cumulated Profile from the rectangles passed in argument
-     * to the constructor.
+     * Creates an empty profile able to hold
+     * the cumulated profile of a given number of rectangles.
      *
-     * @return the cumulated profile is a contiguous sequence of {@link Rectangle}
+     * @param maxRectangles the maximum number of rectangles given to {@link #build(int, int[], int[], int[])}
      */
-    public Rectangle[] rectangles() {
-        return profileRectangles;
+    Profile(int maxRectangles) {
+        starts = new int[2 * maxRectangles + 3];
+        heights = new int[2 * maxRectangles + 3];
+        events = new long[2 * maxRectangles];
+        eventHeight = new int[2 * maxRectangles];
+        size = 0;
     }
 
-
     public Profile(Rectangle... rectangles) {
-        ArrayList<Rectangle> profile = new ArrayList<Rectangle>();
-        Entry[] points = new Entry[2 * rectangles.length + 2];
-        for (int i = 0; i < rectangles.length; i++) {
-            Rectangle r = rectangles[i];
-            points[i] = new Entry(r.start, r.height);
-            points[rectangles.length + i] = new Entry(r.end, -r.height);
+        this(rectangles.length);
+        int n = rectangles.length;
+        int[] s = new int[n];
+        int[] e = new int[n];
+        int[] h = new int[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = rectangles[i].start;
+            e[i] = rectangles[i].end;
+            h[i] = rectangles[i].height;
         }
-        points[2 * rectangles.length] = new Entry(Integer.MIN_VALUE, 0);
-        points[2 * rectangles.length + 1] = new Entry(Integer.MAX_VALUE, 0);
+        build(n, s, e, h);
+    }
 
-        Arrays.sort(points);
+    /**
+     * Rebuilds the profile from the rectangles {@code [start[i], end[i])}
+     * of height {@code height[i]} for {@code i < n}
+     * with an {@code O(n log n)} sweep
+     *
+     * @param n the number of rectangles, at most the capacity of the profile
+     * @param start the start of the rectangles
+     * @param end the end of the rectangles, {@code end[i] > start[i]}
+     * @param height the height of the rectangles
+     */
+    void build(int n, int[] start, int[] end, int[] height) {
+        for (int i = 0; i < n; i++) {
+            eventHeight[i] = height[i];
+            eventHeight[n + i] = -height[i];
+            events[i] = ((long) start[i] << 32) | i;
+            events[n + i] = ((long) end[i] << 32) | (n + i);
+        }
+        Arrays.sort(events, 0, 2 * n);
 
+        size = 0;
         int sweepHeight = 0;
-        int sweepTime = points[0].key;
-        for (Entry e : points) {
-            int t = e.key;
-            int h = e.value;
+        int sweepTime = Integer.MIN_VALUE;
+        for (int k = 0; k < 2 * n; k++) {
+            int t = (int) (events[k] >> 32);
             if (t != sweepTime) {
-                //System.out.println(sweep_t+" "+t);
-                profile.add(new Rectangle(sweepTime, t, sweepHeight));
+                starts[size] = sweepTime;
+                heights[size++] = sweepHeight;
                 sweepTime = t;
             }
-            sweepHeight += h;
+            sweepHeight += eventHeight[(int) events[k]];
+        }
+        if (sweepTime != Integer.MAX_VALUE) {
+            starts[size] = sweepTime;
+            heights[size++] = sweepHeight;
         }
-        this.profileRectangles = profile.toArray(new Rectangle[0]);
+        starts[size] = Integer.MAX_VALUE; // end of the last rectangle
+    }
 
+    /**
+     * Get the cumulated Profile from the rectangles passed in argument
+     * to the constructor.
+     *
+     * @return the cumulated profile is a contiguous sequence of {@link Rectangle}
+     */
+    public Rectangle[] rectangles() {
+        Rectangle[] rectangles = new Rectangle[size];
+        for (int i = 0; i < size; i++)
+            rectangles[i] = get(i);
+        return rectangles;
     }
 
     /**
@@ -127,11 +161,19 @@ public class Profile {
      * @return the rectangle index r of the profile such that {@code r.start <= t} and {@code r.end > t}
      */
     public int rectangleIndex(int t) {
-        for (int i = 0; i < profileRectangles.length; i++) {
-            if (profileRectangles[i].start <= t && profileRectangles[i].end > t)
-                return i;
+        if (size == 0 || t < starts[0] || t == Integer.MAX_VALUE)
+            return -1;
+        // last rectangle with start <= t
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= t)
+                lo = mid;
+            else
+                hi = mid - 1;
         }
-        return -1;
+        return lo;
     }
 
     /**
@@ -140,7 +182,7 @@ public class Profile {
      * @return the number of rectangles in the profile
      */
     public int size() {
-        return profileRectangles.length;
+        return size;
     }
 
     /**
@@ -149,12 +191,24 @@ public class Profile {
      * @see #rectangleIndex(int)
      */
     public Rectangle get(int i) {
-        return profileRectangles[i];
+        return new Rectangle(starts[i], starts[i + 1], heights[i]);
+    }
+
+    int start(int i) {
+        return starts[i];
+    }
+
+    int end(int i) {
+        return starts[i + 1];
+    }
+
+    int height(int i) {
+        return heights[i];
     }
 
 
     @Override
     public String toString() {
-        return Arrays.toString(profileRectangles);
+        return Arrays.toString(rectangles());
     }
 }
@@ -0,0 +1,208 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.State;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.util.exception.IntOverFlowException;
+
+import java.util.stream.IntStream;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Scalar Product Constraint achieving bounds consistency
+ * <p>
+ * The smallest and largest values of the weighted sum are reversible
+ * and updated incrementally: each variable is watched by a small
+ * constraint that adds the change of its term to the sums
+ * and schedules the filtering.
+ * A term can only be filtered if its span is larger than the slack
+ * between the sums and the constant, the terms are thus visited
+ * by decreasing initial span until the span is not larger than the slack.
+ * All the computations are done on longs, the constructor checking
+ * that the sums cannot overflow.
+ */
+public class ScalarProduct extends AbstractConstraint {
+
+    /**
+     * Relation between the scalar product and the constant
+     */
+    public enum Relation {
+        EQ, LE, GE
+    }
+
+    private final int[] a;
+    private final IntVar[] x;
+    private final Relation rel;
+    private final long c;
+
+    private final State<Long> sumMin;
+    private final State<Long> sumMax;
+    // bounds of x[i] taken into account in the sums
+    private final StateInt[] lastMin;
+    private final StateInt[] lastMax;
+    private int[] bySpan; // terms sorted by decreasing initial span
+    private long[] span;
+
+    /**
+     * Creates a scalar product constraint.
+     * <p> This constraint holds iff
+     * {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] rel c}.
+     *
+     * @param a the coefficients
+     * @param x the non empty array of variables, of the same size as a
+     * @param rel the relation, {@code ==}, {@code <=} or {@code >=}
+     * @param c the right hand side
+     */
+    public ScalarProduct(int[] a, IntVar[] x, Relation rel, int c) {
+        super(x[0].getSolver());
+        if (a.length != x.length)
+            throw new IllegalArgumentException("a and x must have the same length");
+        this.a = a;
+        this.x = x;
+        this.rel = rel;
+        this.c = c;
+        long bound = Math.abs((long) c);
+        for (int i = 0; i < x.length; i++) {
+            long absMax = Math.max(Math.abs((long) x[i].min()), Math.abs((long) x[i].max()));
+            bound += Math.abs((long) a[i]) * absMax;
+            if (bound > Long.MAX_VALUE / 4)
+                throw new IntOverFlowException("the scalar product would exceed Long bounds");
+        }
+        StateManager sm = getSolver().getStateManager();
+        sumMin = sm.makeStateRef(0L);
+        sumMax = sm.makeStateRef(0L);
+        lastMin = new StateInt[x.length];
+        lastMax = new StateInt[x.length];
+        for (int i = 0; i < x.length; i++) {
+            lastMin[i] = sm.makeStateInt(x[i].min());
+            lastMax[i] = sm.makeStateInt(x[i].max());
+        }
+    }
+
+    @Override
+    public void post() {
+        long sMin = 0;
+        long sMax = 0;
+        span = new long[x.length];
+        for (int i = 0; i < x.length; i++) {
+            lastMin[i].setValue(x[i].min());
+            lastMax[i].setValue(x[i].max());
+            sMin += termMin(i);
+            sMax += termMax(i);
+            span[i] = termMax(i) - termMin(i);
+            final int term = i;
+            x[i].propagateOnBoundChange(new AbstractConstraint(getSolver()) {
+                @Override
+                public void propagate() {
+                    update(term);
+                }
+            });
+        }
+        sumMin.setValue(sMin);
+        sumMax.setValue(sMax);
+        bySpan = IntStream.range(0, x.length).boxed()
+                .sorted((i, j) -> Long.compare(span[j], span[i]))
+                .mapToInt(i -> i).toArray();
+        propagate();
+    }
+
+    /**
+     * Adds the change of the bounds of x[i] to the sums
+     */
+    private void update(int i) {
+        int min = x[i].min();
+        int max = x[i].max();
+        if (min == lastMin[i].value() && max == lastMax[i].value())
+            return;
+        long oldMin = termMin(i);
+        long oldMax = termMax(i);
+        lastMin[i].setValue(min);
+        lastMax[i].setValue(max);
+        sumMin.setValue(sumMin.value() + termMin(i) - oldMin);
+        sumMax.setValue(sumMax.value() + termMax(i) - oldMax);
+        getSolver().schedule(this);
+    }
+
+    private long termMin(int i) {
+        return a[i] >= 0 ? (long) a[i] * lastMin[i].value() : (long) a[i] * lastMax[i].value();
+    }
+
+    private long termMax(int i) {
+        return a[i] >= 0 ? (long) a[i] * lastMax[i].value() : (long) a[i] * lastMin[i].value();
+    }
+
+    @Override
+    public void propagate() {
+        // the terms are not updated during the filtering but by the next propagation
+        if (rel != Relation.GE) {
+            long slack = c - sumMin.value();
+            if (slack < 0)
+                throw INCONSISTENCY;
+            for (int k = 0; k < bySpan.length && span[bySpan[k]] > slack; k++) {
+                int i = bySpan[k];
+                long lo = termMin(i);
+                if (termMax(i) - lo > slack)
+                    removeTermAbove(i, lo + slack);
+            }
+        }
+        if (rel != Relation.LE) {
+            long slack = sumMax.value() - c;
+            if (slack < 0)
+                throw INCONSISTENCY;
+            for (int k = 0; k < bySpan.length && span[bySpan[k]] > slack; k++) {
+                int i = bySpan[k];
+                long hi = termMax(i);
+                if (hi - termMin(i) > slack)
+                    removeTermBelow(i, hi - slack);
+            }
+        }
+    }
+
+    /**
+     * Enforces {@code a[i]*x[i] <= b}
+     */
+    private void removeTermAbove(int i, long b) {
+        if (a[i] > 0)
+            removeAbove(x[i], Math.floorDiv(b, a[i]));
+        else
+            removeBelow(x[i], -Math.floorDiv(b, -(long) a[i]));
+    }
+
+    /**
+     * Enforces {@code a[i]*x[i] >= b}
+     */
+    private void removeTermBelow(int i, long b) {
+        if (a[i] > 0)
+            removeBelow(x[i], -Math.floorDiv(-b, a[i]));
+        else
+            removeAbove(x[i], Math.floorDiv(-b, -(long) a[i]));
+    }
+
+    private static void removeAbove(IntVar x, long v) {
+        if (v < x.max())
+            x.removeAbove((int) Math.max(v, Integer.MIN_VALUE));
+    }
+
+    private static void removeBelow(IntVar x, long v) {
+        if (v > x.min())
+            x.removeBelow((int) Math.min(v, Integer.MAX_VALUE));
+    }
+}
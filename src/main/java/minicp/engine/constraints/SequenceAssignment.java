@@ -0,0 +1,87 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Assignment of the nodes to sequences over the same nodes,
+ * such as the routes of several vehicles:
+ * each node {@code i} is in the sequence {@code seqs[x[i]]}
+ * and is excluded from the other ones.
+ * <p>
+ * A node is excluded from the sequences that are not in the domain of its variable
+ * and required in the sequence to which its variable is fixed.
+ * Conversely, the sequences excluding a node are removed from its domain
+ * and a node required or inserted in a sequence fixes its variable.
+ */
+public class SequenceAssignment extends AbstractConstraint {
+
+    private final SequenceVar[] seqs;
+    private final IntVar[] x;
+
+    /**
+     * Creates an assignment constraint.
+     *
+     * @param seqs the sequences, over the same number of nodes
+     * @param x the sequence of each node
+     */
+    public SequenceAssignment(SequenceVar[] seqs, IntVar[] x) {
+        super(seqs[0].getSolver());
+        for (SequenceVar seq : seqs) {
+            if (seq.nNode() != x.length)
+                throw new InvalidParameterException("the sequences must have one node per variable");
+        }
+        this.seqs = seqs;
+        this.x = x;
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < x.length; i++) {
+            x[i].removeBelow(0);
+            x[i].removeAbove(seqs.length - 1);
+            x[i].propagateOnDomainChange(this);
+        }
+        for (SequenceVar seq : seqs) {
+            seq.propagateOnInsert(this);
+            seq.propagateOnRequire(this);
+            seq.propagateOnExclude(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        for (int i = 0; i < x.length; i++) {
+            for (int v = 0; v < seqs.length; v++) {
+                SequenceVar seq = seqs[v];
+                if (!x[i].contains(v))
+                    seq.exclude(i);
+                else if (seq.isExcluded(i))
+                    x[i].remove(v);
+                else if (seq.isMember(i) || seq.isRequired(i))
+                    x[i].fix(v);
+            }
+            if (x[i].isFixed())
+                seqs[x[i].min()].require(i);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.SequenceVar;
+
+import java.security.InvalidParameterException;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Capacity constraint along a sequence, such as the
+ * passengers picked up and dropped by a vehicle.
+ * Each activity {@code a} uses {@code load[a]} units of the capacity
+ * from its start node {@code starts[a]} until its end node {@code ends[a]},
+ * that must follow it in the sequence.
+ * An activity whose start or end is excluded is ignored.
+ * <p>
+ * The load profile on the edges between consecutive members
+ * is computed from the activities whose start and end are members.
+ * The insertions of the start or end of an activity are removed
+ * if they violate its order or exceed the capacity on the edges it would use:
+ * from its start to the insertion of its end or
+ * from the insertion of its start to its end if one of them is a member,
+ * only the edge where it is inserted if the other one is required.
+ */
+public class SequenceCumulative extends AbstractConstraint {
+
+    private final SequenceVar seq;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] load;
+    private final int capacity;
+    private final int[] order;
+    private final int[] position; // position of each member in the sequence
+    private final int[] profile; // load on the edge leaving each position
+    private final int[] insertions;
+
+    /**
+     * Creates a capacity constraint on a sequence.
+     *
+     * @param seq the sequence
+     * @param starts the start node of each activity
+     * @param ends the end node of each activity
+     * @param load the non negative load of each activity
+     * @param capacity the capacity
+     */
+    public SequenceCumulative(SequenceVar seq, int[] starts, int[] ends, int[] load, int capacity) {
+        super(seq.getSolver());
+        if (starts.length != ends.length || starts.length != load.length)
+            throw new InvalidParameterException("one start, one end and one load per activity");
+        for (int l : load) {
+            if (l < 0)
+                throw new InvalidParameterException("the loads must be non negative");
+        }
+        int n = seq.nNode();
+        this.seq = seq;
+        this.starts = starts;
+        this.ends = ends;
+        this.load = load;
+        this.capacity = capacity;
+        order = new int[n + 2];
+        position = new int[n + 2];
+        profile = new int[n + 2];
+        insertions = new int[n + 1];
+    }
+
+    @Override
+    public void post() {
+        seq.propagateOnInsert(this);
+        seq.propagateOnRequire(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int size = seq.fillOrder(order);
+        for (int k = 0; k < size; k++) {
+            position[order[k]] = k;
+            profile[k] = 0;
+        }
+        for (int a = 0; a < starts.length; a++) {
+            if (seq.isMember(starts[a]) && seq.isMember(ends[a])) {
+                if (position[starts[a]] > position[ends[a]])
+                    throw INCONSISTENCY;
+                profile[position[starts[a]]] += load[a];
+                profile[position[ends[a]]] -= load[a];
+            }
+        }
+        for (int k = 1; k < size; k++) {
+            profile[k] += profile[k - 1];
+            if (profile[k] > capacity)
+                throw INCONSISTENCY;
+        }
+        for (int a = 0; a < starts.length; a++) {
+            int s = starts[a];
+            int e = ends[a];
+            if (seq.isExcluded(s) || seq.isExcluded(e))
+                continue;
+            boolean startMember = seq.isMember(s);
+            boolean endMember = seq.isMember(e);
+            if (startMember && !endMember)
+                filterEnd(e, position[s], capacity - load[a]);
+            else if (!startMember && endMember)
+                filterStart(s, position[e], capacity - load[a]);
+            else if (!startMember) {
+                // the activity is ignored if the other node is excluded
+                if (seq.isRequired(e))
+                    filterEdge(s, capacity - load[a]);
+                if (seq.isRequired(s))
+                    filterEdge(e, capacity - load[a]);
+            }
+        }
+    }
+
+    /**
+     * Keeps the insertions of the end from the start position
+     * as long as the load on the edges does not exceed max
+     */
+    private void filterEnd(int end, int from, int max) {
+        int to = from;
+        while (to < order.length && profile[to] <= max && order[to] != seq.end())
+            to++;
+        int nIns = seq.fillInsertions(end, insertions);
+        for (int k = 0; k < nIns; k++) {
+            int pos = position[insertions[k]];
+            if (pos < from || pos >= to)
+                seq.removeInsertion(end, insertions[k]);
+        }
+    }
+
+    /**
+     * Keeps the insertions of the start before the end position
+     * as long as the load on the edges does not exceed max
+     */
+    private void filterStart(int start, int to, int max) {
+        int from = to;
+        while (from > 0 && profile[from - 1] <= max)
+            from--;
+        int nIns = seq.fillInsertions(start, insertions);
+        for (int k = 0; k < nIns; k++) {
+            int pos = position[insertions[k]];
+            if (pos < from || pos >= to)
+                seq.removeInsertion(start, insertions[k]);
+        }
+    }
+
+    /**
+     * Removes the insertions of the node on the edges whose load exceeds max
+     */
+    private void filterEdge(int node, int max) {
+        int nIns = seq.fillInsertions(node, insertions);
+        for (int k = 0; k < nIns; k++) {
+            if (profile[position[insertions[k]]] > max)
+                seq.removeInsertion(node, insertions[k]);
+        }
+    }
+}
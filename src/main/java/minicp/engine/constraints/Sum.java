@@ -20,12 +20,13 @@ import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
 import minicp.state.State;
 import minicp.state.StateInt;
-import minicp.util.exception.InconsistencyException;
 import minicp.util.exception.NotImplementedException;
 
 import java.util.Arrays;
 import java.util.stream.IntStream;
 
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
 /**
  * Sum Constraint
  */
@@ -34,7 +35,7 @@ public class Sum extends AbstractConstraint {
     private int[] fixed;
     private StateInt nFixed;
     private State<Long> sumFixed;
-    private IntVar[] x;
+    IntVar[] x;
     private int[] min, max;
     private int n;
 
@@ -111,7 +112,7 @@ public class Sum extends AbstractConstraint {
         }
         nFixed.setValue(nF);
         if (sumMin > 0 || sumMax < 0) {
-            throw new InconsistencyException();
+            throw INCONSISTENCY;
         }
         // iterate over not-fixed variables
         for (int i = nF; i < x.length; i++) {
@@ -19,24 +19,44 @@ import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
 import minicp.state.StateInt;
 import minicp.state.StateSparseBitSet;
-import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.Arrays;
 
 import static minicp.cp.Factory.minus;
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
 /**
  * Implementation of Compact Table algorithm described in
  * <p><i>Compact-Table: Efficiently Filtering Table Constraints with Reversible Sparse Bit-Sets</i>
  * Jordan Demeulenaere, Renaud Hartert, Christophe Lecoutre, Guillaume Perez, Laurent Perron, Jean-Charles Régin, Pierre Schaus
  * <p>See <a href="https://www.info.ucl.ac.be/~pschaus/assets/publi/cp2016-compacttable.pdf">The article.</a>
+ * <p>The table can be a short table where {@link #STAR} matches any value,
+ * or a smart table made of {@link Entry} restricting each variable
+ * (see <i>Extending Compact-Table to Basic Smart Tables</i>, Verhaeghe et al., CP 2017).
+ * Both are compiled into the same supports as the tables in extension,
+ * the tuple of an entry accepting every value being set in all the supports of the variable.
+ * <p>The supported tuples are updated incrementally:
+ * for each modified variable, either from the values removed since
+ * the last propagation (delta update) or from the values remaining
+ * in the domain (reset update), whichever is the smallest.
+ * The delta update only removes the tuples accepting a single value of the variable,
+ * it is thus disabled for the variables of a smart table having
+ * entries accepting several values but not all of them.
  */
 public class TableCT extends AbstractConstraint {
+
+    /**
+     * Value of a short table matching any value of the variable.
+     */
+    public static final int STAR = Integer.MIN_VALUE;
+
     private IntVar[] x; //variables
-    private int[][] table; //the table
     //supports[i][v] is the set of tuples supported by x[i]=v
     protected StateSparseBitSet.SupportBitSet[][] supports;
+    //deltaSupports[i][v] is the set of tuples accepting only x[i]=v,
+    //null if the supported tuples can only be updated by reset for x[i]
+    private StateSparseBitSet.BitSet[][] deltaSupports;
+    private boolean[] hasStar; // true if an entry accepts all the values of x[i]
 
     protected StateSparseBitSet supportedTuples;
     private StateSparseBitSet.MaskBitSet tmpSupport;
@@ -59,38 +79,122 @@ public class TableCT extends AbstractConstraint {
      * @param x  the non empty set of variables to constraint
      * @param table the possible set of solutions for x.
      *              The second dimension must be of the same size as the array x.
+     *              An entry {@link #STAR} matches any value.
      */
     public TableCT(IntVar[] x, int[][] table) {
+        this(x, table.length);
+        // Set the supports for each var-va
+        for (int t = 0; t < table.length; t++) { // t is the index of the tuple (in table)
+            for (int i = 0; i < x.length; i++) { // i is the index of the current variable (in x)
+                if (table[t][i] == STAR)
+                    setAll(i, t);
+                else if (x[i].contains(table[t][i]))
+                    set(i, table[t][i] - x[i].min(), t);
+            }
+        }
+        initDeltaSupports();
+    }
+
+    /**
+     * Smart table constraint.
+     * <p>The table constraint ensures that
+     * {@code x} satisfies all the entries of a row from the given table.
+     * More exactly, there exist some row <i>i</i>
+     * such that
+     * {@code table[i][0].accepts(x[0]), table[i][1].accepts(x[1]), etc}.
+     *
+     * @param x  the non empty set of variables to constraint
+     * @param table the possible rows for x.
+     *              The second dimension must be of the same size as the array x.
+     * @see #star()
+     * @see #eq(int)
+     * @see #ne(int)
+     * @see #le(int)
+     * @see #ge(int)
+     * @see #range(int, int)
+     */
+    public TableCT(IntVar[] x, Entry[][] table) {
+        this(x, table.length);
+        int[] values = new int[dom.length];
+        for (int t = 0; t < table.length; t++) {
+            for (int i = 0; i < x.length; i++) {
+                Entry e = table[t][i];
+                if (e.acceptsAll()) {
+                    setAll(i, t);
+                    continue;
+                }
+                int nVal = x[i].fillArray(values);
+                int nAccepted = 0;
+                for (int k = 0; k < nVal; k++) {
+                    if (e.accepts(values[k]))
+                        values[nAccepted++] = values[k];
+                }
+                if (nAccepted == nVal) {
+                    setAll(i, t);
+                } else if (nAccepted == 1) {
+                    set(i, values[0] - x[i].min(), t);
+                } else {
+                    for (int k = 0; k < nAccepted; k++)
+                        supports[i][values[k] - x[i].min()].set(t);
+                    deltaSupports[i] = null;
+                }
+            }
+        }
+        initDeltaSupports();
+    }
+
+    private TableCT(IntVar[] x, int nTuples) {
         super(x[0].getSolver());
         this.x = new IntVar[x.length];
-        this.table = table;
         dom = new int[Arrays.stream(x).map(var -> var.size()).max(Integer::compare).get()];
 
-        supportedTuples = new StateSparseBitSet(this.getSolver().getStateManager(), table.length);
+        supportedTuples = new StateSparseBitSet(this.getSolver().getStateManager(), nTuples);
 
         // Allocate supports
         supports = new StateSparseBitSet.SupportBitSet[x.length][];
+        deltaSupports = new StateSparseBitSet.BitSet[x.length][];
+        hasStar = new boolean[x.length];
         lastDomSize = new StateInt[x.length];
         for (int i = 0; i < x.length; i++) {
             this.x[i] = minus(x[i], x[i].min()); // map the variables domain to start at 0
             supports[i] = new StateSparseBitSet.SupportBitSet[x[i].max() - x[i].min() + 1];
+            deltaSupports[i] = new StateSparseBitSet.BitSet[supports[i].length];
             for (int v = 0; v < supports[i].length; v++) {
                 supports[i][v] = supportedTuples.new SupportBitSet();
+                deltaSupports[i][v] = supportedTuples.new BitSet();
             }
             lastDomSize[i] = this.getSolver().getStateManager().makeStateInt(-1); // put to -1 to force initial propagation to check all vars
         }
+        tmpSupport = supportedTuples.new MaskBitSet();
+    }
 
-        // Set the supports for each var-va
-        for (int t = 0; t < table.length; t++) { // t is the index of the tuple (in table)
-            for (int i = 0; i < x.length; i++) { // i is the index of the current variable (in x)
-                // TODO 1: fill the support bitset
-                //  supports[i][v] is the set of tuples supported by x[i]=v
-                //  hint: use supports[i][v].set(...)
-                 throw new NotImplementedException("TableCT");
-            }
-        }
+    /**
+     * Sets the tuple t in every support of x[i]
+     */
+    private void setAll(int i, int t) {
+        for (int v = 0; v < supports[i].length; v++)
+            supports[i][v].set(t);
+        hasStar[i] = true;
+    }
 
-        tmpSupport = supportedTuples.new MaskBitSet();
+    /**
+     * Sets the tuple t accepting only x[i]=v
+     */
+    private void set(int i, int v, int t) {
+        supports[i][v].set(t);
+        if (deltaSupports[i] != null)
+            deltaSupports[i][v].set(t);
+    }
+
+    /**
+     * Shares the delta supports with the supports
+     * for the variables without star entries
+     */
+    private void initDeltaSupports() {
+        for (int i = 0; i < x.length; i++) {
+            if (deltaSupports[i] != null && !hasStar[i])
+                deltaSupports[i] = supports[i];
+        }
     }
 
     @Override
@@ -109,30 +213,151 @@ public class TableCT extends AbstractConstraint {
      * @return true if the domain of x[i] has been changed since the last propagation
      */
     public boolean hasChanged(int i) {
-        // TODO 2: use lastDomSize[i] to verify if the domain size of x[i] has changed since last propagation
-         throw new NotImplementedException("TableCT");
+        return lastDomSize[i].value() != x[i].size();
     }
 
     @Override
     public void propagate() {
+        int nChanged = 0;
+        int lastChanged = -1;
         for (int i = 0; i < x.length; i++) {
-            if (hasChanged(i)) {
-                // TODO 3: update supportedTuples as
-                // supportedTuples &= (supports[i][x[i].min()] | ... | supports[i][x[i].max()] )
-                // for all x[i] modified since last call node in the search tree (see TODO 2 )
+            int size = x[i].size();
+            int lastSize = lastDomSize[i].value();
+            if (size != lastSize) {
+                nChanged++;
+                // the supports of the values of x[i] are unchanged if only x[i] was modified,
+                // except at the first propagation
+                lastChanged = lastSize < 0 ? -1 : i;
+                tmpSupport.clear();
+                if (lastSize > 0 && deltaSupports[i] != null && lastSize - size < size) {
+                    // supportedTuples &= ~(deltaSupports[i][removed value 1] | ... )
+                    int nDelta = x[i].fillDeltaArray(lastSize, dom);
+                    for (int v = 0; v < nDelta; v++)
+                        tmpSupport.or(deltaSupports[i][dom[v]]);
+                    supportedTuples.andNot(tmpSupport);
+                } else {
+                    // supportedTuples &= (supports[i][x[i].min()] | ... | supports[i][x[i].max()] )
+                    int nVal = x[i].fillArray(dom);
+                    for (int v = 0; v < nVal; v++)
+                        tmpSupport.or(supports[i][dom[v]]);
+                    supportedTuples.and(tmpSupport);
+                }
+                if (supportedTuples.isEmpty())
+                    throw INCONSISTENCY;
             }
         }
 
-        // TODO 4 filter impossible values
         for (int i = 0; i < x.length; i++) {
-            int nVal = x[i].fillArray(dom);
-            for (int v = 0; v < nVal; v++) {
-                    // TODO 4 the condition for removing the setValue dom[v] from x[i] is to check if
-                    //  there is no intersection between supportedTuples and the support[i][dom[v]]
-
+            // a fixed variable is supported by any tuple left
+            if (x[i].size() > 1 && !(nChanged == 1 && i == lastChanged)) {
+                int nVal = x[i].fillArray(dom);
+                for (int v = 0; v < nVal; v++) {
+                    // the residue of the support is checked first
+                    if (!supportedTuples.intersects(supports[i][dom[v]]))
+                        x[i].remove(dom[v]);
+                }
             }
             lastDomSize[i].setValue(x[i].size()); // store the current domain size to compare during next propagation
         }
-         throw new NotImplementedException("TableCT");
+    }
+
+    /**
+     * Returns an entry accepting any value.
+     *
+     * @return the entry {@code *}
+     */
+    public static Entry star() {
+        return new Entry(Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Returns an entry accepting a single value.
+     *
+     * @param v the value
+     * @return the entry {@code = v}
+     */
+    public static Entry eq(int v) {
+        return new Entry(v, v, false);
+    }
+
+    /**
+     * Returns an entry accepting any value except one.
+     *
+     * @param v the value
+     * @return the entry {@code != v}
+     */
+    public static Entry ne(int v) {
+        return new Entry(v, v, true);
+    }
+
+    /**
+     * Returns an entry accepting the values less or equal to a bound.
+     *
+     * @param v the bound
+     * @return the entry {@code <= v}
+     */
+    public static Entry le(int v) {
+        return new Entry(Integer.MIN_VALUE, v, false);
+    }
+
+    /**
+     * Returns an entry accepting the values larger or equal to a bound.
+     *
+     * @param v the bound
+     * @return the entry {@code >= v}
+     */
+    public static Entry ge(int v) {
+        return new Entry(v, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Returns an entry accepting the values in an interval.
+     *
+     * @param min the smallest value accepted
+     * @param max the largest value accepted
+     * @return the entry {@code in [min..max]}
+     */
+    public static Entry range(int min, int max) {
+        return new Entry(min, max, false);
+    }
+
+    /**
+     * Entry of a smart table: the set of values accepted
+     * by a variable in a row, either an interval or
+     * the complement of an interval.
+     */
+    public static final class Entry {
+        private final int min;
+        private final int max;
+        private final boolean complement;
+
+        private Entry(int min, int max, boolean complement) {
+            this.min = min;
+            this.max = max;
+            this.complement = complement;
+        }
+
+        /**
+         * Tells if the entry accepts a value.
+         *
+         * @param v the value
+         * @return true if the value is accepted
+         */
+        public boolean accepts(int v) {
+            return (min <= v && v <= max) != complement;
+        }
+
+        boolean acceptsAll() {
+            return !complement && min == Integer.MIN_VALUE && max == Integer.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            if (acceptsAll())
+                return "*";
+            if (min == max)
+                return (complement ? "!=" : "=") + min;
+            return (complement ? "!" : "") + "[" + min + ".." + max + "]";
+        }
     }
 }
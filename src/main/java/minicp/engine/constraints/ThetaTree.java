@@ -19,42 +19,30 @@ package minicp.engine.constraints;
  * Data Structure described in
  * Global Constraints in Scheduling, 2008 Petr Vilim, PhD thesis
  * See <a href="http://vilim.eu/petr/disertace.pdf">The thesis.</a>
+ * <p>
+ * The tree is generalized to the energy envelopes of
+ * "Edge Finding Filtering Algorithm for Discrete Cumulative Resources in O(kn log n)",
+ * Petr Vilim, CP 2009.
+ * The envelope of a set of activities on a resource of capacity {@code C} is
+ * {@code Env = max(C * est + energy)} over its subsets, the earliest completion
+ * time being the envelope of a unary resource ({@code C = 1} and the energy is the duration).
+ * An activity can also be inserted as a gray (lambda) leaf:
+ * it is then ignored by {@link #getEnvelope()} but
+ * {@link #getEnvelopeLambda()} is the largest envelope obtained
+ * with at most one gray activity.
  */
 public class ThetaTree {
 
-    private static class Node {
+    private static final long NEG_INF = Long.MIN_VALUE / 4;
 
-        private int sump;
-        private int ect;
-
-        Node() {
-            reset();
-        }
-
-        public void reset() {
-            setECT(Integer.MIN_VALUE);
-            setSUMP(0);
-        }
-
-        public int getECT() {
-            return ect;
-        }
-
-        public int getSUMP() {
-            return sump;
-        }
-
-        public void setECT(int ect) {
-            this.ect = ect;
-        }
-
-        public void setSUMP(int sump) {
-            this.sump = sump;
-        }
-
-    }
-
-    private Node[] nodes;
+    // the nodes are stored in parallel arrays,
+    // the children of node pos being 2*pos+1 and 2*pos+2
+    private final long[] energy;
+    private final long[] env;
+    private final long[] energyLambda;
+    private final long[] envLambda;
+    private final int[] respEnergyLambda; // gray leaf responsible for energyLambda, -1 if none
+    private final int[] respEnvLambda; // gray leaf responsible for envLambda, -1 if none
     private int isize; //number of internal nodes
     private int size;
 
@@ -78,22 +66,35 @@ public class ThetaTree {
             isize <<= 1; //shift the pattern to the left by 1 (i.e. multiplies by 2)
         }
         //number of nodes in a complete  binary tree with isize leaf nodes is (isize*2)-1
-        nodes = new Node[(isize << 1) - 1];
-        for (int i = 0; i < nodes.length; i++) {
-            nodes[i] = new Node();
-        }
+        int nNodes = (isize << 1) - 1;
+        energy = new long[nNodes];
+        env = new long[nNodes];
+        energyLambda = new long[nNodes];
+        envLambda = new long[nNodes];
+        respEnergyLambda = new int[nNodes];
+        respEnvLambda = new int[nNodes];
         isize--;
+        reset();
     }
 
     /**
      * Remove all the activities from this theta-tree
      */
     public void reset() {
-        for (Node n : nodes) {
-            n.reset();
+        for (int pos = 0; pos < energy.length; pos++) {
+            resetNode(pos);
         }
     }
 
+    private void resetNode(int pos) {
+        energy[pos] = 0;
+        env[pos] = NEG_INF;
+        energyLambda[pos] = 0;
+        envLambda[pos] = NEG_INF;
+        respEnergyLambda[pos] = -1;
+        respEnvLambda[pos] = -1;
+    }
+
     /**
      * Insert activity in leaf nodes at given position
      * such that it is taken into account for the {@link #getECT()}
@@ -104,11 +105,46 @@ public class ThetaTree {
      * @param dur duration
      */
     public void insert(int pos, int ect, int dur) {
-        //the last size nodes are the leaf nodes so the first one is isize (the number of internal nodes)
+        insertEnergy(pos, ect, dur);
+    }
+
+    /**
+     * Insert activity in leaf nodes at given position
+     * such that it is taken into account for the {@link #getEnvelope()}
+     * computation.
+     *
+     * @param pos the index of the leaf node (assumed to start at 0 from left to right)
+     * @param envelope the envelope of the activity, {@code C * est + energy}
+     * @param energy the energy of the activity, {@code demand * duration}
+     */
+    public void insertEnergy(int pos, long envelope, long energy) {
+        int currPos = isize + pos;
+        this.energy[currPos] = energy;
+        env[currPos] = envelope;
+        energyLambda[currPos] = energy;
+        envLambda[currPos] = envelope;
+        respEnergyLambda[currPos] = -1;
+        respEnvLambda[currPos] = -1;
+        reCompute(getFather(currPos));
+    }
+
+    /**
+     * Insert activity in leaf nodes at given position as a gray activity
+     * such that it is only taken into account for the {@link #getEnvelopeLambda()}
+     * computation.
+     *
+     * @param pos the index of the leaf node (assumed to start at 0 from left to right)
+     * @param envelope the envelope of the activity, {@code C * est + energy}
+     * @param energy the energy of the activity, {@code demand * duration}
+     */
+    public void insertGray(int pos, long envelope, long energy) {
         int currPos = isize + pos;
-        Node node = nodes[currPos];
-        node.setECT(ect);
-        node.setSUMP(dur);
+        this.energy[currPos] = 0;
+        env[currPos] = NEG_INF;
+        energyLambda[currPos] = energy;
+        envLambda[currPos] = envelope;
+        respEnergyLambda[currPos] = pos;
+        respEnvLambda[currPos] = pos;
         reCompute(getFather(currPos));
     }
 
@@ -120,25 +156,53 @@ public class ThetaTree {
      */
     public void remove(int pos) {
         int currPos = isize + pos;
-        Node node = nodes[currPos];
-        node.reset();
+        resetNode(currPos);
         reCompute(getFather(currPos));
     }
 
-    private int getECT(int pos) {
-        return nodes[pos].getECT();
-    }
-
     /**
      * The earliest completion time of the activities present in the theta-tree
-     * @return the earliest completion time of the activities present in the theta-tree
+     * @return the earliest completion time of the activities present in the theta-tree,
+     *         {@code Integer.MIN_VALUE} if it is empty
      */
     public int getECT() {
-        return getECT(0);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, getEnvelope()));
+    }
+
+    /**
+     * The earliest completion time obtained by adding at most one
+     * gray activity to the activities present in the theta-tree
+     * @return the earliest completion time with at most one gray activity,
+     *         {@code Integer.MIN_VALUE} if the tree is empty
+     */
+    public int getECTLambda() {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, getEnvelopeLambda()));
+    }
+
+    /**
+     * The envelope of the activities present in the theta-tree
+     * @return the envelope of the (non gray) activities present in the theta-tree,
+     *         a very large negative value if it is empty
+     */
+    public long getEnvelope() {
+        return env[0];
+    }
+
+    /**
+     * The largest envelope obtained by adding at most one
+     * gray activity to the activities present in the theta-tree
+     * @return the envelope with at most one gray activity
+     */
+    public long getEnvelopeLambda() {
+        return envLambda[0];
     }
 
-    private int getSUMP(int pos) {
-        return nodes[pos].getSUMP();
+    /**
+     * The gray activity responsible for {@link #getEnvelopeLambda()}
+     * @return the position of the gray activity, -1 if no gray activity is used
+     */
+    public int getResponsibleGray() {
+        return respEnvLambda[0];
     }
 
     private int getFather(int pos) {
@@ -157,35 +221,46 @@ public class ThetaTree {
     }
 
     private void reComputeAux(int pos) {
-        int pl = getSUMP(getLeft(pos));
-        int pr = getSUMP(getRight(pos));
-        nodes[pos].setSUMP(pl + pr);
+        int l = getLeft(pos);
+        int r = getRight(pos);
+        energy[pos] = energy[l] + energy[r];
+        env[pos] = Math.max(env[r], env[l] + energy[r]);
+
+        // the ties are broken in favor of the gray activities
+        long e1 = energyLambda[l] + energy[r];
+        long e2 = energy[l] + energyLambda[r];
+        if (e1 > e2 || (e1 == e2 && respEnergyLambda[l] >= 0)) {
+            energyLambda[pos] = e1;
+            respEnergyLambda[pos] = respEnergyLambda[l];
+        } else {
+            energyLambda[pos] = e2;
+            respEnergyLambda[pos] = respEnergyLambda[r];
+        }
 
-        int el = getECT(getLeft(pos));
-        int er = getECT(getRight(pos));
-        int en = Math.max(er, el + pr);
-        nodes[pos].setECT(en);
+        long best = envLambda[r];
+        int resp = respEnvLambda[r];
+        long e = env[l] + energyLambda[r];
+        if (e > best || (e == best && resp < 0)) {
+            best = e;
+            resp = respEnergyLambda[r];
+        }
+        e = envLambda[l] + energy[r];
+        if (e > best || (e == best && resp < 0)) {
+            best = e;
+            resp = respEnvLambda[l];
+        }
+        envLambda[pos] = best;
+        respEnvLambda[pos] = resp;
     }
 
-
     private void reCompute(int pos) {
-        while (pos > 0) {
+        while (pos >= 0) {
             reComputeAux(pos);
+            if (pos == 0)
+                break;
             pos = getFather(pos);
         }
-        // Fast recompute the top node. We do not need all info.
-        nodes[0].setECT(Math.max(nodes[2].getECT(),
-                nodes[1].getECT() + nodes[2].getSUMP()));
     }
 
 
 }
-
-
-
-
-
-
-
-
-
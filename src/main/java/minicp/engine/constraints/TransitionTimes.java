@@ -0,0 +1,175 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.util.GraphUtil;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Transition times along a sequence:
+ * a member {@code j} following a member {@code i}
+ * is visited at {@code time[j] >= time[i] + dist[i][j]}.
+ * <p>
+ * Optionally, the members never wait beyond their earliest times:
+ * once the sequence is fixed, they are visited as soon as possible,
+ * at {@code time[j] = max(earliest[j], time[i] + dist[i][j])}.
+ * <p>
+ * The time windows are propagated forward and backward along the members.
+ * An insertion of a node after a member {@code p} is removed
+ * if the node or the successor of {@code p} would be visited too late,
+ * and the time of a required node is bounded by its insertions.
+ * A required node also bounds the time of the member following its last insertion
+ * and of the member of its first insertion, that it must follow.
+ * As nodes can still be inserted between two members,
+ * this reasoning uses the shortest paths between the nodes
+ * so that the distances need not satisfy the triangle inequality.
+ */
+public class TransitionTimes extends AbstractConstraint {
+
+    private final SequenceVar seq;
+    private final IntVar[] time;
+    private final int[][] dist;
+    private final int[][] shortest;
+    private final int[] earliest; // null if the members may wait
+    private final int[] order;
+    private final int[] position; // position of each member in the sequence
+    private final int[] nodes;
+    private final int[] insertions;
+
+    /**
+     * Creates a transition times constraint.
+     *
+     * @param seq the sequence
+     * @param time the time of each node of the sequence, begin and end included
+     * @param dist the distance matrix between the nodes, begin and end included
+     */
+    public TransitionTimes(SequenceVar seq, IntVar[] time, int[][] dist) {
+        this(seq, time, dist, null);
+    }
+
+    /**
+     * Creates a transition times constraint
+     * where the members are visited as soon as possible once the sequence is fixed.
+     *
+     * @param seq the sequence
+     * @param time the time of each node of the sequence, begin and end included
+     * @param dist the distance matrix between the nodes, begin and end included
+     * @param earliest the time of each node, begin and end included,
+     *                 until which a member may wait after being reached,
+     *                 null if the members may always wait
+     */
+    public TransitionTimes(SequenceVar seq, IntVar[] time, int[][] dist, int[] earliest) {
+        super(seq.getSolver());
+        int n = seq.nNode();
+        if (time.length != n + 2 || dist.length != n + 2)
+            throw new InvalidParameterException("one time and one row of distances per node, begin and end included");
+        if (earliest != null && earliest.length != n + 2)
+            throw new InvalidParameterException("one earliest time per node, begin and end included");
+        this.seq = seq;
+        this.time = time;
+        this.dist = dist;
+        this.shortest = GraphUtil.shortestPaths(dist);
+        this.earliest = earliest;
+        order = new int[n + 2];
+        position = new int[n + 2];
+        nodes = new int[n];
+        insertions = new int[n + 1];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar t : time)
+            t.propagateOnBoundChange(this);
+        seq.propagateOnDomainChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        int size = seq.fillOrder(order);
+        for (int k = 0; k < size; k++)
+            position[order[k]] = k;
+        int[][] d = seq.isFixed() ? dist : shortest;
+        for (int k = 1; k < size; k++)
+            time[order[k]].removeBelow(time[order[k - 1]].min() + d[order[k - 1]][order[k]]);
+        for (int k = size - 2; k >= 0; k--)
+            time[order[k]].removeAbove(time[order[k + 1]].max() - d[order[k]][order[k + 1]]);
+        if (seq.isFixed()) {
+            if (earliest != null)
+                visitAsSoonAsPossible(size);
+            return;
+        }
+        int nNodes = seq.fillRequired(nodes);
+        for (int k = 0; k < nNodes; k++)
+            filterInsertions(nodes[k], true);
+        nNodes = seq.fillPossible(nodes);
+        for (int k = 0; k < nNodes; k++)
+            filterInsertions(nodes[k], false);
+    }
+
+    /**
+     * Forbids the members of the fixed sequence to wait beyond their earliest times
+     */
+    private void visitAsSoonAsPossible(int size) {
+        for (int k = 1; k < size; k++) {
+            int i = order[k - 1];
+            int j = order[k];
+            time[j].removeAbove(Math.max(earliest[j], time[i].max() + dist[i][j]));
+            if (time[j].min() > earliest[j])
+                time[i].removeBelow(time[j].min() - dist[i][j]);
+        }
+    }
+
+    /**
+     * Removes the insertions of the node that violate the time windows
+     * and bounds the time of the node if it is required
+     */
+    private void filterInsertions(int node, boolean required) {
+        int minTime = Integer.MAX_VALUE;
+        int maxTime = Integer.MIN_VALUE;
+        int first = Integer.MAX_VALUE; // position of the first and last insertions
+        int last = -1;
+        int nIns = seq.fillInsertions(node, insertions);
+        for (int k = 0; k < nIns; k++) {
+            int pred = insertions[k];
+            int succ = seq.nextMember(pred);
+            int arrival = Math.max(time[node].min(), time[pred].min() + shortest[pred][node]);
+            int departure = Math.min(time[node].max(), time[succ].max() - shortest[node][succ]);
+            if (arrival > departure) {
+                seq.removeInsertion(node, pred);
+            } else {
+                minTime = Math.min(minTime, arrival);
+                maxTime = Math.max(maxTime, departure);
+                first = Math.min(first, position[pred]);
+                last = Math.max(last, position[pred]);
+            }
+        }
+        if (required && seq.isRequired(node)) {
+            time[node].removeBelow(minTime);
+            time[node].removeAbove(maxTime);
+            // the node is visited after the member of its first insertion
+            // and before the successor of its last insertion
+            int pred = order[first];
+            int succ = order[last + 1];
+            time[pred].removeAbove(time[node].max() - shortest[pred][node]);
+            time[succ].removeBelow(time[node].min() + shortest[node][succ]);
+        }
+    }
+}
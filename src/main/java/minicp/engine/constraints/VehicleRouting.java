@@ -0,0 +1,247 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+
+import java.security.InvalidParameterException;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Vehicle routing constraint with a successor model
+ * <p>
+ * The nodes {@code 0..nVehicle-1} are the copies of the depot,
+ * the route of a vehicle starting at a depot copy and ending
+ * at the next depot copy of the circuit visiting all the nodes.
+ * The subtours are eliminated as in {@link Circuit}.
+ * <p>
+ * With a capacity, the total demand of the cities of each route is at most the capacity.
+ * Each chain of fixed successors tracks reversibly, at its first node,
+ * the demand of its cities before its first depot copy (the end of a route)
+ * and after its last depot copy (the beginning of a route).
+ * Joining two chains whose route in between exceeds the capacity is forbidden.
+ * <p>
+ * The optional load variables are the load of the vehicle after visiting each node,
+ * that is 0 at the depot copies and {@code load[succ[i]] = load[i] + demand[succ[i]]}
+ * for the cities.
+ * Their bounds and the successors are filtered with each other.
+ */
+public class VehicleRouting extends Circuit {
+
+    private final int nVehicle;
+    private final int[] demand;
+    private final int capacity;
+    private final IntVar[] load;
+
+    private final StateInt[] headDemand; // demand of the chain before its first depot copy
+    private final StateInt[] tailDemand; // demand of the chain after its last depot copy, -1 if none
+
+    private final int[] dom;
+    private final int[] predMin;
+    private final int[] predMax;
+
+    /**
+     * Creates a vehicle routing constraint without capacity.
+     *
+     * @param succ the successor of each node,
+     *             the nodes {@code 0..nVehicle-1} being the depot copies
+     * @param nVehicle the number of vehicles
+     */
+    public VehicleRouting(IntVar[] succ, int nVehicle) {
+        this(succ, nVehicle, new int[succ.length], Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Creates a capacitated vehicle routing constraint.
+     *
+     * @param succ the successor of each node,
+     *             the nodes {@code 0..nVehicle-1} being the depot copies
+     * @param nVehicle the number of vehicles
+     * @param demand the non negative demand of each node, ignored for the depot copies
+     * @param capacity the capacity of each vehicle
+     */
+    public VehicleRouting(IntVar[] succ, int nVehicle, int[] demand, int capacity) {
+        this(succ, nVehicle, demand, capacity, null);
+    }
+
+    /**
+     * Creates a capacitated vehicle routing constraint
+     * with the load of the vehicle after each node.
+     *
+     * @param succ the successor of each node,
+     *             the nodes {@code 0..nVehicle-1} being the depot copies
+     * @param nVehicle the number of vehicles
+     * @param demand the non negative demand of each node, ignored for the depot copies
+     * @param capacity the capacity of each vehicle
+     * @param load the load of the vehicle after visiting each node, null if not needed
+     */
+    public VehicleRouting(IntVar[] succ, int nVehicle, int[] demand, int capacity, IntVar[] load) {
+        super(succ);
+        if (nVehicle < 1 || nVehicle > succ.length)
+            throw new InvalidParameterException("the number of vehicles must be in 1.." + succ.length);
+        if (demand.length != succ.length || (load != null && load.length != succ.length))
+            throw new InvalidParameterException("one demand and load per node is required");
+        this.nVehicle = nVehicle;
+        this.demand = new int[succ.length];
+        for (int i = nVehicle; i < succ.length; i++) {
+            if (demand[i] < 0)
+                throw new InvalidParameterException("the demands must be non negative");
+            this.demand[i] = demand[i];
+        }
+        this.capacity = capacity;
+        this.load = load;
+        StateManager sm = getSolver().getStateManager();
+        headDemand = new StateInt[succ.length];
+        tailDemand = new StateInt[succ.length];
+        for (int i = 0; i < succ.length; i++) {
+            headDemand[i] = sm.makeStateInt(this.demand[i]);
+            tailDemand[i] = sm.makeStateInt(isDepot(i) ? 0 : -1);
+        }
+        dom = new int[succ.length];
+        predMin = new int[succ.length];
+        predMax = new int[succ.length];
+    }
+
+    private boolean isDepot(int i) {
+        return i < nVehicle;
+    }
+
+    @Override
+    public void post() {
+        for (int i = nVehicle; i < x.length; i++) {
+            if (demand[i] > capacity)
+                throw INCONSISTENCY;
+        }
+        if (load != null) {
+            for (int i = 0; i < x.length; i++) {
+                if (isDepot(i)) {
+                    load[i].fix(0);
+                } else {
+                    load[i].removeBelow(demand[i]);
+                    load[i].removeAbove(capacity);
+                }
+            }
+        }
+        super.post();
+        for (IntVar s : x) {
+            if (load != null)
+                s.propagateOnDomainChange(this);
+            else
+                s.propagateOnFix(this);
+        }
+        if (load != null) {
+            for (IntVar l : load)
+                l.propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    protected void fix(int i) {
+        int j = x[i].min();
+        int origi = orig[i].value();
+        int head = headDemand[origi].value();
+        int tail = tailDemand[origi].value();
+        // the route (or part of route) between the chain of i and the one starting at j
+        int middle = (tail >= 0 ? tail : head) + headDemand[j].value();
+        if (middle > capacity)
+            throw INCONSISTENCY;
+        int jTail = tailDemand[j].value();
+        if (tail < 0)
+            headDemand[origi].setValue(middle);
+        if (jTail >= 0)
+            tailDemand[origi].setValue(jTail);
+        else if (tail >= 0)
+            tailDemand[origi].setValue(middle);
+        super.fix(i);
+    }
+
+    @Override
+    public void propagate() {
+        if (capacity != Integer.MAX_VALUE)
+            filterChains();
+        if (load != null)
+            filterLoads();
+    }
+
+    /**
+     * Removes the successors of the end of each chain
+     * joining a chain whose route in between exceeds the capacity
+     */
+    private void filterChains() {
+        for (int i = 0; i < x.length; i++) {
+            if (x[i].isFixed())
+                continue;
+            // i is the end of the chain starting at o
+            int o = orig[i].value();
+            int tail = tailDemand[o].value();
+            int open = tail >= 0 ? tail : headDemand[o].value();
+            int size = x[i].fillArray(dom);
+            for (int k = 0; k < size; k++) {
+                int j = dom[k];
+                // the values that are not the first node of a chain are removed by the allDifferent
+                if (orig[j].value() == j && open + headDemand[j].value() > capacity)
+                    x[i].remove(j);
+            }
+        }
+    }
+
+    /**
+     * Filters the loads with the bounds of the loads of the possible predecessors and successors,
+     * and the successors whose load is incompatible
+     */
+    private void filterLoads() {
+        for (int j = 0; j < x.length; j++) {
+            predMin[j] = Integer.MAX_VALUE;
+            predMax[j] = Integer.MIN_VALUE;
+        }
+        for (int i = 0; i < x.length; i++) {
+            int size = x[i].fillArray(dom);
+            int minLoad = load[i].min();
+            int maxLoad = load[i].max();
+            int succMin = Integer.MAX_VALUE;
+            int succMax = Integer.MIN_VALUE;
+            for (int k = 0; k < size; k++) {
+                int j = dom[k];
+                if (isDepot(j)) {
+                    succMin = Math.min(succMin, minLoad);
+                    succMax = Math.max(succMax, maxLoad);
+                } else if (minLoad + demand[j] > load[j].max() || maxLoad + demand[j] < load[j].min()) {
+                    x[i].remove(j);
+                } else {
+                    succMin = Math.min(succMin, load[j].min() - demand[j]);
+                    succMax = Math.max(succMax, load[j].max() - demand[j]);
+                    predMin[j] = Math.min(predMin[j], minLoad);
+                    predMax[j] = Math.max(predMax[j], maxLoad);
+                }
+            }
+            // the successors removed above are not taken into account,
+            // the constraint being scheduled again by their removal
+            load[i].removeBelow(succMin);
+            load[i].removeAbove(succMax);
+        }
+        for (int j = nVehicle; j < x.length; j++) {
+            if (predMin[j] == Integer.MAX_VALUE)
+                throw INCONSISTENCY;
+            load[j].removeBelow(predMin[j] + demand[j]);
+            load[j].removeAbove(predMax[j] + demand[j]);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+
+import java.util.Arrays;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Hamiltonian Circuit Constraint with a successor model
+ * whose total distance is {@code cost}
+ * <p>
+ * The cost is bounded below by the Held-Karp bound described in
+ * "The traveling-salesman problem and minimum spanning trees", M. Held, R. M. Karp, 1970,
+ * with the reduced cost filtering of
+ * "Improved filtering for weighted circuit constraints", P. Benchimol, W.-J. van Hoeve,
+ * J.-C. Régin, L.-M. Rousseau, M. Rueher, Constraints 17(3), 2012.
+ * <p>
+ * A 1-tree is a spanning tree on the nodes {@code 1..n-1} plus the two
+ * cheapest edges of node 0, every tour being a 1-tree.
+ * The edges are the pairs {@code i,j} with {@code j} in the domain of {@code succ[i]}
+ * or {@code i} in the domain of {@code succ[j]} and the fixed successors
+ * are forced in the 1-tree.
+ * The Lagrangian multipliers of the degree constraints are adjusted by subgradient
+ * iterations and kept from one propagation to the next one, so that only a few
+ * iterations are needed below the root node.
+ * An edge is removed if replacing an edge of the 1-tree by it makes the bound
+ * exceed {@code cost.max()}.
+ * The 1-tree is only recomputed if one of its edges was removed, if a forced edge
+ * is not in it or after a backtrack, otherwise it is still a minimum 1-tree.
+ * The distances are assumed to be non negative.
+ */
+public class WeightedCircuit extends AbstractConstraint {
+
+    private static final int NONE = Integer.MAX_VALUE;
+    private static final double EPS = 1e-6;
+    private static final int FIRST_ITERATIONS = 100;
+    private static final int ITERATIONS = 5;
+    private static final int MAX_STALL = 2;
+
+    private final IntVar[] succ;
+    private final int[][] dist;
+    private final IntVar cost;
+    private final int n;
+
+    // undirected graph of the possible edges
+    private final int[][] weight; // distance of the edges, NONE if not in the graph
+    private final boolean[][] forced; // edges of the fixed successors
+    private final boolean[] fixed; // nodes whose successor is fixed
+    private final int[][] neighbors;
+    private final int[] nNeighbors;
+
+    private final double[] pi; // Lagrangian multipliers
+    private final double[] bestPi;
+    private boolean warm = false;
+
+    // 1-tree: spanning tree on 1..n-1 rooted in 1 and the edges (0,first) and (0,second)
+    private final int[] parent;
+    private final int[] degree;
+    private int first;
+    private int second;
+    private final double[] key;
+    private final boolean[] keyForced;
+    private final boolean[] inTree;
+    private final int[] outside; // nodes not yet in the tree during Prim's algorithm
+    private final int[] forcedStack; // nodes reached by a forced edge during Prim's algorithm
+    private final int[] treeWeight; // weight of the edge (v,parent[v])
+    private int firstWeight;
+    private int secondWeight;
+    private double bound;
+
+    // the 1-tree is still valid if no backtrack occurred since it was computed
+    private int nTrees = 0;
+    private final StateInt lastTree;
+    private final StateInt lastFilterMax; // cost.max() at the last filtering with the 1-tree
+
+    // adjacency lists of the 1-tree and depth first search buffers
+    private final int[] head;
+    private final int[] next;
+    private final int[] adjNode;
+    private final int[] stack;
+    private final int[] from;
+    private final double[] maxOnPath; // largest non forced reduced weight on the tree path
+
+    private final int[] dom;
+
+    /**
+     * Creates a weighted Hamiltonian Circuit Constraint
+     * with a successor model.
+     *
+     * @param succ the variables representing the successor array that is
+     *             {@code succ[i]} is the city visited after city i
+     * @param dist the distance matrix, {@code dist[i][j]} being the
+     *             non negative distance from city i to city j
+     * @param cost the sum of the distances between each city and its successor
+     */
+    public WeightedCircuit(IntVar[] succ, int[][] dist, IntVar cost) {
+        super(cost.getSolver());
+        this.succ = succ;
+        this.dist = dist;
+        this.cost = cost;
+        this.n = succ.length;
+        weight = new int[n][n];
+        for (int[] w : weight)
+            Arrays.fill(w, NONE);
+        forced = new boolean[n][n];
+        fixed = new boolean[n];
+        neighbors = new int[n][n];
+        nNeighbors = new int[n];
+        pi = new double[n];
+        bestPi = new double[n];
+        parent = new int[n];
+        degree = new int[n];
+        key = new double[n];
+        keyForced = new boolean[n];
+        inTree = new boolean[n];
+        outside = new int[n];
+        forcedStack = new int[n];
+        treeWeight = new int[n];
+        lastTree = getSolver().getStateManager().makeStateInt(-1);
+        lastFilterMax = getSolver().getStateManager().makeStateInt(Integer.MAX_VALUE);
+        head = new int[n];
+        next = new int[2 * n];
+        adjNode = new int[2 * n];
+        stack = new int[n];
+        from = new int[n];
+        maxOnPath = new double[n];
+        dom = new int[n];
+    }
+
+    @Override
+    public void post() {
+        getSolver().post(new Circuit(succ));
+        for (IntVar s : succ)
+            s.propagateOnDomainChange(this);
+        cost.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        updateGraph();
+        if (n < 3)
+            return;
+        if (lastTree.value() != nTrees || !isTreeValid()) {
+            nTrees++; // the previous 1-tree is overwritten, even if a failure occurs
+            bound = optimizeMultipliers();
+            lastTree.setValue(nTrees);
+            cost.removeBelow((int) Math.ceil(bound - EPS));
+        } else if (cost.max() >= lastFilterMax.value()) {
+            return;
+        }
+        lastFilterMax.setValue(cost.max());
+        filterEdges();
+    }
+
+    /**
+     * Returns true if the 1-tree computed at the last propagation
+     * is still a minimum 1-tree containing the forced edges
+     */
+    private boolean isTreeValid() {
+        for (int v = 1; v < n; v++) {
+            if (parent[v] >= 0 && weight[v][parent[v]] != treeWeight[v])
+                return false;
+        }
+        if (weight[0][first] != firstWeight || weight[0][second] != secondWeight)
+            return false;
+        for (int i = 0; i < n; i++) {
+            if (succ[i].isFixed() && !isTreeEdge(i, succ[i].min()))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isTreeEdge(int i, int j) {
+        if (i == 0)
+            return j == first || j == second;
+        if (j == 0)
+            return i == first || i == second;
+        return parent[i] == j || parent[j] == i;
+    }
+
+    /**
+     * Computes the edges and their weights from the domains
+     * and bounds the cost with the cheapest and most expensive successors
+     */
+    private void updateGraph() {
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < nNeighbors[i]; k++) {
+                int j = neighbors[i][k];
+                weight[i][j] = NONE;
+                forced[i][j] = false;
+            }
+            nNeighbors[i] = 0;
+        }
+        long minCost = 0;
+        long maxCost = 0;
+        for (int i = 0; i < n; i++) {
+            int size = succ[i].fillArray(dom);
+            int min = NONE;
+            int max = 0;
+            for (int k = 0; k < size; k++) {
+                int j = dom[k];
+                int d = dist[i][j];
+                min = Math.min(min, d);
+                max = Math.max(max, d);
+                if (weight[i][j] == NONE) {
+                    neighbors[i][nNeighbors[i]++] = j;
+                    neighbors[j][nNeighbors[j]++] = i;
+                }
+                if (d < weight[i][j]) {
+                    weight[i][j] = d;
+                    weight[j][i] = d;
+                }
+            }
+            fixed[i] = size == 1;
+            if (size == 1) {
+                forced[i][dom[0]] = true;
+                forced[dom[0]][i] = true;
+            }
+            minCost += min;
+            maxCost += max;
+        }
+        cost.removeBelow((int) Math.min(minCost, Integer.MAX_VALUE));
+        cost.removeAbove((int) Math.min(maxCost, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Adjusts the Lagrangian multipliers by subgradient optimization,
+     * leaving the best ones and their 1-tree
+     *
+     * @return the best Held-Karp bound found
+     */
+    private double optimizeMultipliers() {
+        double best = Double.NEGATIVE_INFINITY;
+        double lambda = 1.0;
+        int maxIterations = warm ? ITERATIONS : FIRST_ITERATIONS;
+        warm = true;
+        int stall = 0;
+        for (int iter = 0; ; iter++) {
+            double bound = oneTree();
+            if (bound > best + EPS) {
+                best = bound;
+                System.arraycopy(pi, 0, bestPi, 0, n);
+                stall = 0;
+            } else {
+                stall++;
+            }
+            if (best > cost.max() + EPS)
+                throw INCONSISTENCY;
+            int norm = 0;
+            for (int i = 0; i < n; i++)
+                norm += (degree[i] - 2) * (degree[i] - 2);
+            if (norm == 0)
+                return bound; // the 1-tree is a tour
+            if (iter == maxIterations || stall == MAX_STALL)
+                break;
+            double target = Math.min(cost.max(), bound + 0.05 * Math.abs(bound) + 1);
+            double step = lambda * Math.max(target - bound, 1) / norm;
+            for (int i = 0; i < n; i++)
+                pi[i] += step * (degree[i] - 2);
+            lambda *= 0.9;
+        }
+        if (stall == 0)
+            return best; // the last 1-tree is the best one
+        System.arraycopy(bestPi, 0, pi, 0, n);
+        return oneTree();
+    }
+
+    private double reducedWeight(int i, int j) {
+        return weight[i][j] + pi[i] + pi[j];
+    }
+
+    /**
+     * Returns true if the edge (i,j) must be preferred to an edge
+     * with the given reduced weight and forced status
+     */
+    private boolean better(int i, int j, double w, boolean f) {
+        return forced[i][j] ? !f || reducedWeight(i, j) < w : !f && reducedWeight(i, j) < w;
+    }
+
+    /**
+     * Computes a minimum 1-tree for the reduced weights containing the forced edges
+     *
+     * @return the Lagrangian bound of the 1-tree
+     */
+    private double oneTree() {
+        // Prim's algorithm on the nodes 1..n-1
+        int nOutside = n - 1;
+        for (int v = 0; v < n; v++) {
+            key[v] = Double.POSITIVE_INFINITY;
+            keyForced[v] = false;
+            inTree[v] = false;
+            parent[v] = -1;
+            degree[v] = 0;
+            if (v > 0)
+                outside[v - 1] = v;
+        }
+        double value = 0;
+        key[1] = 0;
+        int nForced = 0;
+        int nAdded = 0;
+        while (nAdded < n - 1) {
+            int u;
+            if (nForced > 0) {
+                // the forced edges are always selected first, as a forest they never close a cycle
+                u = forcedStack[--nForced];
+            } else {
+                int best = -1;
+                for (int k = 0; k < nOutside; k++) {
+                    int v = outside[k];
+                    if (inTree[v]) {
+                        outside[k--] = outside[--nOutside];
+                    } else if (best < 0 || key[v] < key[outside[best]]) {
+                        best = k;
+                    }
+                }
+                u = outside[best];
+                outside[best] = outside[--nOutside];
+                if (key[u] == Double.POSITIVE_INFINITY)
+                    throw INCONSISTENCY; // the graph is not connected
+            }
+            inTree[u] = true;
+            nAdded++;
+            if (parent[u] >= 0) {
+                value += key[u];
+                treeWeight[u] = weight[u][parent[u]];
+                degree[u]++;
+                degree[parent[u]]++;
+            }
+            for (int k = 0; k < nNeighbors[u]; k++) {
+                int v = neighbors[u][k];
+                if (v != 0 && !inTree[v] && !keyForced[v] && better(u, v, key[v], false)) {
+                    key[v] = reducedWeight(u, v);
+                    keyForced[v] = forced[u][v];
+                    parent[v] = u;
+                    if (keyForced[v])
+                        forcedStack[nForced++] = v;
+                }
+            }
+        }
+        // the two best edges of node 0
+        first = -1;
+        second = -1;
+        for (int k = 0; k < nNeighbors[0]; k++) {
+            int v = neighbors[0][k];
+            if (first < 0 || better(0, v, reducedWeight(0, first), forced[0][first])) {
+                second = first;
+                first = v;
+            } else if (second < 0 || better(0, v, reducedWeight(0, second), forced[0][second])) {
+                second = v;
+            }
+        }
+        if (second < 0)
+            throw INCONSISTENCY;
+        value += reducedWeight(0, first) + reducedWeight(0, second);
+        firstWeight = weight[0][first];
+        secondWeight = weight[0][second];
+        degree[0] = 2;
+        degree[first]++;
+        degree[second]++;
+        for (int i = 0; i < n; i++)
+            value -= 2 * pi[i];
+        return value;
+    }
+
+    /**
+     * Removes the edges whose insertion in the current 1-tree,
+     * replacing the most expensive non forced edge of the cycle it creates,
+     * makes the bound exceed the maximum cost
+     */
+    private void filterEdges() {
+        double gap = cost.max() - bound + EPS;
+        // node 0: replaces the second edge of node 0
+        int replaced = !forced[0][second] ? second : (!forced[0][first] ? first : -1);
+        if (replaced >= 0) {
+            double threshold = reducedWeight(0, replaced) + gap;
+            for (int k = nNeighbors[0] - 1; k >= 0; k--) {
+                int v = neighbors[0][k];
+                if (v != first && v != second && reducedWeight(0, v) > threshold)
+                    removeEdge(0, v);
+            }
+        }
+        // the other nodes: replaces the most expensive edge on the tree path
+        Arrays.fill(head, -1);
+        int nEdges = 0;
+        for (int v = 1; v < n; v++) {
+            int u = parent[v];
+            if (u < 0)
+                continue;
+            adjNode[nEdges] = v;
+            next[nEdges] = head[u];
+            head[u] = nEdges++;
+            adjNode[nEdges] = u;
+            next[nEdges] = head[v];
+            head[v] = nEdges++;
+        }
+        // an edge can only be removed if it is more expensive than the cheapest replaceable edge plus the gap
+        double minFree = Double.POSITIVE_INFINITY;
+        for (int v = 1; v < n; v++) {
+            if (parent[v] >= 0 && !forced[v][parent[v]])
+                minFree = Math.min(minFree, reducedWeight(v, parent[v]));
+        }
+        // an edge not forced has an endpoint with an unfixed successor from which it is checked
+        for (int r = 1; r < n; r++) {
+            if (fixed[r] || !hasCandidate(r, minFree + gap))
+                continue;
+            // depth first search from r computing the largest non forced reduced weight to each node
+            int top = 0;
+            stack[top++] = r;
+            from[r] = -1;
+            maxOnPath[r] = Double.NEGATIVE_INFINITY;
+            while (top > 0) {
+                int u = stack[--top];
+                for (int e = head[u]; e >= 0; e = next[e]) {
+                    int v = adjNode[e];
+                    if (v == from[u])
+                        continue;
+                    from[v] = u;
+                    maxOnPath[v] = forced[u][v] ? maxOnPath[u] : Math.max(maxOnPath[u], reducedWeight(u, v));
+                    stack[top++] = v;
+                }
+            }
+            for (int k = 0; k < nNeighbors[r]; k++) {
+                int v = neighbors[r][k];
+                if (checkedFrom(r, v) && parent[v] != r && parent[r] != v
+                        && maxOnPath[v] != Double.NEGATIVE_INFINITY
+                        && reducedWeight(r, v) - maxOnPath[v] > gap)
+                    removeEdge(r, v);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the edge (r,v) of a node r with an unfixed successor is checked from r,
+     * an edge between two such nodes being checked from the smallest one
+     */
+    private boolean checkedFrom(int r, int v) {
+        return v != 0 && (v > r || fixed[v]);
+    }
+
+    /**
+     * Returns true if an edge (r,v) checked from r and not in the 1-tree
+     * has a reduced weight larger than the threshold
+     */
+    private boolean hasCandidate(int r, double threshold) {
+        for (int k = 0; k < nNeighbors[r]; k++) {
+            int v = neighbors[r][k];
+            if (checkedFrom(r, v) && parent[v] != r && parent[r] != v && reducedWeight(r, v) > threshold)
+                return true;
+        }
+        return false;
+    }
+
+    private void removeEdge(int i, int j) {
+        succ[i].remove(j);
+        succ[j].remove(i);
+    }
+}
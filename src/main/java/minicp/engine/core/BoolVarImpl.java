@@ -106,6 +106,11 @@ public class BoolVarImpl implements BoolVar {
         return binaryVar.fillArray(dest);
     }
 
+    @Override
+    public int fillDeltaArray(int oldSize, int[] dest) {
+        return binaryVar.fillDeltaArray(oldSize, dest);
+    }
+
     @Override
     public boolean isFixed() {
         return binaryVar.isFixed();
@@ -150,6 +150,19 @@ public interface IntDomain {
      */
     int fillArray(int[] dest);
 
+    /**
+     * Copies the values removed from the domain
+     * since its size was {@code oldSize} into an array.
+     *
+     * @param oldSize a previous size of the domain, stored in a state
+     *                of the same state manager, {@code oldSize >= size()}
+     * @param dest an array large enough {@code dest.length >= oldSize - size()}
+     * @return the number of values removed {@code oldSize - size()}
+     *         and {@code dest[0,...,oldSize-size-1]} contains these values
+     *         in an arbitrary order
+     */
+    int fillDeltaArray(int oldSize, int[] dest);
+
     @Override
     String toString();
 }
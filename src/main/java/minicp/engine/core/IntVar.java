@@ -114,6 +114,22 @@ public interface IntVar {
      */
     int fillArray(int[] dest);
 
+    /**
+     * Copies the values removed from the domain
+     * since its size was {@code oldSize} into an array.
+     * It allows a constraint storing the size of the domain
+     * in a {@link minicp.state.StateInt} to retrieve the values removed
+     * since its last propagation.
+     *
+     * @param oldSize a previous size of the domain, stored in a state
+     *                of the solver, {@code oldSize >= size()}
+     * @param dest an array large enough {@code dest.length >= oldSize - size()}
+     * @return the number of values removed {@code oldSize - size()}
+     *         and {@code dest[0,...,oldSize-size-1]} contains these values
+     *         in an arbitrary order
+     */
+    int fillDeltaArray(int oldSize, int[] dest);
+
     /**
      * Returns true if the domain of the variable has a single value.
      *
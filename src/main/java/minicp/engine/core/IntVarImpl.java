@@ -123,7 +123,7 @@ public class IntVarImpl implements IntVar {
       onBound = new StateStack<>(cp.getStateManager());
 
       Arrays.sort(valuesArray);
-      Integer expectedNextValue = min+1;
+      int expectedNextValue = min+1;
       for (idx=1; idx < n; idx++) {
 	//System.out.printf("processing %d\n", valuesArray[idx] );
 	if (valuesArray[idx] != expectedNextValue) {
@@ -214,6 +214,11 @@ public class IntVarImpl implements IntVar {
         return(domain.fillArray(dest));
     }
 
+    @Override
+    public int fillDeltaArray(int oldSize, int[] dest) {
+        return domain.fillDeltaArray(oldSize, dest);
+    }
+
     @Override
     public boolean contains(int v) {
         return domain.contains(v);
@@ -18,9 +18,10 @@ package minicp.engine.core;
 
 
 import minicp.util.Procedure;
-import minicp.util.exception.InconsistencyException;
 import minicp.util.exception.IntOverFlowException;
 
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
 /**
  * A view on a variable of type {@code a*x}
  */
@@ -102,6 +103,15 @@ public class IntVarViewMul implements IntVar {
         return s;
     }
 
+    @Override
+    public int fillDeltaArray(int oldSize, int[] dest) {
+        int s = x.fillDeltaArray(oldSize, dest);
+        for (int i = 0; i < s; i++) {
+            dest[i] *= a;
+        }
+        return s;
+    }
+
     @Override
     public boolean isFixed() {
         return x.isFixed();
@@ -124,7 +134,7 @@ public class IntVarViewMul implements IntVar {
         if (v % a == 0) {
             x.fix(v / a);
         } else {
-            throw new InconsistencyException();
+            throw INCONSISTENCY;
         }
     }
 
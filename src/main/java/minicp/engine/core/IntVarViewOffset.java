@@ -96,6 +96,15 @@ public class IntVarViewOffset implements IntVar {
         return s;
     }
 
+    @Override
+    public int fillDeltaArray(int oldSize, int[] dest) {
+        int s = x.fillDeltaArray(oldSize, dest);
+        for (int i = 0; i < s; i++) {
+            dest[i] += o;
+        }
+        return s;
+    }
+
     @Override
     public boolean isFixed() {
         return x.isFixed();
@@ -88,6 +88,15 @@ public class IntVarViewOpposite implements IntVar {
         return s;
     }
 
+    @Override
+    public int fillDeltaArray(int oldSize, int[] dest) {
+        int s = x.fillDeltaArray(oldSize, dest);
+        for (int i = 0; i < s; i++) {
+            dest[i] = -dest[i];
+        }
+        return s;
+    }
+
     @Override
     public boolean isFixed() {
         return x.isFixed();
@@ -0,0 +1,210 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.util.Procedure;
+import minicp.util.exception.InconsistencyException;
+
+/**
+ * Interval variable for scheduling:
+ * an activity with a start, an end and a length
+ * such that {@code start + length = end}, that can be optional.
+ * <p>
+ * An optional interval is either present or absent.
+ * The bounds of an optional interval are the ones it takes if it is present:
+ * when they become inconsistent, the interval is made absent
+ * instead of throwing an {@link InconsistencyException}.
+ * The bounds of an absent interval are meaningless
+ * and modifying them has no effect.
+ */
+public interface IntervalVar {
+
+    /**
+     * Returns the solver in which this variable was created.
+     *
+     * @return the solver in which this variable was created
+     */
+    Solver getSolver();
+
+    /**
+     * Returns the minimum start time.
+     *
+     * @return the minimum start time
+     */
+    int startMin();
+
+    /**
+     * Returns the maximum start time.
+     *
+     * @return the maximum start time
+     */
+    int startMax();
+
+    /**
+     * Returns the minimum end time.
+     *
+     * @return the minimum end time
+     */
+    int endMin();
+
+    /**
+     * Returns the maximum end time.
+     *
+     * @return the maximum end time
+     */
+    int endMax();
+
+    /**
+     * Returns the minimum length.
+     *
+     * @return the minimum length
+     */
+    int lengthMin();
+
+    /**
+     * Returns the maximum length.
+     *
+     * @return the maximum length
+     */
+    int lengthMax();
+
+    /**
+     * Tests if the interval is present.
+     *
+     * @return true if the interval is known to be present
+     */
+    boolean isPresent();
+
+    /**
+     * Tests if the interval is absent.
+     *
+     * @return true if the interval is known to be absent
+     */
+    boolean isAbsent();
+
+    /**
+     * Tests if the presence of the interval is not yet decided.
+     *
+     * @return true if the interval can still be present or absent
+     */
+    boolean isOptional();
+
+    /**
+     * Tests if the interval is fixed: absent,
+     * or present with fixed start and end.
+     *
+     * @return true if the interval is fixed
+     */
+    boolean isFixed();
+
+    /**
+     * Removes the start times below the given value.
+     *
+     * @param v the new minimum start time
+     * @exception InconsistencyException
+     *            is thrown if the interval is present and has no more valid start time
+     */
+    void setStartMin(int v);
+
+    /**
+     * Removes the start times above the given value.
+     *
+     * @param v the new maximum start time
+     * @exception InconsistencyException
+     *            is thrown if the interval is present and has no more valid start time
+     */
+    void setStartMax(int v);
+
+    /**
+     * Removes the end times below the given value.
+     *
+     * @param v the new minimum end time
+     * @exception InconsistencyException
+     *            is thrown if the interval is present and has no more valid end time
+     */
+    void setEndMin(int v);
+
+    /**
+     * Removes the end times above the given value.
+     *
+     * @param v the new maximum end time
+     * @exception InconsistencyException
+     *            is thrown if the interval is present and has no more valid end time
+     */
+    void setEndMax(int v);
+
+    /**
+     * Removes the lengths below the given value.
+     *
+     * @param v the new minimum length
+     * @exception InconsistencyException
+     *            is thrown if the interval is present and has no more valid length
+     */
+    void setLengthMin(int v);
+
+    /**
+     * Removes the lengths above the given value.
+     *
+     * @param v the new maximum length
+     * @exception InconsistencyException
+     *            is thrown if the interval is present and has no more valid length
+     */
+    void setLengthMax(int v);
+
+    /**
+     * Fixes the start time.
+     *
+     * @param v the start time
+     * @exception InconsistencyException
+     *            is thrown if the interval is present and cannot start at v
+     */
+    void fixStart(int v);
+
+    /**
+     * Makes the interval present.
+     *
+     * @exception InconsistencyException
+     *            is thrown if the interval is absent
+     */
+    void setPresent();
+
+    /**
+     * Makes the interval absent.
+     *
+     * @exception InconsistencyException
+     *            is thrown if the interval is present
+     */
+    void setAbsent();
+
+    /**
+     * Asks that the closure is called whenever
+     * a bound or the presence of the interval changes.
+     *
+     * @param f the closure
+     */
+    void whenChange(Procedure f);
+
+    /**
+     * Asks that {@link Constraint#propagate()} is called whenever
+     * a bound or the presence of the interval changes.
+     * The absent intervals do not change anymore.
+     *
+     * @param c the constraint for which the {@link Constraint#propagate()}
+     *          method should be called on changes of the interval
+     */
+    void propagateOnChange(Constraint c);
+
+}
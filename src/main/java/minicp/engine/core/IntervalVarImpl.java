@@ -0,0 +1,289 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateStack;
+import minicp.util.Procedure;
+
+import java.security.InvalidParameterException;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Implementation of an interval variable
+ * with reversible bounds and presence.
+ * <p>
+ * Each modification of a bound maintains the bounds consistency
+ * of {@code start + length = end} before scheduling the listening constraints.
+ */
+public class IntervalVarImpl implements IntervalVar {
+
+    private static final int OPTIONAL = 0;
+    private static final int PRESENT = 1;
+    private static final int ABSENT = -1;
+
+    private final Solver cp;
+    private final StateInt startMin;
+    private final StateInt startMax;
+    private final StateInt endMin;
+    private final StateInt endMax;
+    private final StateInt lengthMin;
+    private final StateInt lengthMax;
+    private final StateInt status;
+    private final StateStack<Constraint> onChange;
+
+    /**
+     * Creates an interval variable.
+     *
+     * @param cp the solver in which the variable is created
+     * @param startMin the minimum start time
+     * @param endMax the maximum end time
+     * @param lengthMin the minimum length, non negative
+     * @param lengthMax the maximum length {@code lengthMax >= lengthMin}
+     * @param optional true if the interval can be absent, false if it is present
+     */
+    public IntervalVarImpl(Solver cp, int startMin, int endMax, int lengthMin, int lengthMax, boolean optional) {
+        if (lengthMin < 0 || lengthMin > lengthMax)
+            throw new InvalidParameterException("the lengths must be non negative with lengthMin <= lengthMax");
+        if ((long) startMin + lengthMin > endMax)
+            throw new InvalidParameterException("the interval does not fit in [startMin, endMax]");
+        this.cp = cp;
+        StateManager sm = cp.getStateManager();
+        this.startMin = sm.makeStateInt(startMin);
+        this.startMax = sm.makeStateInt(endMax - lengthMin);
+        this.endMin = sm.makeStateInt(startMin + lengthMin);
+        this.endMax = sm.makeStateInt(endMax);
+        this.lengthMin = sm.makeStateInt(lengthMin);
+        this.lengthMax = sm.makeStateInt((int) Math.min(lengthMax, (long) endMax - startMin));
+        this.status = sm.makeStateInt(optional ? OPTIONAL : PRESENT);
+        onChange = new StateStack<>(sm);
+    }
+
+    @Override
+    public Solver getSolver() {
+        return cp;
+    }
+
+    @Override
+    public int startMin() {
+        return startMin.value();
+    }
+
+    @Override
+    public int startMax() {
+        return startMax.value();
+    }
+
+    @Override
+    public int endMin() {
+        return endMin.value();
+    }
+
+    @Override
+    public int endMax() {
+        return endMax.value();
+    }
+
+    @Override
+    public int lengthMin() {
+        return lengthMin.value();
+    }
+
+    @Override
+    public int lengthMax() {
+        return lengthMax.value();
+    }
+
+    @Override
+    public boolean isPresent() {
+        return status.value() == PRESENT;
+    }
+
+    @Override
+    public boolean isAbsent() {
+        return status.value() == ABSENT;
+    }
+
+    @Override
+    public boolean isOptional() {
+        return status.value() == OPTIONAL;
+    }
+
+    @Override
+    public boolean isFixed() {
+        return isAbsent() || (isPresent() && startMin() == startMax() && endMin() == endMax());
+    }
+
+    @Override
+    public void setStartMin(int v) {
+        if (isAbsent() || v <= startMin())
+            return;
+        if (v > startMax())
+            setAbsent(); // throws an inconsistency if the interval is present
+        else
+            update(v, startMax(), endMin(), endMax(), lengthMin(), lengthMax());
+    }
+
+    @Override
+    public void setStartMax(int v) {
+        if (isAbsent() || v >= startMax())
+            return;
+        if (v < startMin())
+            setAbsent(); // throws an inconsistency if the interval is present
+        else
+            update(startMin(), v, endMin(), endMax(), lengthMin(), lengthMax());
+    }
+
+    @Override
+    public void setEndMin(int v) {
+        if (isAbsent() || v <= endMin())
+            return;
+        if (v > endMax())
+            setAbsent(); // throws an inconsistency if the interval is present
+        else
+            update(startMin(), startMax(), v, endMax(), lengthMin(), lengthMax());
+    }
+
+    @Override
+    public void setEndMax(int v) {
+        if (isAbsent() || v >= endMax())
+            return;
+        if (v < endMin())
+            setAbsent(); // throws an inconsistency if the interval is present
+        else
+            update(startMin(), startMax(), endMin(), v, lengthMin(), lengthMax());
+    }
+
+    @Override
+    public void setLengthMin(int v) {
+        if (isAbsent() || v <= lengthMin())
+            return;
+        if (v > lengthMax())
+            setAbsent(); // throws an inconsistency if the interval is present
+        else
+            update(startMin(), startMax(), endMin(), endMax(), v, lengthMax());
+    }
+
+    @Override
+    public void setLengthMax(int v) {
+        if (isAbsent() || v >= lengthMax())
+            return;
+        if (v < lengthMin())
+            setAbsent(); // throws an inconsistency if the interval is present
+        else
+            update(startMin(), startMax(), endMin(), endMax(), lengthMin(), v);
+    }
+
+    @Override
+    public void fixStart(int v) {
+        setStartMin(v);
+        setStartMax(v);
+    }
+
+    @Override
+    public void setPresent() {
+        if (isAbsent())
+            throw INCONSISTENCY;
+        if (isOptional()) {
+            status.setValue(PRESENT);
+            scheduleAll();
+        }
+    }
+
+    @Override
+    public void setAbsent() {
+        if (isPresent())
+            throw INCONSISTENCY;
+        if (isOptional()) {
+            status.setValue(ABSENT);
+            scheduleAll();
+        }
+    }
+
+    /**
+     * Tightens the bounds until {@code start + length = end} is bounds consistent,
+     * then stores them or makes the interval absent if they are inconsistent
+     */
+    private void update(int sMin, int sMax, int eMin, int eMax, int lMin, int lMax) {
+        boolean fixPoint = false;
+        while (!fixPoint) {
+            if (sMin > sMax || eMin > eMax || lMin > lMax) {
+                setAbsent(); // throws an inconsistency if the interval is present
+                return;
+            }
+            fixPoint = true;
+            if (eMin - lMax > sMin) {
+                sMin = eMin - lMax;
+                fixPoint = false;
+            }
+            if (eMax - lMin < sMax) {
+                sMax = eMax - lMin;
+                fixPoint = false;
+            }
+            if (sMin + lMin > eMin) {
+                eMin = sMin + lMin;
+                fixPoint = false;
+            }
+            if (sMax + lMax < eMax) {
+                eMax = sMax + lMax;
+                fixPoint = false;
+            }
+            if (eMin - sMax > lMin) {
+                lMin = eMin - sMax;
+                fixPoint = false;
+            }
+            if (eMax - sMin < lMax) {
+                lMax = eMax - sMin;
+                fixPoint = false;
+            }
+        }
+        startMin.setValue(sMin);
+        startMax.setValue(sMax);
+        endMin.setValue(eMin);
+        endMax.setValue(eMax);
+        lengthMin.setValue(lMin);
+        lengthMax.setValue(lMax);
+        scheduleAll();
+    }
+
+    @Override
+    public void whenChange(Procedure f) {
+        Constraint c = new ConstraintClosure(cp, f);
+        getSolver().post(c, false);
+        onChange.push(c);
+    }
+
+    @Override
+    public void propagateOnChange(Constraint c) {
+        onChange.push(c);
+    }
+
+    private void scheduleAll() {
+        for (int i = 0; i < onChange.size(); i++)
+            cp.schedule(onChange.get(i));
+    }
+
+    @Override
+    public String toString() {
+        if (isAbsent())
+            return "absent";
+        return (isOptional() ? "optional " : "") +
+                "[" + startMin() + ".." + startMax() + "] + [" + lengthMin() + ".." + lengthMax() +
+                "] = [" + endMin() + ".." + endMax() + "]";
+    }
+}
@@ -16,6 +16,7 @@
 package minicp.engine.core;
 
 import minicp.cp.Factory;
+import minicp.engine.constraints.Presolve;
 import minicp.search.Objective;
 import minicp.state.StateManager;
 import minicp.state.StateStack;
@@ -23,6 +24,7 @@ import minicp.util.exception.InconsistencyException;
 import minicp.util.Procedure;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -33,6 +35,10 @@ public class MiniCP implements Solver {
     private Queue<Constraint> propagationQueue = new ArrayDeque<>();
     private List<Procedure> fixPointListeners = new LinkedList<>();
 
+    // constraints recorded while in a batch scope, posted when the outermost scope ends
+    private final ArrayList<Constraint> batched = new ArrayList<>();
+    private int batchDepth = 0;
+
     private final StateManager sm;
 
     private final StateStack<IntVar> vars;
@@ -71,13 +77,17 @@ public class MiniCP implements Solver {
                 propagate(propagationQueue.remove());
             }
         } catch (InconsistencyException e) {
-            // empty the queue and unset the scheduled status
-            while (!propagationQueue.isEmpty())
-                propagationQueue.remove().setScheduled(false);
+            clearQueue();
             throw e;
         }
     }
 
+    private void clearQueue() {
+        // empty the queue and unset the scheduled status
+        while (!propagationQueue.isEmpty())
+            propagationQueue.remove().setScheduled(false);
+    }
+
     private void propagate(Constraint c) {
         c.setScheduled(false);
         if (c.isActive())
@@ -101,6 +111,10 @@ public class MiniCP implements Solver {
 
     @Override
     public void post(Constraint c, boolean enforceFixPoint) {
+        if (batchDepth > 0) {
+            batched.add(c);
+            return;
+        }
         c.post();
         if (enforceFixPoint) fixPoint();
     }
@@ -108,7 +122,73 @@ public class MiniCP implements Solver {
     @Override
     public void post(BoolVar b) {
         b.fix(true);
-        fixPoint();
+        if (batchDepth == 0) fixPoint();
+    }
+
+    @Override
+    public void postAll(Constraint... constraints) {
+        batch(() -> {
+            for (Constraint c : constraints)
+                post(c);
+        });
+    }
+
+    @Override
+    public void batch(Procedure body) {
+        batchDepth++;
+        try {
+            body.call();
+        } catch (RuntimeException e) {
+            if (--batchDepth == 0) {
+                batched.clear();
+                clearQueue();
+            }
+            throw e;
+        }
+        if (--batchDepth == 0)
+            postBatched();
+    }
+
+    private void postBatched() {
+        try {
+            ArrayList<Constraint> reducible = new ArrayList<>();
+            flushBatched(reducible);
+            fixPoint();
+            if (!reducible.isEmpty()) {
+                // presolve with the domains reduced by the other constraints
+                batched.addAll(Presolve.presolve(reducible));
+                flushBatched(null);
+                fixPoint();
+            }
+        } catch (RuntimeException e) {
+            batched.clear();
+            clearQueue();
+            throw e;
+        }
+    }
+
+    /**
+     * Posts the batched constraints without computing the fix-point,
+     * the constraints they post being appended to the batch and posted as well.
+     *
+     * @param reducible the list receiving the recorded constraints to presolve
+     *                  instead of posting them, null to post every constraint
+     */
+    private void flushBatched(ArrayList<Constraint> reducible) {
+        int nRecorded = batched.size();
+        batchDepth++;
+        try {
+            for (int i = 0; i < batched.size(); i++) {
+                Constraint c = batched.get(i);
+                if (reducible != null && i < nRecorded && Presolve.isReducible(c))
+                    reducible.add(c);
+                else
+                    c.post();
+            }
+            batched.clear();
+        } finally {
+            batchDepth--;
+        }
     }
 
     @Override
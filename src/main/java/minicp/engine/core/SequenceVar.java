@@ -0,0 +1,326 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.util.Procedure;
+import minicp.util.exception.InconsistencyException;
+
+/**
+ * Insertion sequence variable for routing and scheduling:
+ * a partial sequence of nodes, from a begin node to an end node,
+ * that grows by inserting nodes.
+ * <p>
+ * The nodes are {@code 0..nNode()-1}, the begin and end nodes
+ * being {@link #begin()} {@code = nNode()} and {@link #end()} {@code = nNode()+1}.
+ * Each node is either a member of the sequence,
+ * required (it must still be inserted), possible or excluded.
+ * The begin and end nodes are always members.
+ * <p>
+ * A node that is not yet a member has a set of insertions:
+ * the members after which it can still be inserted.
+ * When a node is inserted between a member {@code p} and its successor,
+ * it becomes an insertion of the nodes that could be inserted after {@code p}.
+ * A node without any insertion left is excluded.
+ * <p>
+ * Described in
+ * "Insertion Sequence Variables for Hybrid Routing and Scheduling Problems"
+ * C. Thomas, R. Kameugne, P. Schaus, CPAIOR 2020
+ */
+public interface SequenceVar {
+
+    /**
+     * Returns the solver in which this variable was created.
+     *
+     * @return the solver in which this variable was created
+     */
+    Solver getSolver();
+
+    /**
+     * Returns the number of nodes, begin and end excluded.
+     *
+     * @return the number of nodes that can be sequenced
+     */
+    int nNode();
+
+    /**
+     * Returns the begin node of the sequence.
+     *
+     * @return the node {@code nNode()}, first member of the sequence
+     */
+    int begin();
+
+    /**
+     * Returns the end node of the sequence.
+     *
+     * @return the node {@code nNode()+1}, last member of the sequence
+     */
+    int end();
+
+    /**
+     * Returns the member following a member node.
+     *
+     * @param node a member other than the end node
+     * @return the successor of the node in the sequence
+     */
+    int nextMember(int node);
+
+    /**
+     * Returns the member preceding a member node.
+     *
+     * @param node a member other than the begin node
+     * @return the predecessor of the node in the sequence
+     */
+    int predMember(int node);
+
+    /**
+     * Tests if a node is in the sequence.
+     *
+     * @param node a node
+     * @return true if the node is a member of the sequence
+     */
+    boolean isMember(int node);
+
+    /**
+     * Tests if a node is required but not yet in the sequence.
+     *
+     * @param node a node
+     * @return true if the node is required and not a member
+     */
+    boolean isRequired(int node);
+
+    /**
+     * Tests if a node can be in the sequence without being required.
+     *
+     * @param node a node
+     * @return true if the node is neither required, nor a member, nor excluded
+     */
+    boolean isPossible(int node);
+
+    /**
+     * Tests if a node is excluded from the sequence.
+     *
+     * @param node a node
+     * @return true if the node cannot be in the sequence
+     */
+    boolean isExcluded(int node);
+
+    /**
+     * Returns the number of members, begin and end excluded.
+     *
+     * @return the number of nodes in the sequence
+     */
+    int nMember();
+
+    /**
+     * Returns the number of required nodes not yet in the sequence.
+     *
+     * @return the number of nodes that are required and not members
+     */
+    int nRequired();
+
+    /**
+     * Returns the number of possible nodes.
+     *
+     * @return the number of nodes neither required, nor members, nor excluded
+     */
+    int nPossible();
+
+    /**
+     * Returns the number of excluded nodes.
+     *
+     * @return the number of nodes excluded from the sequence
+     */
+    int nExcluded();
+
+    /**
+     * Tests if the sequence is fixed.
+     *
+     * @return true if every node is a member or excluded
+     */
+    boolean isFixed();
+
+    /**
+     * Copies the members in the order of the sequence,
+     * begin and end included.
+     *
+     * @param dest an array large enough {@code dest.length >= nMember()+2}
+     * @return the number of members copied, {@code nMember()+2}
+     */
+    int fillOrder(int[] dest);
+
+    /**
+     * Copies the members, begin and end excluded, in an arbitrary order.
+     *
+     * @param dest an array large enough {@code dest.length >= nMember()}
+     * @return the number of members copied
+     */
+    int fillMember(int[] dest);
+
+    /**
+     * Copies the required nodes that are not members.
+     *
+     * @param dest an array large enough {@code dest.length >= nRequired()}
+     * @return the number of required nodes copied
+     */
+    int fillRequired(int[] dest);
+
+    /**
+     * Copies the possible nodes.
+     *
+     * @param dest an array large enough {@code dest.length >= nPossible()}
+     * @return the number of possible nodes copied
+     */
+    int fillPossible(int[] dest);
+
+    /**
+     * Copies the excluded nodes.
+     *
+     * @param dest an array large enough {@code dest.length >= nExcluded()}
+     * @return the number of excluded nodes copied
+     */
+    int fillExcluded(int[] dest);
+
+    /**
+     * Returns the number of insertions of a node.
+     *
+     * @param node a node that is required or possible
+     * @return the number of members after which the node can be inserted
+     */
+    int nInsertions(int node);
+
+    /**
+     * Copies the insertions of a node.
+     *
+     * @param node a node that is required or possible
+     * @param dest an array large enough {@code dest.length >= nInsertions(node)}
+     * @return the number of members after which the node can be inserted
+     */
+    int fillInsertions(int node, int[] dest);
+
+    /**
+     * Tests if a node can be inserted after a member.
+     *
+     * @param node a node
+     * @param pred a node
+     * @return true if the node is required or possible
+     *         and can be inserted after {@code pred}, that is a member
+     */
+    boolean canInsert(int node, int pred);
+
+    /**
+     * Inserts a node after a member,
+     * before the current successor of this member.
+     *
+     * @param node a node that can be inserted after {@code pred}
+     * @param pred a member of the sequence
+     * @exception InconsistencyException
+     *            is thrown if the node cannot be inserted after {@code pred}
+     */
+    void insert(int node, int pred);
+
+    /**
+     * Requires a node to be in the sequence.
+     *
+     * @param node a node
+     * @exception InconsistencyException
+     *            is thrown if the node is excluded
+     */
+    void require(int node);
+
+    /**
+     * Excludes a node from the sequence.
+     *
+     * @param node a node
+     * @exception InconsistencyException
+     *            is thrown if the node is a member or is required
+     */
+    void exclude(int node);
+
+    /**
+     * Removes a member from the insertions of a node.
+     * The node is excluded if it has no insertion left.
+     * It has no effect if the node is a member or is excluded.
+     *
+     * @param node a node
+     * @param pred a node
+     * @exception InconsistencyException
+     *            is thrown if the node is required and has no insertion left
+     */
+    void removeInsertion(int node, int pred);
+
+    /**
+     * Asks that the closure is called whenever a node is inserted.
+     *
+     * @param f the closure
+     */
+    void whenInsert(Procedure f);
+
+    /**
+     * Asks that the closure is called whenever a node is excluded.
+     *
+     * @param f the closure
+     */
+    void whenExclude(Procedure f);
+
+    /**
+     * Asks that the closure is called whenever a node is required.
+     *
+     * @param f the closure
+     */
+    void whenRequire(Procedure f);
+
+    /**
+     * Asks that the closure is called whenever the sequence changes:
+     * a node is inserted, excluded or required, or an insertion is removed.
+     *
+     * @param f the closure
+     */
+    void whenDomainChange(Procedure f);
+
+    /**
+     * Asks that {@link Constraint#propagate()} is called whenever a node is inserted.
+     *
+     * @param c the constraint for which the {@link Constraint#propagate()}
+     *          method should be called on insertions
+     */
+    void propagateOnInsert(Constraint c);
+
+    /**
+     * Asks that {@link Constraint#propagate()} is called whenever a node is excluded.
+     *
+     * @param c the constraint for which the {@link Constraint#propagate()}
+     *          method should be called on exclusions
+     */
+    void propagateOnExclude(Constraint c);
+
+    /**
+     * Asks that {@link Constraint#propagate()} is called whenever a node is required.
+     *
+     * @param c the constraint for which the {@link Constraint#propagate()}
+     *          method should be called when a node is required
+     */
+    void propagateOnRequire(Constraint c);
+
+    /**
+     * Asks that {@link Constraint#propagate()} is called whenever the sequence changes:
+     * a node is inserted, excluded or required, or an insertion is removed.
+     *
+     * @param c the constraint for which the {@link Constraint#propagate()}
+     *          method should be called on changes of the sequence
+     */
+    void propagateOnDomainChange(Constraint c);
+
+}
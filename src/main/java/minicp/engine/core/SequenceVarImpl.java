@@ -0,0 +1,444 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateStack;
+import minicp.util.Procedure;
+
+import java.security.InvalidParameterException;
+
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
+
+/**
+ * Implementation of an insertion sequence variable.
+ * <p>
+ * The members are a reversible doubly linked list from begin to end.
+ * The nodes are partitioned in a single array into
+ * the members, the nodes that can still be inserted and the excluded nodes,
+ * the two reversible boundaries of the regions being restored
+ * as the size of a sparse-set.
+ * A reversible flag tells which nodes that can be inserted are required.
+ * The insertions of each node are a reversible sparse-set over the nodes
+ * that may still precede it, members or not,
+ * along with the reversible number of members among them.
+ */
+public class SequenceVarImpl implements SequenceVar {
+
+    private final Solver cp;
+    private final int n;
+    private final int begin;
+    private final int end;
+
+    // nodes[0..memberEnd) members, [memberEnd..excludedStart) required or possible,
+    // [excludedStart..n) excluded
+    private final int[] nodes;
+    private final int[] position;
+    private final StateInt memberEnd;
+    private final StateInt excludedStart;
+    private final StateInt[] required; // 1 if the node is required, 0 otherwise
+    private final StateInt nRequired; // number of required nodes that are not members
+
+    private final StateInt[] succ;
+    private final StateInt[] pred;
+
+    // insertions of node i: insValues[i][0..insSize[i]), nodes 0..n-1 and begin
+    private final int[][] insValues;
+    private final int[][] insIndex;
+    private final StateInt[] insSize;
+    private final StateInt[] nInsertions; // number of members among the insertions
+    private final int[] buffer;
+
+    private final StateStack<Constraint> onInsert;
+    private final StateStack<Constraint> onExclude;
+    private final StateStack<Constraint> onRequire;
+    private final StateStack<Constraint> onDomain;
+
+    /**
+     * Creates a sequence variable with all the nodes possible.
+     *
+     * @param cp the solver in which the variable is created
+     * @param nNode the number of nodes, begin and end excluded
+     */
+    public SequenceVarImpl(Solver cp, int nNode) {
+        if (nNode < 0)
+            throw new InvalidParameterException("the number of nodes must be non negative");
+        this.cp = cp;
+        this.n = nNode;
+        this.begin = nNode;
+        this.end = nNode + 1;
+        StateManager sm = cp.getStateManager();
+        nodes = new int[n];
+        position = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = i;
+            position[i] = i;
+        }
+        memberEnd = sm.makeStateInt(0);
+        excludedStart = sm.makeStateInt(n);
+        required = new StateInt[n];
+        for (int i = 0; i < n; i++)
+            required[i] = sm.makeStateInt(0);
+        nRequired = sm.makeStateInt(0);
+        succ = new StateInt[n + 2];
+        pred = new StateInt[n + 2];
+        for (int i = 0; i < n + 2; i++) {
+            succ[i] = sm.makeStateInt(i);
+            pred[i] = sm.makeStateInt(i);
+        }
+        succ[begin].setValue(end);
+        pred[end].setValue(begin);
+        insValues = new int[n][n + 1];
+        insIndex = new int[n][n + 1];
+        insSize = new StateInt[n];
+        nInsertions = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= n; j++) {
+                insValues[i][j] = j;
+                insIndex[i][j] = j;
+            }
+            insSize[i] = sm.makeStateInt(n + 1);
+            nInsertions[i] = sm.makeStateInt(1); // the begin node
+        }
+        buffer = new int[n + 1];
+        onInsert = new StateStack<>(sm);
+        onExclude = new StateStack<>(sm);
+        onRequire = new StateStack<>(sm);
+        onDomain = new StateStack<>(sm);
+    }
+
+    @Override
+    public Solver getSolver() {
+        return cp;
+    }
+
+    @Override
+    public int nNode() {
+        return n;
+    }
+
+    @Override
+    public int begin() {
+        return begin;
+    }
+
+    @Override
+    public int end() {
+        return end;
+    }
+
+    @Override
+    public int nextMember(int node) {
+        return succ[node].value();
+    }
+
+    @Override
+    public int predMember(int node) {
+        return pred[node].value();
+    }
+
+    @Override
+    public boolean isMember(int node) {
+        return node >= n || position[node] < memberEnd.value();
+    }
+
+    @Override
+    public boolean isRequired(int node) {
+        return isInsertable(node) && required[node].value() == 1;
+    }
+
+    @Override
+    public boolean isPossible(int node) {
+        return isInsertable(node) && required[node].value() == 0;
+    }
+
+    @Override
+    public boolean isExcluded(int node) {
+        return node < n && position[node] >= excludedStart.value();
+    }
+
+    /**
+     * Tests if the node is required or possible
+     */
+    private boolean isInsertable(int node) {
+        if (node >= n)
+            return false;
+        int pos = position[node];
+        return pos >= memberEnd.value() && pos < excludedStart.value();
+    }
+
+    @Override
+    public int nMember() {
+        return memberEnd.value();
+    }
+
+    @Override
+    public int nRequired() {
+        return nRequired.value();
+    }
+
+    @Override
+    public int nPossible() {
+        return excludedStart.value() - memberEnd.value() - nRequired.value();
+    }
+
+    @Override
+    public int nExcluded() {
+        return n - excludedStart.value();
+    }
+
+    @Override
+    public boolean isFixed() {
+        return nMember() + nExcluded() == n;
+    }
+
+    @Override
+    public int fillOrder(int[] dest) {
+        int size = 0;
+        for (int node = begin; node != end; node = succ[node].value())
+            dest[size++] = node;
+        dest[size++] = end;
+        return size;
+    }
+
+    @Override
+    public int fillMember(int[] dest) {
+        return fill(0, memberEnd.value(), dest);
+    }
+
+    @Override
+    public int fillRequired(int[] dest) {
+        return fillInsertable(1, dest);
+    }
+
+    @Override
+    public int fillPossible(int[] dest) {
+        return fillInsertable(0, dest);
+    }
+
+    @Override
+    public int fillExcluded(int[] dest) {
+        return fill(excludedStart.value(), n, dest);
+    }
+
+    private int fill(int from, int to, int[] dest) {
+        System.arraycopy(nodes, from, dest, 0, to - from);
+        return to - from;
+    }
+
+    /**
+     * Copies the nodes that can be inserted with the given required flag
+     */
+    private int fillInsertable(int flag, int[] dest) {
+        int size = 0;
+        for (int k = memberEnd.value(); k < excludedStart.value(); k++) {
+            if (required[nodes[k]].value() == flag)
+                dest[size++] = nodes[k];
+        }
+        return size;
+    }
+
+    @Override
+    public int nInsertions(int node) {
+        return isInsertable(node) ? nInsertions[node].value() : 0;
+    }
+
+    @Override
+    public int fillInsertions(int node, int[] dest) {
+        if (!isInsertable(node))
+            return 0;
+        int size = 0;
+        int[] values = insValues[node];
+        for (int k = insSize[node].value() - 1; k >= 0; k--) {
+            if (isMember(values[k]))
+                dest[size++] = values[k];
+        }
+        return size;
+    }
+
+    @Override
+    public boolean canInsert(int node, int pred) {
+        return isInsertable(node) && isMember(pred) && pred != end && hasInsertion(node, pred);
+    }
+
+    private boolean hasInsertion(int node, int pred) {
+        return pred <= n && insIndex[node][pred] < insSize[node].value();
+    }
+
+    private void removeFromInsertions(int node, int pred) {
+        int[] values = insValues[node];
+        int[] index = insIndex[node];
+        int last = insSize[node].decrement();
+        int other = values[last];
+        int i = index[pred];
+        values[i] = other;
+        index[other] = i;
+        values[last] = pred;
+        index[pred] = last;
+    }
+
+    /**
+     * Moves a node to the given position of the partition
+     */
+    private void moveTo(int node, int pos) {
+        int other = nodes[pos];
+        int i = position[node];
+        nodes[i] = other;
+        position[other] = i;
+        nodes[pos] = node;
+        position[node] = pos;
+    }
+
+    @Override
+    public void insert(int node, int pred) {
+        if (isMember(node)) {
+            if (node >= n || this.pred[node].value() != pred)
+                throw INCONSISTENCY;
+            return;
+        }
+        if (!canInsert(node, pred))
+            throw INCONSISTENCY;
+        int next = succ[pred].value();
+        succ[pred].setValue(node);
+        this.pred[node].setValue(pred);
+        succ[node].setValue(next);
+        this.pred[next].setValue(node);
+        if (isRequired(node))
+            nRequired.decrement();
+        moveTo(node, memberEnd.increment() - 1);
+        // the node is inserted after the members after which pred could be inserted
+        for (int k = memberEnd.value(); k < excludedStart.value(); k++) {
+            int other = nodes[k];
+            if (hasInsertion(other, node)) {
+                if (hasInsertion(other, pred))
+                    nInsertions[other].increment();
+                else
+                    removeFromInsertions(other, node);
+            }
+        }
+        scheduleAll(onInsert);
+        scheduleAll(onDomain);
+    }
+
+    @Override
+    public void require(int node) {
+        if (isExcluded(node))
+            throw INCONSISTENCY;
+        if (isPossible(node)) {
+            required[node].setValue(1);
+            nRequired.increment();
+            scheduleAll(onRequire);
+            scheduleAll(onDomain);
+        }
+    }
+
+    @Override
+    public void exclude(int node) {
+        if (isMember(node) || isRequired(node))
+            throw INCONSISTENCY;
+        if (isPossible(node)) {
+            moveTo(node, excludedStart.decrement());
+            scheduleAll(onExclude);
+            scheduleAll(onDomain);
+        }
+    }
+
+    @Override
+    public void removeInsertion(int node, int pred) {
+        if (!isInsertable(node) || !hasInsertion(node, pred))
+            return;
+        removeFromInsertions(node, pred);
+        if (isMember(pred) && nInsertions[node].decrement() == 0)
+            exclude(node); // throws an inconsistency if the node is required
+        else
+            scheduleAll(onDomain);
+    }
+
+    @Override
+    public void whenInsert(Procedure f) {
+        onInsert.push(closure(f));
+    }
+
+    @Override
+    public void whenExclude(Procedure f) {
+        onExclude.push(closure(f));
+    }
+
+    @Override
+    public void whenRequire(Procedure f) {
+        onRequire.push(closure(f));
+    }
+
+    @Override
+    public void whenDomainChange(Procedure f) {
+        onDomain.push(closure(f));
+    }
+
+    private Constraint closure(Procedure f) {
+        Constraint c = new ConstraintClosure(cp, f);
+        getSolver().post(c, false);
+        return c;
+    }
+
+    @Override
+    public void propagateOnInsert(Constraint c) {
+        onInsert.push(c);
+    }
+
+    @Override
+    public void propagateOnExclude(Constraint c) {
+        onExclude.push(c);
+    }
+
+    @Override
+    public void propagateOnRequire(Constraint c) {
+        onRequire.push(c);
+    }
+
+    @Override
+    public void propagateOnDomainChange(Constraint c) {
+        onDomain.push(c);
+    }
+
+    private void scheduleAll(StateStack<Constraint> constraints) {
+        for (int i = 0; i < constraints.size(); i++)
+            cp.schedule(constraints.get(i));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("begin");
+        for (int node = succ[begin].value(); node != end; node = succ[node].value())
+            b.append(" -> ").append(node);
+        b.append(" -> end");
+        int size = fillRequired(buffer);
+        if (size > 0) {
+            b.append(" required {");
+            for (int k = 0; k < size; k++)
+                b.append(k == 0 ? "" : ",").append(buffer[k]);
+            b.append("}");
+        }
+        size = fillPossible(buffer);
+        if (size > 0) {
+            b.append(" possible {");
+            for (int k = 0; k < size; k++)
+                b.append(k == 0 ? "" : ",").append(buffer[k]);
+            b.append("}");
+        }
+        return b.toString();
+    }
+}
@@ -48,6 +48,41 @@ public interface Solver {
      */
     void post(Constraint c, boolean enforceFixPoint);
 
+    /**
+     * Posts all the constraints and computes a single fix-point
+     * once every constraint has been posted.
+     * This is equivalent to calling {@link #post(Constraint)} on each
+     * constraint inside a {@link #batch(Procedure)} scope.
+     * A {@link minicp.util.exception.InconsistencyException} is thrown
+     * if by posting the constraints it is proven that there is no solution.
+     *
+     * @param constraints the constraints to be posted
+     */
+    void postAll(Constraint... constraints);
+
+    /**
+     * Executes a model-building closure in batch mode.
+     * Inside the closure, the constraints given to
+     * {@link #post(Constraint)} (including the ones posted
+     * by the modeling methods of {@link minicp.cp.Factory})
+     * are recorded instead of being posted right away.
+     * When the outermost batch scope terminates, the recorded constraints
+     * are posted in the order they were given, followed by the ones
+     * they post themselves, and the fix-point is computed only once.
+     * The {@code NotEqual}, {@code Equal} and {@code Sum} constraints of the batch
+     * are first simplified by {@link minicp.engine.constraints.Presolve}
+     * and posted after the fix-point of the other ones
+     * (triggering a second fix-point).
+     * <p>The domains observed inside the closure are therefore
+     * not yet reduced by the constraints posted in the same scope.
+     * Batch scopes can be nested, only the outermost one triggers the propagation.
+     * A {@link minicp.util.exception.InconsistencyException} is thrown
+     * if by posting the constraints it is proven that there is no solution.
+     *
+     * @param body the closure posting the constraints of the model
+     */
+    void batch(Procedure body);
+
     /**
      * Computes the fix-point with all the scheduled constraints.
      */
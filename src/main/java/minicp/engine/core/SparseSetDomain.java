@@ -36,6 +36,11 @@ public class SparseSetDomain implements IntDomain {
         return domain.fillArray(dest);
     }
 
+    @Override
+    public int fillDeltaArray(int oldSize, int[] dest) {
+        return domain.fillDeltaArray(oldSize, dest);
+    }
+
     @Override
     public int min() {
         return domain.min();
@@ -2,7 +2,6 @@ package minicp.examples;
 
 import minicp.cp.BranchingScheme;
 import minicp.cp.Factory;
-import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
@@ -39,26 +38,8 @@ public class BinPacking {
         IntVar []  x = makeIntVarArray(cp, nItems,nBins);
         IntVar []  l = makeIntVarArray(cp, nBins,capa+1);
 
-
-        BoolVar [][] inBin = new BoolVar[nBins][nItems]; // inBin[j][i] = 1 if item i is placed in bin j
-
-        for (int j = 0; j < nBins; j++) {
-            for (int i = 0; i < nItems; i++) {
-                inBin[j][i] = isEqual(x[i], j);
-            }
-        }
-
-        // bin packing constraint
-        for (int j = 0; j < nBins; j++) {
-            IntVar[] wj = new IntVar[nItems];
-            for (int i = 0; i < nItems; i++) {
-                wj[i] = mul(inBin[j][i], items[i]);
-            }
-            cp.post(sum(wj, l[j]));
-        }
-
-        // redundant constraint : sum of bin load = sum of item weights
-        cp.post(sum(l, IntStream.of(items).sum()));
+        // bin packing constraint, the sum of the loads being the sum of the item weights
+        cp.post(binPacking(x, items, l));
 
         // break symmetries imposing increasing loads
         for (int j = 0; j < nBins - 1; j++) {
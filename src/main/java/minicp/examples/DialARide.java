@@ -1,28 +1,147 @@
 package minicp.examples;
 
+import minicp.cp.Factory;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.Objective;
+import minicp.search.SearchStatistics;
 import minicp.util.io.InputReader;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
 
 public class DialARide {
 
 
+    /**
+     * Minimizes the total ride time of the vehicles serving the dial-a-ride requests.
+     * Request i is picked up at pickupRideStops[i] and dropped at dropRideStops[i].
+     * Each vehicle carries at most vehicleCapacity persons at any time,
+     * a person remains at most maxRideTime in a vehicle
+     * and a vehicle drives at most maxRouteDuration, from the depot back to it.
+     * Each ride stop must be reached before its window end.
+     */
     public static DialARideSolution solve(int nVehicles, int maxRouteDuration, int vehicleCapacity,
                                           int maxRideTime, ArrayList<RideStop> pickupRideStops, ArrayList<RideStop> dropRideStops,
                                           RideStop depot) {
-        // TODO
-        // Given a series of dial-a-ride request made by single persons (for request i, pickupRideStops[i] gives the spot
-        // where the person wants to be taken, and dropRideStops[i] the spot where (s)he would like to be dropped),
-        // minimize the total ride time of all the vehicles.
-        // You have nVehicles vehicles, each of them can take at most vehicleCapacity person inside at any time.
-        // The maximum time a single person can remain in the vehicle is maxRideTime, and the maximum time a single
-        // vehicle can be on the road for a single day is maxRouteDuration.
-        // all vehicles start at the depot, and end their day at the depot.
-        // Each ride stop must be reached before a given time (window_end) by a vehicle.
-        // use distance() to compute the distance between two points.
-        return null;
+        return solve(nVehicles, maxRouteDuration, vehicleCapacity, maxRideTime, pickupRideStops, dropRideStops, depot, 10000);
+    }
+
+    /**
+     * Solves the problem with a large neighborhood search on an insertion sequence model:
+     * the route of each vehicle is a sequence variable from a copy of the depot to another one.
+     * The nodes of the sequences are the pickups 0..r-1 followed by the drops r..2r-1.
+     * As the vehicles never wait, the time at which a node is reached is the distance
+     * driven so far, the transition times along the fixed sequences being exact.
+     *
+     * @param maxRunTime maximum run time in milliseconds
+     * @return best solution found within the time limit, null if none was found
+     */
+    public static DialARideSolution solve(int nVehicles, int maxRouteDuration, int vehicleCapacity,
+                                          int maxRideTime, ArrayList<RideStop> pickupRideStops, ArrayList<RideStop> dropRideStops,
+                                          RideStop depot, long maxRunTime) {
+        long startTime = System.currentTimeMillis();
+        int nRequests = pickupRideStops.size();
+        int n = 2 * nRequests;
+        RideStop[] stops = new RideStop[n + 2];
+        for (int i = 0; i < nRequests; i++) {
+            stops[i] = pickupRideStops.get(i);
+            stops[nRequests + i] = dropRideStops.get(i);
+        }
+        stops[n] = depot;
+        stops[n + 1] = depot;
+        int[][] dist = new int[n + 2][n + 2];
+        for (int i = 0; i < n + 2; i++)
+            for (int j = 0; j < n + 2; j++)
+                dist[i][j] = distance(stops[i], stops[j]);
+
+        int[] noWait = new int[n + 2]; // the vehicles leave the depot at time 0 and never wait
+        Solver cp = makeSolver(false);
+        IntVar[] nodeTime = new IntVar[n];
+        for (int i = 0; i < n; i++)
+            nodeTime[i] = makeIntVar(cp, 0, Math.min(stops[i].window_end, maxRouteDuration));
+        IntVar[] vehicle = makeIntVarArray(cp, n, nVehicles);
+        SequenceVar[] routes = new SequenceVar[nVehicles];
+        IntVar[] routeLength = new IntVar[nVehicles];
+        int[] pickups = new int[nRequests];
+        int[] drops = new int[nRequests];
+        int[] ones = new int[nRequests];
+        for (int i = 0; i < nRequests; i++) {
+            pickups[i] = i;
+            drops[i] = nRequests + i;
+            ones[i] = 1;
+        }
+        for (int v = 0; v < nVehicles; v++) {
+            routes[v] = makeSequenceVar(cp, n);
+            IntVar[] time = Arrays.copyOf(nodeTime, n + 2);
+            time[n] = makeIntVar(cp, 0, 0);
+            time[n + 1] = makeIntVar(cp, 0, maxRouteDuration);
+            routeLength[v] = makeIntVar(cp, 0, maxRouteDuration);
+            cp.post(transitionTimes(routes[v], time, dist, noWait));
+            cp.post(Factory.distance(routes[v], dist, routeLength[v]));
+            for (int i = 0; i < nRequests; i++)
+                cp.post(precedence(routes[v], pickups[i], drops[i]));
+            cp.post(cumulative(routes[v], pickups, drops, ones, vehicleCapacity));
+        }
+        cp.post(assignment(routes, vehicle));
+        for (int i = 0; i < nRequests; i++) {
+            cp.post(equal(vehicle[pickups[i]], vehicle[drops[i]]));
+            cp.post(lessOrEqual(nodeTime[drops[i]], plus(nodeTime[pickups[i]], maxRideTime)));
+        }
+        IntVar totalLength = sum(routeLength);
+        Objective objective = cp.minimize(totalLength);
+
+        DFSearch dfs = makeDfs(cp, insertion(dist, routes));
+        int[][] best = new int[nVehicles][];
+        int[] order = new int[n + 2];
+        AtomicBoolean found = new AtomicBoolean(false);
+        dfs.onSolution(() -> {
+            for (int v = 0; v < nVehicles; v++) {
+                int size = routes[v].fillOrder(order);
+                best[v] = Arrays.copyOfRange(order, 1, size - 1);
+            }
+            found.set(true);
+        });
+        Predicate<SearchStatistics> timeOut = stats -> System.currentTimeMillis() - startTime > maxRunTime;
+        dfs.optimize(objective, stats -> stats.numberOfSolutions() == 1 || timeOut.test(stats));
+
+        // relaxes a random subset of the nodes and reinserts the other ones in their routes
+        int failureLimit = 100;
+        int percentage = 80;
+        Random rand = new Random(42);
+        while (found.get() && !timeOut.test(null)) {
+            dfs.optimizeSubjectTo(objective,
+                    stats -> stats.numberOfFailures() >= failureLimit || timeOut.test(stats),
+                    () -> cp.batch(() -> {
+                        for (int v = 0; v < nVehicles; v++) {
+                            int pred = routes[v].begin();
+                            for (int node : best[v]) {
+                                if (rand.nextInt(100) < percentage) {
+                                    routes[v].insert(node, pred);
+                                    pred = node;
+                                }
+                            }
+                        }
+                    }));
+        }
+        if (!found.get())
+            return null;
+        DialARideSolution solution = new DialARideSolution(nVehicles, pickupRideStops, dropRideStops, depot,
+                vehicleCapacity, maxRideTime, maxRouteDuration);
+        for (int v = 0; v < nVehicles; v++)
+            for (int node : best[v])
+                solution.addStop(v, node % nRequests, node < nRequests);
+        return solution;
     }
 
     /**
@@ -1,15 +1,32 @@
 package minicp.examples;
 
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.Objective;
+import minicp.search.SearchStatistics;
+import minicp.util.Procedure;
 import minicp.util.io.InputReader;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.EMPTY;
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static minicp.util.exception.InconsistencyException.INCONSISTENCY;
 
 public class EBRP {
 
     public static final int DEPOT = 0; // the depot is always located at index 0
 
     /**
-     * TODO
      * given an instance {@link EBRPInstance} to solve (a number of  nodes, distance between them and their time windows {@link TimeWindow}),
      * give the order of visit of each nodes minimizing the traveled distance of the Bell
      * use {@link EBRPInstance#distances} or {@link EBRPInstance#distance(int, int)} to compute distances
@@ -20,7 +37,126 @@ public class EBRP {
      * @return valid solution minimizing the traveled distance of the Bell
      */
     public static EBRPSolution solve(EBRPInstance instance) {
-        return null;
+        return solve(instance, 10000);
+    }
+
+    /**
+     * solve an instance with a large neighborhood search on an insertion sequence model:
+     * the route is a sequence variable from a copy of the depot to another one,
+     * the time windows being enforced by the transition times along the sequence
+     * @param instance instance to solve
+     * @param maxRunTime maximum run time in milliseconds
+     * @return best solution found within the time limit, null if none was found
+     */
+    public static EBRPSolution solve(EBRPInstance instance, long maxRunTime) {
+        long startTime = System.currentTimeMillis();
+        Solver cp = makeSolver(false);
+        // node i of the sequence is the node i+1 of the instance, begin and end are the depot
+        int n = instance.nNodes - 1;
+        int[][] dist = new int[n + 2][n + 2];
+        for (int i = 0; i < n + 2; i++)
+            for (int j = 0; j < n + 2; j++)
+                dist[i][j] = instance.distance(city(i, n), city(j, n));
+        IntVar[] time = new IntVar[n + 2];
+        int[] earliest = new int[n + 2];
+        for (int i = 0; i < n + 2; i++) {
+            TimeWindow tw = instance.timeWindows[city(i, n)];
+            earliest[i] = tw.getEarliest();
+            time[i] = makeIntVar(cp, tw.getEarliest(), i == n ? tw.getEarliest() : tw.getLatest());
+        }
+        SequenceVar route = makeSequenceVar(cp, n);
+        for (int i = 0; i < n; i++)
+            route.require(i);
+        int maxDist = Arrays.stream(dist).mapToInt(row -> Arrays.stream(row).max().getAsInt()).sum();
+        IntVar totalDist = makeIntVar(cp, 0, maxDist);
+        // the Bell only waits for the beginning of the time windows
+        cp.post(transitionTimes(route, time, dist, earliest));
+        cp.post(distance(route, dist, totalDist));
+        Objective objective = cp.minimize(totalDist);
+
+        DFSearch dfs = makeDfs(cp, insertion(dist, route));
+        DFSearch appendDfs = makeDfs(cp, appendByDeadline(route, time));
+        int[] order = new int[n + 2];
+        int[] best = new int[n];
+        AtomicBoolean found = new AtomicBoolean(false);
+        Procedure onSolution = () -> {
+            route.fillOrder(order);
+            System.arraycopy(order, 1, best, 0, n);
+            found.set(true);
+        };
+        dfs.onSolution(onSolution);
+        appendDfs.onSolution(onSolution);
+        Predicate<SearchStatistics> timeOut = stats -> System.currentTimeMillis() - startTime > maxRunTime;
+
+        // first solution: restarts alternating both searches with an increasing failure limit
+        for (int limit = 100; !found.get() && !timeOut.test(null); limit *= 2) {
+            int maxFailures = limit;
+            for (DFSearch search : new DFSearch[]{appendDfs, dfs}) {
+                SearchStatistics stats = search.optimize(objective, s -> s.numberOfSolutions() == 1
+                        || s.numberOfFailures() > maxFailures || timeOut.test(s));
+                if (found.get() || stats.isCompleted())
+                    break;
+            }
+        }
+
+        // relaxes a random subset of the nodes and reinserts the other ones in their order
+        int failureLimit = 100;
+        int percentage = 80;
+        Random rand = new Random(42);
+        while (found.get() && !timeOut.test(null)) {
+            dfs.optimizeSubjectTo(objective,
+                    stats -> stats.numberOfFailures() >= failureLimit || timeOut.test(stats),
+                    () -> cp.batch(() -> {
+                        int pred = route.begin();
+                        for (int node : best) {
+                            if (rand.nextInt(100) < percentage) {
+                                route.insert(node, pred);
+                                pred = node;
+                            }
+                        }
+                    }));
+        }
+        if (!found.get())
+            return null;
+        EBRPSolution solution = new EBRPSolution(instance);
+        for (int node : best)
+            solution.addVisit(city(node, n));
+        return solution;
+    }
+
+    /**
+     * Extends the route after its last member, trying the nodes by increasing deadline.
+     * Fails as soon as a node can no longer be visited after the last member.
+     */
+    private static Supplier<Procedure[]> appendByDeadline(SequenceVar route, IntVar[] time) {
+        int n = route.nNode();
+        Integer[] nodes = new Integer[n];
+        for (int i = 0; i < n; i++)
+            nodes[i] = i;
+        return () -> {
+            if (route.isFixed())
+                return EMPTY;
+            int last = route.predMember(route.end());
+            for (int node : nodes)
+                if (!route.isMember(node) && !route.canInsert(node, last))
+                    throw INCONSISTENCY;
+            Arrays.sort(nodes, Comparator.comparingInt(i -> time[i].max()));
+            return Arrays.stream(nodes)
+                    .filter(node -> !route.isMember(node))
+                    .map(node -> (Procedure) () -> {
+                        route.insert(node, last);
+                        route.getSolver().fixPoint();
+                    })
+                    .toArray(Procedure[]::new);
+        };
+    }
+
+    /**
+     * Returns the node of the instance corresponding to a node of the sequence,
+     * the begin and end nodes being the depot
+     */
+    private static int city(int node, int n) {
+        return node < n ? node + 1 : DEPOT;
     }
 
 
@@ -282,10 +418,10 @@ public class EBRP {
     public static void main(String[] args) {
         // Reading the data
 
-        //TODO change file to train the various instances.
         // EBRPInstance instance = EBRPInstance.fromFile(args[0]);
         EBRPInstance instance = EBRPInstance.fromFile("data/ebrp/train1");
         EBRPSolution sol = solve(instance);
+        System.out.println(sol);
     }
 
 }
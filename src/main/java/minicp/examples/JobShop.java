@@ -81,13 +81,17 @@ public class JobShop extends OptimizationProblem {
             IntVar[] start_m = instance.collect(start, m);
             int[] dur_m = instance.collect(instance.duration, m);
 
-            // TODO 1: for each pair of activities a1, a2 on machine m post a DisjunctiveBinary
-            //       and add the constraint to the disjunctiveBinaries collection
+            // one binary constraint for each pair of activities, used by the search
+            for (int i = 0; i < start_m.length; i++) {
+                for (int j = i + 1; j < start_m.length; j++) {
+                    DisjunctiveBinary binary = new DisjunctiveBinary(start_m[i], dur_m[i], start_m[j], dur_m[j]);
+                    cp.post(binary);
+                    disjunctiveBinaries.add(binary);
+                }
+            }
 
             // Global constraint (the ones using theta-trees)
-            // By default, until you have implemented the advanced
-            // filtering, it only posts a cumulative with capacity 1
-            // cp.post(new Disjunctive(start_m, dur_m));
+            cp.post(new Disjunctive(start_m, dur_m));
         }
 
 
@@ -100,18 +104,25 @@ public class JobShop extends OptimizationProblem {
         objective = cp.minimize(makespan);
 
 
-        // Search to fix the start time of all activities
-
-        Supplier<Procedure[]> branchStart = firstFail(flatten(start));
-        dfs = makeDfs(cp, branchStart);
-
-
-        // TODO 2: Replace the search by fixing the precedence relation of
-        //  each binary constraint, then fix the makespan variable to its minimum value
+        // Search: fix the precedence of the binary constraint with the smallest slack,
+        // trying first the order leaving the largest slack,
+        // then fix the makespan variable to its minimum value
+        DisjunctiveBinary[] binaries = disjunctiveBinaries.toArray(new DisjunctiveBinary[0]);
+        Supplier<Procedure[]> branchPrecedences = () -> {
+            DisjunctiveBinary binary = selectMin(binaries, b -> !b.isFixed(), DisjunctiveBinary::slack);
+            if (binary == null)
+                return EMPTY;
+            if (binary.slackIfBefore() >= binary.slackIfAfter())
+                return branch(() -> cp.post(equal(binary.before(), 1)),
+                        () -> cp.post(equal(binary.after(), 1)));
+            else
+                return branch(() -> cp.post(equal(binary.after(), 1)),
+                        () -> cp.post(equal(binary.before(), 1)));
+        };
         Supplier<Procedure[]> fixMakespan = () -> makespan.isFixed() ? EMPTY : new Procedure[] {() -> cp.post(equal(makespan,makespan.min()))};
-        //  HINT: use a and combinator makeDfs(cp, and(branchPrecedences, fixMakespan));
-        //        where branchPrecedences is in charge of fixing the precedences
-
+        @SuppressWarnings("unchecked") // generic array of the varargs of and
+        Supplier<Procedure[]> search = and(branchPrecedences, fixMakespan);
+        dfs = makeDfs(cp, search);
     }
 
     public static void main(String[] args) {
@@ -36,15 +36,16 @@ public class NQueensVisuTree {
         IntVar[] q = Factory.makeIntVarArray(cp, n, n);
 
 
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                cp.post(Factory.notEqual(q[i], q[j]));
-                cp.post(Factory.notEqual(q[i], q[j], j - i));
-                cp.post(Factory.notEqual(q[i], q[j], i - j));
-
-
+        // the presolve of the batch merges the 3n(n-1)/2 binary constraints into 3 all-different
+        cp.batch(() -> {
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    cp.post(Factory.notEqual(q[i], q[j]));
+                    cp.post(Factory.notEqual(q[i], q[j], j - i));
+                    cp.post(Factory.notEqual(q[i], q[j], i - j));
+                }
             }
-        }
+        });
 
         DFSearch search = Factory.makeDfs(cp, () -> {
             int idx = -1; // index of the first variable that is not fixed
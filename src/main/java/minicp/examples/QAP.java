@@ -58,7 +58,7 @@ public class QAP extends OptimizationProblem {
     public final int[][] weights;
     public final int[][] distances;
     public IntVar[] x;
-    public IntVar[] weightedDistances;
+    public IntVar[] pairDistances; // distance between the locations of each pair of facilities
     public IntVar totCost;
     String instance;
 
@@ -94,14 +94,16 @@ public class QAP extends OptimizationProblem {
         cp.post(allDifferent(x));
 
         // build the objective function
-        weightedDistances = new IntVar[n * n];
+        pairDistances = new IntVar[n * n];
+        int[] w = new int[n * n];
         for (int k = 0, i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                weightedDistances[k] = mul(element(distances, x[i], x[j]), weights[i][j]);
+                pairDistances[k] = element(distances, x[i], x[j]);
+                w[k] = weights[i][j];
                 k++;
             }
         }
-        totCost = sum(weightedDistances);
+        totCost = scalarProduct(w, pairDistances);
         objective = cp.minimize(totCost);
 
         Pair[] pairs = IntStream.range(0, n)
@@ -18,13 +18,14 @@ package minicp.examples;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
+import minicp.search.NogoodRecorder;
 import minicp.search.Objective;
+import minicp.util.exception.InconsistencyException;
 import minicp.util.io.InputReader;
 
 import java.util.Random;
 import java.util.stream.IntStream;
 
-import static minicp.cp.BranchingScheme.firstFail;
 import static minicp.cp.Factory.*;
 
 /**
@@ -66,24 +67,29 @@ public class QAPLNS {
 
         Solver cp = makeSolver();
         IntVar[] x = makeIntVarArray(cp, n, n);
+        IntVar[] dist = new IntVar[n * n];
+        int[] weights = new int[n * n];
 
-        cp.post(allDifferent(x));
+        // post the n^2 element constraints with a single fix-point
+        cp.batch(() -> {
+            cp.post(allDifferent(x));
 
-
-        // build the objective function
-        IntVar[] weightedDist = new IntVar[n * n];
-        int ind = 0;
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                IntVar distXiXj = element(d, x[i], x[j]);
-                weightedDist[ind] = mul(distXiXj, w[i][j]);
-                ind++;
+            // build the objective function
+            int ind = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    dist[ind] = element(d, x[i], x[j]);
+                    weights[ind] = w[i][j];
+                    ind++;
+                }
             }
-        }
-        IntVar totCost = sum(weightedDist);
+        });
+        IntVar totCost = scalarProduct(weights, dist);
         Objective obj = cp.minimize(totCost);
 
-        DFSearch dfs = makeDfs(cp, firstFail(x));
+        // the failed subtrees of each restart are recorded as nogoods
+        NogoodRecorder recorder = new NogoodRecorder(cp, 100000);
+        DFSearch dfs = makeDfs(cp, recorder.firstFail(x));
 
 
         // --- Large Neighborhood Search ---
@@ -117,11 +123,17 @@ public class QAPLNS {
                         for (int j = 0; j < n; j++) {
                             if (rand.nextInt(100) < 75) {
                                 // after the solveSubjectTo those constraints are removed
-                                cp.post(equal(x[j], xBest[j]));
+                                recorder.assume(x[j], xBest[j]);
                             }
                         }
                     }
             );
+            try {
+                recorder.recordNogoods();
+            } catch (InconsistencyException e) {
+                System.out.println("optimality proven");
+                break;
+            }
         }
     }
 }
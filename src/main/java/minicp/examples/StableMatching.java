@@ -15,6 +15,7 @@
 
 package minicp.examples;
 
+import minicp.engine.constraints.Clauses;
 import minicp.engine.constraints.Element1D;
 import minicp.engine.constraints.Element1DVar;
 import minicp.engine.core.BoolVar;
@@ -97,6 +98,8 @@ public class StableMatching extends SatisfactionProblem {
             
         }
 
+        // the stability implications are stored in a single clause database
+        Clauses clauses = new Clauses(cp);
         for (int s = 0; s < n; s++) {
             for (int c = 0; c < n; c++) {
                 // if student s prefers company c over the chosen company, then the opposite is not true: c prefers their chosen student over s
@@ -104,7 +107,7 @@ public class StableMatching extends SatisfactionProblem {
 
                 BoolVar sPrefersC = isLarger(companyPref[s], rankCompanies[s][c]);
                 BoolVar cDoesnot = isLess(studentPref[c], rankStudents[c][s]);
-                cp.post(implies(sPrefersC, cDoesnot));
+                clauses.addImplication(sPrefersC, cDoesnot);
 
                 // if company c prefers student s over their chosen student, then the opposite is not true: s prefers the chosen company over c
                 // (studentPref[c] > rankStudents[c][s]) => (companyPref[s] < rankCompanies[s][c])
@@ -113,6 +116,7 @@ public class StableMatching extends SatisfactionProblem {
 
             }
         }
+        cp.post(clauses);
 
         dfs = makeDfs(cp, and(firstFail(company), firstFail(student)));
         // TODO add the constraints to the model and remove the NotImplementedException
@@ -132,17 +136,6 @@ public class StableMatching extends SatisfactionProblem {
         return "StableMatching(" + instance + ')';
     }
 
-    /**
-     * Model the reified logical implication constraint
-     * @param b1 left-hand side of the implication
-     * @param b2 right-hand side of the implication
-     * @return a boolean variable that is true if and only if
-     *         the relation "b1 implies b2" is true, and false otherwise.
-     */
-    private static BoolVar implies(BoolVar b1, BoolVar b2) {
-        return isLargerOrEqual(sum(not(b1), b2), 1);
-    }
-
     public static void main(String[] args) {
 
         // also use the instances at data/stable_matching/
@@ -107,9 +107,11 @@ public class Steel extends OptimizationProblem {
 
             inSlab = new BoolVar[nSlab][nOrder]; // inSlab[j][i] = 1 if order i is placed in slab j
 
-            for (int j = 0; j < nSlab; j++) {
-                for (int i = 0; i < nOrder; i++) {
-                    inSlab[j][i] = isEqual(x[i], j);
+            // one channeling constraint per order instead of nSlab reified equalities
+            for (int i = 0; i < nOrder; i++) {
+                BoolVar[] indicators = indicators(x[i]);
+                for (int j = 0; j < nSlab; j++) {
+                    inSlab[j][i] = indicators[j];
                 }
             }
 
@@ -133,13 +135,7 @@ public class Steel extends OptimizationProblem {
             }
 
             // bin packing constraint
-            for (int j = 0; j < nSlab; j++) {
-                IntVar[] wj = new IntVar[nSlab];
-                for (int i = 0; i < nOrder; i++) {
-                    wj[i] = mul(inSlab[j][i], w[i]);
-                }
-                cp.post(sum(wj, l[j]));
-            }
+            cp.post(binPacking(x, w, l));
 
             // TODO 4: add the redundant constraint that the sum of the loads is equal to the sum of elements
             
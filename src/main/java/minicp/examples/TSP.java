@@ -15,8 +15,6 @@
 
 package minicp.examples;
 
-import minicp.engine.constraints.Circuit;
-import minicp.engine.constraints.Element1D;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.util.io.InputReader;
@@ -24,8 +22,8 @@ import minicp.search.SearchStatistics;
 
 import static minicp.cp.BranchingScheme.*;
 import static minicp.cp.Factory.*;
-import minicp.util.exception.NotImplementedException;
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
@@ -53,31 +51,38 @@ public class TSP extends OptimizationProblem {
     public void buildModel() {
         Solver cp = makeSolver(false);
         succ = makeIntVarArray(cp, n, n);
-        IntVar[] distSucc = makeIntVarArray(cp, n, 1000);
-        cp.post(new Circuit(succ));
-        for (int i = 0; i < n; i++) {
-            cp.post(new Element1D(distanceMatrix[i], succ[i], distSucc[i]));
-        }
-
-        totalDist = sum(distSucc);
+        int maxDist = Arrays.stream(distanceMatrix).mapToInt(row -> Arrays.stream(row).max().getAsInt()).sum();
+        totalDist = makeIntVar(cp, 0, maxDist);
+        // circuit whose total distance is bounded by the Held-Karp relaxation
+        cp.post(weightedCircuit(succ, distanceMatrix, totalDist));
         objective = cp.minimize(totalDist);
 
-        // simple first-fail strategy
+        // first-fail, trying the closest successor first
         dfs = makeDfs(cp, () -> {
-            IntVar xs = selectMin(succ,
-                  xi -> xi.size() > 1,
-                  xi -> xi.size());
-            if (xs == null)
-                return EMPTY;
-            else {
-                // TODO modify the value selector to get a better solution
-                int v = xs.min();
-                return branch(() -> xs.getSolver().post(equal(xs, v)),
-                        () -> xs.getSolver().post(notEqual(xs, v)));
+            int i = -1;
+            for (int k = 0; k < n; k++) {
+                if (succ[k].size() > 1 && (i < 0 || succ[k].size() < succ[i].size()))
+                    i = k;
             }
+            if (i < 0)
+                return EMPTY;
+            IntVar xs = succ[i];
+            int v = closestSuccessor(i);
+            return branch(() -> cp.post(equal(xs, v)),
+                    () -> cp.post(notEqual(xs, v)));
         });
-        // TODO implement the search and remove the NotImplementedException
-         throw new NotImplementedException("TSP");
+    }
+
+    /**
+     * Returns the closest city in the domain of the successor of city i
+     */
+    private int closestSuccessor(int i) {
+        int best = succ[i].min();
+        for (int j = succ[i].min() + 1; j <= succ[i].max(); j++) {
+            if (succ[i].contains(j) && distanceMatrix[i][j] < distanceMatrix[i][best])
+                best = j;
+        }
+        return best;
     }
 
     /**
@@ -100,28 +105,26 @@ public class TSP extends OptimizationProblem {
         dfs.optimize(objective, statistics -> statistics.numberOfSolutions() == 1);
         // first solution found and registered, now the LNS can start
 
-        // TODO modify the percentage and/or failureLimit to find better solutions
-        //  You should try to interpret what they will do
-        //  For instance, about the percentage, setting 5% will do nothing: you almost start from scratch
-        //  But setting 95% will not help much as there are not a lot of things decide: almost everything is fixed!
-        //  Try to find the sweet spot for this problem
-         int failureLimit = 1000;
-         int percentage = 5;
+        // keeps percentage% of the successors of the best solution
+        // and explores the remaining ones with at most failureLimit failures
+        int failureLimit = 100;
+        int percentage = 88;
         Random rand = new java.util.Random(42);
         Solver cp = totalDist.getSolver();
 
         while (!stopLNS.test(bestSol.get())) {
             dfs.optimizeSubjectTo(objective,
                     statistics -> statistics.numberOfFailures() >= failureLimit ||  stopLNS.test(bestSol.get()),
-                    () -> {
+                    () -> cp.batch(() -> {
                         // Assign the fragment percentage% of the variables randomly chosen
+                        // with a single fix-point once they are all fixed
                         for (int j = 0; j < n; j++) {
                             if (rand.nextInt(100) < percentage) {
                                 // after the solveSubjectTo those constraints are removed
                                 cp.post(equal(succ[j], xBest[j]));
                             }
                         }
-                    }
+                    })
             );
         }
     }
@@ -1,11 +1,9 @@
 package minicp.examples;
 
-import minicp.engine.constraints.Circuit;
 import minicp.engine.constraints.Element1D;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.SearchStatistics;
-import minicp.util.exception.NotImplementedException;
 import minicp.util.io.InputReader;
 
 import static minicp.cp.BranchingScheme.*;
@@ -34,26 +32,22 @@ public class VRP extends OptimizationProblem{
 
     @Override
     public void buildModel() {
-        // TODO 1: there are now nVehicle in the problem. The depot is the city at index 0
-        //  and every other city must be visited exactly once by exactly one of the vehicles
-        //  put in n the correct number of nodes within the problem
-         n = initalNodes;
+        // the depot 0 is duplicated into the nodes 0..nVehicle-1,
+        // the city i > 0 being the node nVehicle-1+i
+        n = initalNodes + nVehicle - 1;
 
         distanceMatrix = new int[n][n];
         for (int i = 0 ; i < distanceMatrix.length ; ++i) {
             for (int j = 0 ; j < distanceMatrix.length; ++j) {
-                // TODO 2: extend the distance matrix to put the correct distances
-                //  from initialDistanceMatrix
-                //  the nodes 0..nVehicle correspond to the depot nodes
-                //  the other nodes are the city that must be visited
-                 distanceMatrix[i][j] = initialDistanceMatrix[i][j];
+                distanceMatrix[i][j] = initialDistanceMatrix[city(i)][city(j)];
             }
         }
 
         Solver cp = makeSolver();
         succ = makeIntVarArray(cp, n, n);
         IntVar[] distSucc = makeIntVarArray(cp, n, 1000);
-        cp.post(new Circuit(succ));
+        // one route per vehicle, from a depot copy to the next one
+        cp.post(vehicleRouting(succ, nVehicle));
         for (int i = 0; i < n; i++) {
             cp.post(new Element1D(distanceMatrix[i], succ[i], distSucc[i]));
         }
@@ -75,6 +69,13 @@ public class VRP extends OptimizationProblem{
         });
     }
 
+    /**
+     * Returns the city of the initial instance corresponding to a node
+     */
+    private int city(int node) {
+        return node < nVehicle ? 0 : node - nVehicle + 1;
+    }
+
     @Override
     public String toString() {
         return "VRP(" + instance + ',' + nVehicle + ')';
@@ -0,0 +1,195 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.cp.BranchingScheme;
+import minicp.engine.constraints.NogoodDatabase;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.state.StateInt;
+import minicp.util.Procedure;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.EMPTY;
+import static minicp.cp.BranchingScheme.selectMin;
+import static minicp.cp.Factory.equal;
+import static minicp.cp.Factory.notEqual;
+
+/**
+ * Records the decisions {@code x = v} and {@code x != v} taken
+ * by the branching along the current branch of a {@link DFSearch}
+ * and extracts from the last branch explored
+ * the reduced nld-nogoods (Lecoutre et al. 2007) at each restart.
+ * <p>
+ * When the search is stopped, each negative decision {@code x != v}
+ * of the last branch has been taken after the subtree of {@code x = v} was
+ * explored without finding a (better) solution.
+ * The positive decisions before it together with {@code x = v} form
+ * a nogood that is added to a {@link NogoodDatabase}
+ * propagated in the following runs.
+ * <p>
+ * The fixings of a Large Neighborhood Search fragment
+ * must be posted with {@link #assume(IntVar, int)} so that they appear
+ * in the nogoods which thus remain valid once the fragment is relaxed.
+ * <p>Example of usage:
+ * <pre>
+ * {@code
+ * NogoodRecorder recorder = new NogoodRecorder(cp, 100000);
+ * DFSearch dfs = makeDfs(cp, recorder.firstFail(x));
+ * for (int r = 0; r < nRestarts; r++) {
+ *     dfs.optimizeSubjectTo(obj, limit, () -> recorder.assume(x[0], 1));
+ *     recorder.recordNogoods();
+ * }
+ * }
+ * </pre>
+ */
+public class NogoodRecorder {
+
+    private final Solver cp;
+    private final NogoodDatabase database;
+    private final StateInt depth;
+
+    // decisions of the last branch explored, the last ones are the deepest
+    private IntVar[] pathVar = new IntVar[16];
+    private int[] pathVal = new int[16];
+    private boolean[] pathPositive = new boolean[16];
+    private int pathLength = 0;
+
+    private IntVar[] nogoodVar = new IntVar[16];
+    private int[] nogoodVal = new int[16];
+
+    /**
+     * Creates a recorder and posts its database of nogoods.
+     *
+     * @param cp the solver
+     * @param maxLiterals the maximum number of literals stored in the database
+     */
+    public NogoodRecorder(Solver cp, int maxLiterals) {
+        this.cp = cp;
+        this.database = new NogoodDatabase(cp, maxLiterals);
+        this.depth = cp.getStateManager().makeStateInt(0);
+        cp.post(database);
+    }
+
+    /**
+     * Returns the database where the nogoods are recorded.
+     *
+     * @return the database of nogoods
+     */
+    public NogoodDatabase getDatabase() {
+        return database;
+    }
+
+    private void record(IntVar x, int v, boolean positive) {
+        int d = depth.value();
+        if (d == pathVar.length) {
+            pathVar = Arrays.copyOf(pathVar, 2 * d);
+            pathVal = Arrays.copyOf(pathVal, 2 * d);
+            pathPositive = Arrays.copyOf(pathPositive, 2 * d);
+        }
+        pathVar[d] = x;
+        pathVal[d] = v;
+        pathPositive[d] = positive;
+        depth.setValue(d + 1);
+        pathLength = d + 1;
+    }
+
+    /**
+     * Posts {@code x = v} and records it as a decision.
+     * It must be used instead of posting the fixings of a restart directly.
+     *
+     * @param x the variable
+     * @param v the value assigned
+     */
+    public void assume(IntVar x, int v) {
+        record(x, v, true);
+        cp.post(equal(x, v));
+    }
+
+    /**
+     * Creates the recorded binary branching {@code x = v} and {@code x != v}.
+     *
+     * @param x the variable to branch on
+     * @param v the value
+     * @return the two recorded branches
+     */
+    public Procedure[] branch(IntVar x, int v) {
+        return BranchingScheme.branch(() -> {
+            record(x, v, true);
+            cp.post(equal(x, v));
+        }, () -> {
+            record(x, v, false);
+            cp.post(notEqual(x, v));
+        });
+    }
+
+    /**
+     * First-Fail strategy with recorded decisions.
+     *
+     * @param x the variable on which the first fail strategy is applied.
+     * @return a first-fail branching strategy
+     * @see minicp.cp.BranchingScheme#firstFail(IntVar...)
+     */
+    public Supplier<Procedure[]> firstFail(IntVar... x) {
+        return () -> {
+            IntVar xs = selectMin(x,
+                    xi -> xi.size() > 1,
+                    xi -> xi.size());
+            if (xs == null)
+                return EMPTY;
+            else
+                return branch(xs, xs.min());
+        };
+    }
+
+    /**
+     * Adds to the database the reduced nld-nogoods of the last branch
+     * explored and clears this branch.
+     * It must be called at the root node once the search is stopped.
+     * An {@link minicp.util.exception.InconsistencyException} is thrown
+     * if the nogoods prove that there is no (better) solution.
+     *
+     * @return the number of nogoods extracted
+     */
+    public int recordNogoods() {
+        int nPositive = 0;
+        int nNogoods = 0;
+        try {
+            for (int i = 0; i < pathLength; i++) {
+                if (nPositive == nogoodVar.length) {
+                    nogoodVar = Arrays.copyOf(nogoodVar, 2 * nPositive);
+                    nogoodVal = Arrays.copyOf(nogoodVal, 2 * nPositive);
+                }
+                nogoodVar[nPositive] = pathVar[i];
+                nogoodVal[nPositive] = pathVal[i];
+                if (pathPositive[i]) {
+                    nPositive++;
+                } else {
+                    // the positive decisions before i and x[i] = v[i]
+                    database.addNogood(nogoodVar, nogoodVal, nPositive + 1);
+                    nNogoods++;
+                }
+            }
+        } finally {
+            pathLength = 0;
+            database.decayActivities();
+        }
+        cp.fixPoint();
+        return nNogoods;
+    }
+}
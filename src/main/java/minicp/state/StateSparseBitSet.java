@@ -161,7 +161,8 @@ public class StateSparseBitSet {
     public StateSparseBitSet(StateManager sm, int n) {
         nWords = (n + 63) >>> 6; // divided by 64
         words = new State[nWords];
-        Arrays.setAll(words, i -> sm.makeStateRef(0xFFFFFFFFFFFFFFFFL));
+        // only the n first bits are set
+        Arrays.setAll(words, i -> sm.makeStateRef(i < nWords - 1 || n % 64 == 0 ? 0xFFFFFFFFFFFFFFFFL : (1L << (n % 64)) - 1));
         nonZeroIdx = new int[nWords];
         Arrays.setAll(nonZeroIdx, i -> i);
         nonZeroSize = sm.makeStateInt(nWords);
@@ -181,15 +182,47 @@ public class StateSparseBitSet {
      */
     public void and(BitSet bs) {
         for (int i = nonZeroSize.value() - 1; i >= 0; i--) {
-            State<Long> w = words[nonZeroIdx[i]];
-            long wn = w.value() & bs.words[nonZeroIdx[i]];
-            w.setValue(wn);
-            if (wn == 0L) { // swap with last non-zero word
-                nonZeroSize.decrement();
-                int tmp = nonZeroIdx[i];
-                nonZeroIdx[i] = nonZeroIdx[nonZeroSize.value()];
-                nonZeroIdx[nonZeroSize.value()] = tmp;
-            }
+            int idx = nonZeroIdx[i];
+            State<Long> w = words[idx];
+            long wo = w.value();
+            long wn = wo & bs.words[idx];
+            if (wn != wo) // only the modified words are trailed
+                setWord(i, wn);
+        }
+    }
+
+    /**
+     * As for {@link java.util.BitSet#andNot(java.util.BitSet)}:
+     * Clears all of the bits in this bit set whose corresponding
+     * bit is set in the argument bit set.
+     * <p>
+     * The logical AND NOT is optimized to ignore the empty words in the
+     * associated Reversible Sparse Bit Set
+     *
+     * @param bs the bit-set whose bits are removed from this one
+     */
+    public void andNot(BitSet bs) {
+        for (int i = nonZeroSize.value() - 1; i >= 0; i--) {
+            int idx = nonZeroIdx[i];
+            State<Long> w = words[idx];
+            long wo = w.value();
+            long wn = wo & ~bs.words[idx];
+            if (wn != wo)
+                setWord(i, wn);
+        }
+    }
+
+    /**
+     * Sets the value of the i-th non zero word,
+     * removing it from the non zero words if it becomes empty
+     */
+    private void setWord(int i, long wn) {
+        words[nonZeroIdx[i]].setValue(wn);
+        if (wn == 0L) { // swap with last non-zero word
+            nonZeroSize.decrement();
+            int tmp = nonZeroIdx[i];
+            nonZeroIdx[i] = nonZeroIdx[nonZeroSize.value()];
+            nonZeroIdx[nonZeroSize.value()] = tmp;
         }
     }
 
@@ -249,6 +282,38 @@ public class StateSparseBitSet {
         return false;
     }
 
+    /**
+     * Returns the number of bits set to true in both this {@link StateSparseBitSet}
+     * and the specified bit-set.
+     * <p>
+     * The count is optimized to ignore the empty words in the
+     * associated Reversible Sparse Bit Set
+     *
+     * @param bs the bit-set to intersect with
+     * @return the cardinality of the intersection
+     */
+    public int intersectionSize(BitSet bs) {
+        int count = 0;
+        for (int i = nonZeroSize.value() - 1; i >= 0; i--) {
+            int idx = nonZeroIdx[i];
+            count += Long.bitCount(words[idx].value() & bs.words[idx]);
+        }
+        return count;
+    }
+
+    /**
+     * As for the {@link java.util.BitSet#cardinality()} function:
+     * Returns the number of bits set to true.
+     *
+     * @return the number of bits set to true
+     */
+    public int cardinality() {
+        int count = 0;
+        for (int i = nonZeroSize.value() - 1; i >= 0; i--)
+            count += Long.bitCount(words[nonZeroIdx[i]].value());
+        return count;
+    }
+
     /**
      * As for the {@link java.util.BitSet#get(int)}
      * Gives the bit at the specified index
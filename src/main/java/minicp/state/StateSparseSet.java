@@ -104,6 +104,26 @@ public class StateSparseSet {
         return s;
     }
 
+    /**
+     * Sets the first values of <code>dest</code> to the ones
+     * removed from the set since its size was {@code oldSize}.
+     * The removed values are the ones stored after the current size,
+     * this is valid as long as no value was added back to the set
+     * since then (what holds if oldSize is stored in a
+     * state managed by the same {@link StateManager}).
+     *
+     * @param oldSize a previous size of the set, {@code oldSize >= size()}
+     * @param dest an array large enough {@code dest.length >= oldSize - size()}
+     * @return the number of values removed {@code oldSize - size()}
+     */
+    public int fillDeltaArray(int oldSize, int[] dest) {
+        int s = size.value();
+        int nDelta = oldSize - s;
+        for (int i = 0; i < nDelta; i++)
+            dest[i] = values[s + i] + ofs;
+        return nDelta;
+    }
+
     /**
      * Checks if the set is empty
      *
@@ -256,6 +276,8 @@ public class StateSparseSet {
     public void removeBelow(int value) {
         if (max() < value) {
             removeAll();
+        } else if (max() - value < value - min()) {
+            keepRange(value - ofs, max.value());
         } else {
             for (int v = min(); v < value; v++) {
                 remove(v);
@@ -271,6 +293,8 @@ public class StateSparseSet {
     public void removeAbove(int value) {
         if (min() > value) {
             removeAll();
+        } else if (value - min() < max() - value) {
+            keepRange(min.value(), value - ofs);
         } else {
             int max = max();
             for (int v = max; v > value; v--) {
@@ -279,6 +303,32 @@ public class StateSparseSet {
         }
     }
 
+    /**
+     * Removes all the values outside a range containing at least one value of the set,
+     * in a time linear in the size of the range rather than in the number of removed values.
+     * The kept values are moved to the first positions so that the removed ones
+     * are still found by {@link #fillDeltaArray(int, int[])}.
+     *
+     * @param from the smallest kept value, without the offset
+     * @param to the largest kept value, without the offset
+     */
+    private void keepRange(int from, int to) {
+        int s = 0;
+        int newMin = -1;
+        int newMax = -1;
+        for (int v = from; v <= to; v++) {
+            if (internalContains(v)) {
+                exchangePositions(v, values[s++]);
+                if (newMin < 0)
+                    newMin = v;
+                newMax = v;
+            }
+        }
+        size.setValue(s);
+        min.setValue(newMin);
+        max.setValue(newMax);
+    }
+
 
     @Override
     public String toString() {
@@ -17,7 +17,6 @@ package minicp.util;
 
 import java.util.Arrays;
 import java.util.Stack;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 /**
@@ -85,34 +84,119 @@ public class GraphUtil {
      *          components it belongs to
      */
     public static int[] stronglyConnectedComponents(Graph graph) {
-        //Compute the suffix order
-        Stack<Integer> firstOrder = new Stack<>();
-        int[] visited = new int[graph.n()];
-        Arrays.fill(visited, 0);
-        for (int i = 0; i < graph.n(); i++) {
-            if (visited[i] == 0) {
-                dfsNode(graph, (suffix, b) -> {
-                    if (suffix) firstOrder.push(b);
-                }, visited, i);
-            }
+        int n = graph.n();
+        int[] start = new int[n + 1];
+        for (int i = 0; i < n; i++)
+            for (int ignored : graph.out(i))
+                start[i + 1]++;
+        for (int i = 0; i < n; i++)
+            start[i + 1] += start[i];
+        int[] adj = new int[start[n]];
+        for (int i = 0; i < n; i++) {
+            int e = start[i];
+            for (int j : graph.out(i))
+                adj[e++] = j;
         }
+        int[] scc = new int[n];
+        new Tarjan(n).compute(n, start, adj, scc);
+        return scc;
+    }
 
-        //Reverse the order, and do the dfs of the transposed graph
-        Arrays.fill(visited, 0);
-        int[] scc = new int[graph.n()];
-        AtomicInteger cpt = new AtomicInteger(0);
-        Graph tranposed = GraphUtil.transpose(graph);
-
-        while (!firstOrder.empty()) {
-            int next = firstOrder.pop();
-            if (visited[next] == 0) {
-                cpt.incrementAndGet();
-                dfsNode(tranposed, (suffix, x) -> {
-                    if (!suffix) scc[x] = cpt.get();
-                }, visited, next);
+    /**
+     * Iterative Tarjan's algorithm for the strongly connected components
+     * of a graph given in adjacency arrays:
+     * the successors of node {@code u} are {@code adj[start[u]..start[u+1]-1]}.
+     * The working arrays are allocated once and reused by the successive calls.
+     */
+    public static final class Tarjan {
+        private int[] index; // dfs number of each node, 0 if not visited
+        private int[] low;
+        private int[] edge; // next edge to explore for the nodes on the dfs path
+        private int[] path; // dfs path
+        private int[] stack; // nodes of the components not closed yet
+        private boolean[] onStack;
+
+        /**
+         * Creates the working arrays for graphs of a given size.
+         *
+         * @param capacity the number of nodes of the graphs,
+         *                 the arrays are enlarged if a larger graph is given
+         */
+        public Tarjan(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            index = new int[capacity];
+            low = new int[capacity];
+            edge = new int[capacity];
+            path = new int[capacity];
+            stack = new int[capacity];
+            onStack = new boolean[capacity];
+        }
+
+        /**
+         * Computes the strongly connected components.
+         *
+         * @param n the number of nodes
+         * @param start the successors of u are in {@code adj[start[u]..start[u+1]-1]}
+         * @param adj the successors of the nodes
+         * @param scc array of size at least n set with the id
+         *            of the strongly connected component of each node,
+         *            the ids being in a reverse topological order of the components
+         * @return the number of strongly connected components
+         */
+        public int compute(int n, int[] start, int[] adj, int[] scc) {
+            if (n > index.length)
+                allocate(n);
+            Arrays.fill(index, 0, n, 0);
+            int counter = 0;
+            int nScc = 0;
+            int sp = 0;
+            for (int root = 0; root < n; root++) {
+                if (index[root] != 0)
+                    continue;
+                int depth = 0;
+                index[root] = low[root] = ++counter;
+                edge[root] = start[root];
+                stack[sp++] = root;
+                onStack[root] = true;
+                path[depth++] = root;
+                while (depth > 0) {
+                    int u = path[depth - 1];
+                    if (edge[u] < start[u + 1]) {
+                        int w = adj[edge[u]++];
+                        if (index[w] == 0) {
+                            index[w] = low[w] = ++counter;
+                            edge[w] = start[w];
+                            stack[sp++] = w;
+                            onStack[w] = true;
+                            path[depth++] = w;
+                        } else if (onStack[w] && index[w] < low[u]) {
+                            low[u] = index[w];
+                        }
+                    } else {
+                        depth--;
+                        if (low[u] == index[u]) {
+                            // u is the root of a component
+                            int w;
+                            do {
+                                w = stack[--sp];
+                                onStack[w] = false;
+                                scc[w] = nScc;
+                            } while (w != u);
+                            nScc++;
+                        }
+                        if (depth > 0) {
+                            int p = path[depth - 1];
+                            if (low[u] < low[p])
+                                low[p] = low[u];
+                        }
+                    }
+                }
             }
+            return nScc;
         }
-        return scc;
     }
 
     private static void dfsNode(Graph graph, BiConsumer<Boolean, Integer> action, int[] visited, int start) {
@@ -156,4 +240,30 @@ public class GraphUtil {
         dfsNode(graph,(v,n) -> {},visited,start);
         return visited[end] != 0;
     }
+
+    /**
+     * Computes the shortest paths between all the pairs of nodes
+     * with the Floyd-Warshall algorithm.
+     * The result satisfies the triangle inequality.
+     * @param dist the non negative distance matrix of a complete directed graph
+     * @return the matrix of the lengths of the shortest paths
+     */
+    public static int[][] shortestPaths(int[][] dist) {
+        int n = dist.length;
+        int[][] sp = new int[n][];
+        for (int i = 0; i < n; i++)
+            sp[i] = dist[i].clone();
+        for (int k = 0; k < n; k++) {
+            int[] spk = sp[k];
+            for (int i = 0; i < n; i++) {
+                int[] spi = sp[i];
+                int ik = spi[k];
+                for (int j = 0; j < n; j++) {
+                    if (ik + spk[j] < spi[j])
+                        spi[j] = ik + spk[j];
+                }
+            }
+        }
+        return sp;
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllDifferentBCTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void hallInterval(Solver cp) {
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 1, 4),
+                makeIntVar(cp, 2, 5)};
+        cp.post(allDifferentBC(x));
+        assertEquals(3, x[2].min());
+        assertEquals(4, x[2].max());
+        assertEquals(3, x[3].min());
+        assertEquals(5, x[3].max());
+
+        cp.post(equal(x[3], 4));
+        assertTrue(x[2].isFixed());
+        assertEquals(3, x[2].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void pigeonHole(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 3);
+        assertThrows(InconsistencyException.class, () -> cp.post(allDifferentBC(x)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void boundsOnly(Solver cp) {
+        // the holes in the domains are not considered
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 1, 3),
+                makeIntVar(cp, 1, 3),
+                makeIntVar(cp, 1, 3)};
+        x[0].remove(2);
+        x[1].remove(2);
+        cp.post(allDifferentBC(x));
+        assertEquals(3, x[2].size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void extremeBounds(Solver cp) {
+        int max = Integer.MAX_VALUE - 1; // largest value allowed in a domain
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, max - 1, max),
+                makeIntVar(cp, max - 1, max),
+                makeIntVar(cp, max - 3, max)};
+        cp.post(allDifferentBC(x));
+        assertEquals(max - 2, x[2].max());
+
+        int min = Integer.MIN_VALUE + 1;
+        IntVar[] y = new IntVar[]{
+                makeIntVar(cp, min, min + 1),
+                makeIntVar(cp, min, min + 1),
+                makeIntVar(cp, min, min + 3)};
+        cp.post(allDifferentBC(y));
+        assertEquals(min + 2, y[2].min());
+
+        IntVar[] z = new IntVar[]{
+                makeIntVar(cp, max - 1, max),
+                makeIntVar(cp, max - 1, max),
+                makeIntVar(cp, max - 1, max)};
+        assertThrows(InconsistencyException.class, () -> cp.post(allDifferentBC(z)));
+
+        // differences between the bounds larger than an int
+        IntVar[] w = new IntVar[]{
+                makeIntVar(cp, min, min + 1),
+                makeIntVar(cp, min, min + 1),
+                makeIntVar(cp, min, min + 3),
+                makeIntVar(cp, max - 1, max),
+                makeIntVar(cp, max - 1, max),
+                makeIntVar(cp, max - 3, max)};
+        cp.post(allDifferentBC(w));
+        assertEquals(min + 2, w[2].min());
+        assertEquals(min + 3, w[2].max());
+        assertEquals(max - 3, w[5].min());
+        assertEquals(max - 2, w[5].max());
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void sameBoundsAsDomainConsistency(Supplier<Solver> cpSupplier) {
+        // with interval domains, the bounds are the ones of the domain consistent filtering
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 500; iter++) {
+            int n = 2 + rand.nextInt(8);
+            int[] min = new int[n];
+            int[] max = new int[n];
+            for (int i = 0; i < n; i++) {
+                min[i] = rand.nextInt(10) - 5;
+                max[i] = min[i] + rand.nextInt(5);
+            }
+            Solver cp1 = cpSupplier.get();
+            Solver cp2 = cpSupplier.get();
+            IntVar[] x1 = makeIntVarArray(n, i -> makeIntVar(cp1, min[i], max[i]));
+            IntVar[] x2 = makeIntVarArray(n, i -> makeIntVar(cp2, min[i], max[i]));
+            boolean failed1 = false;
+            boolean failed2 = false;
+            try {
+                cp1.post(allDifferentBC(x1));
+            } catch (InconsistencyException e) {
+                failed1 = true;
+            }
+            try {
+                cp2.post(allDifferentDC(x2));
+            } catch (InconsistencyException e) {
+                failed2 = true;
+            }
+            assertEquals(failed2, failed1);
+            if (!failed1) {
+                for (int i = 0; i < n; i++) {
+                    assertEquals(x2[i].min(), x1[i].min());
+                    assertEquals(x2[i].max(), x1[i].max());
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void allSolutions(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 5, 6);
+        cp.post(allDifferentBC(x));
+        cp.post(notEqual(x[0], 3));
+        SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+        assertEquals(600, stats.numberOfSolutions());
+    }
+}
@@ -416,5 +416,37 @@ public class AllDifferentDCTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRemoveUnmatchedValues(Solver cp) {
+        // the matching is unchanged but the strongly connected components are
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        cp.post(new AllDifferentDC(x));
+        cp.post(notEqual(x[0], 2));
+        cp.post(notEqual(x[1], 2));
+        for (int v = 0; v < 2; v++)
+            assertFalse(x[2].contains(v));
+        assertEquals(2, x[0].size());
+        assertEquals(2, x[1].size());
+    }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLargeAssignment(Solver cp) {
+        // 200 variables with 5 values each in a sliding window
+        int n = 200;
+        IntVar[] x = makeIntVarArray(n, i -> makeIntVar(cp, i, i + 4));
+        cp.post(new AllDifferentDC(x));
+        cp.post(notEqual(x[0], 1));
+        cp.post(notEqual(x[0], 2));
+        cp.post(notEqual(x[0], 3));
+        cp.post(notEqual(x[0], 4));
+        // x[0] = 0 is not in the other windows
+        assertTrue(x[0].isFixed());
+        assertEquals(5, x[1].size());
+        cp.post(equal(x[n - 1], n - 1));
+        SearchStatistics stats = makeDfs(cp, firstFail(x)).solve(s -> s.numberOfSolutions() >= 100);
+        assertEquals(0, stats.numberOfFailures());
+        assertEquals(100, stats.numberOfSolutions());
+    }
 }
@@ -0,0 +1,224 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinPackingTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLoads(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 2);
+        IntVar[] l = makeIntVarArray(cp, 2, 100);
+        cp.post(binPacking(x, new int[]{3, 4, 5, 6}, l));
+        assertEquals(0, l[0].min());
+        assertEquals(18, l[0].max());
+        cp.post(equal(x[3], 0));
+        assertEquals(6, l[0].min());
+        assertEquals(12, l[1].max());
+        cp.post(lessOrEqual(l[0], 10));
+        // 6 + 5 > 10, 3 and 4 cannot be both added to 6
+        assertTrue(x[2].isFixed());
+        assertEquals(1, x[2].min());
+        assertEquals(8, l[1].min());
+        cp.post(notEqual(l[0], 10));
+        // 3 is the only item that can be added to 6
+        assertEquals(9, l[0].max());
+        assertFalse(x[1].contains(0));
+        cp.post(notEqual(l[0], 6));
+        assertEquals(0, x[0].max());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testKnapsack(Solver cp) {
+        // loads of a bin are multiples of 4
+        IntVar[] x = makeIntVarArray(cp, 3, 2);
+        IntVar[] l = makeIntVarArray(cp, 2, 100);
+        cp.post(binPacking(x, new int[]{4, 4, 4}, l));
+        l[0].removeBelow(5);
+        cp.fixPoint();
+        assertEquals(8, l[0].min());
+        assertEquals(4, l[1].max());
+        cp.post(lessOrEqual(l[0], 11));
+        assertEquals(8, l[0].max());
+        assertThrows(InconsistencyException.class, () -> cp.post(notEqual(l[1], 4)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testCommitment(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 2);
+        IntVar[] l = makeIntVarArray(cp, 2, 100);
+        cp.post(binPacking(x, new int[]{2, 3, 7, 9}, l));
+        cp.post(equal(l[0], 10));
+        // only 3 + 7 fills the bin 0
+        assertEquals(0, x[1].min());
+        assertEquals(0, x[2].min());
+        assertEquals(1, x[0].min());
+        assertEquals(1, x[3].min());
+        assertEquals(11, l[1].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLowerBound(Solver cp) {
+        // four items larger than half the capacity do not fit in three bins
+        IntVar[] x = makeIntVarArray(cp, 4, 3);
+        IntVar[] l = makeIntVarArray(cp, 3, 11);
+        assertThrows(InconsistencyException.class, () -> cp.post(binPacking(x, new int[]{6, 6, 6, 6}, l)));
+    }
+
+    @Test
+    public void testLowerBoundL2() {
+        assertEquals(0, BinPacking.lowerBoundL2(new int[0], 0, 10));
+        assertEquals(4, BinPacking.lowerBoundL2(new int[]{6, 6, 6, 6}, 4, 10));
+        assertEquals(3, BinPacking.lowerBoundL2(new int[]{6, 6, 6, 4, 4, 4}, 6, 10));
+        // 7 + 3 three times, then 3 + 3 + 3
+        assertEquals(4, BinPacking.lowerBoundL2(new int[]{7, 7, 7, 3, 3, 3, 3, 3, 3}, 9, 10));
+        assertEquals(Integer.MAX_VALUE, BinPacking.lowerBoundL2(new int[]{11, 2}, 2, 10));
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 200; iter++) {
+            int n = 1 + rand.nextInt(7);
+            int capacity = 5 + rand.nextInt(10);
+            int[] weights = new int[n];
+            for (int k = 0; k < n; k++)
+                weights[k] = 1 + rand.nextInt(capacity);
+            Arrays.sort(weights);
+            for (int a = 0, b = n - 1; a < b; a++, b--) {
+                int tmp = weights[a];
+                weights[a] = weights[b];
+                weights[b] = tmp;
+            }
+            int bound = BinPacking.lowerBoundL2(weights, n, capacity);
+            assertTrue(bound >= (Arrays.stream(weights).sum() + capacity - 1) / capacity);
+            assertTrue(bound <= minBins(weights, new int[n], 0, 0, capacity));
+        }
+    }
+
+    /**
+     * Returns the minimum number of bins to pack the weights from the k-th one
+     */
+    private static int minBins(int[] weights, int[] loads, int k, int nUsed, int capacity) {
+        if (k == weights.length)
+            return nUsed;
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= nUsed && j < weights.length; j++) {
+            if (loads[j] + weights[k] <= capacity) {
+                loads[j] += weights[k];
+                best = Math.min(best, minBins(weights, loads, k + 1, Math.max(nUsed, j + 1), capacity));
+                loads[j] -= weights[k];
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testNoSum() {
+        int[] bounds = new int[2];
+        int[] weights = new int[]{9, 7, 4};
+        assertTrue(BinPacking.noSum(weights, 3, 5, 6, bounds));
+        assertEquals(4, bounds[0]);
+        assertEquals(7, bounds[1]);
+        assertFalse(BinPacking.noSum(weights, 3, 5, 7, bounds));
+        assertFalse(BinPacking.noSum(weights, 3, 0, 2, bounds));
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 1000; iter++) {
+            int n = 1 + rand.nextInt(6);
+            int[] w = new int[n];
+            for (int k = 0; k < n; k++)
+                w[k] = 1 + rand.nextInt(12);
+            Arrays.sort(w);
+            for (int a = 0, b = n - 1; a < b; a++, b--) {
+                int tmp = w[a];
+                w[a] = w[b];
+                w[b] = tmp;
+            }
+            int total = Arrays.stream(w).sum();
+            boolean[] achievable = new boolean[total + 1];
+            for (int subset = 0; subset < 1 << n; subset++) {
+                int sum = 0;
+                for (int k = 0; k < n; k++)
+                    if ((subset >> k & 1) == 1)
+                        sum += w[k];
+                achievable[sum] = true;
+            }
+            int alpha = rand.nextInt(total + 1);
+            int beta = alpha + rand.nextInt(3);
+            if (BinPacking.noSum(w, n, alpha, beta, bounds)) {
+                assertTrue(bounds[0] < alpha && achievable[bounds[0]]);
+                assertTrue(bounds[1] > beta && bounds[1] <= total && achievable[bounds[1]]);
+                for (int sum = bounds[0] + 1; sum < bounds[1]; sum++)
+                    assertFalse(achievable[sum]);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutions(Supplier<Solver> cpSupplier) {
+        // same solutions as the decomposition with a sum per bin
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 50; iter++) {
+            int nItems = 3 + rand.nextInt(4);
+            int nBins = 2 + rand.nextInt(2);
+            int[] w = new int[nItems];
+            for (int i = 0; i < nItems; i++)
+                w[i] = rand.nextInt(8);
+            int capacity = 5 + rand.nextInt(10);
+            assertEquals(solve(cpSupplier, w, nBins, capacity, false), solve(cpSupplier, w, nBins, capacity, true));
+        }
+    }
+
+    private static int solve(Supplier<Solver> cpSupplier, int[] w, int nBins, int capacity, boolean global) {
+        try {
+            Solver cp = cpSupplier.get();
+            IntVar[] x = makeIntVarArray(cp, w.length, nBins);
+            IntVar[] l = makeIntVarArray(cp, nBins, capacity + 1);
+            if (global) {
+                cp.post(binPacking(x, w, l));
+            } else {
+                for (int j = 0; j < nBins; j++) {
+                    IntVar[] wj = new IntVar[w.length];
+                    for (int i = 0; i < w.length; i++)
+                        wj[i] = mul(isEqual(x[i], j), w[i]);
+                    cp.post(sum(wj, l[j]));
+                }
+            }
+            SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+            return stats.numberOfSolutions();
+        } catch (InconsistencyException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClausesTest extends SolverTest {
+
+    private static BoolVar[] makeBoolVarArray(Solver cp, int n) {
+        BoolVar[] x = new BoolVar[n];
+        for (int i = 0; i < n; i++)
+            x[i] = makeBoolVar(cp);
+        return x;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void clauses1(Solver cp) {
+        BoolVar[] x = makeBoolVarArray(cp, 4);
+        Clauses clauses = new Clauses(cp);
+        clauses.addClause(new BoolVar[]{x[0], x[1]}, new BoolVar[]{x[2]});
+        clauses.addImplication(x[2], x[3]);
+        try {
+            cp.post(clauses);
+            for (BoolVar xi : x)
+                assertFalse(xi.isFixed());
+
+            cp.getStateManager().saveState();
+            cp.post(equal(x[2], 1));
+            assertTrue(x[3].isTrue());
+            cp.post(equal(x[0], 0));
+            assertTrue(x[1].isTrue());
+            cp.getStateManager().restoreState();
+
+            cp.getStateManager().saveState();
+            cp.post(equal(x[0], 0));
+            cp.post(equal(x[1], 0));
+            assertTrue(x[2].isFalse());
+            assertFalse(x[3].isFixed());
+            cp.getStateManager().restoreState();
+
+            cp.post(equal(x[3], 0));
+            assertTrue(x[2].isFalse());
+            assertFalse(x[0].isFixed());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void clausesFailure(Solver cp) {
+        BoolVar[] x = makeBoolVarArray(cp, 2);
+        Clauses clauses = new Clauses(cp);
+        clauses.addClause(new BoolVar[]{x[0], x[1]}, new BoolVar[0]);
+        clauses.addClause(new BoolVar[]{x[0]}, new BoolVar[]{x[1]});
+        clauses.addClause(new BoolVar[0], new BoolVar[]{x[0], x[1]});
+        clauses.addClause(new BoolVar[]{x[1]}, new BoolVar[]{x[0]});
+        cp.post(clauses);
+        // unit propagation alone does not detect the inconsistency
+        assertFalse(x[0].isFixed());
+        cp.getStateManager().saveState();
+        assertThrows(InconsistencyException.class, () -> cp.post(equal(x[0], 1)));
+        cp.getStateManager().restoreState();
+        SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+        assertEquals(0, stats.numberOfSolutions());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void clausesAddedAfterPost(Solver cp) {
+        BoolVar[] x = makeBoolVarArray(cp, 3);
+        Clauses clauses = new Clauses(cp);
+        cp.post(clauses);
+        cp.post(equal(x[0], 0));
+        clauses.addClause(new BoolVar[]{x[0], x[1]}, new BoolVar[0]);
+        assertTrue(x[1].isTrue());
+        clauses.addImplication(x[1], x[2]);
+        assertTrue(x[2].isTrue());
+        assertEquals(2, clauses.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void clausesRandom(Solver cp) {
+        // same number of solutions as the decomposition with Or constraints
+        Random rand = new Random(42);
+        int n = 8;
+        int m = 20;
+        int[][] pos = new int[m][];
+        int[][] neg = new int[m][];
+        for (int c = 0; c < m; c++) {
+            pos[c] = rand.ints(1 + rand.nextInt(2), 0, n).toArray();
+            neg[c] = rand.ints(1 + rand.nextInt(2), 0, n).toArray();
+        }
+
+        BoolVar[] x = makeBoolVarArray(cp, n);
+        Clauses clauses = new Clauses(cp);
+        for (int c = 0; c < m; c++) {
+            BoolVar[] p = new BoolVar[pos[c].length];
+            BoolVar[] q = new BoolVar[neg[c].length];
+            for (int k = 0; k < p.length; k++) p[k] = x[pos[c][k]];
+            for (int k = 0; k < q.length; k++) q[k] = x[neg[c][k]];
+            clauses.addClause(p, q);
+        }
+        cp.post(clauses);
+        DFSearch dfs = makeDfs(cp, firstFail(x));
+        dfs.onSolution(() -> {
+            for (int c = 0; c < m; c++) {
+                boolean sat = false;
+                for (int v : pos[c]) sat |= x[v].isTrue();
+                for (int v : neg[c]) sat |= x[v].isFalse();
+                assertTrue(sat);
+            }
+        });
+        SearchStatistics stats = dfs.solve();
+
+        Solver cp2 = makeSolver();
+        BoolVar[] y = makeBoolVarArray(cp2, n);
+        for (int c = 0; c < m; c++) {
+            BoolVar[] lits = new BoolVar[pos[c].length + neg[c].length];
+            int k = 0;
+            for (int v : pos[c]) lits[k++] = y[v];
+            for (int v : neg[c]) lits[k++] = not(y[v]);
+            cp2.post(or(lits));
+        }
+        SearchStatistics stats2 = makeDfs(cp2, firstFail(y)).solve();
+        assertEquals(stats2.numberOfSolutions(), stats.numberOfSolutions());
+    }
+}
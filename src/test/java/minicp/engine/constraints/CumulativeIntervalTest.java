@@ -0,0 +1,122 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntervalVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CumulativeIntervalTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testStartFiltering(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 2, 6, 4);
+        IntervalVar b = makeIntervalVar(cp, 0, 20, 3);
+        cp.post(cumulative(new IntervalVar[]{a, b}, new int[]{2, 1}, 2));
+        assertEquals(6, b.startMin());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOptionalMadeAbsent(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 10, 10);
+        IntervalVar b = makeIntervalVar(cp, 2, 8, 3, true);
+        IntervalVar c = makeIntervalVar(cp, 2, 13, 3, true);
+        IntervalVar d = makeIntervalVar(cp, 0, 12, 1, true);
+        cp.post(cumulative(new IntervalVar[]{a, b, c, d}, new int[]{2, 1, 1, 3}, 2));
+        assertTrue(b.isAbsent()); // no room in [2, 8)
+        assertTrue(c.isOptional());
+        assertEquals(10, c.startMin()); // if present, after a
+        assertTrue(d.isAbsent()); // demand larger than the capacity
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testAbsentIgnored(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 5, 5, true);
+        IntervalVar b = makeIntervalVar(cp, 0, 5, 5, true);
+        cp.post(cumulative(new IntervalVar[]{a, b}, new int[]{1, 1}, 1));
+        a.setPresent();
+        cp.fixPoint();
+        assertTrue(b.isAbsent());
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutionsAsChecker(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 4;
+            int[] length = new int[n];
+            int[] demand = new int[n];
+            boolean[] optional = new boolean[n];
+            int[] startMin = new int[n];
+            int[] endMax = new int[n];
+            for (int i = 0; i < n; i++) {
+                length[i] = rand.nextInt(4);
+                demand[i] = rand.nextInt(3);
+                optional[i] = rand.nextBoolean();
+                startMin[i] = rand.nextInt(4);
+                endMax[i] = startMin[i] + length[i] + rand.nextInt(4);
+            }
+            int capa = 1 + rand.nextInt(2);
+            assertEquals(solve(cpSupplier, length, demand, capa, optional, startMin, endMax, false),
+                    solve(cpSupplier, length, demand, capa, optional, startMin, endMax, true));
+        }
+    }
+
+    private static int solve(Supplier<Solver> cpSupplier, int[] length, int[] demand, int capa,
+                             boolean[] optional, int[] startMin, int[] endMax, boolean post) {
+        Solver cp = cpSupplier.get();
+        int n = length.length;
+        IntervalVar[] x = new IntervalVar[n];
+        for (int i = 0; i < n; i++)
+            x[i] = makeIntervalVar(cp, startMin[i], endMax[i], length[i], optional[i]);
+        int[] nSolutions = new int[1];
+        try {
+            if (post)
+                cp.post(cumulative(x, demand, capa));
+            DFSearch dfs = makeDfs(cp, DisjunctiveIntervalTest.branchIntervals(cp, x));
+            dfs.onSolution(() -> {
+                int[] height = new int[16];
+                for (int i = 0; i < n; i++)
+                    if (x[i].isPresent())
+                        for (int t = x[i].startMin(); t < x[i].endMin(); t++)
+                            if ((height[t] += demand[i]) > capa)
+                                return;
+                nSolutions[0]++;
+            });
+            SearchStatistics stats = dfs.solve();
+            if (post)
+                assertEquals(nSolutions[0], stats.numberOfSolutions());
+        } catch (InconsistencyException e) {
+            // no solution
+        }
+        return nSolutions[0];
+    }
+}
@@ -29,9 +29,10 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.Arrays;
+import java.util.Random;
 import java.util.stream.IntStream;
 
-import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.BranchingScheme.*;
 import static minicp.cp.Factory.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -337,6 +338,122 @@ public class CumulativeTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRandomSameSolutionsAsChecker(Solver cp) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 10; iter++) {
+            int n = 4;
+            int[] d = IntStream.range(0, n).map(i -> rand.nextInt(4)).toArray();
+            int[] r = IntStream.range(0, n).map(i -> 1 + rand.nextInt(3)).toArray();
+            int capa = 2 + rand.nextInt(3);
+            IntVar[] s = makeIntVarArray(cp, n, 5);
+            DFSearch search = makeDfs(cp, firstFail(s));
+            int[] nChecked = new int[1];
+            search.onSolution(() -> {
+                int[] height = new int[12];
+                for (int i = 0; i < n; i++)
+                    for (int t = s[i].min(); t < s[i].min() + d[i]; t++)
+                        height[t] += r[i];
+                if (Arrays.stream(height).allMatch(h -> h <= capa))
+                    nChecked[0]++;
+            });
+            search.solve();
+            int expected = nChecked[0];
+
+            cp.getStateManager().saveState();
+            nChecked[0] = 0;
+            try {
+                cp.post(new Cumulative(s, d, r, capa));
+                SearchStatistics stats = search.solve();
+                assertEquals(expected, stats.numberOfSolutions());
+                assertEquals(expected, nChecked[0]);
+            } catch (InconsistencyException e) {
+                assertEquals(0, expected);
+            }
+            cp.getStateManager().restoreState();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEdgeFindingStartFiltering(Solver cp) {
+        IntVar[] s = new IntVar[3];
+        s[0] = makeIntVar(cp, 0, 5);
+        s[1] = makeIntVar(cp, 0, 5);
+        s[2] = makeIntVar(cp, 0, 7);
+        int[] d = new int[]{3, 3, 3};
+        int[] r = new int[]{1, 1, 1};
+
+        cp.getStateManager().saveState();
+        cp.post(cumulative(s, d, r, 1));
+        assertEquals(0, s[2].min()); // no mandatory part
+        cp.getStateManager().restoreState();
+
+        // s[0] and s[1] must end before s[2] ends
+        cp.post(cumulative(s, d, r, 1, Cumulative.Strength.EDGE_FINDING));
+        assertEquals(6, s[2].min());
+        assertEquals(4, s[0].max()); // mandatory part [7,9) of s[2]
+        assertEquals(4, s[1].max());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEdgeFindingOverload(Solver cp) {
+        IntVar[] s = makeIntVarArray(cp, 3, 4);
+        int[] d = new int[]{3, 3, 3};
+        int[] r = new int[]{2, 2, 1};
+
+        cp.getStateManager().saveState();
+        cp.post(cumulative(s, d, r, 2)); // no mandatory part
+        cp.getStateManager().restoreState();
+
+        // an energy of 15 in [0,6) with a capacity of 2
+        assertThrows(InconsistencyException.class,
+                () -> cp.post(cumulative(s, d, r, 2, Cumulative.Strength.EDGE_FINDING)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEdgeFindingSameSolutionsFewerNodes(Solver cp) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 15; iter++) {
+            int n = 4;
+            int[] d = IntStream.range(0, n).map(i -> rand.nextInt(5)).toArray();
+            int[] r = IntStream.range(0, n).map(i -> 1 + rand.nextInt(3)).toArray();
+            int capa = 2 + rand.nextInt(3);
+            IntVar[] s = makeIntVarArray(cp, n, 5);
+            // static order so that a stronger filtering cannot increase the number of nodes
+            DFSearch search = makeDfs(cp, () -> {
+                IntVar xs = selectMin(s, xi -> xi.size() > 1, xi -> 0);
+                if (xs == null)
+                    return EMPTY;
+                int v = xs.min();
+                return branch(() -> cp.post(equal(xs, v)), () -> cp.post(notEqual(xs, v)));
+            });
+            SearchStatistics[] stats = new SearchStatistics[2];
+            Cumulative.Strength[] strengths = Cumulative.Strength.values();
+            for (int k = 0; k < strengths.length; k++) {
+                cp.getStateManager().saveState();
+                try {
+                    cp.post(cumulative(s, d, r, capa, strengths[k]));
+                    stats[k] = search.solve();
+                } catch (InconsistencyException e) {
+                    stats[k] = null;
+                }
+                cp.getStateManager().restoreState();
+            }
+            if (stats[0] == null) {
+                assertNull(stats[1]);
+            } else if (stats[1] == null) {
+                assertEquals(0, stats[0].numberOfSolutions());
+            } else {
+                assertEquals(stats[0].numberOfSolutions(), stats[1].numberOfSolutions());
+                assertTrue(stats[1].numberOfNodes() <= stats[0].numberOfNodes());
+            }
+        }
+    }
+
     private static int[] discreteProfile(Rectangle... rectangles) {
         int min = Arrays.stream(rectangles).filter(r -> r.height() > 0).map(Rectangle::start).min(Integer::compare).get();
         int max = Arrays.stream(rectangles).filter(r -> r.height() > 0).map(Rectangle::end).max(Integer::compare).get();
@@ -0,0 +1,149 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntervalVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.Procedure;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.*;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DisjunctiveIntervalTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testDetectablePrecedence(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 14, 5);
+        IntervalVar b = makeIntervalVar(cp, 1, 15, 5);
+        IntervalVar c = makeIntervalVar(cp, 8, 18, 3);
+        cp.post(disjunctive(new IntervalVar[]{a, b, c}));
+        assertEquals(10, c.startMin());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOptionalMadeAbsent(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 10, 5);
+        IntervalVar b = makeIntervalVar(cp, 0, 10, 4);
+        IntervalVar c = makeIntervalVar(cp, 0, 10, 2, true);
+        IntervalVar d = makeIntervalVar(cp, 0, 12, 2, true);
+        cp.post(disjunctive(new IntervalVar[]{a, b, c, d}));
+        // c does not fit with a and b in [0, 10)
+        assertTrue(c.isAbsent());
+        assertTrue(d.isOptional());
+
+        // if present, d is after a and b by edge-finding
+        d.setPresent();
+        cp.fixPoint();
+        assertEquals(9, d.startMin());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testPresentOverload(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 10, 5);
+        IntervalVar b = makeIntervalVar(cp, 0, 10, 4);
+        IntervalVar c = makeIntervalVar(cp, 0, 10, 2);
+        assertThrows(InconsistencyException.class, () -> cp.post(disjunctive(new IntervalVar[]{a, b, c})));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutionsAsChecker(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 4;
+            int[] length = new int[n];
+            boolean[] optional = new boolean[n];
+            int[] startMin = new int[n];
+            int[] endMax = new int[n];
+            for (int i = 0; i < n; i++) {
+                length[i] = rand.nextInt(4);
+                optional[i] = rand.nextBoolean();
+                startMin[i] = rand.nextInt(4);
+                endMax[i] = startMin[i] + length[i] + rand.nextInt(4);
+            }
+            assertEquals(solve(cpSupplier, length, optional, startMin, endMax, false),
+                    solve(cpSupplier, length, optional, startMin, endMax, true));
+        }
+    }
+
+    private static int solve(Supplier<Solver> cpSupplier, int[] length, boolean[] optional,
+                             int[] startMin, int[] endMax, boolean post) {
+        Solver cp = cpSupplier.get();
+        int n = length.length;
+        IntervalVar[] x = new IntervalVar[n];
+        for (int i = 0; i < n; i++)
+            x[i] = makeIntervalVar(cp, startMin[i], endMax[i], length[i], optional[i]);
+        int[] nSolutions = new int[1];
+        try {
+            if (post)
+                cp.post(disjunctive(x));
+            DFSearch dfs = makeDfs(cp, branchIntervals(cp, x));
+            dfs.onSolution(() -> {
+                for (int i = 0; i < n; i++)
+                    for (int j = i + 1; j < n; j++)
+                        if (x[i].isPresent() && x[j].isPresent()
+                                && x[i].endMin() > x[j].startMin() && x[j].endMin() > x[i].startMin())
+                            return;
+                nSolutions[0]++;
+            });
+            SearchStatistics stats = dfs.solve();
+            if (post)
+                assertEquals(nSolutions[0], stats.numberOfSolutions());
+        } catch (InconsistencyException e) {
+            // no solution
+        }
+        return nSolutions[0];
+    }
+
+    static Supplier<Procedure[]> branchIntervals(Solver cp, IntervalVar[] x) {
+        return () -> {
+            for (IntervalVar xi : x) {
+                if (xi.isFixed())
+                    continue;
+                if (xi.isOptional())
+                    return branch(() -> {
+                        xi.setPresent();
+                        cp.fixPoint();
+                    }, () -> {
+                        xi.setAbsent();
+                        cp.fixPoint();
+                    });
+                int v = xi.startMin();
+                return branch(() -> {
+                    xi.fixStart(v);
+                    cp.fixPoint();
+                }, () -> {
+                    xi.setStartMin(v + 1);
+                    cp.fixPoint();
+                });
+            }
+            return EMPTY;
+        };
+    }
+}
@@ -227,6 +227,32 @@ public class DisjunctiveTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEdgeFinding(Solver cp) {
+        IntVar sA = makeIntVar(cp, 0, 7);
+        int d1 = 4;
+        IntVar sB = makeIntVar(cp, 1, 8);
+        int d2 = 3;
+        IntVar sC = makeIntVar(cp, 0, 14);
+        int d3 = 5;
+
+        Disjunctive disjunctive = new Disjunctive(new IntVar[]{sA, sB, sC}, new int[]{d1, d2, d3});
+
+        // Test the method by itself:
+        cp.getStateManager().withNewState(() -> {
+            assertFalse(disjunctive.detectablePrecedence());
+            // A, B and C cannot all end before 11: C is after A and B
+            assertTrue(disjunctive.edgeFinding());
+            assertEquals(7, sC.min(), "edge finding should set sC.min() to 7");
+            assertFalse(disjunctive.edgeFinding());
+        });
+
+        // Integration test by posting the constraint:
+        cp.post(disjunctive);
+        assertEquals(7, sC.min(), "edge finding should set sC.min() to 7");
+    }
+
     @ParameterizedTest
     @MethodSource("getSolver")
     public void testUsingManualLoop(Solver cp) {
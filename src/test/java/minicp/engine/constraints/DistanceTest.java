@@ -0,0 +1,135 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistanceTest extends SolverTest {
+
+    // nodes 0..2 at positions 10, 20, 30 on a line, begin and end at position 0
+    private static final int[][] dist = new int[][]{
+            {0, 10, 20, 10, 10},
+            {10, 0, 10, 20, 20},
+            {20, 10, 0, 30, 30},
+            {10, 20, 30, 0, 0},
+            {10, 20, 30, 0, 0}
+    };
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLength(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        IntVar length = makeIntVar(cp, 0, 100);
+        cp.post(distance(seq, dist, length));
+        assertEquals(0, length.min());
+        seq.insert(1, seq.begin());
+        cp.fixPoint();
+        assertEquals(40, length.min());
+        seq.require(2);
+        cp.fixPoint();
+        // the cheapest insertion of 2 is after 1
+        assertEquals(60, length.min());
+        seq.insert(2, 1);
+        seq.exclude(0);
+        cp.fixPoint();
+        assertTrue(length.isFixed());
+        assertEquals(60, length.min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testInsertionCost(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        IntVar length = makeIntVar(cp, 0, 60);
+        cp.post(distance(seq, dist, length));
+        seq.insert(2, seq.begin());
+        seq.insert(1, seq.begin());
+        cp.fixPoint();
+        // a detour of 20 for 0 after 1, of 0 elsewhere
+        assertEquals(60, length.min());
+        assertTrue(seq.canInsert(0, seq.begin()));
+        assertFalse(seq.canInsert(0, 1));
+        assertTrue(seq.canInsert(0, 2));
+        seq.removeInsertion(0, seq.begin());
+        seq.removeInsertion(0, 2);
+        assertTrue(seq.isExcluded(0));
+        assertThrows(InconsistencyException.class, () -> cp.post(lessOrEqual(length, 59)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutions(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 50; iter++) {
+            int n = 1 + rand.nextInt(5);
+            int[][] d = new int[n + 2][n + 2];
+            for (int i = 0; i < n + 2; i++)
+                for (int j = 0; j < n + 2; j++)
+                    d[i][j] = i == j ? 0 : 1 + rand.nextInt(20); // not always a metric
+            int maxLength = 10 + rand.nextInt(60);
+            boolean[] required = new boolean[n];
+            for (int i = 0; i < n; i++)
+                required[i] = rand.nextInt(3) == 0;
+            int expected = SequenceEnumeration.count(required, order -> length(order, d) <= maxLength);
+
+            int nSolutions;
+            try {
+                Solver cp = cpSupplier.get();
+                SequenceVar seq = makeSequenceVar(cp, n);
+                IntVar length = makeIntVar(cp, 0, maxLength);
+                for (int i = 0; i < n; i++)
+                    if (required[i])
+                        seq.require(i);
+                cp.post(distance(seq, d, length));
+                DFSearch dfs = makeDfs(cp, insertion(d, seq));
+                dfs.onSolution(() -> assertTrue(length.isFixed()));
+                nSolutions = dfs.solve().numberOfSolutions();
+            } catch (InconsistencyException e) {
+                nSolutions = 0;
+            }
+            assertEquals(expected, nSolutions);
+        }
+    }
+
+    /**
+     * Returns the length of a sequence from the start node n to the end node n + 1
+     */
+    private static int length(int[] order, int[][] d) {
+        int n = d.length - 2;
+        int length = 0;
+        int pred = n;
+        for (int node : order) {
+            length += d[pred][node];
+            pred = node;
+        }
+        return length + d[pred][n + 1];
+    }
+}
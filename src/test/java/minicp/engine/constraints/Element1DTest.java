@@ -201,19 +201,11 @@ public class Element1DTest extends SolverTest {
                 cp.fixPoint();
                 --valCount[val]; // one occurrence has been removed
                 assertTrue(valCount[val] >= 0);
-                if (valCount[val] > 0 || (val > z.min() && val < z.max())) {
+                // domain consistency: z contains exactly the values of the remaining indices
+                if (valCount[val] > 0) {
                     assertTrue(z.contains(val), String.format("z should still contain %d", val));
-                } else if (valCount[val] == 0) {
-                    if (val == z.min()) {
-                        for (int v = val; v <= valCount.length && valCount[v] == 0; v++) {
-                            assertFalse(z.contains(v), String.format("min value update: z does not contain anymore %d", v));
-                        }
-                    }
-                    if (val == z.max()) {
-                        for (int v = val; v >= 0 && valCount[v] == 0; v--) {
-                            assertFalse(z.contains(v), String.format("max value update: z does not contain anymore %d", v));
-                        }
-                    }
+                } else {
+                    assertFalse(z.contains(val), String.format("z does not contain anymore %d", val));
                 }
             }
 
@@ -236,4 +228,38 @@ public class Element1DTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element1dDomainConsistency(Solver cp) {
+        try {
+            IntVar y = makeIntVar(cp, 0, 4);
+            IntVar z = makeIntVar(cp, 0, 10);
+
+            int[] T = new int[]{1, 3, 1, 5, 3};
+
+            cp.post(new Element1D(T, y, z));
+            assertEquals(3, z.size());
+
+            cp.getStateManager().saveState();
+            z.remove(3);
+            cp.fixPoint();
+            assertEquals(3, y.size());
+            assertFalse(y.contains(1));
+            assertFalse(y.contains(4));
+            cp.getStateManager().restoreState();
+
+            y.remove(1);
+            cp.fixPoint();
+            assertTrue(z.contains(3));
+            y.remove(4);
+            cp.fixPoint();
+            assertFalse(z.contains(3));
+            assertEquals(1, z.min());
+            assertEquals(5, z.max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
 }
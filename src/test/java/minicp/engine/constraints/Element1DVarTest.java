@@ -30,6 +30,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 
 import static minicp.cp.BranchingScheme.firstFail;
 import static minicp.cp.Factory.makeDfs;
@@ -294,4 +295,47 @@ public class Element1DVarTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element1dVarDomainConsistency(Solver cp) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 100; iter++) {
+            cp.getStateManager().saveState();
+            try {
+                IntVar[] T = new IntVar[4];
+                for (int i = 0; i < T.length; i++)
+                    T[i] = makeRandomVar(cp, rand);
+                IntVar y = makeIntVar(cp, -1, 4);
+                IntVar z = makeRandomVar(cp, rand);
+                boolean[] inZ = new boolean[6];
+                for (int v = 0; v < 6; v++)
+                    inZ[v] = z.contains(v);
+
+                cp.post(new Element1DVar(T, y, z));
+                // y = i is supported iff T[i] and z intersect, z = v iff v is in some T[y]
+                for (int i = 0; i < T.length; i++) {
+                    boolean intersect = false;
+                    for (int v = 0; v < 6; v++)
+                        intersect |= T[i].contains(v) && z.contains(v);
+                    assertEquals(intersect, y.contains(i));
+                }
+                for (int v = 0; v < 6; v++) {
+                    boolean support = false;
+                    for (int i = 0; i < T.length && inZ[v]; i++)
+                        support |= y.contains(i) && T[i].contains(v);
+                    assertEquals(support, z.contains(v));
+                }
+            } catch (InconsistencyException ignored) {
+            }
+            cp.getStateManager().restoreState();
+        }
+    }
+
+    private static IntVar makeRandomVar(Solver cp, Random rand) {
+        IntVar x = makeIntVar(cp, 0, 5);
+        for (int k = 0; k < 3; k++)
+            if (x.size() > 1)
+                x.remove(rand.nextInt(6));
+        return x;
+    }
 }
@@ -120,4 +120,69 @@ public class Element2DTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element2dSharedMatrix(Solver cp) {
+        try {
+            int[][] T = new int[][]{
+                    {-4, 8, 0},
+                    {3, -4, 7},
+            };
+            IntVar x1 = makeIntVar(cp, 0, 1);
+            IntVar y1 = makeIntVar(cp, 0, 2);
+            IntVar z1 = makeIntVar(cp, -10, 10);
+            IntVar x2 = makeIntVar(cp, 0, 1);
+            IntVar y2 = makeIntVar(cp, 0, 2);
+            IntVar z2 = makeIntVar(cp, -10, 10);
+            // both constraints use the same sorted entries
+            cp.post(new Element2D(T, x1, y1, z1));
+            cp.post(new Element2D(T, x2, y2, z2));
+            assertEquals(-4, z1.min());
+            assertEquals(8, z1.max());
+
+            z1.removeBelow(0);
+            z2.removeAbove(0);
+            cp.fixPoint();
+            assertEquals(0, z1.min());
+            assertEquals(8, z1.max());
+            assertEquals(-4, z2.min());
+            assertEquals(0, z2.max());
+
+            y2.remove(2);
+            cp.fixPoint();
+            assertEquals(-4, z2.max());
+            assertEquals(0, z1.min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element2dModifiedMatrix(Solver cp) {
+        try {
+            int[][] T = new int[][]{
+                    {-4, 8, 0},
+                    {3, -4, 7},
+            };
+            IntVar x1 = makeIntVar(cp, 0, 1);
+            IntVar y1 = makeIntVar(cp, 0, 2);
+            IntVar z1 = makeIntVar(cp, -10, 10);
+            cp.post(new Element2D(T, x1, y1, z1));
+            assertEquals(8, z1.max());
+
+            // the entries are sorted again for the modified matrix
+            T[0][1] = 9;
+            IntVar x2 = makeIntVar(cp, 0, 1);
+            IntVar y2 = makeIntVar(cp, 0, 2);
+            IntVar z2 = makeIntVar(cp, -10, 10);
+            cp.post(new Element2D(T, x2, y2, z2));
+            assertEquals(9, z2.max());
+            z2.removeAbove(8);
+            cp.fixPoint();
+            assertEquals(7, z2.max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
 }
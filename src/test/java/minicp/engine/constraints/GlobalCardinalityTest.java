@@ -0,0 +1,195 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlobalCardinalityTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void countingUpperBound(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 3);
+        cp.post(globalCardinality(x, 0, new int[]{0, 0, 0}, new int[]{2, 1, 2}));
+        assertEquals(3, x[1].size());
+        cp.post(equal(x[0], 1));
+        for (int i = 1; i < 4; i++)
+            assertFalse(x[i].contains(1));
+        cp.post(equal(x[1], 2));
+        cp.post(equal(x[2], 2));
+        assertTrue(x[3].isFixed());
+        assertEquals(0, x[3].min());
+        assertThrows(InconsistencyException.class, () -> cp.post(globalCardinality(x, 0, new int[]{0, 0, 0}, new int[]{1, 1, 1})));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void countingLowerBound(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 3);
+        x[0].remove(2);
+        x[1].remove(2);
+        cp.post(globalCardinality(x, 2, new int[]{2}, new int[]{4}));
+        assertTrue(x[2].isFixed());
+        assertTrue(x[3].isFixed());
+        assertEquals(2, x[3].min());
+        assertEquals(2, x[0].size());
+        // a value outside the domains cannot be taken
+        assertThrows(InconsistencyException.class, () -> cp.post(globalCardinality(x, 5, new int[]{1}, new int[]{1})));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void flowFiltering(Solver cp) {
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 1, 4)};
+        cp.post(globalCardinalityDC(x, 1, new int[]{0, 0, 0, 0}, new int[]{2, 1, 1, 1}));
+        // x[0], x[1] and x[2] saturate the values 1 and 2
+        assertEquals(3, x[3].min());
+        assertEquals(2, x[3].size());
+
+        cp.getStateManager().saveState();
+        // value 3 must be taken, and only x[3] can
+        cp.post(globalCardinalityDC(x, 3, new int[]{1}, new int[]{1}));
+        assertTrue(x[3].isFixed());
+        assertEquals(3, x[3].min());
+        cp.getStateManager().restoreState();
+
+        // the counts are satisfiable but x[0], x[1], x[2] cannot take 1 twice and 2 twice
+        assertThrows(InconsistencyException.class,
+                () -> cp.post(globalCardinalityDC(x, 1, new int[]{2, 2, 0, 0}, new int[]{4, 4, 4, 4})));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void sameAsAllDifferentDC(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 20; iter++) {
+            long seed = rand.nextLong();
+            SearchStatistics stats1 = solve(cpSupplier, seed, true);
+            SearchStatistics stats2 = solve(cpSupplier, seed, false);
+            if (stats1 == null) {
+                assertNull(stats2);
+            } else {
+                assertNotNull(stats2);
+                assertEquals(stats1.numberOfSolutions(), stats2.numberOfSolutions());
+                assertEquals(stats1.numberOfFailures(), stats2.numberOfFailures());
+                assertEquals(stats1.numberOfNodes(), stats2.numberOfNodes());
+            }
+        }
+    }
+
+    private static SearchStatistics solve(Supplier<Solver> cpSupplier, long seed, boolean allDiff) {
+        Random rand = new Random(seed);
+        try {
+            Solver cp = cpSupplier.get();
+            IntVar[] x = makeIntVarArray(cp, 6, 8);
+            for (IntVar var : x)
+                for (int k = 0; k < 4; k++)
+                    var.remove(rand.nextInt(8));
+            if (allDiff) {
+                cp.post(allDifferentDC(x));
+            } else {
+                cp.post(globalCardinalityDC(x, 0, new int[8], new int[]{1, 1, 1, 1, 1, 1, 1, 1}));
+            }
+            return makeDfs(cp, firstFail(x)).solve();
+        } catch (InconsistencyException e) {
+            return null;
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void randomDomainConsistency(Supplier<Solver> cpSupplier) {
+        // the values left by the flow filter are exactly the ones of the solutions
+        Random rand = new Random(67292);
+        for (int iter = 0; iter < 50; iter++) {
+            int n = 6;
+            int[] low = new int[4];
+            int[] up = new int[4];
+            for (int k = 0; k < 4; k++) {
+                low[k] = rand.nextInt(2);
+                up[k] = low[k] + rand.nextInt(3);
+            }
+            boolean[][] removed = new boolean[n][5];
+            for (int i = 0; i < n; i++)
+                for (int k = 0; k < 2; k++)
+                    removed[i][rand.nextInt(5)] = true;
+
+            // supports computed on the decomposition
+            boolean[][] support = new boolean[n][5];
+            SearchStatistics decomp = null;
+            try {
+                Solver cp = cpSupplier.get();
+                IntVar[] x = makeVars(cp, removed);
+                for (int k = 0; k < 4; k++) {
+                    final int v = k + 1;
+                    cp.post(sum(makeIntVarArray(n, i -> isEqual(x[i], v)), makeIntVar(cp, low[k], up[k])));
+                }
+                DFSearch dfs = makeDfs(cp, firstFail(x));
+                dfs.onSolution(() -> {
+                    for (int i = 0; i < n; i++)
+                        support[i][x[i].min()] = true;
+                });
+                decomp = dfs.solve();
+            } catch (InconsistencyException ignored) {
+            }
+
+            for (boolean dc : new boolean[]{false, true}) {
+                try {
+                    Solver cp = cpSupplier.get();
+                    IntVar[] x = makeVars(cp, removed);
+                    cp.post(new GlobalCardinality(x, 1, low, up, dc));
+                    if (dc) {
+                        for (int i = 0; i < n; i++)
+                            for (int v = 0; v < 5; v++)
+                                assertEquals(support[i][v], x[i].contains(v));
+                    }
+                    SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                    assertNotNull(decomp);
+                    assertEquals(decomp.numberOfSolutions(), stats.numberOfSolutions());
+                } catch (InconsistencyException e) {
+                    assertTrue(decomp == null || decomp.numberOfSolutions() == 0);
+                }
+            }
+        }
+    }
+
+    private static IntVar[] makeVars(Solver cp, boolean[][] removed) {
+        IntVar[] x = makeIntVarArray(cp, removed.length, 5);
+        for (int i = 0; i < removed.length; i++)
+            for (int v = 0; v < 5; v++)
+                if (removed[i][v])
+                    x[i].remove(v);
+        return x;
+    }
+}
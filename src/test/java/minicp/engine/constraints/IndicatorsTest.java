@@ -0,0 +1,138 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndicatorsTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRemovedValues(Solver cp) {
+        IntVar x = makeIntVar(cp, 2, 6);
+        BoolVar[] b = indicators(x);
+        assertEquals(7, b.length);
+        assertTrue(b[0].isFalse());
+        assertTrue(b[1].isFalse());
+        assertFalse(b[2].isFixed());
+
+        cp.getStateManager().saveState();
+        cp.post(notEqual(x, 3));
+        assertTrue(b[3].isFalse());
+        cp.post(lessOrEqual(x, 4));
+        assertTrue(b[5].isFalse());
+        assertTrue(b[6].isFalse());
+        assertFalse(b[4].isFixed());
+        cp.post(notEqual(x, 2));
+        assertTrue(b[4].isTrue());
+        cp.getStateManager().restoreState();
+
+        for (int j = 2; j <= 6; j++)
+            assertFalse(b[j].isFixed());
+        cp.post(equal(x, 5));
+        assertTrue(b[5].isTrue());
+        assertTrue(b[6].isFalse());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testFixedIndicators(Solver cp) {
+        IntVar x = makeIntVar(cp, 0, 4);
+        BoolVar[] b = indicators(x);
+        cp.getStateManager().saveState();
+        cp.post(equal(b[1], 0));
+        assertFalse(x.contains(1));
+        cp.post(equal(b[3], 1));
+        assertTrue(x.isFixed());
+        assertEquals(3, x.min());
+        assertTrue(b[0].isFalse());
+        assertThrows(InconsistencyException.class, () -> cp.post(equal(b[2], 1)));
+        cp.getStateManager().restoreState();
+
+        assertEquals(5, x.size());
+        for (int j = 0; j < 4; j++)
+            cp.post(equal(b[j], 0));
+        assertTrue(x.isFixed());
+        assertTrue(b[4].isTrue());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testNegativeValues(Solver cp) {
+        IntVar x = makeIntVar(cp, -1, 3);
+        assertThrows(InvalidParameterException.class, () -> indicators(x));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRandomSameAsIsEqual(Solver cp) {
+        // same domains as one isEqual constraint per value
+        Random rand = new Random(42);
+        IntVar[] x = makeIntVarArray(cp, 2, 8);
+        BoolVar[][] b = new BoolVar[][]{indicators(x[0]), indicators(x[1])};
+        BoolVar[][] c = new BoolVar[2][8];
+        for (int j = 0; j < 8; j++) {
+            c[0][j] = isEqual(x[0], j);
+            c[1][j] = isEqual(x[1], j);
+        }
+        for (int iter = 0; iter < 200; iter++) {
+            cp.getStateManager().saveState();
+            try {
+                for (int k = 0; k < 4; k++) {
+                    int i = rand.nextInt(2);
+                    int j = rand.nextInt(8);
+                    switch (rand.nextInt(4)) {
+                        case 0:
+                            cp.post(notEqual(x[i], j));
+                            break;
+                        case 1:
+                            cp.post(equal(b[i][j], rand.nextInt(2)));
+                            break;
+                        case 2:
+                            cp.post(equal(c[i][j], rand.nextInt(2)));
+                            break;
+                        default:
+                            cp.post(lessOrEqual(x[i], j));
+                    }
+                    for (int v = 0; v < 2; v++) {
+                        for (int w = 0; w < 8; w++) {
+                            assertEquals(c[v][w].isTrue(), b[v][w].isTrue());
+                            assertEquals(c[v][w].isFalse(), b[v][w].isFalse());
+                        }
+                    }
+                }
+            } catch (InconsistencyException ignored) {
+            }
+            cp.getStateManager().restoreState();
+        }
+        // one solution per value of x[0] when branching on its indicators
+        assertEquals(8, makeDfs(cp, firstFail(b[0])).solve().numberOfSolutions());
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MDD4RTest extends SolverTest {
+
+    private static int[][] product(int arity, int n) {
+        int nTuples = (int) Math.pow(n, arity);
+        int[][] table = new int[nTuples][arity];
+        for (int t = 0; t < nTuples; t++) {
+            int r = t;
+            for (int i = arity - 1; i >= 0; i--) {
+                table[t][i] = r % n;
+                r /= n;
+            }
+        }
+        return table;
+    }
+
+    private static int[][] randomTuples(Random rand, int arity, int nTuples, int minvalue, int maxvalue) {
+        int[][] r = new int[nTuples][arity];
+        for (int i = 0; i < nTuples; i++)
+            for (int j = 0; j < arity; j++)
+                r[i][j] = rand.nextInt(maxvalue - minvalue) + minvalue;
+        return r;
+    }
+
+    @Test
+    public void compileProduct() {
+        MDD mdd = MDD.fromTable(product(4, 3));
+        assertEquals(4, mdd.arity());
+        assertEquals(5, mdd.numberOfNodes());
+        assertEquals(12, mdd.numberOfEdges());
+        assertEquals(81, mdd.numberOfTuples());
+    }
+
+    @Test
+    public void compileRandom() {
+        Random rand = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            int[][] table = randomTuples(rand, 4, 100, 0, 4);
+            Set<String> distinct = new HashSet<>();
+            for (int[] t : table)
+                distinct.add(Arrays.toString(t));
+            MDD mdd = MDD.fromTable(table);
+            assertEquals(distinct.size(), mdd.numberOfTuples());
+            // no more edges than the trie of the tuples
+            assertTrue(mdd.numberOfEdges() <= 4 * distinct.size());
+        }
+    }
+
+    @Test
+    public void compileBounded() {
+        assertNotNull(MDD.fromTable(product(4, 3), 17));
+        assertNull(MDD.fromTable(product(4, 3), 16));
+        Random rand = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            int[][] table = randomTuples(rand, 6, 200, 0, 5);
+            MDD mdd = MDD.fromTable(table);
+            long size = mdd.numberOfNodes() + mdd.numberOfEdges();
+            assertEquals(mdd.numberOfEdges(), MDD.fromTable(table, size).numberOfEdges());
+            assertNull(MDD.fromTable(table, size - 1));
+            assertNull(MDD.fromTable(table, size / 2));
+        }
+    }
+
+    @Test
+    public void builderOrder() {
+        MDD.Builder builder = new MDD.Builder(2);
+        builder.addTuple(0, 1).addTuple(0, 1).addTuple(1, 0);
+        assertThrows(IllegalArgumentException.class, () -> builder.addTuple(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> builder.addTuple(1, 0, 0));
+        assertEquals(2, builder.build().numberOfTuples());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void simpleMDD(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 12);
+        int[][] table = new int[][]{
+                {0, 0, 2},
+                {3, 5, 7},
+                {6, 9, 10},
+                {1, 2, 3}
+        };
+        cp.post(new MDD4R(x, MDD.fromTable(table)));
+        assertEquals(4, x[0].size());
+        assertEquals(4, x[1].size());
+        assertEquals(4, x[2].size());
+
+        cp.getStateManager().saveState();
+        cp.post(notEqual(x[0], 0));
+        cp.post(notEqual(x[2], 7));
+        assertEquals(2, x[1].size());
+        assertTrue(x[1].contains(2));
+        assertTrue(x[1].contains(9));
+        cp.getStateManager().restoreState();
+
+        assertEquals(4, x[1].size());
+        cp.post(equal(x[1], 5));
+        assertTrue(x[0].isFixed());
+        assertEquals(7, x[2].min());
+        assertThrows(InconsistencyException.class, () -> cp.post(notEqual(x[0], 3)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void offsetAndEmpty(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 2, -5, 5);
+        cp.post(new MDD4R(x, MDD.fromTable(new int[][]{{-7, 1}, {-3, 4}, {2, 8}})));
+        assertTrue(x[0].isFixed());
+        assertEquals(-3, x[0].min());
+        assertEquals(4, x[1].min());
+
+        IntVar[] y = makeIntVarArray(cp, 2, 5);
+        assertThrows(InconsistencyException.class,
+                () -> cp.post(new MDD4R(y, new MDD.Builder(2).build())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void randomMDD(Supplier<Solver> cpSupplier) {
+        // same search tree as the table decomposition that is also domain consistent
+        Random rand = new Random(67292);
+        for (int i = 0; i < 100; i++) {
+            int[][] t1 = randomTuples(rand, 3, 50, 2, 8);
+            int[][] t2 = randomTuples(rand, 3, 50, 1, 7);
+            int[][] t3 = randomTuples(rand, 3, 50, 0, 6);
+            SearchStatistics stats1 = solve(cpSupplier, t1, t2, t3, false);
+            SearchStatistics stats2 = solve(cpSupplier, t1, t2, t3, true);
+            if (stats1 == null) {
+                assertNull(stats2);
+            } else {
+                assertEquals(stats1.numberOfSolutions(), stats2.numberOfSolutions());
+                assertEquals(stats1.numberOfFailures(), stats2.numberOfFailures());
+                assertEquals(stats1.numberOfNodes(), stats2.numberOfNodes());
+            }
+        }
+    }
+
+    private static SearchStatistics solve(Supplier<Solver> cpSupplier, int[][] t1, int[][] t2, int[][] t3, boolean mdd) {
+        try {
+            Solver cp = cpSupplier.get();
+            IntVar[] x = makeIntVarArray(cp, 5, 9);
+            cp.post(allDifferent(x));
+            IntVar[][] scopes = {{x[0], x[1], x[2]}, {x[2], x[3], x[4]}, {x[0], x[2], x[4]}};
+            int[][][] tables = {t1, t2, t3};
+            for (int k = 0; k < 3; k++)
+                cp.post(mdd ? mdd(scopes[k], MDD.fromTable(tables[k])) : new TableDecomp(scopes[k], tables[k]));
+            return makeDfs(cp, firstFail(x)).solve();
+        } catch (InconsistencyException e) {
+            return null;
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void factoryTable(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 5, 10);
+        // 100000 tuples sharing all their prefixes and suffixes
+        assertTrue(table(x, product(5, 10)) instanceof MDD4R);
+        IntVar[] y = makeIntVarArray(cp, 3, 9);
+        assertTrue(table(y, randomTuples(new Random(0), 3, 50, 0, 9)) instanceof TableCT);
+    }
+}
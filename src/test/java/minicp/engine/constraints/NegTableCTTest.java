@@ -0,0 +1,134 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NegTableCTTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void simpleNegativeTable(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 2);
+        int[][] table = new int[][]{
+                {0, 0, 0},
+                {0, 0, 1},
+                {0, 1, 0},
+                {0, 1, 1},
+                {0, 1, 1}, // duplicates are ignored
+                {1, 1, 1}
+        };
+        cp.post(negativeTable(x, table));
+        assertTrue(x[0].isFixed());
+        assertEquals(1, x[0].min());
+        assertEquals(2, x[1].size());
+
+        cp.getStateManager().saveState();
+        cp.post(equal(x[1], 1));
+        assertTrue(x[2].isFixed());
+        assertEquals(0, x[2].min());
+        cp.getStateManager().restoreState();
+
+        cp.post(equal(x[2], 1));
+        assertTrue(x[1].isFixed());
+        assertEquals(0, x[1].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void forbiddenAssignment(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 2, 10);
+        cp.post(negativeTable(x, new int[][]{{3, 4}, {5, 12}}));
+        assertEquals(10, x[0].size());
+        cp.post(equal(x[0], 3));
+        assertFalse(x[1].contains(4));
+        assertEquals(9, x[1].size());
+        assertThrows(InconsistencyException.class, () -> cp.post(equal(x[1], 4)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void randomNegativeTable(Supplier<Solver> cpSupplier) {
+        // same search tree as the positive table of the allowed tuples
+        Random rand = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            int[][][] forbidden = new int[3][][];
+            int[][][] allowed = new int[3][][];
+            for (int k = 0; k < 3; k++) {
+                int range = 2 + rand.nextInt(4);
+                forbidden[k] = new int[100][3];
+                for (int[] t : forbidden[k])
+                    for (int j = 0; j < 3; j++)
+                        t[j] = rand.nextInt(range);
+                allowed[k] = complement(forbidden[k], 6);
+            }
+            SearchStatistics stats1 = solve(cpSupplier, allowed, false);
+            SearchStatistics stats2 = solve(cpSupplier, forbidden, true);
+            if (stats1 == null) {
+                assertNull(stats2);
+            } else {
+                assertNotNull(stats2);
+                assertEquals(stats1.numberOfSolutions(), stats2.numberOfSolutions());
+                assertEquals(stats1.numberOfFailures(), stats2.numberOfFailures());
+                assertEquals(stats1.numberOfNodes(), stats2.numberOfNodes());
+            }
+        }
+    }
+
+    private static int[][] complement(int[][] table, int n) {
+        Set<Integer> forbidden = new HashSet<>();
+        for (int[] t : table)
+            forbidden.add((t[0] * n + t[1]) * n + t[2]);
+        List<int[]> allowed = new ArrayList<>();
+        for (int a = 0; a < n; a++)
+            for (int b = 0; b < n; b++)
+                for (int c = 0; c < n; c++)
+                    if (!forbidden.contains((a * n + b) * n + c))
+                        allowed.add(new int[]{a, b, c});
+        return allowed.toArray(new int[0][]);
+    }
+
+    private static SearchStatistics solve(Supplier<Solver> cpSupplier, int[][][] tables, boolean negative) {
+        try {
+            Solver cp = cpSupplier.get();
+            IntVar[] x = makeIntVarArray(cp, 5, 6);
+            cp.post(allDifferent(x));
+            IntVar[][] scopes = {{x[0], x[1], x[2]}, {x[2], x[3], x[4]}, {x[0], x[2], x[4]}};
+            for (int k = 0; k < 3; k++)
+                cp.post(negative ? negativeTable(scopes[k], tables[k]) : new TableCT(scopes[k], tables[k]));
+            return makeDfs(cp, firstFail(x)).solve();
+        } catch (InconsistencyException e) {
+            return null;
+        }
+    }
+}
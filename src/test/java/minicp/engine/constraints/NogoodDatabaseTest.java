@@ -0,0 +1,93 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NogoodDatabaseTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void nogoodPropagation(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        NogoodDatabase db = new NogoodDatabase(cp, 100);
+        db.addNogood(x, new int[]{0, 1, 2}, 3);
+        cp.post(db);
+        try {
+            cp.getStateManager().saveState();
+            cp.post(equal(x[0], 0));
+            cp.post(equal(x[2], 2));
+            assertFalse(x[1].contains(1));
+            assertEquals(2, x[1].size());
+            cp.getStateManager().restoreState();
+
+            cp.getStateManager().saveState();
+            cp.post(equal(x[1], 1));
+            cp.post(equal(x[0], 1));
+            assertEquals(3, x[2].size());
+            cp.getStateManager().restoreState();
+
+            // added after post
+            db.addNogood(new IntVar[]{x[1], x[2]}, new int[]{0, 0}, 2);
+            cp.post(equal(x[2], 0));
+            assertFalse(x[1].contains(0));
+            assertEquals(2, db.size());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void nogoodSolutions(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 2);
+        NogoodDatabase db = new NogoodDatabase(cp, 100);
+        db.addNogood(x, new int[]{0, 0, 0}, 3);
+        db.addNogood(x, new int[]{1, 1, 1}, 3);
+        db.addNogood(new IntVar[]{x[0], x[1]}, new int[]{0, 1}, 2);
+        cp.post(db);
+        SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+        // 8 - 2 - 2 (0,1,*) solutions
+        assertEquals(4, stats.numberOfSolutions());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void nogoodEviction(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 4);
+        NogoodDatabase db = new NogoodDatabase(cp, 20);
+        cp.post(db);
+        for (int v = 0; v < 4; v++)
+            for (int w = 0; w < 4; w++)
+                db.addNogood(x, new int[]{v, w, v, w}, 4);
+        assertTrue(db.numberOfLiterals() <= 20);
+        assertTrue(db.size() > 0);
+        // the remaining nogoods are still propagated
+        SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+        assertTrue(stats.numberOfSolutions() >= 256 - 16);
+        assertTrue(stats.numberOfSolutions() < 256);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrecedenceTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testInsertions(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        cp.post(precedence(seq, 0, 1, 2));
+        seq.insert(3, seq.begin());
+        seq.insert(1, 3);
+        cp.fixPoint();
+        // 3 1: 0 before 1, 2 after it
+        assertTrue(seq.canInsert(0, seq.begin()));
+        assertTrue(seq.canInsert(0, 3));
+        assertFalse(seq.canInsert(0, 1));
+        assertFalse(seq.canInsert(2, seq.begin()));
+        assertFalse(seq.canInsert(2, 3));
+        assertTrue(seq.canInsert(2, 1));
+
+        cp.getStateManager().saveState();
+        seq.insert(0, 3);
+        cp.fixPoint();
+        // 3 0 1
+        assertEquals(1, seq.nInsertions(2));
+        cp.getStateManager().restoreState();
+
+        seq.insert(2, 1);
+        cp.fixPoint();
+        // 3 1 2
+        assertEquals(2, seq.nInsertions(0));
+        assertThrows(InconsistencyException.class, () -> {
+            seq.insert(0, 2);
+            cp.fixPoint();
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testMembersOutOfOrder(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        seq.insert(2, seq.begin());
+        seq.insert(0, 2);
+        assertThrows(InconsistencyException.class, () -> cp.post(precedence(seq, 0, 1, 2)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testCountSequences(Solver cp) {
+        // ordered subsets of 4 nodes in which 0 precedes 1 when both are members
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        cp.post(precedence(seq, 0, 1));
+        SearchStatistics stats = makeDfs(cp, insertion(new int[6][6], seq)).solve();
+        // 65 sequences, 2 + 12 + 24 of them with both 0 and 1
+        assertEquals(65 - 19, stats.numberOfSolutions());
+        seq.require(0);
+        seq.require(1);
+        stats = makeDfs(cp, insertion(new int[6][6], seq)).solve();
+        assertEquals(19, stats.numberOfSolutions());
+    }
+}
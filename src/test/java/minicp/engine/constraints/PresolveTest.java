@@ -0,0 +1,214 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.Constraint;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PresolveTest extends SolverTest {
+
+    private static List<Constraint> queens(IntVar[] q) {
+        List<Constraint> constraints = new ArrayList<>();
+        for (int i = 0; i < q.length; i++) {
+            for (int j = i + 1; j < q.length; j++) {
+                constraints.add(notEqual(q[i], q[j]));
+                constraints.add(notEqual(q[i], q[j], j - i));
+                constraints.add(notEqual(q[i], q[j], i - j));
+            }
+        }
+        return constraints;
+    }
+
+    /**
+     * Counts the solutions of difference and equality constraints on n variables in 0..maxValue.
+     *
+     * @param relations the constraints, {i, j, c} for x[i] != x[j] + c, {i, j} for x[i] == x[j]
+     * @param batched true to post all the constraints in a batch, false to post them one by one
+     */
+    private static int countSolutions(Supplier<Solver> solverFactory, int n, int maxValue,
+                                      int[][] relations, boolean batched) {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, n, 0, maxValue);
+        Constraint[] constraints = new Constraint[relations.length];
+        for (int k = 0; k < relations.length; k++) {
+            int[] r = relations[k];
+            constraints[k] = r.length == 3 ? notEqual(x[r[0]], x[r[1]], r[2]) : equal(x[r[0]], x[r[1]]);
+        }
+        try {
+            if (batched) {
+                cp.postAll(constraints);
+            } else {
+                for (Constraint c : constraints)
+                    cp.post(c);
+            }
+        } catch (InconsistencyException e) {
+            return 0;
+        }
+        return makeDfs(cp, firstFail(x)).solve().numberOfSolutions();
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void presolveKeepsOffsetsOfMergedComponents(Supplier<Solver> solverFactory) {
+        int[][] relations = {{0, 1, 100}, {1, 2, 1}, {0, 2, 0}, {0, 1, -1}};
+        assertEquals(30, countSolutions(solverFactory, 3, 3, relations, false));
+        assertEquals(30, countSolutions(solverFactory, 3, 3, relations, true));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void presolveRandomSolutions(Supplier<Solver> solverFactory) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 1000; iter++) {
+            int n = 3 + rand.nextInt(2);
+            int[][] relations = new int[4 + rand.nextInt(10)][];
+            for (int k = 0; k < relations.length; k++) {
+                int i = rand.nextInt(n);
+                int j = (i + 1 + rand.nextInt(n - 1)) % n;
+                relations[k] = rand.nextInt(10) == 0 ? new int[]{i, j} : new int[]{i, j, rand.nextInt(3) - 1};
+            }
+            assertEquals(countSolutions(solverFactory, n, 3, relations, false),
+                    countSolutions(solverFactory, n, 3, relations, true));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void presolveMergesQueensCliques(Solver cp) {
+        IntVar[] q = makeIntVarArray(cp, 8, 8);
+        List<Constraint> presolved = Presolve.presolve(queens(q));
+        assertEquals(3, presolved.size());
+        for (Constraint c : presolved)
+            assertTrue(c instanceof AllDifferentFWC);
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void presolveQueensSolutions(Solver cp) {
+        IntVar[] q = makeIntVarArray(cp, 8, 8);
+        cp.batch(() -> {
+            for (Constraint c : queens(q))
+                cp.post(c);
+        });
+        DFSearch search = makeDfs(cp, firstFail(q));
+        SearchStatistics stats = search.solve();
+        assertEquals(92, stats.numberOfSolutions());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void presolveRemovesDuplicatesAndEntailed(Solver cp) {
+        IntVar x = makeIntVar(cp, 0, 5);
+        IntVar y = makeIntVar(cp, 0, 5);
+        IntVar z = makeIntVar(cp, 10, 15);
+        Constraint c = notEqual(x, y);
+        List<Constraint> constraints = new ArrayList<>();
+        constraints.add(c);
+        constraints.add(c);
+        constraints.add(notEqual(y, x));
+        constraints.add(notEqual(x, y, 1));
+        constraints.add(notEqual(x, z)); // disjoint domains
+        List<Constraint> presolved = Presolve.presolve(constraints);
+        assertEquals(2, presolved.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void presolveSubstitutesEqual(Solver cp) {
+        IntVar x = makeIntVar(cp, 0, 5);
+        IntVar y = makeIntVar(cp, 0, 5);
+        IntVar z = makeIntVar(cp, 0, 5);
+        List<Constraint> constraints = new ArrayList<>();
+        constraints.add(equal(x, y));
+        constraints.add(equal(y, x));
+        constraints.add(notEqual(x, z));
+        constraints.add(notEqual(y, z));
+        List<Constraint> presolved = Presolve.presolve(constraints);
+        // one equality and one difference
+        assertEquals(2, presolved.size());
+
+        try {
+            cp.batch(() -> {
+                for (Constraint c : constraints)
+                    cp.post(c);
+            });
+            cp.post(equal(z, 3));
+            assertFalse(x.contains(3));
+            assertFalse(y.contains(3));
+            cp.post(equal(x, 2));
+            assertTrue(y.isFixed());
+            assertEquals(2, y.min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void presolveFoldsFixedSumTerms(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 10);
+        try {
+            cp.batch(() -> {
+                cp.post(equal(x[0], 2));
+                cp.post(equal(x[1], 3));
+                cp.post(sum(x, 10));
+            });
+            assertEquals(0, x[2].min());
+            assertEquals(5, x[2].max());
+            cp.post(equal(x[2], 1));
+            assertTrue(x[3].isFixed());
+            assertEquals(4, x[3].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+
+        IntVar[] y = makeIntVarArray(cp, 2, 10);
+        List<Constraint> constraints = new ArrayList<>();
+        constraints.add(sum(new IntVar[]{y[0], y[1], makeIntVar(cp, 3, 3)}, 3));
+        cp.post(equal(y[0], 0));
+        cp.post(equal(y[1], 0));
+        // entailed sum
+        assertTrue(Presolve.presolve(constraints).isEmpty());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void presolveDetectsFailure(Solver cp) {
+        IntVar x = makeIntVar(cp, 0, 5);
+        IntVar y = makeIntVar(cp, 0, 5);
+        assertThrows(InconsistencyException.class, () -> cp.batch(() -> {
+            cp.post(equal(x, y));
+            cp.post(notEqual(y, x));
+            cp.post(equal(x, 1));
+        }));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.constraints.ScalarProduct.Relation;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import minicp.util.exception.IntOverFlowException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalarProductTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void lessOrEqualRelation(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 0, 10);
+        cp.post(scalarProduct(new int[]{2, 3, -1}, x, Relation.LE, 10));
+        assertEquals(10, x[0].max()); // 2*x0 <= 10 + x2
+        assertEquals(6, x[1].max());
+        assertEquals(0, x[2].min());
+
+        cp.post(equal(x[2], 2));
+        assertEquals(6, x[0].max());
+        assertEquals(4, x[1].max());
+
+        x[1].removeBelow(3);
+        cp.fixPoint();
+        assertEquals(1, x[0].max());
+        assertThrows(InconsistencyException.class, () -> {
+            x[0].removeBelow(2);
+            cp.fixPoint();
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void greaterOrEqualAndEqual(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 2, -5, 5);
+        cp.post(scalarProduct(new int[]{-2, 3}, x, Relation.GE, 20));
+        // -2*x0 + 3*x1 >= 20 with -2*x0 <= 10 and 3*x1 <= 15
+        assertEquals(-5, x[0].min());
+        assertEquals(-3, x[0].max());
+        assertEquals(4, x[1].min());
+
+        IntVar[] y = makeIntVarArray(cp, 3, 0, 5);
+        cp.post(scalarProduct(new int[]{1, 2, 3}, y, Relation.EQ, 25));
+        assertEquals(0, y[0].min());
+        assertEquals(3, y[1].min());
+        assertEquals(4, y[2].min());
+        cp.post(equal(y[2], 5));
+        assertEquals(4, y[0].max());
+        assertEquals(5, y[1].max());
+        cp.post(equal(y[0], 4));
+        assertTrue(y[1].isFixed());
+        assertEquals(3, y[1].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void noOverflow(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 0, 1000);
+        int big = 1000000000;
+        cp.post(scalarProduct(new int[]{big, big, -big}, x, Relation.LE, 2 * big));
+        assertEquals(1000, x[0].max());
+        cp.post(equal(x[2], 0));
+        assertEquals(2, x[0].max());
+        assertEquals(2, x[1].max());
+
+        IntVar[] y = makeIntVarArray(cp, 2, 0, 1000);
+        // the scalar product cannot be represented by an integer variable
+        assertThrows(IntOverFlowException.class, () -> scalarProduct(new int[]{big, big}, y));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void minValueCoefficient(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 2, 0, 5);
+        // MIN_VALUE*x0 + x1 >= MIN_VALUE
+        cp.post(scalarProduct(new int[]{Integer.MIN_VALUE, 1}, x, Relation.GE, Integer.MIN_VALUE));
+        assertEquals(0, x[0].min());
+        assertEquals(1, x[0].max());
+
+        IntVar[] y = makeIntVarArray(cp, 2, 0, 5);
+        // MIN_VALUE*y0 + y1 <= MIN_VALUE
+        cp.post(scalarProduct(new int[]{Integer.MIN_VALUE, 1}, y, Relation.LE, Integer.MIN_VALUE));
+        assertEquals(1, y[0].min());
+        assertEquals(5, y[0].max());
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void sameAsSumDecomposition(Supplier<Solver> cpSupplier) {
+        // both models are bounds consistent and reach the same fix point
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 50; iter++) {
+            int n = 4;
+            int[] a = new int[n];
+            for (int i = 0; i < n; i++)
+                a[i] = rand.nextInt(11) - 5;
+            int c = rand.nextInt(21) - 10;
+            Relation rel = Relation.values()[rand.nextInt(3)];
+            long seed = rand.nextLong();
+            SearchStatistics stats1 = solve(cpSupplier, a, rel, c, seed, true);
+            SearchStatistics stats2 = solve(cpSupplier, a, rel, c, seed, false);
+            if (stats1 == null) {
+                assertNull(stats2);
+            } else {
+                assertNotNull(stats2);
+                assertEquals(stats1.numberOfSolutions(), stats2.numberOfSolutions());
+                assertEquals(stats1.numberOfFailures(), stats2.numberOfFailures());
+                assertEquals(stats1.numberOfNodes(), stats2.numberOfNodes());
+            }
+        }
+    }
+
+    private static SearchStatistics solve(Supplier<Solver> cpSupplier, int[] a, Relation rel, int c, long seed, boolean decomp) {
+        Random rand = new Random(seed);
+        try {
+            Solver cp = cpSupplier.get();
+            IntVar[] x = makeIntVarArray(cp, a.length, -3, 3);
+            for (IntVar var : x)
+                var.remove(rand.nextInt(7) - 3);
+            if (decomp) {
+                IntVar s = sum(makeIntVarArray(a.length, i -> mul(x[i], a[i])));
+                if (rel == Relation.EQ)
+                    cp.post(equal(s, c));
+                else if (rel == Relation.LE)
+                    cp.post(lessOrEqual(s, c));
+                else
+                    cp.post(lessOrEqual(minus(s), -c));
+            } else {
+                cp.post(scalarProduct(a, x, rel, c));
+            }
+            return makeDfs(cp, firstFail(x)).solve();
+        } catch (InconsistencyException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceAssignmentTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testChanneling(Solver cp) {
+        SequenceVar[] seqs = new SequenceVar[]{makeSequenceVar(cp, 3), makeSequenceVar(cp, 3), makeSequenceVar(cp, 3)};
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        cp.post(assignment(seqs, x));
+        for (int i = 0; i < 3; i++)
+            assertEquals(3, x[i].size());
+
+        cp.post(notEqual(x[0], 1));
+        assertTrue(seqs[1].isExcluded(0));
+        cp.post(equal(x[1], 2));
+        assertTrue(seqs[2].isRequired(1));
+        assertTrue(seqs[0].isExcluded(1));
+        assertTrue(seqs[1].isExcluded(1));
+
+        seqs[0].insert(2, seqs[0].begin());
+        cp.fixPoint();
+        assertTrue(x[2].isFixed());
+        assertEquals(0, x[2].min());
+        assertTrue(seqs[2].isExcluded(2));
+
+        seqs[0].exclude(0);
+        cp.fixPoint();
+        assertTrue(x[0].isFixed());
+        assertEquals(2, x[0].min());
+        assertThrows(InconsistencyException.class, () -> {
+            seqs[2].exclude(0);
+            cp.fixPoint();
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testInvalidDomain(Solver cp) {
+        SequenceVar[] seqs = new SequenceVar[]{makeSequenceVar(cp, 2), makeSequenceVar(cp, 2)};
+        IntVar[] x = new IntVar[]{makeIntVar(cp, 1, 5), makeIntVar(cp, -3, 0)};
+        cp.post(assignment(seqs, x));
+        assertTrue(x[0].isFixed());
+        assertTrue(x[1].isFixed());
+        assertTrue(seqs[1].isRequired(0));
+        assertTrue(seqs[0].isRequired(1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testCountRoutes(Solver cp) {
+        // each node in one of two sequences: sum over the subsets of k nodes of k! (3-k)!
+        SequenceVar[] seqs = new SequenceVar[]{makeSequenceVar(cp, 3), makeSequenceVar(cp, 3)};
+        IntVar[] x = makeIntVarArray(cp, 3, 2);
+        cp.post(assignment(seqs, x));
+        DFSearch dfs = makeDfs(cp, insertion(new int[5][5], seqs));
+        dfs.onSolution(() -> {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(x[i].isFixed());
+                assertTrue(seqs[x[i].min()].isMember(i));
+            }
+        });
+        SearchStatistics stats = dfs.solve();
+        assertEquals(24, stats.numberOfSolutions());
+    }
+}
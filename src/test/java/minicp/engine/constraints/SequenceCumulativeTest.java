@@ -0,0 +1,138 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceCumulativeTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testCapacity(Solver cp) {
+        // activities 0 -> 2 and 1 -> 3, a single one at a time
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        cp.post(cumulative(seq, new int[]{0, 1}, new int[]{2, 3}, new int[]{1, 1}, 1));
+        seq.insert(0, seq.begin());
+        seq.insert(2, 0);
+        seq.require(1);
+        cp.fixPoint();
+        // 0 2: 1 can be inserted anywhere as 3 can be excluded
+        assertEquals(3, seq.nInsertions(1));
+        seq.require(3);
+        cp.fixPoint();
+        // the activity 1 -> 3 cannot overlap 0 -> 2
+        assertTrue(seq.canInsert(1, seq.begin()));
+        assertFalse(seq.canInsert(1, 0));
+        assertTrue(seq.canInsert(1, 2));
+        seq.insert(1, 2);
+        cp.fixPoint();
+        // 0 2 1: 3 is after 1
+        assertEquals(1, seq.nInsertions(3));
+        assertTrue(seq.canInsert(3, 1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOrder(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 2);
+        cp.post(cumulative(seq, new int[]{0}, new int[]{1}, new int[]{2}, 3));
+        seq.insert(1, seq.begin());
+        cp.fixPoint();
+        assertFalse(seq.canInsert(0, 1));
+        // an activity above the capacity cannot be in the sequence
+        cp.post(cumulative(seq, new int[]{0}, new int[]{1}, new int[]{4}, 3));
+        assertTrue(seq.isExcluded(0));
+        assertThrows(InconsistencyException.class, () -> seq.require(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutions(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 50; iter++) {
+            int nActivities = 1 + rand.nextInt(3);
+            int n = 2 * nActivities + rand.nextInt(2);
+            int[] starts = new int[nActivities];
+            int[] ends = new int[nActivities];
+            int[] load = new int[nActivities];
+            for (int a = 0; a < nActivities; a++) {
+                starts[a] = 2 * a;
+                ends[a] = 2 * a + 1;
+                load[a] = rand.nextInt(3);
+            }
+            int capacity = 1 + rand.nextInt(3);
+            boolean[] required = new boolean[n];
+            for (int i = 0; i < n; i++)
+                required[i] = rand.nextInt(3) == 0;
+            int expected = SequenceEnumeration.count(required, order -> fits(order, n, starts, ends, load, capacity));
+
+            int nSolutions;
+            try {
+                Solver cp = cpSupplier.get();
+                SequenceVar seq = makeSequenceVar(cp, n);
+                for (int i = 0; i < n; i++)
+                    if (required[i])
+                        seq.require(i);
+                cp.post(cumulative(seq, starts, ends, load, capacity));
+                DFSearch dfs = makeDfs(cp, insertion(new int[n + 2][n + 2], seq));
+                nSolutions = dfs.solve().numberOfSolutions();
+            } catch (InconsistencyException e) {
+                nSolutions = 0;
+            }
+            assertEquals(expected, nSolutions);
+        }
+    }
+
+    /**
+     * Tells if the activities whose start and end are members of a sequence fit in the capacity
+     */
+    private static boolean fits(int[] order, int n, int[] starts, int[] ends, int[] load, int capacity) {
+        int size = order.length;
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        for (int k = 0; k < size; k++)
+            position[order[k]] = k;
+        int[] profile = new int[size + 1];
+        boolean valid = true;
+        for (int a = 0; a < starts.length; a++) {
+            int start = position[starts[a]];
+            int end = position[ends[a]];
+            if (start >= 0 && end >= 0) {
+                valid &= start < end;
+                for (int k = start; k < end; k++)
+                    profile[k] += load[a];
+            }
+        }
+        for (int k = 0; k < size; k++)
+            valid &= profile[k] <= capacity;
+        return valid;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Brute-force enumeration of the sequences of a sequence variable,
+ * to check the number of solutions found with a constraint.
+ */
+final class SequenceEnumeration {
+
+    private SequenceEnumeration() {
+    }
+
+    /**
+     * Counts the sequences over the nodes 0..n-1 containing the required nodes
+     * and satisfying a condition.
+     *
+     * @param required the nodes that must be in the sequence, n being its length
+     * @param valid the condition to check on the order of the nodes in a sequence
+     * @return the number of sequences containing the required nodes that are valid
+     */
+    static int count(boolean[] required, Predicate<int[]> valid) {
+        int n = required.length;
+        return count(new int[n], 0, new boolean[n], required, valid);
+    }
+
+    private static int count(int[] order, int size, boolean[] member, boolean[] required, Predicate<int[]> valid) {
+        int count = 0;
+        boolean complete = true;
+        for (int i = 0; i < order.length; i++)
+            complete &= member[i] || !required[i];
+        if (complete && valid.test(Arrays.copyOf(order, size)))
+            count++;
+        for (int i = 0; i < order.length; i++) {
+            if (!member[i]) {
+                member[i] = true;
+                order[size] = i;
+                count += count(order, size + 1, member, required, valid);
+                member[i] = false;
+            }
+        }
+        return count;
+    }
+}
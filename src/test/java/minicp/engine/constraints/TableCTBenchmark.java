@@ -0,0 +1,145 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.io.InputReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+
+/**
+ * JMH benchmarks of the {@link TableCT} constraint,
+ * on large random tables and on the Eternity II puzzle.
+ * <p>
+ * Run them with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=minicp.engine.constraints.TableCTBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableCTBenchmark {
+
+    private static final int FAILURE_LIMIT = 20000;
+
+    @Param({"10000", "100000"})
+    public int nTuples;
+
+    private int[][] randomTable;
+    private int[][] pieces;
+    private int n, m, maxColor;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        randomTable = new int[nTuples][8];
+        for (int t = 0; t < nTuples; t++)
+            for (int i = 0; i < 8; i++)
+                randomTable[t][i] = rand.nextInt(20);
+
+        InputReader reader = new InputReader("data/eternity/eternity7x7.txt");
+        n = reader.getInt();
+        m = reader.getInt();
+        pieces = new int[n * m][4];
+        for (int p = 0; p < n * m; p++) {
+            for (int j = 0; j < 4; j++) {
+                pieces[p][j] = reader.getInt();
+                maxColor = Math.max(maxColor, pieces[p][j]);
+            }
+        }
+    }
+
+    /**
+     * Three overlapping random tables over 12 variables
+     */
+    @Benchmark
+    public int randomTables() {
+        Solver cp = makeSolver();
+        IntVar[] x = makeIntVarArray(cp, 12, 20);
+        cp.post(new TableCT(new IntVar[]{x[0], x[1], x[2], x[3], x[4], x[5], x[6], x[7]}, randomTable));
+        cp.post(new TableCT(new IntVar[]{x[4], x[5], x[6], x[7], x[8], x[9], x[10], x[11]}, randomTable));
+        cp.post(new TableCT(new IntVar[]{x[8], x[9], x[10], x[11], x[0], x[1], x[2], x[3]}, randomTable));
+        DFSearch dfs = makeDfs(cp, firstFail(x));
+        SearchStatistics stats = dfs.solve(s -> s.numberOfFailures() >= FAILURE_LIMIT);
+        return stats.numberOfNodes();
+    }
+
+    /**
+     * Eternity puzzle: one table of the rotated pieces per cell
+     */
+    @Benchmark
+    public int eternity() {
+        int[][] table = new int[4 * n * m][5];
+        for (int p = 0; p < n * m; p++) {
+            for (int r = 0; r < 4; r++) {
+                table[4 * p + r][0] = p;
+                for (int j = 0; j < 4; j++)
+                    table[4 * p + r][j + 1] = pieces[p][(j + r) % 4];
+            }
+        }
+        Solver cp = makeSolver();
+        IntVar[][] id = new IntVar[n][m];
+        IntVar[][] u = new IntVar[n + 1][m];
+        IntVar[][] l = new IntVar[n][m + 1];
+        for (int i = 0; i <= n; i++)
+            for (int j = 0; j < m; j++)
+                u[i][j] = makeIntVar(cp, 0, maxColor);
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j <= m; j++)
+                l[i][j] = makeIntVar(cp, 0, maxColor);
+        IntVar[] ids = new IntVar[n * m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                id[i][j] = makeIntVar(cp, 0, n * m - 1);
+                ids[i * m + j] = id[i][j];
+                cp.post(new TableCT(new IntVar[]{id[i][j], u[i][j], l[i][j + 1], u[i + 1][j], l[i][j]}, table));
+            }
+            cp.post(equal(l[i][0], 0));
+            cp.post(equal(l[i][m], 0));
+        }
+        for (int j = 0; j < m; j++) {
+            cp.post(equal(u[0][j], 0));
+            cp.post(equal(u[n][j], 0));
+        }
+        cp.post(allDifferent(ids));
+        DFSearch dfs = makeDfs(cp, firstFail(ids));
+        SearchStatistics stats = dfs.solve(s -> s.numberOfFailures() >= FAILURE_LIMIT || s.numberOfSolutions() > 0);
+        return stats.numberOfNodes();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TableCTBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -15,7 +15,11 @@ import org.javagrader.GradeFeedback;
 import org.javagrader.TestResultStatus;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Random;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
@@ -397,6 +401,69 @@ public class TableCTTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void randomShortTable(Supplier<Solver> cp) {
+        // the stars disable the delta update of the supports
+        // only for the tuples accepting all the values
+        Random rand = new Random(1234);
+        for (int i = 0; i < 10; i++) {
+            int[][][] shortTuples = new int[3][][];
+            IdentityHashMap<int[][], int[][]> shortTable = new IdentityHashMap<>();
+            int[][][] expanded = new int[3][][];
+            for (int k = 0; k < 3; k++) {
+                shortTuples[k] = randomTuples(rand, 3, 20, 0, 8);
+                for (int[] tuple : shortTuples[k])
+                    for (int j = 0; j < tuple.length; j++)
+                        if (rand.nextInt(6) == 0)
+                            tuple[j] = TableCT.STAR;
+                TableCT.Entry[][] entries = new TableCT.Entry[shortTuples[k].length][3];
+                for (int t = 0; t < entries.length; t++)
+                    for (int j = 0; j < 3; j++)
+                        entries[t][j] = shortTuples[k][t][j] == TableCT.STAR ? TableCT.star() : TableCT.eq(shortTuples[k][t][j]);
+                expanded[k] = expand(entries, 9);
+                shortTable.put(expanded[k], shortTuples[k]);
+            }
+            try {
+                testTable(cp, (x, t) -> new TableCT(x, shortTable.get(t)), expanded[0], expanded[1], expanded[2]);
+            } catch (NotImplementedException e) {
+                NotImplementedExceptionAssume.fail(e);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testDeltaUpdates(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 2, 10);
+        int[][] table = new int[10][];
+        for (int v = 0; v < 10; v++)
+            table[v] = new int[]{v, 9 - v};
+        cp.post(new TableCT(x, table));
+        cp.getStateManager().saveState();
+        // a few values removed: delta update
+        x[0].remove(3);
+        x[0].remove(4);
+        cp.fixPoint();
+        assertFalse(x[1].contains(6));
+        assertFalse(x[1].contains(5));
+        assertEquals(8, x[1].size());
+        cp.getStateManager().saveState();
+        // most of the values removed: reset update
+        x[1].removeAbove(2);
+        cp.fixPoint();
+        assertEquals(3, x[0].size());
+        assertEquals(7, x[0].min());
+        cp.getStateManager().restoreState();
+        assertEquals(8, x[0].size());
+        x[0].remove(9);
+        cp.fixPoint();
+        assertFalse(x[1].contains(0));
+        assertEquals(7, x[1].size());
+        cp.getStateManager().restoreState();
+        assertEquals(10, x[1].size());
+    }
+
     @ParameterizedTest
     @MethodSource("getSolver")
     public void testIncrementalUpdates(Solver cp) {
@@ -453,4 +520,106 @@ public class TableCTTest extends SolverTest {
         }
     }
 
+    /**
+     * Expands the tuples of a smart table over the values in [0..n-1]
+     */
+    private static int[][] expand(TableCT.Entry[][] table, int n) {
+        List<int[]> tuples = new ArrayList<>();
+        for (TableCT.Entry[] row : table) {
+            List<int[]> partial = new ArrayList<>();
+            partial.add(new int[0]);
+            for (TableCT.Entry e : row) {
+                List<int[]> next = new ArrayList<>();
+                for (int[] p : partial)
+                    for (int v = 0; v < n; v++)
+                        if (e.accepts(v)) {
+                            int[] q = Arrays.copyOf(p, p.length + 1);
+                            q[p.length] = v;
+                            next.add(q);
+                        }
+                partial = next;
+            }
+            tuples.addAll(partial);
+        }
+        return tuples.toArray(new int[0][]);
+    }
+
+    private static TableCT.Entry[][] randomSmartTuples(Random rand, int arity, int nTuples, int n) {
+        TableCT.Entry[][] r = new TableCT.Entry[nTuples][arity];
+        for (int i = 0; i < nTuples; i++)
+            for (int j = 0; j < arity; j++) {
+                int v = rand.nextInt(n);
+                switch (rand.nextInt(12)) {
+                    case 0: r[i][j] = TableCT.star(); break;
+                    case 1: r[i][j] = TableCT.ne(v); break;
+                    case 2: r[i][j] = TableCT.le(v); break;
+                    case 3: r[i][j] = TableCT.ge(v); break;
+                    case 4: r[i][j] = TableCT.range(v, v + rand.nextInt(3)); break;
+                    default: r[i][j] = TableCT.eq(v);
+                }
+            }
+        return r;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void shortTable(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 5);
+        int[][] table = new int[][]{
+                {0, TableCT.STAR, 1},
+                {TableCT.STAR, 3, 2}
+        };
+        try {
+            cp.post(new TableCT(x, table));
+            assertEquals(5, x[0].size());
+            assertEquals(5, x[1].size());
+            assertEquals(2, x[2].size());
+            cp.post(equal(x[0], 2));
+            assertTrue(x[1].isFixed());
+            assertEquals(3, x[1].min());
+            assertTrue(x[2].isFixed());
+            assertEquals(2, x[2].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void randomSmartTable(Supplier<Solver> cp) {
+        Random rand = new Random(1789);
+        for (int i = 0; i < 20; i++) {
+            TableCT.Entry[][] t1 = randomSmartTuples(rand, 3, 6, 9);
+            TableCT.Entry[][] t2 = randomSmartTuples(rand, 3, 6, 9);
+            TableCT.Entry[][] t3 = randomSmartTuples(rand, 3, 6, 9);
+            SearchStatistics statsExpanded = solveWithSmartTables(cp, t1, t2, t3, true);
+            SearchStatistics statsSmart = solveWithSmartTables(cp, t1, t2, t3, false);
+            assertEquals(statsExpanded == null, statsSmart == null);
+            if (statsExpanded != null) {
+                assertEquals(statsExpanded.numberOfSolutions(), statsSmart.numberOfSolutions());
+                assertEquals(statsExpanded.numberOfFailures(), statsSmart.numberOfFailures());
+                assertEquals(statsExpanded.numberOfNodes(), statsSmart.numberOfNodes());
+            }
+        }
+    }
+
+    private SearchStatistics solveWithSmartTables(Supplier<Solver> cpSupplier, TableCT.Entry[][] t1, TableCT.Entry[][] t2, TableCT.Entry[][] t3, boolean expanded) {
+        try {
+            Solver cp = cpSupplier.get();
+            IntVar[] x = makeIntVarArray(cp, 5, 9);
+            cp.post(allDifferent(x));
+            IntVar[][] scopes = new IntVar[][]{{x[0], x[1], x[2]}, {x[2], x[3], x[4]}, {x[0], x[2], x[4]}};
+            TableCT.Entry[][][] tables = new TableCT.Entry[][][]{t1, t2, t3};
+            for (int k = 0; k < 3; k++) {
+                if (expanded)
+                    cp.post(new TableCT(scopes[k], expand(tables[k], 9)));
+                else
+                    cp.post(new TableCT(scopes[k], tables[k]));
+            }
+            return makeDfs(cp, firstFail(x)).solve();
+        } catch (InconsistencyException e) {
+            return null;
+        }
+    }
+
 }
@@ -38,4 +38,24 @@ public class ThetaTreeTest {
         assertEquals(Integer.MIN_VALUE, thetaTree.getECT());
     }
 
+    @Test
+    public void energyEnvelope() {
+        // capacity 2, activities (est, energy) sorted by est
+        int capa = 2;
+        ThetaTree thetaTree = new ThetaTree(3);
+        thetaTree.insertEnergy(0, capa * 0 + 4, 4);
+        thetaTree.insertEnergy(1, capa * 2 + 6, 6);
+        assertEquals(10, thetaTree.getEnvelope()); // max(0 * 2 + 10, 2 * 2 + 6)
+        thetaTree.insertGray(2, capa * 3 + 8, 8);
+        assertEquals(10, thetaTree.getEnvelope());
+        assertEquals(18, thetaTree.getEnvelopeLambda());
+        assertEquals(2, thetaTree.getResponsibleGray());
+        thetaTree.remove(0);
+        assertEquals(10, thetaTree.getEnvelope());
+        assertEquals(18, thetaTree.getEnvelopeLambda()); // max(2 * 2 + 14, 3 * 2 + 8)
+        thetaTree.remove(2);
+        assertEquals(10, thetaTree.getEnvelopeLambda());
+        assertEquals(-1, thetaTree.getResponsibleGray());
+    }
+
 }
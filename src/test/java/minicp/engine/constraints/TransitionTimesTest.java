@@ -0,0 +1,215 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.SequenceVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransitionTimesTest extends SolverTest {
+
+    // nodes 0..2 on a line at positions 0, 10, 20, begin and end at position 0
+    private static final int[][] dist = line(0, 10, 20, 0, 0);
+
+    private static int[][] line(int... pos) {
+        int[][] dist = new int[pos.length][pos.length];
+        for (int i = 0; i < pos.length; i++)
+            for (int j = 0; j < pos.length; j++)
+                dist[i][j] = Math.abs(pos[i] - pos[j]);
+        return dist;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testTimesAlongSequence(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        IntVar[] time = makeIntVarArray(cp, 5, 100);
+        cp.post(equal(time[3], 0));
+        cp.post(transitionTimes(seq, time, dist));
+        seq.insert(2, seq.begin());
+        cp.fixPoint();
+        assertEquals(20, time[2].min());
+        assertEquals(40, time[4].min());
+        seq.insert(1, 2);
+        cp.fixPoint();
+        assertEquals(30, time[1].min());
+        assertEquals(40, time[4].min());
+        // 0 is at the depot, going back to it between 2 and 1 is too long
+        cp.post(lessOrEqual(time[4], 50));
+        assertArrayEquals(new boolean[]{false, true, false, true}, canInsert(seq, 0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRequiredNodeBounds(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        IntVar[] time = makeIntVarArray(cp, 5, 100);
+        cp.post(equal(time[3], 0));
+        cp.post(transitionTimes(seq, time, dist));
+        seq.insert(0, seq.begin());
+        seq.require(2);
+        cp.fixPoint();
+        assertEquals(20, time[2].min());
+        assertEquals(40, time[4].min());
+        seq.removeInsertion(2, seq.begin());
+        cp.post(lessOrEqual(time[2], 25));
+        // 0 is visited before 2
+        assertEquals(5, time[0].max());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testTimeWindows(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        IntVar[] time = new IntVar[5];
+        time[0] = makeIntVar(cp, 0, 5);
+        time[1] = makeIntVar(cp, 40, 45);
+        time[2] = makeIntVar(cp, 0, 25);
+        time[3] = makeIntVar(cp, 0, 0);
+        time[4] = makeIntVar(cp, 0, 100);
+        cp.post(transitionTimes(seq, time, dist));
+        seq.insert(1, seq.begin());
+        cp.fixPoint();
+        // 2 cannot follow 1, 0 can only precede it
+        assertArrayEquals(new boolean[]{false, false, false, true}, canInsert(seq, 2));
+        assertArrayEquals(new boolean[]{false, false, false, true}, canInsert(seq, 0));
+        seq.require(2);
+        cp.fixPoint();
+        assertEquals(20, time[2].min());
+        assertThrows(InconsistencyException.class, () -> cp.post(lessOrEqual(time[2], 15)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testWaitingOnFixedSequence(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        IntVar[] time = makeIntVarArray(cp, 5, 101);
+        cp.post(equal(time[3], 0));
+        cp.post(transitionTimes(seq, time, dist));
+        seq.insert(0, seq.begin());
+        seq.insert(1, 0);
+        seq.exclude(2);
+        cp.fixPoint();
+        assertTrue(seq.isFixed());
+        assertEquals(10, time[1].min());
+        assertEquals(90, time[1].max());
+        // waiting before visiting 1 is allowed
+        time[1].removeBelow(50);
+        cp.fixPoint();
+        assertEquals(0, time[0].min());
+        assertEquals(60, time[4].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testNoWaitOnFixedSequence(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        IntVar[] time = makeIntVarArray(cp, 5, 101);
+        int[] earliest = new int[]{0, 20, 0, 0, 0};
+        time[1] = makeIntVar(cp, 20, 100);
+        cp.post(equal(time[3], 0));
+        cp.post(transitionTimes(seq, time, dist, earliest));
+        seq.insert(0, seq.begin());
+        seq.insert(1, 0);
+        seq.exclude(2);
+        cp.fixPoint();
+        // 1 is reached at 10 and waits until 20
+        assertEquals(0, time[0].max());
+        assertEquals(20, time[1].max());
+        assertEquals(30, time[4].max());
+        // coming back later would require waiting
+        assertThrows(InconsistencyException.class, () -> cp.post(equal(time[4], 40)));
+    }
+
+    private static boolean[] canInsert(SequenceVar seq, int node) {
+        boolean[] can = new boolean[seq.nNode() + 1];
+        for (int pred = 0; pred <= seq.nNode(); pred++)
+            can[pred] = seq.canInsert(node, pred);
+        return can;
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutions(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 50; iter++) {
+            int n = 1 + rand.nextInt(5);
+            int[][] d = new int[n + 2][n + 2];
+            for (int i = 0; i < n + 2; i++)
+                for (int j = 0; j < n + 2; j++)
+                    d[i][j] = i == j ? 0 : 1 + rand.nextInt(20); // not always a metric
+            int[] earliest = new int[n + 2];
+            int[] latest = new int[n + 2];
+            for (int i = 0; i < n; i++) {
+                earliest[i] = rand.nextInt(30);
+                latest[i] = earliest[i] + rand.nextInt(40);
+            }
+            latest[n + 1] = 30 + rand.nextInt(60);
+            boolean[] required = new boolean[n];
+            for (int i = 0; i < n; i++)
+                required[i] = rand.nextInt(3) == 0;
+            int expected = SequenceEnumeration.count(required, order -> inTimeWindows(order, d, earliest, latest));
+
+            int nSolutions;
+            try {
+                Solver cp = cpSupplier.get();
+                SequenceVar seq = makeSequenceVar(cp, n);
+                IntVar[] time = new IntVar[n + 2];
+                for (int i = 0; i < n + 2; i++)
+                    time[i] = makeIntVar(cp, earliest[i], latest[i]);
+                for (int i = 0; i < n; i++)
+                    if (required[i])
+                        seq.require(i);
+                cp.post(transitionTimes(seq, time, d));
+                DFSearch dfs = makeDfs(cp, insertion(d, seq));
+                nSolutions = dfs.solve().numberOfSolutions();
+            } catch (InconsistencyException e) {
+                nSolutions = 0;
+            }
+            assertEquals(expected, nSolutions);
+        }
+    }
+
+    /**
+     * Tells if the nodes of a sequence, visited as soon as possible,
+     * are all visited within their time windows
+     */
+    private static boolean inTimeWindows(int[] order, int[][] d, int[] earliest, int[] latest) {
+        int n = d.length - 2;
+        int t = 0;
+        int pred = n;
+        boolean valid = true;
+        for (int node : order) {
+            t = Math.max(earliest[node], t + d[pred][node]);
+            valid &= t <= latest[node];
+            pred = node;
+        }
+        return valid && t + d[pred][n + 1] <= latest[n + 1];
+    }
+}
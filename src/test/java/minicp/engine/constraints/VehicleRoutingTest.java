@@ -0,0 +1,181 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VehicleRoutingTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testAllCircuits(Solver cp) {
+        IntVar[] succ = makeIntVarArray(cp, 6, 6);
+        cp.post(vehicleRouting(succ, 2));
+        SearchStatistics stats = makeDfs(cp, firstFail(succ)).solve();
+        assertEquals(120, stats.numberOfSolutions());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRouteOverCapacity(Solver cp) {
+        // depots 0 and 1, cities 2..5
+        IntVar[] succ = makeIntVarArray(cp, 6, 6);
+        int[] demand = new int[]{0, 0, 3, 3, 2, 2};
+        cp.post(vehicleRouting(succ, 2, demand, 5));
+        assertFalse(succ[2].contains(3)); // a demand of 6
+        assertTrue(succ[2].contains(4));
+        cp.post(equal(succ[2], 4));
+        assertFalse(succ[4].contains(5));
+        assertThrows(InconsistencyException.class, () -> cp.post(equal(succ[5], 2)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testChainFiltering(Solver cp) {
+        IntVar[] succ = makeIntVarArray(cp, 6, 6);
+        int[] demand = new int[]{0, 0, 3, 2, 2, 1};
+        cp.post(vehicleRouting(succ, 2, demand, 5));
+        assertFalse(succ[2].contains(2));
+        cp.post(equal(succ[0], 2));
+        cp.post(equal(succ[2], 3));
+        // the route 0 -> 2 -> 3 is full, only a depot can follow
+        assertEquals(1, succ[3].min());
+        assertTrue(succ[3].isFixed());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRouteAcrossDepots(Solver cp) {
+        IntVar[] succ = makeIntVarArray(cp, 7, 7);
+        int[] demand = new int[]{0, 0, 1, 2, 3, 1, 3};
+        cp.post(vehicleRouting(succ, 2, demand, 5));
+        // chain 6 -> 0 -> 2: 6 ends a route and 2 starts the route of the depot copy 0
+        cp.post(equal(succ[6], 0));
+        cp.post(equal(succ[0], 2));
+        cp.post(equal(succ[1], 4));
+        // the route of the depot copy 1 cannot visit both 4 and 6
+        assertFalse(succ[4].contains(6));
+        assertTrue(succ[2].contains(3));
+        // the route 1 -> 4 -> 3 is full before reaching 6 -> 0
+        assertThrows(InconsistencyException.class, () -> cp.post(equal(succ[4], 3)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLoads(Solver cp) {
+        IntVar[] succ = makeIntVarArray(cp, 5, 5);
+        IntVar[] load = makeIntVarArray(cp, 5, 100);
+        int[] demand = new int[]{0, 0, 3, 2, 4};
+        cp.post(vehicleRouting(succ, 2, demand, 6, load));
+        assertEquals(0, load[0].max());
+        assertEquals(0, load[1].max());
+        assertEquals(3, load[2].min());
+        assertEquals(6, load[4].max());
+        cp.post(equal(succ[0], 4));
+        assertEquals(4, load[4].min());
+        assertEquals(4, load[4].max());
+        assertFalse(succ[4].contains(2)); // 4 + 3 > 6
+        cp.post(equal(succ[4], 3));
+        assertEquals(6, load[3].min());
+        assertEquals(6, load[3].max());
+        assertEquals(1, succ[3].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutions(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 40; iter++) {
+            int n = 4 + rand.nextInt(3);
+            int nVehicle = 1 + rand.nextInt(3);
+            int capacity = 3 + rand.nextInt(8);
+            int[] demand = new int[n];
+            for (int i = nVehicle; i < n; i++)
+                demand[i] = rand.nextInt(6);
+            int[] order = new int[n];
+            int expected = countRoutes(order, new boolean[n], 1, nVehicle, demand, capacity);
+            boolean withLoads = rand.nextBoolean();
+
+            int nSolutions;
+            try {
+                Solver cp = cpSupplier.get();
+                IntVar[] succ = makeIntVarArray(cp, n, n);
+                IntVar[] load = makeIntVarArray(cp, n, 20);
+                if (withLoads)
+                    cp.post(vehicleRouting(succ, nVehicle, demand, capacity, load));
+                else
+                    cp.post(vehicleRouting(succ, nVehicle, demand, capacity));
+                DFSearch dfs = makeDfs(cp, firstFail(succ));
+                if (withLoads) {
+                    dfs.onSolution(() -> {
+                        for (int i = 0; i < n; i++) {
+                            assertTrue(load[i].isFixed());
+                            int j = succ[i].min();
+                            if (j >= nVehicle)
+                                assertEquals(load[i].min() + demand[j], load[j].min());
+                        }
+                    });
+                }
+                nSolutions = dfs.solve().numberOfSolutions();
+            } catch (InconsistencyException e) {
+                nSolutions = 0;
+            }
+            assertEquals(expected, nSolutions);
+        }
+    }
+
+    /**
+     * Counts the circuits starting from node 0 whose routes respect the capacity,
+     * the nodes visited being stored in order
+     */
+    private static int countRoutes(int[] order, boolean[] visited, int k, int nVehicle, int[] demand, int capacity) {
+        int n = order.length;
+        if (k == n) {
+            int load = 0;
+            for (int t = 1; t < n; t++) {
+                load = order[t] < nVehicle ? 0 : load + demand[order[t]];
+                if (load > capacity)
+                    return 0;
+            }
+            return 1;
+        }
+        int count = 0;
+        for (int v = 1; v < n; v++) {
+            if (!visited[v]) {
+                visited[v] = true;
+                order[k] = v;
+                count += countRoutes(order, visited, k + 1, nVehicle, demand, capacity);
+                visited[v] = false;
+            }
+        }
+        return count;
+    }
+}
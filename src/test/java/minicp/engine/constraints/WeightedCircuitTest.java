@@ -0,0 +1,155 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeightedCircuitTest extends SolverTest {
+
+    // square with sides of length 1 and diagonals of length 10
+    private static final int[][] square = new int[][]{
+            {0, 1, 10, 1},
+            {1, 0, 1, 10},
+            {10, 1, 0, 1},
+            {1, 10, 1, 0}
+    };
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testCostBounds(Solver cp) {
+        IntVar[] succ = makeIntVarArray(cp, 4, 4);
+        IntVar cost = makeIntVar(cp, 0, 1000);
+        cp.post(weightedCircuit(succ, square, cost));
+        assertEquals(4, cost.min());
+        assertEquals(40, cost.max());
+        for (int i = 0; i < 4; i++)
+            assertFalse(succ[i].contains(i));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testReducedCostFiltering(Solver cp) {
+        IntVar[] succ = makeIntVarArray(cp, 4, 4);
+        IntVar cost = makeIntVar(cp, 0, 12);
+        cp.post(weightedCircuit(succ, square, cost));
+        // replacing a side of the optimal tour by a diagonal costs 4 - 1 + 10 = 13
+        for (int i = 0; i < 4; i++) {
+            assertEquals(2, succ[i].size());
+            assertFalse(succ[i].contains((i + 2) % 4));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testHeldKarpBound(Solver cp) {
+        // cities on a line: every edge of the 1-tree of the distances is in the optimal tour
+        // but the cheapest successors only sum to 5
+        int n = 5;
+        int[][] dist = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                dist[i][j] = Math.abs(i - j);
+        IntVar[] succ = makeIntVarArray(cp, n, n);
+        IntVar cost = makeIntVar(cp, 0, 100);
+        cp.post(weightedCircuit(succ, dist, cost));
+        assertEquals(8, cost.min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testCostFixed(Solver cp) {
+        IntVar[] succ = makeIntVarArray(cp, 4, 4);
+        IntVar cost = makeIntVar(cp, 0, 1000);
+        cp.post(weightedCircuit(succ, square, cost));
+        cp.post(equal(succ[0], 2));
+        assertTrue(cost.min() >= 13);
+        cp.post(equal(succ[2], 1));
+        assertTrue(cost.isFixed());
+        assertEquals(22, cost.min());
+        assertThrows(InconsistencyException.class, () -> cp.post(lessOrEqual(cost, 21)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testRandomSameSolutions(Supplier<Solver> cpSupplier) {
+        Random rand = new Random(42);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 4 + rand.nextInt(3);
+            boolean symmetric = rand.nextBoolean();
+            int[][] dist = new int[n][n];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    dist[i][j] = i == j ? 0 : (symmetric && j < i ? dist[j][i] : rand.nextInt(20));
+            int[] best = new int[]{Integer.MAX_VALUE};
+            countTours(dist, new int[n], new boolean[n], 0, 1, 0, Integer.MAX_VALUE, best);
+            int maxCost = best[0] + rand.nextInt(10);
+            int expected = countTours(dist, new int[n], new boolean[n], 0, 1, 0, maxCost, best);
+
+            Solver cp = cpSupplier.get();
+            IntVar[] succ = makeIntVarArray(cp, n, n);
+            IntVar cost = makeIntVar(cp, 0, maxCost);
+            cp.post(weightedCircuit(succ, dist, cost));
+            DFSearch dfs = makeDfs(cp, firstFail(succ));
+            dfs.onSolution(() -> {
+                int total = 0;
+                for (int i = 0; i < n; i++)
+                    total += dist[i][succ[i].min()];
+                assertTrue(cost.isFixed());
+                assertEquals(total, cost.min());
+            });
+            SearchStatistics stats = dfs.solve();
+            assertEquals(expected, stats.numberOfSolutions());
+        }
+    }
+
+    /**
+     * Counts the Hamiltonian circuits starting from node 0 with a cost at most maxCost,
+     * the path being built in succ, and updates the best cost found
+     */
+    private static int countTours(int[][] dist, int[] succ, boolean[] visited, int last, int size, int cost, int maxCost, int[] best) {
+        int n = dist.length;
+        visited[0] = true;
+        if (size == n) {
+            int total = cost + dist[last][0];
+            best[0] = Math.min(best[0], total);
+            return total <= maxCost ? 1 : 0;
+        }
+        int count = 0;
+        for (int j = 1; j < n; j++) {
+            if (!visited[j]) {
+                visited[j] = true;
+                count += countTours(dist, succ, visited, j, size + 1, cost + dist[last][j], maxCost, best);
+                visited[j] = false;
+            }
+        }
+        return count;
+    }
+}
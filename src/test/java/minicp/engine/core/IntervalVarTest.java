@@ -0,0 +1,90 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.core;
+
+import minicp.engine.SolverTest;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntervalVarTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBoundsConsistency(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 20, 2, 5, false);
+        assertEquals(0, a.startMin());
+        assertEquals(18, a.startMax());
+        assertEquals(2, a.endMin());
+        assertEquals(20, a.endMax());
+
+        cp.getStateManager().saveState();
+        a.setStartMin(10);
+        a.setEndMax(13);
+        assertEquals(11, a.startMax());
+        assertEquals(12, a.endMin());
+        assertEquals(3, a.lengthMax());
+        a.setLengthMin(3);
+        assertTrue(a.isFixed());
+        assertEquals(10, a.startMin());
+        cp.getStateManager().restoreState();
+
+        assertEquals(0, a.startMin());
+        assertEquals(5, a.lengthMax());
+        assertThrows(InconsistencyException.class, () -> a.setEndMax(1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOptional(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 10, 4, true);
+        assertTrue(a.isOptional());
+        assertFalse(a.isFixed());
+
+        cp.getStateManager().saveState();
+        a.setStartMin(8); // does not fit anymore
+        assertTrue(a.isAbsent());
+        assertTrue(a.isFixed());
+        a.setStartMax(0); // ignored
+        assertThrows(InconsistencyException.class, () -> a.setPresent());
+        cp.getStateManager().restoreState();
+
+        assertTrue(a.isOptional());
+        a.setPresent();
+        assertTrue(a.isPresent());
+        assertThrows(InconsistencyException.class, () -> a.setStartMin(8));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOnChange(Solver cp) {
+        IntervalVar a = makeIntervalVar(cp, 0, 10, 4, true);
+        int[] nCalls = new int[1];
+        a.whenChange(() -> nCalls[0]++);
+        a.setStartMin(2);
+        cp.fixPoint();
+        assertEquals(1, nCalls[0]);
+        a.setStartMin(1); // no change
+        cp.fixPoint();
+        assertEquals(1, nCalls[0]);
+        a.setAbsent();
+        cp.fixPoint();
+        assertEquals(2, nCalls[0]);
+    }
+}
@@ -16,14 +16,16 @@
 package minicp.engine.core;
 
 import minicp.engine.SolverTest;
+import minicp.engine.constraints.Circuit;
 import minicp.search.DFSearch;
 import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import static minicp.cp.BranchingScheme.*;
 import static minicp.cp.Factory.*;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 
 public class MiniCPTest extends SolverTest {
@@ -75,5 +77,103 @@ public class MiniCPTest extends SolverTest {
         assertEquals((8 + 4 + 2),stats.numberOfNodes());
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testPostAll(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 4);
+        int[] nFixPoint = new int[1];
+        cp.onFixPoint(() -> nFixPoint[0]++);
+
+        Constraint[] constraints = new Constraint[x.length];
+        constraints[0] = equal(x[0], 0);
+        for (int i = 1; i < x.length; i++)
+            constraints[i] = lessOrEqual(plus(x[i - 1], 1), x[i]);
+        cp.postAll(constraints);
+
+        assertEquals(1, nFixPoint[0]);
+        for (int i = 0; i < x.length; i++)
+            assertEquals(i, x[i].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBatch(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 5, 5);
+        int[] nFixPoint = new int[1];
+        cp.onFixPoint(() -> nFixPoint[0]++);
+
+        cp.batch(() -> {
+            cp.post(allDifferent(x));
+            cp.batch(() -> {
+                for (int i = 0; i < x.length - 1; i++)
+                    cp.post(equal(x[i], i));
+            });
+            // constraints are only posted at the end of the outermost scope
+            assertEquals(5, x[0].size());
+            assertEquals(0, nFixPoint[0]);
+        });
+
+        assertEquals(1, nFixPoint[0]);
+        assertTrue(x[4].isFixed());
+        assertEquals(4, x[4].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBatchFailure(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+
+        assertThrows(InconsistencyException.class, () -> cp.batch(() -> {
+            cp.post(allDifferent(x));
+            cp.post(equal(x[0], 1));
+            cp.post(equal(x[2], 1));
+        }));
+
+        // the failed batch must not leave any pending constraint behind
+        IntVar y = makeIntVar(cp, 3);
+        cp.post(notEqual(y, 0));
+        assertEquals(2, y.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBatchNestedPosts(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 4, 4);
+        int[] nFixPoint = new int[1];
+        cp.onFixPoint(() -> nFixPoint[0]++);
+
+        // the circuit posts an allDifferent, recorded in the batch as well
+        cp.batch(() -> {
+            cp.post(new Circuit(x));
+            cp.post(equal(x[0], 1));
+            cp.post(equal(x[1], 2));
+        });
+
+        assertEquals(1, nFixPoint[0]);
+        assertEquals(3, x[2].min());
+        assertEquals(0, x[3].min());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBatchRuntimeException(Solver cp) {
+        IntVar x = makeIntVar(cp, 3);
+        Constraint invalid = new AbstractConstraint(cp) {
+            @Override
+            public void post() {
+                throw new IllegalStateException();
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> cp.batch(() -> {
+            cp.post(invalid);
+            cp.post(equal(x, 1));
+        }));
+
+        // the invalid constraint must not be posted again by the next batch
+        cp.batch(() -> cp.post(notEqual(x, 0)));
+        assertEquals(2, x.size());
+    }
+
 
 }
@@ -0,0 +1,175 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+
+package minicp.engine.core;
+
+import minicp.engine.SolverTest;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+
+import static minicp.cp.BranchingScheme.insertion;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceVarTest extends SolverTest {
+
+    private static int[] order(SequenceVar seq) {
+        int[] order = new int[seq.nNode() + 2];
+        return Arrays.copyOf(order, seq.fillOrder(order));
+    }
+
+    private static int[] insertions(SequenceVar seq, int node) {
+        int[] insertions = new int[seq.nNode() + 1];
+        int size = seq.fillInsertions(node, insertions);
+        int[] sorted = Arrays.copyOf(insertions, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testInitial(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        assertEquals(4, seq.begin());
+        assertEquals(5, seq.end());
+        assertArrayEquals(new int[]{4, 5}, order(seq));
+        assertEquals(0, seq.nMember());
+        assertEquals(4, seq.nPossible());
+        assertFalse(seq.isFixed());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(seq.isPossible(i));
+            assertArrayEquals(new int[]{4}, insertions(seq, i));
+        }
+        assertEquals(5, seq.nextMember(4));
+        assertEquals(4, seq.predMember(5));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testInsert(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        seq.insert(2, seq.begin());
+        seq.insert(0, seq.begin());
+        assertArrayEquals(new int[]{4, 0, 2, 5}, order(seq));
+        assertEquals(2, seq.nMember());
+        assertTrue(seq.isMember(0));
+        assertEquals(3, seq.nInsertions(1));
+        assertArrayEquals(new int[]{0, 2, 4}, insertions(seq, 3));
+        assertEquals(2, seq.nextMember(0));
+        assertEquals(0, seq.predMember(2));
+
+        cp.getStateManager().saveState();
+        seq.insert(1, 0);
+        assertArrayEquals(new int[]{4, 0, 1, 2, 5}, order(seq));
+        assertArrayEquals(new int[]{0, 1, 2, 4}, insertions(seq, 3));
+        seq.exclude(3);
+        assertTrue(seq.isFixed());
+        cp.getStateManager().restoreState();
+
+        assertArrayEquals(new int[]{4, 0, 2, 5}, order(seq));
+        assertTrue(seq.isPossible(1));
+        assertTrue(seq.isPossible(3));
+        assertArrayEquals(new int[]{0, 2, 4}, insertions(seq, 3));
+        // 1 and 3 cannot be inserted twice, nor after a node that is not a member
+        assertThrows(InconsistencyException.class, () -> seq.insert(0, 2));
+        assertThrows(InconsistencyException.class, () -> seq.insert(3, 1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRequireExclude(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        seq.require(1);
+        seq.exclude(2);
+        assertTrue(seq.isRequired(1));
+        assertTrue(seq.isExcluded(2));
+        assertEquals(1, seq.nRequired());
+        assertEquals(2, seq.nPossible());
+        assertEquals(1, seq.nExcluded());
+        assertThrows(InconsistencyException.class, () -> seq.insert(2, seq.begin()));
+
+        cp.getStateManager().saveState();
+        seq.insert(1, seq.begin());
+        assertTrue(seq.isMember(1));
+        assertFalse(seq.isRequired(1));
+        assertEquals(0, seq.nRequired());
+        assertThrows(InconsistencyException.class, () -> seq.exclude(1));
+        cp.getStateManager().restoreState();
+
+        assertTrue(seq.isRequired(1));
+        assertThrows(InconsistencyException.class, () -> seq.exclude(1));
+        assertThrows(InconsistencyException.class, () -> seq.require(2));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRemoveInsertion(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 3);
+        seq.insert(0, seq.begin());
+        seq.require(1);
+        seq.removeInsertion(1, seq.begin());
+        assertArrayEquals(new int[]{0}, insertions(seq, 1));
+        seq.removeInsertion(2, seq.begin());
+        seq.removeInsertion(2, 0);
+        // no insertion left
+        assertTrue(seq.isExcluded(2));
+        seq.removeInsertion(2, 0); // no effect
+        assertThrows(InconsistencyException.class, () -> seq.removeInsertion(1, 0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testListeners(Solver cp) {
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        int[] nCalls = new int[4];
+        seq.whenInsert(() -> nCalls[0]++);
+        seq.whenExclude(() -> nCalls[1]++);
+        seq.whenRequire(() -> nCalls[2]++);
+        seq.whenDomainChange(() -> nCalls[3]++);
+        seq.insert(0, seq.begin());
+        cp.fixPoint();
+        assertArrayEquals(new int[]{1, 0, 0, 1}, nCalls);
+        seq.require(1);
+        cp.fixPoint();
+        assertArrayEquals(new int[]{1, 0, 1, 2}, nCalls);
+        seq.exclude(2);
+        cp.fixPoint();
+        assertArrayEquals(new int[]{1, 1, 1, 3}, nCalls);
+        seq.removeInsertion(3, 0);
+        cp.fixPoint();
+        assertArrayEquals(new int[]{1, 1, 1, 4}, nCalls);
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEnumerateSequences(Solver cp) {
+        // every ordered subset of 4 nodes: 1 + 4 + 12 + 24 + 24
+        SequenceVar seq = makeSequenceVar(cp, 4);
+        int[][] dist = new int[6][6];
+        SearchStatistics stats = makeDfs(cp, insertion(dist, seq)).solve();
+        assertEquals(65, stats.numberOfSolutions());
+        // the sequences with the node 0
+        cp.getStateManager().saveState();
+        seq.require(0);
+        stats = makeDfs(cp, insertion(dist, seq)).solve();
+        assertEquals(49, stats.numberOfSolutions());
+        cp.getStateManager().restoreState();
+    }
+}
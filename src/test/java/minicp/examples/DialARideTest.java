@@ -0,0 +1,38 @@
+package minicp.examples;
+
+import minicp.util.io.InputReader;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DialARideTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"data/dialaride/custom0", "data/dialaride/custom1"})
+    public void testValidSolution(String file) {
+        InputReader reader = new InputReader(file);
+        int nVehicles = reader.getInt();
+        reader.getInt(); // ignored
+        int maxRouteDuration = reader.getInt() * 100;
+        int vehicleCapacity = reader.getInt();
+        int maxRideTime = reader.getInt() * 100;
+        DialARide.RideStop depot = null;
+        ArrayList<DialARide.RideStop> pickupRideStops = new ArrayList<>();
+        ArrayList<DialARide.RideStop> dropRideStops = new ArrayList<>();
+        for (DialARide.RideStop r = DialARide.readRide(reader); r != null; r = DialARide.readRide(reader)) {
+            if (r.type == 0)
+                depot = r;
+            else if (r.type == 1)
+                pickupRideStops.add(r);
+            else
+                dropRideStops.add(r);
+        }
+        DialARide.DialARideSolution solution = DialARide.solve(nVehicles, maxRouteDuration, vehicleCapacity,
+                maxRideTime, pickupRideStops, dropRideStops, depot, 2000);
+        assertNotNull(solution);
+        solution.compute(); // throws if the solution is invalid
+    }
+}
@@ -0,0 +1,18 @@
+package minicp.examples;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EBRPTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"data/ebrp/train1", "data/ebrp/custom1"})
+    public void testValidSolution(String file) {
+        EBRP.EBRPInstance instance = EBRP.EBRPInstance.fromFile(file);
+        EBRP.EBRPSolution solution = EBRP.solve(instance, 2000);
+        assertNotNull(solution);
+        assertTrue(solution.isValid());
+    }
+}
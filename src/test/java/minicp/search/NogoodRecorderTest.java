@@ -0,0 +1,106 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.search;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NogoodRecorderTest extends SolverTest {
+
+    private static IntVar[] queens(Solver cp, int n) {
+        IntVar[] q = makeIntVarArray(cp, n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                cp.post(notEqual(q[i], q[j]));
+                cp.post(notEqual(q[i], q[j], j - i));
+                cp.post(notEqual(q[i], q[j], i - j));
+            }
+        }
+        return q;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void restartsEnumerateAllSolutions(Solver cp) {
+        IntVar[] q = queens(cp, 8);
+        NogoodRecorder recorder = new NogoodRecorder(cp, 100000);
+        DFSearch dfs = makeDfs(cp, recorder.firstFail(q));
+        Set<String> solutions = new HashSet<>();
+        dfs.onSolution(() -> solutions.add(Arrays.toString(q)));
+
+        boolean completed = false;
+        int nogoods = 0;
+        try {
+            for (int r = 0; r < 1000 && !completed; r++) {
+                completed = dfs.solve(stats -> stats.numberOfFailures() >= 5).isCompleted();
+                nogoods += recorder.recordNogoods();
+            }
+        } catch (InconsistencyException e) {
+            // the nogoods cover the whole search space
+            completed = true;
+        }
+        assertTrue(completed);
+        assertTrue(nogoods > 0);
+        assertEquals(92, solutions.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void nogoodsReduceFailures(Solver cp) {
+        IntVar[] q = queens(cp, 10);
+        NogoodRecorder recorder = new NogoodRecorder(cp, 100000);
+        DFSearch dfs = makeDfs(cp, recorder.firstFail(q));
+        // the same (stopped) search is replayed: its failed subtrees are pruned
+        SearchStatistics first = dfs.solve(stats -> stats.numberOfSolutions() >= 1);
+        recorder.recordNogoods();
+        SearchStatistics second = dfs.solve(stats -> stats.numberOfSolutions() >= 1);
+        assertEquals(1, second.numberOfSolutions());
+        assertTrue(second.numberOfFailures() < first.numberOfFailures() || first.numberOfFailures() == 0);
+
+        // without recording the failures are the same
+        Solver cp2 = makeSolver();
+        IntVar[] q2 = queens(cp2, 10);
+        DFSearch dfs2 = makeDfs(cp2, firstFail(q2));
+        assertEquals(first.numberOfFailures(), dfs2.solve(stats -> stats.numberOfSolutions() >= 1).numberOfFailures());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void assumptionsAreInNogoods(Solver cp) {
+        IntVar[] q = queens(cp, 6);
+        NogoodRecorder recorder = new NogoodRecorder(cp, 100000);
+        DFSearch dfs = makeDfs(cp, recorder.firstFail(q));
+        // q[0] = 0 has no solution for the 6-queens
+        SearchStatistics stats = dfs.solveSubjectTo(s -> false, () -> recorder.assume(q[0], 0));
+        assertEquals(0, stats.numberOfSolutions());
+        recorder.recordNogoods();
+        // the nogoods are only valid under the assumption
+        assertEquals(6, q[0].size());
+        assertEquals(4, dfs.solve().numberOfSolutions());
+    }
+}
@@ -233,4 +233,64 @@ public class StateSparseBitSetTest extends StateManagerTest {
         }
     }
 
-}
\ No newline at end of file
+    @ParameterizedTest
+    @MethodSource("getStateManager")
+    public void testAndNot(StateManager sm) {
+        StateSparseBitSet set = new StateSparseBitSet(sm, 256);
+        StateSparseBitSet.SupportBitSet b1 = set.new SupportBitSet(); // [0..63] U [130..255]
+        StateSparseBitSet.SupportBitSet b2 = set.new SupportBitSet(); // [64..129]
+        StateSparseBitSet.MaskBitSet mask = set.new MaskBitSet();
+        for (int i = 0; i < 256; i++) {
+            if (i < 64 || i >= 130)
+                b1.set(i);
+            else
+                b2.set(i);
+        }
+        mask.or(b1);
+
+        sm.saveState();
+        set.andNot(mask); // set is now [64..129]
+        assertFalse(set.isEmpty());
+        assertTrue(set.intersects(b2));
+        assertFalse(set.intersects(b1));
+
+        sm.saveState();
+        mask.clear();
+        mask.or(b2);
+        set.andNot(mask); // set is now empty
+        assertTrue(set.isEmpty());
+
+        sm.restoreState();
+        assertTrue(set.intersects(b2));
+        assertFalse(set.intersects(b1));
+
+        sm.restoreState();
+        assertTrue(set.intersects(b1));
+        assertTrue(set.intersects(b2));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getStateManager")
+    public void testCardinality(StateManager sm) {
+        StateSparseBitSet set = new StateSparseBitSet(sm, 200);
+        StateSparseBitSet.SupportBitSet b1 = set.new SupportBitSet(); // multiples of 3
+        StateSparseBitSet.SupportBitSet b2 = set.new SupportBitSet(); // [100..199]
+        for (int i = 0; i < 200; i++) {
+            if (i % 3 == 0)
+                b1.set(i);
+            if (i >= 100)
+                b2.set(i);
+        }
+        assertEquals(200, set.cardinality());
+        assertEquals(67, set.intersectionSize(b1));
+
+        sm.saveState();
+        set.and(b2);
+        assertEquals(100, set.cardinality());
+        assertEquals(33, set.intersectionSize(b1));
+        sm.restoreState();
+
+        assertEquals(200, set.cardinality());
+    }
+
+}
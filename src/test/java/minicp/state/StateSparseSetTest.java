@@ -21,6 +21,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Arrays;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -213,4 +214,62 @@ public class StateSparseSetTest extends StateManagerTest {
             e.print();
         }
     }
+
+    @ParameterizedTest
+    @MethodSource("getStateManager")
+    public void testFillDeltaArray(StateManager sm) {
+        StateSparseSet set = new StateSparseSet(sm, 10, 3);
+        StateInt lastSize = sm.makeStateInt(set.size());
+        int[] delta = new int[10];
+
+        sm.saveState();
+        set.remove(5);
+        set.remove(12);
+        assertEquals(2, set.fillDeltaArray(lastSize.value(), delta));
+        assertEquals(toSet(5, 12), toSet(Arrays.copyOf(delta, 2)));
+        lastSize.setValue(set.size());
+
+        sm.saveState();
+        set.removeAbove(8);
+        assertEquals(toSet(9, 10, 11), toSet(Arrays.copyOf(delta, set.fillDeltaArray(lastSize.value(), delta))));
+
+        sm.restoreState();
+        assertEquals(0, set.fillDeltaArray(lastSize.value(), delta));
+
+        sm.restoreState();
+        assertEquals(10, lastSize.value());
+        assertEquals(0, set.fillDeltaArray(lastSize.value(), delta));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getStateManager")
+    public void testRemoveKeepingFewValues(StateManager sm) {
+        StateSparseSet set = new StateSparseSet(sm, 20, -5);
+        StateInt lastSize = sm.makeStateInt(set.size());
+        int[] delta = new int[20];
+
+        sm.saveState();
+        set.remove(-3);
+        set.removeAbove(-1);
+        assertEquals(toSet(-5, -4, -2, -1), toSet(set.toArray()));
+        assertEquals(-5, set.min());
+        assertEquals(-1, set.max());
+        assertEquals(16, set.fillDeltaArray(lastSize.value(), delta));
+        lastSize.setValue(set.size());
+
+        sm.saveState();
+        set.removeBelow(-2);
+        assertEquals(toSet(-2, -1), toSet(set.toArray()));
+        assertEquals(-2, set.min());
+        assertEquals(-1, set.max());
+        assertEquals(toSet(-5, -4), toSet(Arrays.copyOf(delta, set.fillDeltaArray(lastSize.value(), delta))));
+
+        sm.restoreState();
+        assertEquals(toSet(-5, -4, -2, -1), toSet(set.toArray()));
+
+        sm.restoreState();
+        assertEquals(20, set.size());
+        assertEquals(-5, set.min());
+        assertEquals(14, set.max());
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.util.exception;
+
+import minicp.engine.SolverTest;
+import minicp.engine.constraints.Sum;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.util.Procedure;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.management.ManagementFactory;
+
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class InconsistencyExceptionTest extends SolverTest {
+
+    private static final int N_FAILURES = 10000;
+
+    /**
+     * Returns the number of bytes allocated by the current thread
+     * when running N_FAILURES times a failing closure.
+     */
+    private static long allocatedBytesPerFailures(Procedure failure) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        long tid = Thread.currentThread().getId();
+
+        // warm-up
+        for (int i = 0; i < N_FAILURES; i++)
+            runFailing(failure);
+        long before = threadBean.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < N_FAILURES; i++)
+            runFailing(failure);
+        return threadBean.getThreadAllocatedBytes(tid) - before;
+    }
+
+    private static void runFailing(Procedure failure) {
+        try {
+            failure.call();
+            throw new AssertionError("should fail");
+        } catch (InconsistencyException e) {
+            assertSame(InconsistencyException.INCONSISTENCY, e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void sumFailureDoesNotAllocate(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 5);
+        Sum sum = new Sum(x, 100);
+        // less than one byte per failure on average
+        assertTrue(allocatedBytesPerFailures(sum::propagate) < N_FAILURES);
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void viewFailureDoesNotAllocate(Solver cp) {
+        IntVar x = mul(makeIntVar(cp, 10), 2);
+        assertTrue(allocatedBytesPerFailures(() -> x.fix(3)) < N_FAILURES);
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void noStackTrace(Solver cp) {
+        assertEquals(0, InconsistencyException.INCONSISTENCY.getStackTrace().length);
+        assertEquals(0, new InconsistencyException().getStackTrace().length);
+    }
+}